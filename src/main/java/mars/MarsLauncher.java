@@ -5,16 +5,23 @@ import mars.assembler.log.AssemblyError;
 import mars.mips.dump.DumpFormat;
 import mars.mips.dump.DumpFormatManager;
 import mars.mips.hardware.*;
+import mars.simulator.PerformanceCounters;
+import mars.simulator.PipelineModel;
+import mars.simulator.Profiler;
 import mars.simulator.Simulator;
 import mars.simulator.SimulatorException;
+import mars.simulator.fs.InMemoryFileSystem;
+import mars.simulator.trace.TraceRecorder;
 import mars.util.Binary;
 import mars.util.FilenameFinder;
 import mars.util.MemoryDump;
+import mars.util.MemoryLoader;
 import mars.util.NativeUtilities;
 import mars.venus.VenusUI;
 
 import javax.swing.*;
 import java.io.*;
+import java.nio.file.NoSuchFileException;
 import java.util.*;
 
 /*
@@ -73,9 +80,21 @@ public class MarsLauncher {
     private List<String> memoryDisplayList;
     private List<String> filenameList;
     private int maxSteps;
-    private int instructionCount;
+    private String performanceReportFilename; // file to write performance counter report to, if any
+    private PerformanceCounters performanceCounters;
+    private String profileFilename; // file to write folded call stacks to, if any
+    private Profiler profiler;
+    private String pipelineReportFilename; // file to write pipeline timing report to, if any
+    private PipelineModel pipelineModel;
+    private String traceFilename; // file to record an execution trace to, if any
+    private boolean traceDropOnOverflow; // whether trace records are dropped rather than stalling when behind
+    private TraceRecorder traceRecorder;
+    private Memory.Storage memoryStorage; // how simulated memory pages are stored
+    private String memoryFilename; // file to map the heap and stack from, if any
+    private List<String> fixtureFilenames; // files or directories to load into an in-memory file system, if any
     private PrintStream out; // stream for display of command line output
     private List<String[]> dumpTriples = null; // each element holds 3 arguments for dump option
+    private List<String[]> loadTriples = null; // each element holds 3 arguments for load option
     private List<String> programArgumentList; // optional program args for MIPS program (becomes argc, argv)
     private int assembleErrorExitCode; // MARS command exit code to return if assemble error occurs
     private int simulateErrorExitCode; // MARS command exit code to return if simulation error occurs
@@ -112,8 +131,31 @@ public class MarsLauncher {
      *     segments are <code>.text</code> and <code>.data</code>.  Current supported dump formats
      *     are <code>Binary</code>, <code>HexText</code>, <code>BinaryText</code>.
      * <li><code>h</code>  -- Display help.  Use by itself and with no filename.
+     * <li><code>load &lt;address&gt; &lt;format&gt; &lt;file&gt;</code>  -- Preload memory from a file after assembly,
+     *     before the program runs, starting at the given address or segment name (such as <code>.data</code>).
+     *     Supported formats are <code>Binary</code>, <code>HexText</code> and <code>Sparse</code>, matching the dump
+     *     formats of the same names. <code>Sparse</code> files contain their own addresses, so the address is ignored
+     *     and may be given as <code>-</code>. May be given more than once.
      * <li><code>hex</code>  -- Display memory or register contents in hexadecimal (default).
      * <li><code>ic</code>  -- Display count of MIPS basic instructions 'executed'.
+     * <li><code>perf &lt;file&gt;</code>  -- Write performance counters (instructions retired by format and mnemonic,
+     *     loads and stores by width, branches, syscalls, exceptions, wall time and MIPS) to a file as JSON.
+     * <li><code>profile &lt;file&gt;</code>  -- Profile calls and write the instruction counts per call stack to a file
+     *     in the "folded stacks" format used by flame graph tools.
+     * <li><code>pipeline &lt;file&gt;</code>  -- Estimate the timing of the program on a five-stage pipeline and write
+     *     the cycle count, CPI and stall breakdown (as a whole and per source line) to a file as JSON.
+     * <li><code>trace &lt;file&gt;</code>  -- Record a binary execution trace (addresses, encodings, register writes and
+     *     memory accesses) to a file. Traces can be printed with {@link mars.simulator.trace.TracePrinter}.
+     * <li><code>tracedrop</code>  -- When recording a trace, drop records instead of slowing down the simulation
+     *     if the trace cannot be written fast enough.
+     * <li><code>offheap</code>  -- Store simulated memory outside the Java heap, so programs using large amounts
+     *     of memory do not need a large heap. The limit is set by the <code>-XX:MaxDirectMemorySize</code> JVM option.
+     * <li><code>memfile &lt;file&gt;</code>  -- Like <code>offheap</code>, but map the heap and stack from a sparse
+     *     file, allowing programs to use more memory than is physically available. The file is replaced if it exists.
+     * <li><code>fixture &lt;path&gt;</code>  -- Serve file syscalls from an in-memory file system instead of the disk,
+     *     preloaded with the given file (by its file name) or the files in the given directory (by their relative
+     *     paths). The fixtures are never modified, and files written by the program are kept in memory only.
+     *     May be given more than once.
      * <li><code>mc &lt;config&gt;</code>  -- Set memory configuration, where <i>config</i> is <code>Default</code>
      *     for the MARS default 32-bit address space, <code>CompactDataAtZero</code> for
      *     a 32KB address space with data segment at address 0, or <code>CompactTextAtZero</code>
@@ -162,7 +204,18 @@ public class MarsLauncher {
             this.startAtMain = false;
             this.countInstructions = false;
             this.selfModifyingCode = false;
-            this.instructionCount = 0;
+            this.performanceReportFilename = null;
+            this.performanceCounters = null;
+            this.profileFilename = null;
+            this.profiler = null;
+            this.pipelineReportFilename = null;
+            this.pipelineModel = null;
+            this.traceFilename = null;
+            this.traceDropOnOverflow = false;
+            this.traceRecorder = null;
+            this.memoryStorage = Memory.Storage.HEAP;
+            this.memoryFilename = null;
+            this.fixtureFilenames = new ArrayList<>();
             this.assembleErrorExitCode = 0;
             this.simulateErrorExitCode = 0;
             this.registerDisplayList = new ArrayList<>();
@@ -175,7 +228,11 @@ public class MarsLauncher {
                     this.displayMiscellaneousPostMortem();
                     this.displayRegistersPostMortem();
                     this.displayMemoryPostMortem();
+                    this.writePerformanceReport();
+                    this.writeProfile();
+                    this.writePipelineReport();
                 }
+                this.closeTrace();
                 this.dumpSegments();
             }
             System.exit(Application.exitCode);
@@ -228,7 +285,7 @@ public class MarsLauncher {
                 continue;
             }
             try {
-                int highAddress = Memory.getInstance().getAddressOfFirstNullWord(segmentInfo[0], segmentInfo[1]) - Memory.BYTES_PER_WORD;
+                int highAddress = format.getSegmentHighAddress(segmentInfo[0], segmentInfo[1]);
                 if (highAddress < segmentInfo[0]) {
                     out.println("This segment has not been written to, there is nothing to dump.");
                     continue;
@@ -310,6 +367,90 @@ public class MarsLauncher {
                 }
                 continue;
             }
+            if (args[i].equalsIgnoreCase("load")) {
+                if (i + 3 >= args.length) {
+                    this.out.println("Load command line argument requires an address, format and file name.");
+                    argsOK = false;
+                }
+                else {
+                    if (this.loadTriples == null) {
+                        this.loadTriples = new ArrayList<>();
+                    }
+                    this.loadTriples.add(new String[] { args[++i], args[++i], args[++i] });
+                }
+                continue;
+            }
+            if (args[i].equalsIgnoreCase("perf")) {
+                if (i + 1 >= args.length) {
+                    this.out.println("Perf command line argument requires a file name.");
+                    argsOK = false;
+                }
+                else {
+                    this.performanceReportFilename = args[++i];
+                }
+                continue;
+            }
+            if (args[i].equalsIgnoreCase("profile")) {
+                if (i + 1 >= args.length) {
+                    this.out.println("Profile command line argument requires a file name.");
+                    argsOK = false;
+                }
+                else {
+                    this.profileFilename = args[++i];
+                }
+                continue;
+            }
+            if (args[i].equalsIgnoreCase("pipeline")) {
+                if (i + 1 >= args.length) {
+                    this.out.println("Pipeline command line argument requires a file name.");
+                    argsOK = false;
+                }
+                else {
+                    this.pipelineReportFilename = args[++i];
+                }
+                continue;
+            }
+            if (args[i].equalsIgnoreCase("trace")) {
+                if (i + 1 >= args.length) {
+                    this.out.println("Trace command line argument requires a file name.");
+                    argsOK = false;
+                }
+                else {
+                    this.traceFilename = args[++i];
+                }
+                continue;
+            }
+            if (args[i].equalsIgnoreCase("tracedrop")) {
+                this.traceDropOnOverflow = true;
+                continue;
+            }
+            if (args[i].equalsIgnoreCase("offheap")) {
+                if (this.memoryStorage == Memory.Storage.HEAP) {
+                    this.memoryStorage = Memory.Storage.OFF_HEAP;
+                }
+                continue;
+            }
+            if (args[i].equalsIgnoreCase("memfile")) {
+                if (i + 1 >= args.length) {
+                    this.out.println("Memfile command line argument requires a file name.");
+                    argsOK = false;
+                }
+                else {
+                    this.memoryStorage = Memory.Storage.MAPPED_FILE;
+                    this.memoryFilename = args[++i];
+                }
+                continue;
+            }
+            if (args[i].equalsIgnoreCase("fixture")) {
+                if (i + 1 >= args.length) {
+                    this.out.println("Fixture command line argument requires a file or directory name.");
+                    argsOK = false;
+                }
+                else {
+                    this.fixtureFilenames.add(args[++i]);
+                }
+                continue;
+            }
             if (args[i].equalsIgnoreCase("mc")) {
                 String configName = args[++i];
                 if (Memory.getLayouts().get(configName) == null) {
@@ -462,6 +603,10 @@ public class MarsLauncher {
         try {
             Application.getSettings().delayedBranchingEnabled.setNonPersistent(this.delayedBranching);
             Application.getSettings().selfModifyingCodeEnabled.setNonPersistent(this.selfModifyingCode);
+            Memory.getInstance().setStorage(this.memoryStorage, (this.memoryFilename == null) ? null : new File(this.memoryFilename).toPath());
+            if (!this.fixtureFilenames.isEmpty() && !this.loadFixtures()) {
+                return false;
+            }
             List<String> filesToAssemble;
             if (this.assembleFolder) {
                 filesToAssemble = FilenameFinder.findFilenames(new File(this.filenameList.get(0)).getParent(), Application.FILE_EXTENSIONS);
@@ -491,10 +636,14 @@ public class MarsLauncher {
             if (Application.debug) {
                 this.out.println("--------  ASSEMBLY BEGINS  -----------");
             }
-            Assembler assembler = new Assembler();
+            // Use the global assembler so the symbol tables are visible when initializing the program counter
+            Assembler assembler = Application.assembler;
             assembler.getLog().setOutput(this.out::println);
             assembler.assembleFilenames(filesToAssemble);
             Processor.initializeProgramCounter(this.startAtMain); // DPS 3/9/09
+            if (!this.loadMemory()) {
+                return false;
+            }
             if (this.simulate) {
                 // store program args (if any) in MIPS memory
                 Simulator.getInstance().storeProgramArguments(this.programArgumentList);
@@ -525,6 +674,76 @@ public class MarsLauncher {
         return true;
     }
 
+    /**
+     * Load the fixture files into a read-only in-memory file system, and direct file syscalls to a writable
+     * layer on top of it.
+     *
+     * @return true if all fixtures were loaded, false otherwise.
+     */
+    private boolean loadFixtures() {
+        InMemoryFileSystem fixtures = new InMemoryFileSystem();
+        for (String fixtureFilename : this.fixtureFilenames) {
+            try {
+                fixtures.addHostFiles(new File(fixtureFilename).toPath());
+            }
+            catch (IOException exception) {
+                this.out.println("Error while attempting to load fixture " + fixtureFilename + "!  Disk IO failed!");
+                return false;
+            }
+        }
+        Simulator.getInstance().getSystemIO().setFileSystem(new InMemoryFileSystem(fixtures));
+        return true;
+    }
+
+    /**
+     * Perform any specified memory preloads.  See "load" option.
+     *
+     * @return true if all files were loaded, false otherwise.
+     */
+    private boolean loadMemory() {
+        if (this.loadTriples == null) {
+            return true;
+        }
+        for (String[] triple : this.loadTriples) {
+            File file = new File(triple[2]);
+            MemoryLoader.Format format = MemoryLoader.Format.fromCommandDescriptor(triple[1]);
+            if (format == null) {
+                this.out.println("Error while attempting to load memory, format " + triple[1] + " was not found!");
+                return false;
+            }
+            int address = 0;
+            if (!format.hasAddresses()) {
+                Integer[] segmentInfo = MemoryDump.getSegmentBounds(triple[0]);
+                try {
+                    address = (segmentInfo != null) ? segmentInfo[0] : Binary.decodeInteger(triple[0]);
+                }
+                catch (NumberFormatException exception) {
+                    this.out.println("Error while attempting to load memory, address " + triple[0] + " is invalid!");
+                    return false;
+                }
+            }
+            try {
+                long length = MemoryLoader.load(file.toPath(), format, address);
+                if (Application.debug) {
+                    this.out.println("Loaded " + length + " bytes from " + file + ".");
+                }
+            }
+            catch (NoSuchFileException exception) {
+                this.out.println("Error while attempting to load memory, file " + file + " was not found!");
+                return false;
+            }
+            catch (AddressErrorException exception) {
+                this.out.println("Error while attempting to load memory from file " + file + "!  Could not write address: " + Binary.intToHexString(exception.getAddress()) + "!");
+                return false;
+            }
+            catch (IOException exception) {
+                this.out.println("Error while attempting to load memory from file " + file + "!  " + exception.getMessage());
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Check for memory address subrange.  Has to be two integers separated
      * by "-"; no embedded spaces.  e.g. 0x00400000-0x00400010
@@ -550,30 +769,34 @@ public class MarsLauncher {
     /**
      * Required for counting instructions executed, if that option is specified.
      * DPS 19 July 2012
+     * <p>
+     * Counting is now done by the simulator itself through {@link PerformanceCounters}, which is exact
+     * (including single-instruction loops) and also backs the <code>perf</code> option.
      */
     private void establishObserver() {
-        if (countInstructions) {
-            Memory.Listener instructionCounter = new Memory.Listener() {
-                private int lastAddress = -1;
-
-                @Override
-                public void memoryRead(int address, int length, int value, int wordAddress, int wordValue) {
-                    if (wordAddress != this.lastAddress) {
-                        this.lastAddress = wordAddress;
-                        MarsLauncher.this.instructionCount++;
-                    }
-                }
-            };
-            Memory.getInstance().addListener(
-                instructionCounter,
-                Memory.getInstance().getLayout().textRange.minAddress(),
-                Memory.getInstance().getLayout().textRange.maxAddress()
-            );
-            Memory.getInstance().addListener(
-                instructionCounter,
-                Memory.getInstance().getLayout().kernelTextRange.minAddress(),
-                Memory.getInstance().getLayout().kernelTextRange.maxAddress()
-            );
+        if (this.countInstructions || this.performanceReportFilename != null) {
+            this.performanceCounters = new PerformanceCounters();
+            Simulator.getInstance().setPerformanceCounters(this.performanceCounters);
+        }
+        if (this.profileFilename != null) {
+            this.profiler = new Profiler();
+            Simulator.getInstance().addExecutionListener(this.profiler);
+        }
+        if (this.pipelineReportFilename != null) {
+            this.pipelineModel = new PipelineModel();
+            Simulator.getInstance().addExecutionListener(this.pipelineModel);
+        }
+        if (this.traceFilename != null) {
+            TraceRecorder.OverflowPolicy overflowPolicy = (this.traceDropOnOverflow)
+                ? TraceRecorder.OverflowPolicy.DROP
+                : TraceRecorder.OverflowPolicy.STALL;
+            try {
+                this.traceRecorder = new TraceRecorder(new File(this.traceFilename).toPath(), TraceRecorder.DEFAULT_BUFFER_SIZE, overflowPolicy);
+                Simulator.getInstance().addExecutionListener(this.traceRecorder);
+            }
+            catch (IOException exception) {
+                out.println("Error while attempting to record trace, file " + this.traceFilename + "!  Disk IO failed!");
+            }
         }
     }
 
@@ -582,8 +805,74 @@ public class MarsLauncher {
      * DPS 19 July 2012
      */
     private void displayMiscellaneousPostMortem() {
-        if (countInstructions) {
-            out.println("\n" + instructionCount);
+        if (this.countInstructions && this.performanceCounters != null) {
+            out.println("\n" + this.performanceCounters.getInstructionsRetired());
+        }
+    }
+
+    /**
+     * Write the performance counter report as JSON, if the <code>perf</code> option was specified.
+     */
+    private void writePerformanceReport() {
+        if (this.performanceReportFilename == null || this.performanceCounters == null) {
+            return;
+        }
+        try (Writer writer = new BufferedWriter(new FileWriter(this.performanceReportFilename))) {
+            this.performanceCounters.toJSON().write(writer, 2, 0);
+            writer.write(System.lineSeparator());
+        }
+        catch (IOException exception) {
+            out.println("Error while attempting to write performance report, file " + this.performanceReportFilename + "!  Disk IO failed!");
+        }
+    }
+
+    /**
+     * Write the folded call stacks gathered by the profiler, if the <code>profile</code> option was specified.
+     */
+    private void writeProfile() {
+        if (this.profileFilename == null || this.profiler == null) {
+            return;
+        }
+        try (Writer writer = new BufferedWriter(new FileWriter(this.profileFilename))) {
+            this.profiler.writeFoldedStacks(writer);
+        }
+        catch (IOException exception) {
+            out.println("Error while attempting to write profile, file " + this.profileFilename + "!  Disk IO failed!");
+        }
+    }
+
+    /**
+     * Write the pipeline timing report as JSON, if the <code>pipeline</code> option was specified.
+     */
+    private void writePipelineReport() {
+        if (this.pipelineReportFilename == null || this.pipelineModel == null) {
+            return;
+        }
+        try (Writer writer = new BufferedWriter(new FileWriter(this.pipelineReportFilename))) {
+            this.pipelineModel.toJSON().write(writer, 2, 0);
+            writer.write(System.lineSeparator());
+        }
+        catch (IOException exception) {
+            out.println("Error while attempting to write pipeline report, file " + this.pipelineReportFilename + "!  Disk IO failed!");
+        }
+    }
+
+    /**
+     * Finish writing the execution trace, if the <code>trace</code> option was specified.
+     */
+    private void closeTrace() {
+        if (this.traceRecorder == null) {
+            return;
+        }
+        Simulator.getInstance().removeExecutionListener(this.traceRecorder);
+        try {
+            this.traceRecorder.close();
+            if (this.traceRecorder.getDroppedCount() > 0) {
+                out.println("Trace is missing " + this.traceRecorder.getDroppedCount() + " of " + this.traceRecorder.getStepCount() + " steps.");
+            }
+        }
+        catch (IOException exception) {
+            out.println("Error while attempting to record trace, file " + this.traceFilename + "!  Disk IO failed!");
         }
     }
 
@@ -762,7 +1051,32 @@ public class MarsLauncher {
         out.println("            <format> = " + formats);
         out.println("      h  -- display this help.  Use by itself with no filename.");
         out.println("    hex  -- display memory or register contents in hexadecimal (default)");
+        out.println("   load <address> <format> <file> -- preload memory from the specified file,");
+        out.println("            starting at the specified address or segment, after assembly and");
+        out.println("            before the program runs.  Option may be repeated.");
+        out.println("            <format> = " + String.join(", ", Arrays.stream(MemoryLoader.Format.values())
+            .map(MemoryLoader.Format::getCommandDescriptor)
+            .toList()));
+        out.println("            Sparse files hold their own addresses, so <address> may be '-'.");
         out.println("     ic  -- display count of MIPS basic instructions 'executed'");
+        out.println("   perf <file>  -- write performance counters (instructions by format and");
+        out.println("            mnemonic, loads/stores by width, branches, syscalls, exceptions,");
+        out.println("            wall time and MIPS) to the specified file as JSON.");
+        out.println("   profile <file>  -- write instruction counts per call stack to the specified");
+        out.println("            file in the folded format used by flame graph tools.");
+        out.println("   pipeline <file>  -- estimate timing on a five-stage pipeline and write cycles,");
+        out.println("            CPI and stalls (total and per source line) to the specified file as JSON.");
+        out.println("   trace <file>  -- record a binary execution trace to the specified file.");
+        out.println("            Print it with: java -cp <jar> mars.simulator.trace.TracePrinter <file>");
+        out.println("  tracedrop  -- drop trace records rather than slow down the simulation when");
+        out.println("            the trace cannot be written fast enough.");
+        out.println("  offheap  -- store simulated memory outside the Java heap (limited by the");
+        out.println("            -XX:MaxDirectMemorySize JVM option rather than -Xmx).");
+        out.println("   memfile <file>  -- like offheap, but map the heap and stack from the specified");
+        out.println("            sparse file, which is replaced if it exists.");
+        out.println("   fixture <path>  -- serve file syscalls from memory, preloaded read-only with the");
+        out.println("            specified file or directory. Files written by the program are not");
+        out.println("            saved to disk. May be repeated.");
         out.println("     mc <config>  -- set memory configuration.  Argument <config> is");
         out.println("            case-sensitive and possible values are: Default for the default");
         out.println("            32-bit address space, CompactDataAtZero for a 32KB memory with");
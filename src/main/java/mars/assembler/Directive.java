@@ -8,6 +8,12 @@ import mars.mips.hardware.Memory;
 import mars.util.Binary;
 import mars.util.StringTrie;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
 /*
@@ -173,6 +179,14 @@ public enum Directive {
             assembler.getSegment().incrementAddress(size);
         }
     ),
+    INCBIN(
+        ".incbin",
+        "Store the contents of a binary file, whose filename is specified as a string operand, byte for byte. "
+            + "The filename is resolved relative to the current file. Optionally, the operands may be followed by "
+            + "an integer offset into the file to start from and an integer number of bytes to store.",
+        false,
+        new BinaryFileStorageFunction()
+    ),
     ALIGN(
         ".align",
         "Align the next stored value to a multiple of 2^n bytes, where n is specified as an operand, "
@@ -308,14 +322,14 @@ public enum Directive {
     );
 
     public static final Map<String, Directive> ALL_DIRECTIVES = new HashMap<>();
-    public static final StringTrie<Directive> ALL_DIRECTIVES_TRIE = new StringTrie<>();
+    public static final StringTrie<Directive> ALL_DIRECTIVES_TRIE;
 
     // All directives are loaded statically, so we can put them in their respective lookups statically as well
     static {
         for (Directive directive : Directive.values()) {
             ALL_DIRECTIVES.put(directive.getName(), directive);
-            ALL_DIRECTIVES_TRIE.put(directive.getName(), directive);
         }
+        ALL_DIRECTIVES_TRIE = new StringTrie<>(ALL_DIRECTIVES, true);
     }
 
     private final String name;
@@ -337,7 +351,7 @@ public enum Directive {
      * @return The matching directive, or <code>null</code> if not found.
      */
     public static Directive fromName(String name) {
-        return ALL_DIRECTIVES.get(name.toLowerCase());
+        return ALL_DIRECTIVES_TRIE.get(name);
     }
 
     /**
@@ -345,11 +359,10 @@ public enum Directive {
      * would match <code>.ascii</code>, <code>.asciiz</code>, and <code>.align</code>.
      *
      * @param prefix The prefix to match.
-     * @return List of matching directives, which may be empty if none match.
+     * @return Unmodifiable list of matching directives in order of name, which may be empty if none match.
      */
     public static List<Directive> matchNamePrefix(String prefix) {
-        StringTrie<Directive> subTrie = ALL_DIRECTIVES_TRIE.getSubTrieIfPresent(prefix.toLowerCase());
-        return (subTrie == null) ? List.of() : List.copyOf(subTrie.values());
+        return ALL_DIRECTIVES_TRIE.valuesWithPrefix(prefix);
     }
 
     /**
@@ -476,24 +489,19 @@ public enum Directive {
                                 return;
                             }
 
-                            // Replicate the last stored value (n - 1) additional times
+                            // Replicate the last stored value (n - 1) additional times with a single bulk fill
                             int address = assembler.getSegment().getAddress();
-                            if (this.numBytes == Memory.BYTES_PER_DOUBLEWORD) {
-                                long repeatValue = Memory.getInstance().fetchDoubleword(address - this.numBytes, false);
+                            byte[] repeatBytes = new byte[this.numBytes];
+                            Memory.getInstance().fetchBytes(address - this.numBytes, repeatBytes, 0, this.numBytes, false);
+                            Memory.getInstance().fillBytes(address, repeatBytes, value - 1, true);
+                            if (previousNeedsPatch != null) {
                                 for (int repetition = 1; repetition < value; repetition++) {
-                                    Memory.getInstance().storeDoubleword(address, repeatValue, true);
+                                    assembler.createForwardReferencePatch(address, this.numBytes, previousNeedsPatch);
                                     address += this.numBytes;
                                 }
                             }
                             else {
-                                int repeatValue = Memory.getInstance().fetch(address - this.numBytes, this.numBytes, false);
-                                for (int repetition = 1; repetition < value; repetition++) {
-                                    Memory.getInstance().store(address, repeatValue, this.numBytes, true);
-                                    if (previousNeedsPatch != null) {
-                                        assembler.createForwardReferencePatch(address, this.numBytes, previousNeedsPatch);
-                                    }
-                                    address += this.numBytes;
-                                }
+                                address += (value - 1) * this.numBytes;
                             }
                             assembler.getSegment().setAddress(address);
 
@@ -640,28 +648,78 @@ public enum Directive {
                     continue;
                 }
 
-                for (byte charValue : ((String) token.getValue()).getBytes()) {
-                    try {
-                        Memory.getInstance().storeByte(assembler.getSegment().getAddress(), charValue, true);
-                    }
-                    catch (AddressErrorException exception) {
-                        logError(token, assembler, exception);
-                        return;
-                    }
-                    assembler.getSegment().incrementAddress(1);
+                // Store the whole string at once, with room for the null terminator if needed
+                byte[] stringBytes = ((String) token.getValue()).getBytes();
+                if (this.addNullTerminator) {
+                    stringBytes = Arrays.copyOf(stringBytes, stringBytes.length + 1);
+                }
+                try {
+                    Memory.getInstance().storeBytes(assembler.getSegment().getAddress(), stringBytes, 0, stringBytes.length, true);
+                }
+                catch (AddressErrorException exception) {
+                    logError(token, assembler, exception);
+                    return;
                 }
+                assembler.getSegment().incrementAddress(stringBytes.length);
+            }
+        }
+    }
 
-                if (this.addNullTerminator) {
-                    try {
-                        Memory.getInstance().storeByte(assembler.getSegment().getAddress(), 0, true);
-                    }
-                    catch (AddressErrorException exception) {
-                        logError(token, assembler, exception);
-                        return;
+    private record BinaryFileStorageFunction() implements Function {
+        private static final int CHUNK_SIZE = 1 << 16;
+
+        @Override
+        public void apply(DirectiveSyntax syntax, Assembler assembler) {
+            if (!assembler.getSegment().isData()) {
+                logError(syntax, assembler, "Directive '" + syntax.getDirective() + "' only applies to data segments");
+                return;
+            }
+            List<Token> content = syntax.getContent();
+            if (content.isEmpty() || content.size() > 3 || content.get(0).getType() != TokenType.STRING) {
+                logError(syntax, assembler, "Directive '" + syntax.getDirective() + "' requires a string filename, optionally followed by an integer offset and length");
+                return;
+            }
+            long[] bounds = {0, -1};
+            for (int index = 1; index < content.size(); index++) {
+                Token token = content.get(index);
+                if (!token.getType().isInteger() || (Integer) token.getValue() < 0) {
+                    logError(token, assembler, "Directive '" + syntax.getDirective() + "' expected a non-negative integer, got: " + token);
+                    return;
+                }
+                bounds[index - 1] = (Integer) token.getValue();
+            }
+
+            Token filenameToken = content.get(0);
+            // Interpret the filename as a path resolved against the path of the current file, like .include
+            Path path = Path.of(filenameToken.getLocation().getFilename()).resolveSibling((String) filenameToken.getValue());
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long offset = bounds[0];
+                long length = (bounds[1] < 0) ? channel.size() - offset : bounds[1];
+                if (offset > channel.size() || offset + length > channel.size()) {
+                    logError(syntax, assembler, "Directive '" + syntax.getDirective() + "' range exceeds the " + channel.size() + " bytes in file: " + path);
+                    return;
+                }
+                channel.position(offset);
+                // Copy the file into memory a chunk at a time, without going through individual stores
+                ByteBuffer chunk = ByteBuffer.allocate((int) Math.min(length, CHUNK_SIZE));
+                while (length > 0) {
+                    chunk.clear().limit((int) Math.min(length, CHUNK_SIZE));
+                    while (chunk.hasRemaining()) {
+                        if (channel.read(chunk) < 0) {
+                            throw new EOFException();
+                        }
                     }
-                    assembler.getSegment().incrementAddress(1);
+                    Memory.getInstance().loadBytes(assembler.getSegment().getAddress(), chunk, 0, chunk.limit(), true);
+                    assembler.getSegment().incrementAddress(chunk.limit());
+                    length -= chunk.limit();
                 }
             }
+            catch (AddressErrorException exception) {
+                logError(filenameToken, assembler, exception);
+            }
+            catch (IOException exception) {
+                logError(filenameToken, assembler, "Directive '" + syntax.getDirective() + "' could not read file: " + path);
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -1,9 +1,18 @@
 package mars.mips.dump;
 
 import mars.mips.hardware.AddressErrorException;
+import mars.mips.hardware.Endianness;
+import mars.mips.hardware.Memory;
+import mars.simulator.ExceptionCause;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.function.IntFunction;
 
 /*
 Copyright (c) 2003-2008,  Pete Sanderson and Kenneth Vollmar
@@ -117,4 +126,137 @@ public abstract class AbstractDumpFormat implements DumpFormat {
      * @throws IOException           if error occurs during file output.
      */
     public abstract void dumpMemoryRange(File file, int firstAddress, int lastAddress) throws AddressErrorException, IOException;
+
+    /**
+     * The maximum number of bytes passed to {@link ChunkWriter#writeChunk(int, ByteBuffer)} at once.
+     */
+    protected static final int CHUNK_SIZE = 64 * Memory.BYTES_PER_PAGE;
+
+    /**
+     * Receives the contents of a memory range from {@link #readMemoryRange(int, int, ChunkWriter)}.
+     */
+    protected interface ChunkWriter {
+        /**
+         * Write a chunk of allocated memory.
+         *
+         * @param address The address of the first byte in the chunk, which is word-aligned.
+         * @param chunk   The bytes between its position and limit, a whole number of words, in the byte order
+         *                of memory. The buffer may be shared with memory itself, so its contents must not be modified.
+         * @throws IOException Thrown if the chunk could not be written.
+         */
+        void writeChunk(int address, ByteBuffer chunk) throws IOException;
+
+        /**
+         * Write a hole, i.e. a run of unallocated words which all read as zero.
+         *
+         * @param address   The address of the first word in the hole.
+         * @param wordCount The number of words in the hole.
+         * @throws IOException Thrown if the hole could not be written.
+         */
+        void writeHole(int address, long wordCount) throws IOException;
+    }
+
+    /**
+     * Read the contents of a memory range in large chunks, skipping over unallocated memory rather than reading it
+     * a word at a time. Pages stored outside the Java heap are passed to the writer directly without being copied.
+     * Listeners are not notified of the reads.
+     *
+     * @param firstAddress The first address to read, which must be word-aligned.
+     * @param lastAddress  The address of the last word to read.
+     * @param writer       The writer to pass the chunks and holes to, in order of address.
+     * @throws AddressErrorException Thrown if the first address is not word-aligned, or memory could not be read.
+     * @throws IOException           Thrown if the writer failed.
+     */
+    protected static void readMemoryRange(int firstAddress, int lastAddress, ChunkWriter writer) throws AddressErrorException, IOException {
+        Memory memory = Memory.getInstance();
+        if (!Memory.isWordAligned(firstAddress)) {
+            throw new AddressErrorException("address not aligned on word boundary", ExceptionCause.ADDRESS_FETCH, firstAddress);
+        }
+        lastAddress = Memory.alignToPrevious(lastAddress, Memory.BYTES_PER_WORD);
+        if (Integer.compareUnsigned(firstAddress, lastAddress) > 0) {
+            return;
+        }
+        ByteOrder order = (memory.getEndianness() == Endianness.BIG_ENDIAN) ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+        ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_SIZE).order(order);
+        long chunkAddress = Integer.toUnsignedLong(firstAddress);
+        long currentAddress = chunkAddress;
+
+        for (Memory.AllocatedBlock block : memory.getAllocatedBlocks(firstAddress, lastAddress + Memory.BYTES_PER_WORD - 1)) {
+            long blockStart = Integer.toUnsignedLong(block.firstAddress());
+            long blockEnd = blockStart + block.length();
+            if (blockStart > currentAddress) {
+                flushChunk(writer, chunk, chunkAddress);
+                writer.writeHole((int) currentAddress, (blockStart - currentAddress) / Memory.BYTES_PER_WORD);
+                currentAddress = blockStart;
+            }
+            while (currentAddress < blockEnd) {
+                int pageOffset = (int) currentAddress & (Memory.BYTES_PER_PAGE - 1);
+                int length = (int) Math.min(Memory.BYTES_PER_PAGE - pageOffset, blockEnd - currentAddress);
+                ByteBuffer pageBuffer = memory.getPageBuffer((int) currentAddress);
+                if (pageBuffer != null) {
+                    flushChunk(writer, chunk, chunkAddress);
+                    writer.writeChunk((int) currentAddress, pageBuffer.slice(pageOffset, length).order(order));
+                }
+                else {
+                    if (chunk.position() == 0) {
+                        chunkAddress = currentAddress;
+                    }
+                    memory.fetchBytes((int) currentAddress, chunk, chunk.position(), length, false);
+                    chunk.position(chunk.position() + length);
+                    if (!chunk.hasRemaining()) {
+                        flushChunk(writer, chunk, chunkAddress);
+                    }
+                }
+                currentAddress += length;
+            }
+        }
+        flushChunk(writer, chunk, chunkAddress);
+
+        long endAddress = Integer.toUnsignedLong(lastAddress) + Memory.BYTES_PER_WORD;
+        if (endAddress > currentAddress) {
+            writer.writeHole((int) currentAddress, (endAddress - currentAddress) / Memory.BYTES_PER_WORD);
+        }
+    }
+
+    /**
+     * Write a text file containing one line for each word in a memory range, as used by several formats.
+     * Unallocated words are written as zero.
+     *
+     * @param file         File in which to store MIPS memory contents.
+     * @param firstAddress First (lowest) memory address to dump, which must be word-aligned.
+     * @param lastAddress  Address of the last word to dump.
+     * @param formatter    Function converting a word to the text of its line.
+     * @throws AddressErrorException Thrown if the first address is not word-aligned.
+     * @throws IOException           Thrown if an error occurs during file output.
+     */
+    protected static void dumpWordLines(File file, int firstAddress, int lastAddress, IntFunction<String> formatter) throws AddressErrorException, IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            String zeroLine = formatter.apply(0);
+            readMemoryRange(firstAddress, lastAddress, new ChunkWriter() {
+                @Override
+                public void writeChunk(int address, ByteBuffer chunk) throws IOException {
+                    while (chunk.hasRemaining()) {
+                        out.write(formatter.apply(chunk.getInt()));
+                        out.newLine();
+                    }
+                }
+
+                @Override
+                public void writeHole(int address, long wordCount) throws IOException {
+                    for (long count = 0; count < wordCount; count++) {
+                        out.write(zeroLine);
+                        out.newLine();
+                    }
+                }
+            });
+        }
+    }
+
+    private static void flushChunk(ChunkWriter writer, ByteBuffer chunk, long chunkAddress) throws IOException {
+        if (chunk.position() > 0) {
+            chunk.flip();
+            writer.writeChunk((int) chunkAddress, chunk);
+            chunk.clear();
+        }
+    }
 }
\ No newline at end of file
@@ -1,13 +1,10 @@
 package mars.mips.dump;
 
 import mars.mips.hardware.AddressErrorException;
-import mars.mips.hardware.Memory;
 import mars.util.Binary;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintStream;
 
 /*
 Copyright (c) 2003-2011,  Pete Sanderson and Kenneth Vollmar
@@ -62,8 +59,8 @@ public class AsciiTextDumpFormat extends AbstractDumpFormat {
      * corresponding to tab, newline, null, etc are rendered as backslash
      * followed by single-character code, e.g. \t for tab, \0 for null.
      * Non-printing character (control code,
-     * values above 127) is rendered as a period (.).  Written
-     * using PrintStream's println() method.
+     * values above 127) is rendered as a period (.).  Unallocated
+     * memory is written as zeros.
      * Adapted by Pete Sanderson from code written by Greg Gibeling.
      *
      * @param file         File in which to store MIPS memory contents.
@@ -75,16 +72,6 @@ public class AsciiTextDumpFormat extends AbstractDumpFormat {
      * @throws IOException           if error occurs during file output.
      */
     public void dumpMemoryRange(File file, int firstAddress, int lastAddress) throws AddressErrorException, IOException {
-        try (PrintStream out = new PrintStream(new FileOutputStream(file))) {
-            for (int address = firstAddress; address <= lastAddress; address += Memory.BYTES_PER_WORD) {
-                Integer wordOrNull = Memory.getInstance().fetchWordOrNull(address);
-                if (wordOrNull == null) {
-                    break;
-                }
-                else {
-                    out.println(Binary.intToAscii(wordOrNull));
-                }
-            }
-        }
+        dumpWordLines(file, firstAddress, lastAddress, Binary::intToAscii);
     }
-}
\ No newline at end of file
+}
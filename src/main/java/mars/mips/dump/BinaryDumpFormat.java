@@ -4,9 +4,11 @@ import mars.mips.hardware.AddressErrorException;
 import mars.mips.hardware.Memory;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 /*
 Copyright (c) 2003-2008,  Pete Sanderson and Kenneth Vollmar
@@ -38,8 +40,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 
 /**
  * Class that represents the "binary" memory dump format.  The output
- * is a binary file containing the memory words as a byte stream.  Output
- * is produced using PrintStream's write() method.
+ * is a binary file containing the memory words as a byte stream, each
+ * least significant byte first.  Unallocated memory is written as zeros, and large
+ * unallocated ranges are left as gaps which the file system may store sparsely.
  *
  * @author Pete Sanderson
  * @version December 2007
@@ -53,8 +56,9 @@ public class BinaryDumpFormat extends AbstractDumpFormat {
     }
 
     /**
-     * Write MIPS memory contents in pure binary format.  One byte at a time
-     * using PrintStream's write() method.  Adapted by Pete Sanderson from
+     * Write MIPS memory contents in pure binary format.  Memory is written in
+     * large chunks through a {@link FileChannel}, directly from the pages themselves
+     * when they are stored outside the Java heap.  Adapted by Pete Sanderson from
      * code written by Greg Gibeling.
      *
      * @param file         File in which to store MIPS memory contents.
@@ -66,19 +70,34 @@ public class BinaryDumpFormat extends AbstractDumpFormat {
      * @throws IOException           if error occurs during file output.
      */
     public void dumpMemoryRange(File file, int firstAddress, int lastAddress) throws AddressErrorException, IOException {
-        try (PrintStream out = new PrintStream(new FileOutputStream(file))) {
-            for (int address = firstAddress; address <= lastAddress; address += Memory.BYTES_PER_WORD) {
-                Integer wordOrNull = Memory.getInstance().fetchWordOrNull(address);
-                if (wordOrNull == null) {
-                    break;
-                }
-                else {
-                    int word = wordOrNull;
-                    for (int i = 0; i < 4; i++) {
-                        out.write((word >>> (i << 3)) & 0xFF);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer swapBuffer = ByteBuffer.allocateDirect(CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readMemoryRange(firstAddress, lastAddress, new ChunkWriter() {
+                @Override
+                public void writeChunk(int address, ByteBuffer chunk) throws IOException {
+                    if (chunk.order() != ByteOrder.LITTLE_ENDIAN) {
+                        // Words are always written least significant byte first
+                        swapBuffer.clear();
+                        while (chunk.hasRemaining()) {
+                            swapBuffer.putInt(chunk.getInt());
+                        }
+                        chunk = swapBuffer.flip();
+                    }
+                    while (chunk.hasRemaining()) {
+                        channel.write(chunk);
                     }
                 }
+
+                @Override
+                public void writeHole(int address, long wordCount) throws IOException {
+                    // Leave a gap in the file, which the file system may be able to store sparsely
+                    channel.position(channel.position() + wordCount * Memory.BYTES_PER_WORD);
+                }
+            });
+            // A gap at the end of the file is only filled in once something is written after it
+            if (channel.position() > channel.size()) {
+                channel.write(ByteBuffer.allocate(Memory.BYTES_PER_WORD), channel.position() - Memory.BYTES_PER_WORD);
             }
         }
     }
-}
\ No newline at end of file
+}
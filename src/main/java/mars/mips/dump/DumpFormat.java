@@ -1,6 +1,7 @@
 package mars.mips.dump;
 
 import mars.mips.hardware.AddressErrorException;
+import mars.mips.hardware.Memory;
 
 import java.io.File;
 import java.io.IOException;
@@ -76,6 +77,35 @@ public interface DumpFormat {
      */
     String toString();
 
+    /**
+     * Determine whether this format records the address of the memory it contains, so that unallocated memory
+     * within the dumped range can be left out instead of written as zeros. When dumping a whole segment,
+     * such formats cover everything up to the last allocated word, while other formats stop at the first
+     * unallocated word.
+     *
+     * @return <code>true</code> if unallocated memory is left out, or <code>false</code> otherwise.
+     */
+    default boolean isSparse() {
+        return false;
+    }
+
+    /**
+     * Get the address of the last word to dump when dumping a whole segment using this format.
+     *
+     * @param firstAddress The first address of the segment.
+     * @param limitAddress The last address of the segment.
+     * @return The address of the last word to dump, or <code>firstAddress - 4</code> if there is nothing to dump.
+     * @throws AddressErrorException if firstAddress is not on a word boundary.
+     */
+    default int getSegmentHighAddress(int firstAddress, int limitAddress) throws AddressErrorException {
+        if (this.isSparse()) {
+            return Memory.getInstance().getAddressOfLastAllocatedWord(firstAddress, limitAddress);
+        }
+        else {
+            return Memory.getInstance().getAddressOfFirstNullWord(firstAddress, limitAddress) - Memory.BYTES_PER_WORD;
+        }
+    }
+
     /**
      * Write MIPS memory contents according to the
      * specification for this format.
@@ -1,12 +1,9 @@
 package mars.mips.dump;
 
 import mars.mips.hardware.AddressErrorException;
-import mars.mips.hardware.Memory;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintStream;
 
 /*
 Copyright (c) 2003-2008,  Pete Sanderson and Kenneth Vollmar
@@ -54,8 +51,8 @@ public class HexTextDumpFormat extends AbstractDumpFormat {
 
     /**
      * Write MIPS memory contents in hexadecimal text format.  Each line of
-     * text contains one memory word written in hexadecimal characters.  Written
-     * using PrintStream's println() method.
+     * text contains one memory word written in hexadecimal characters.  Unallocated
+     * memory is written as zeros.
      * Adapted by Pete Sanderson from code written by Greg Gibeling.
      *
      * @param file         File in which to store MIPS memory contents.
@@ -67,18 +64,11 @@ public class HexTextDumpFormat extends AbstractDumpFormat {
      * @throws IOException           if error occurs during file output.
      */
     public void dumpMemoryRange(File file, int firstAddress, int lastAddress) throws AddressErrorException, IOException {
-        try (PrintStream out = new PrintStream(new FileOutputStream(file))) {
-            for (int address = firstAddress; address <= lastAddress; address += Memory.BYTES_PER_WORD) {
-                Integer wordOrNull = Memory.getInstance().fetchWordOrNull(address);
-                if (wordOrNull == null) {
-                    break;
-                }
-                StringBuilder string = new StringBuilder(Integer.toHexString(wordOrNull));
-                while (string.length() < 8) {
-                    string.insert(0, '0');
-                }
-                out.println(string);
-            }
-        }
+        dumpWordLines(file, firstAddress, lastAddress, HexTextDumpFormat::formatWord);
     }
-}
\ No newline at end of file
+
+    private static String formatWord(int word) {
+        String string = Integer.toHexString(word);
+        return "00000000".substring(string.length()) + string;
+    }
+}
@@ -3,13 +3,17 @@ package mars.mips.dump;
 import mars.mips.hardware.AddressErrorException;
 import mars.mips.hardware.Memory;
 
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 /**
- * Intel's Hex memory initialization format
+ * Intel's Hex memory initialization format.  Each word is written as a data record whose
+ * address is its byte offset from the first address dumped.  Unallocated memory is skipped, and
+ * extended linear address records are written whenever the upper 16 bits of the offset change.
  *
  * @author Leo Alterman
  * @version July 2011
@@ -23,8 +27,17 @@ public class IntelHexDumpFormat extends AbstractDumpFormat {
     }
 
     /**
-     * Write MIPS memory contents according to the Memory Initialization File
-     * (MIF) specification.
+     * Unallocated memory is left out of this format.
+     *
+     * @return <code>true</code>
+     */
+    @Override
+    public boolean isSparse() {
+        return true;
+    }
+
+    /**
+     * Write MIPS memory contents according to the Intel hex specification.
      *
      * @param file         File in which to store MIPS memory contents.
      * @param firstAddress first (lowest) memory address to dump.  In bytes but
@@ -35,41 +48,59 @@ public class IntelHexDumpFormat extends AbstractDumpFormat {
      * @throws IOException           if error occurs during file output.
      */
     public void dumpMemoryRange(File file, int firstAddress, int lastAddress) throws AddressErrorException, IOException {
-        try (PrintStream out = new PrintStream(new FileOutputStream(file))) {
-            for (int address = firstAddress; address <= lastAddress; address += Memory.BYTES_PER_WORD) {
-                // TODO: This can probably be replaced with a single call to String.format() -Sean Clarke
-                Integer wordOrNull = Memory.getInstance().fetchWordOrNull(address);
-                if (wordOrNull == null) {
-                    break;
-                }
-                int word = wordOrNull;
-                StringBuilder string = new StringBuilder(Integer.toHexString(word));
-                while (string.length() < 8) {
-                    string.insert(0, '0');
-                }
-                StringBuilder addr = new StringBuilder(Integer.toHexString(address - firstAddress));
-                while (addr.length() < 4) {
-                    addr.insert(0, '0');
+        try (BufferedWriter out = Files.newBufferedWriter(file.toPath(), StandardCharsets.US_ASCII)) {
+            readMemoryRange(firstAddress, lastAddress, new ChunkWriter() {
+                private int upperOffset = 0;
+
+                @Override
+                public void writeChunk(int address, ByteBuffer chunk) throws IOException {
+                    int offset = address - firstAddress;
+                    while (chunk.hasRemaining()) {
+                        if (offset >>> 16 != this.upperOffset) {
+                            // Extended linear address record
+                            this.upperOffset = offset >>> 16;
+                            writeRecord(out, 0x0000, 0x04, this.upperOffset, 2);
+                        }
+                        // Data record
+                        writeRecord(out, offset & 0xFFFF, 0x00, chunk.getInt(), 4);
+                        offset += Memory.BYTES_PER_WORD;
+                    }
                 }
-                String chksum;
-                int tmp_chksum = 0;
-                tmp_chksum += 4;
-                tmp_chksum += 0xFF & (address - firstAddress);
-                tmp_chksum += 0xFF & ((address - firstAddress) >> 8);
-                tmp_chksum += 0xFF & word;
-                tmp_chksum += 0xFF & (word >> 8);
-                tmp_chksum += 0xFF & (word >> 16);
-                tmp_chksum += 0xFF & (word >> 24);
-                tmp_chksum = tmp_chksum % 256;
-                tmp_chksum = ~tmp_chksum + 1;
-                chksum = Integer.toHexString(0xFF & tmp_chksum);
-                if (chksum.length() == 1) {
-                    chksum = '0' + chksum;
+
+                @Override
+                public void writeHole(int address, long wordCount) {
+                    // Unallocated memory is simply left out
                 }
-                String finalstr = ":04" + addr + "00" + string + chksum;
-                out.println(finalstr.toUpperCase());
-            }
-            out.println(":00000001FF");
+            });
+            // End of file record
+            out.write(":00000001FF");
+            out.newLine();
+        }
+    }
+
+    /**
+     * Write a record whose data is a single big-endian value.
+     */
+    private static void writeRecord(BufferedWriter out, int address, int type, int value, int length) throws IOException {
+        int checksum = length + (address >>> 8) + address + type;
+        StringBuilder record = new StringBuilder(11 + 2 * length);
+        record.append(':');
+        appendHexByte(record, length);
+        appendHexByte(record, address >>> 8);
+        appendHexByte(record, address);
+        appendHexByte(record, type);
+        for (int index = length - 1; index >= 0; index--) {
+            int dataByte = value >>> (index << 3);
+            appendHexByte(record, dataByte);
+            checksum += dataByte & 0xFF;
         }
+        appendHexByte(record, -checksum);
+        out.write(record.toString());
+        out.newLine();
+    }
+
+    private static void appendHexByte(StringBuilder string, int value) {
+        string.append(Character.toUpperCase(Character.forDigit((value >>> 4) & 0xF, 16)));
+        string.append(Character.toUpperCase(Character.forDigit(value & 0xF, 16)));
     }
 }
@@ -1,9 +1,14 @@
 package mars.mips.dump;
 
 import mars.mips.hardware.AddressErrorException;
+import mars.mips.hardware.Memory;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 /*
 Copyright (c) 2003-2008,  Pete Sanderson and Kenneth Vollmar
@@ -37,19 +42,29 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  * The Memory Initialization File (.mif) VHDL-supported file format
  * This is documented for the Altera platform at
  * www.altera.com/support/software/nativelink/quartus2/glossary/def_mif.html.
+ * <p>
+ * Memory is written as 32-bit words addressed by their word offset from the first address dumped.
+ * Each run of unallocated memory is written as a single range of zeros.
  *
  * @author Pete Sanderson
  * @version December 2007
  */
-// NOT READY FOR PRIME TIME.  WHEN IT IS, UNCOMMENT THE "extends" CLAUSE
-// AND THE SUPERCLASS CONSTRUCTOR CALL SO THE FORMAT LOADER WILL ACCEPT IT 
-// AND IT WILL BE ADDED TO THE LIST.
-public class MIFDumpFormat { //extends AbstractDumpFormat {
+public class MIFDumpFormat extends AbstractDumpFormat {
     /**
      * Constructor.  File extention is "mif".
      */
     public MIFDumpFormat() {
-        //   super("MIF", "MIF", "Written as Memory Initialization File (Altera)", "mif");
+        super("MIF", "MIF", "Written as Memory Initialization File (Altera)", "mif");
+    }
+
+    /**
+     * Unallocated memory is left out of this format.
+     *
+     * @return <code>true</code>
+     */
+    @Override
+    public boolean isSparse() {
+        return true;
     }
 
     /**
@@ -65,6 +80,54 @@ public class MIFDumpFormat { //extends AbstractDumpFormat {
      * @throws IOException           if error occurs during file output.
      */
     public void dumpMemoryRange(File file, int firstAddress, int lastAddress) throws AddressErrorException, IOException {
+        long depth = (Integer.toUnsignedLong(lastAddress) - Integer.toUnsignedLong(firstAddress)) / Memory.BYTES_PER_WORD + 1;
+        try (BufferedWriter out = Files.newBufferedWriter(file.toPath(), StandardCharsets.US_ASCII)) {
+            out.write("DEPTH = " + Math.max(depth, 0) + ";");
+            out.newLine();
+            out.write("WIDTH = 32;");
+            out.newLine();
+            out.write("ADDRESS_RADIX = HEX;");
+            out.newLine();
+            out.write("DATA_RADIX = HEX;");
+            out.newLine();
+            out.write("CONTENT");
+            out.newLine();
+            out.write("BEGIN");
+            out.newLine();
+            readMemoryRange(firstAddress, lastAddress, new ChunkWriter() {
+                @Override
+                public void writeChunk(int address, ByteBuffer chunk) throws IOException {
+                    long offset = getWordOffset(address);
+                    while (chunk.hasRemaining()) {
+                        out.write(Long.toHexString(offset).toUpperCase() + " : " + formatWord(chunk.getInt()) + ";");
+                        out.newLine();
+                        offset++;
+                    }
+                }
+
+                @Override
+                public void writeHole(int address, long wordCount) throws IOException {
+                    long offset = getWordOffset(address);
+                    if (wordCount == 1) {
+                        out.write(Long.toHexString(offset).toUpperCase() + " : " + formatWord(0) + ";");
+                    }
+                    else {
+                        out.write("[" + Long.toHexString(offset).toUpperCase() + ".." + Long.toHexString(offset + wordCount - 1).toUpperCase() + "] : " + formatWord(0) + ";");
+                    }
+                    out.newLine();
+                }
+
+                private long getWordOffset(int address) {
+                    return (Integer.toUnsignedLong(address) - Integer.toUnsignedLong(firstAddress)) / Memory.BYTES_PER_WORD;
+                }
+            });
+            out.write("END;");
+            out.newLine();
+        }
+    }
 
+    private static String formatWord(int word) {
+        String string = Integer.toHexString(word).toUpperCase();
+        return "00000000".substring(string.length()) + string;
     }
-}
\ No newline at end of file
+}
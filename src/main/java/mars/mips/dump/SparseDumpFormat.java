@@ -0,0 +1,86 @@
+package mars.mips.dump;
+
+import mars.mips.hardware.AddressErrorException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class that represents the "sparse binary" memory dump format, which records only the blocks of memory which have
+ * been allocated, along with their addresses. This keeps dumps of large, mostly empty ranges (such as the entire
+ * data segment, including the heap and stack) small, and allows them to be loaded back into memory exactly.
+ * <p>
+ * The file begins with the 4 bytes of {@link #MAGIC} followed by a 4-byte version number, and the rest of the file
+ * is a sequence of records. Each record consists of a 4-byte address and a 4-byte length, followed by that many
+ * bytes of memory starting at the address, in order of address. All integers are big-endian. Any memory
+ * within the dumped range which is not covered by a record is zero.
+ */
+public class SparseDumpFormat extends AbstractDumpFormat {
+    /**
+     * The bytes at the start of every sparse dump file, "MSPD" in ASCII.
+     */
+    public static final int MAGIC = 0x4D535044;
+    /**
+     * The version of the format written by this class.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Constructor.  File extension is "sparse".
+     */
+    public SparseDumpFormat() {
+        super("Sparse Binary", "Sparse", "Allocated memory blocks with their addresses, written to binary file", "sparse");
+    }
+
+    /**
+     * Unallocated memory is left out of this format.
+     *
+     * @return <code>true</code>
+     */
+    @Override
+    public boolean isSparse() {
+        return true;
+    }
+
+    /**
+     * Write the allocated blocks of MIPS memory within a range, each with its address and length.
+     * Memory is written in large chunks through a {@link FileChannel}, directly from the pages themselves
+     * when they are stored outside the Java heap.
+     *
+     * @param file         File in which to store MIPS memory contents.
+     * @param firstAddress first (lowest) memory address to dump.  In bytes but
+     *                     must be on word boundary.
+     * @param lastAddress  last (highest) memory address to dump.  In bytes but
+     *                     must be on word boundary.  Will dump the word that starts at this address.
+     * @throws AddressErrorException if firstAddress is invalid or not on a word boundary.
+     * @throws IOException           if error occurs during file output.
+     */
+    public void dumpMemoryRange(File file, int firstAddress, int lastAddress) throws AddressErrorException, IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            readMemoryRange(firstAddress, lastAddress, new ChunkWriter() {
+                @Override
+                public void writeChunk(int address, ByteBuffer chunk) throws IOException {
+                    header.clear();
+                    header.putInt(address).putInt(chunk.remaining()).flip();
+                    ByteBuffer[] record = {header, chunk};
+                    while (chunk.hasRemaining()) {
+                        channel.write(record);
+                    }
+                }
+
+                @Override
+                public void writeHole(int address, long wordCount) {
+                    // Unallocated memory is simply left out
+                }
+            });
+        }
+    }
+}
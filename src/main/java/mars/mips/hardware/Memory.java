@@ -8,7 +8,13 @@ import mars.simulator.Simulator;
 import mars.util.Binary;
 import mars.util.FilenameFinder;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
 import java.util.*;
 
 /*
@@ -82,6 +88,40 @@ public class Memory {
             // Do nothing by default
         }
 
+        /**
+         * Invoked upon a bulk write operation (such as {@link #storeBytes(int, byte[], int, int, boolean)})
+         * which is relevant to this listener's active range. Only one event is generated per operation,
+         * with the range clipped to this listener's active range.
+         * By default, invokes {@link #memoryWritten(int, int, int, int, int)} once for each word affected.
+         *
+         * @param address The address of the first byte written within this listener's active range.
+         * @param length  The number of bytes written within this listener's active range.
+         */
+        default void memoryBlockWritten(int address, int length) {
+            long endAddress = Integer.toUnsignedLong(address) + length;
+            for (long wordAddress = alignToPrevious(address, BYTES_PER_WORD) & 0xFFFFFFFFL; wordAddress < endAddress; wordAddress += BYTES_PER_WORD) {
+                int wordValue = Memory.getInstance().fetchWordQuietly((int) wordAddress);
+                this.memoryWritten((int) wordAddress, BYTES_PER_WORD, wordValue, (int) wordAddress, wordValue);
+            }
+        }
+
+        /**
+         * Invoked upon a bulk read operation (such as {@link #fetchBytes(int, byte[], int, int, boolean)})
+         * which is relevant to this listener's active range. Only one event is generated per operation,
+         * with the range clipped to this listener's active range.
+         * By default, invokes {@link #memoryRead(int, int, int, int, int)} once for each word affected.
+         *
+         * @param address The address of the first byte read within this listener's active range.
+         * @param length  The number of bytes read within this listener's active range.
+         */
+        default void memoryBlockRead(int address, int length) {
+            long endAddress = Integer.toUnsignedLong(address) + length;
+            for (long wordAddress = alignToPrevious(address, BYTES_PER_WORD) & 0xFFFFFFFFL; wordAddress < endAddress; wordAddress += BYTES_PER_WORD) {
+                int wordValue = Memory.getInstance().fetchWordQuietly((int) wordAddress);
+                this.memoryRead((int) wordAddress, BYTES_PER_WORD, wordValue, (int) wordAddress, wordValue);
+            }
+        }
+
         /**
          * Invoked when memory is reset via a call to {@link #reset()}, regardless of this listener's active range.
          * Does nothing by default.
@@ -150,6 +190,106 @@ public class Memory {
      * MIPS doubleword length in bytes.
      */
     public static final int BYTES_PER_DOUBLEWORD = BYTES_PER_WORD * 2;
+    /**
+     * Size of a memory page in bytes. Memory is mapped, permissioned and allocated in units of pages.
+     */
+    public static final int BYTES_PER_PAGE = 4096;
+    /**
+     * Number of words in a memory page.
+     */
+    public static final int WORDS_PER_PAGE = BYTES_PER_PAGE / BYTES_PER_WORD;
+
+    /**
+     * Page permission bit allowing data to be read from the page.
+     */
+    public static final int PERMISSION_READ = 1;
+    /**
+     * Page permission bit allowing data to be written to the page.
+     */
+    public static final int PERMISSION_WRITE = 1 << 1;
+    /**
+     * Page permission bit allowing instructions to be fetched from the page.
+     */
+    public static final int PERMISSION_EXECUTE = 1 << 2;
+
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_COUNT = 1 << (Integer.SIZE - PAGE_SHIFT);
+    private static final int PAGE_CACHE_SIZE = 4;
+    /**
+     * Flag combined with the permissions of a page which is not fully covered by a single region.
+     * Accesses to such pages always consult the memory layout to determine the region.
+     */
+    private static final int PAGE_PARTIAL = 1 << 7;
+
+    /**
+     * The kinds of regions which a page of memory can belong to, as determined by the memory layout.
+     */
+    public enum Region {
+        UNMAPPED(0),
+        TEXT(PERMISSION_READ | PERMISSION_EXECUTE),
+        DATA(PERMISSION_READ | PERMISSION_WRITE),
+        KERNEL_TEXT(PERMISSION_READ | PERMISSION_EXECUTE),
+        KERNEL_DATA(PERMISSION_READ | PERMISSION_WRITE),
+        MMIO(PERMISSION_READ | PERMISSION_WRITE);
+
+        private final int defaultPermissions;
+
+        Region(int defaultPermissions) {
+            this.defaultPermissions = defaultPermissions;
+        }
+
+        /**
+         * Get the permissions given to pages in this region when memory is reset.
+         *
+         * @return The default permission bits for the region.
+         */
+        public int getDefaultPermissions() {
+            return this.defaultPermissions;
+        }
+
+        /**
+         * Determine whether this region stores text, i.e. {@link BasicStatement}s rather than raw words.
+         *
+         * @return <code>true</code> for {@link #TEXT} and {@link #KERNEL_TEXT}, or <code>false</code> otherwise.
+         */
+        public boolean isText() {
+            return this == TEXT || this == KERNEL_TEXT;
+        }
+
+        /**
+         * Determine whether this region stores data, i.e. raw words.
+         *
+         * @return <code>true</code> for {@link #DATA}, {@link #KERNEL_DATA} and {@link #MMIO},
+         *         or <code>false</code> otherwise.
+         */
+        public boolean isData() {
+            return this == DATA || this == KERNEL_DATA || this == MMIO;
+        }
+    }
+
+    private static final Region[] REGIONS = Region.values();
+
+    /**
+     * The ways in which the contents of data pages can be stored.
+     */
+    public enum Storage {
+        /**
+         * Pages are stored in <code>int</code> arrays on the Java heap. This is the fastest option for programs
+         * which use a modest amount of memory.
+         */
+        HEAP,
+        /**
+         * Pages are stored in direct byte buffers outside the Java heap, so large amounts of simulated memory
+         * do not need a large heap or slow down garbage collection. The total amount is limited by the
+         * <code>-XX:MaxDirectMemorySize</code> JVM option.
+         */
+        OFF_HEAP,
+        /**
+         * Like {@link #OFF_HEAP}, but pages in the dynamic data range (the heap and stack) are mapped from a sparse
+         * file, allowing programs to use more memory than is physically available.
+         */
+        MAPPED_FILE,
+    }
 
     /**
      * Determine whether a given address is aligned on a word boundary.
@@ -315,11 +455,44 @@ public class Memory {
      */
     private int nextHeapAddress;
 
-    private DataRegion dataSegmentRegion;
-    private DataRegion kernelDataSegmentRegion;
-    private DataRegion mmioRegion;
-    private TextRegion textSegmentRegion;
-    private TextRegion kernelTextSegmentRegion;
+    /**
+     * The region each page belongs to, indexed by page number (the upper 20 bits of an address).
+     * Each element is the ordinal of a {@link Region}.
+     */
+    private final byte[] pageRegions = new byte[PAGE_COUNT];
+    /**
+     * The permissions of each page, indexed by page number, possibly combined with {@link #PAGE_PARTIAL}.
+     */
+    private final byte[] pagePermissions = new byte[PAGE_COUNT];
+    /**
+     * The contents of each page, indexed by page number. Pages are only allocated once they are written to,
+     * so most elements are null.
+     */
+    private final Page[] pages = new Page[PAGE_COUNT];
+    /**
+     * Small direct-mapped lookaside caches for recently used data and text pages, indexed by the low bits of
+     * the page number. Only pages fully covered by a single region are cached, and data pages are only cached
+     * if they are both readable and writable, so a cache hit needs no further checks.
+     */
+    private Page[] dataPageCache = new Page[PAGE_CACHE_SIZE];
+    private Page[] textPageCache = new Page[PAGE_CACHE_SIZE];
+    /**
+     * How data pages are stored, updated upon memory reset.
+     */
+    private Storage storage = Storage.HEAP;
+    /**
+     * The file to map the dynamic data range from when using {@link Storage#MAPPED_FILE}.
+     */
+    private Path storageFile = null;
+    /**
+     * Allocator for pages stored outside the Java heap, or null if pages are stored on the heap.
+     */
+    private PageBufferAllocator pageBufferAllocator = null;
+    /**
+     * Files mapped into the heap by {@link #mapFile(FileChannel, long, int, boolean)}, whose pages are created
+     * from the mapped buffers the first time they are accessed.
+     */
+    private final List<FileMapping> fileMappings = new ArrayList<>();
 
     private static Memory instance = null;
 
@@ -351,16 +524,23 @@ public class Memory {
         // Initialize the heap address at the bottom of the dynamic data range
         this.nextHeapAddress = alignToNext(this.layout.dynamicRange.minAddress(), BYTES_PER_WORD);
 
-        // Allocate new memory regions, which will be filled in as needed.
+        // Discard all pages and rebuild the page table for the new layout. Pages will be allocated as needed.
         // MMIO is separate because it isn't really considered part of the kernel data segment,
         // though they could have been combined in this case. Probably better to assume they aren't adjacent anyway.
-        this.dataSegmentRegion = new DataRegion(this.layout.dataRange);
-        this.kernelDataSegmentRegion = new DataRegion(this.layout.kernelDataRange);
-        this.mmioRegion = new DataRegion(this.layout.mmioRange);
-        this.textSegmentRegion = new TextRegion(this.layout.textRange);
-        this.kernelTextSegmentRegion = new TextRegion(this.layout.kernelTextRange);
-
-        // Encourage the garbage collector to clean up any region objects now orphaned
+        this.dataPageCache = new Page[PAGE_CACHE_SIZE];
+        this.textPageCache = new Page[PAGE_CACHE_SIZE];
+        Arrays.fill(this.pages, null);
+        Arrays.fill(this.pageRegions, (byte) Region.UNMAPPED.ordinal());
+        Arrays.fill(this.pagePermissions, (byte) 0);
+        this.mapRange(this.layout.textRange, Region.TEXT);
+        this.mapRange(this.layout.dataRange, Region.DATA);
+        this.mapRange(this.layout.kernelTextRange, Region.KERNEL_TEXT);
+        this.mapRange(this.layout.kernelDataRange, Region.KERNEL_DATA);
+        this.mapRange(this.layout.mmioRange, Region.MMIO);
+        this.resetPageBufferAllocator();
+        this.fileMappings.clear();
+
+        // Encourage the garbage collector to clean up any pages now orphaned
         System.gc();
 
         // Notify listeners of the memory reset
@@ -371,6 +551,60 @@ public class Memory {
         }
     }
 
+    /**
+     * Set how the contents of data pages will be stored. This takes effect upon the next memory reset.
+     *
+     * @param storage The kind of storage to use.
+     * @param file    The file to map the dynamic data range from, which is required for
+     *                {@link Storage#MAPPED_FILE} and ignored otherwise. Any existing file will be replaced.
+     */
+    public void setStorage(Storage storage, Path file) {
+        if (storage == Storage.MAPPED_FILE && file == null) {
+            throw new IllegalArgumentException("a file is required for mapped file storage");
+        }
+        this.storage = storage;
+        this.storageFile = file;
+    }
+
+    /**
+     * Get how the contents of data pages are stored.
+     *
+     * @return The kind of storage in use.
+     */
+    public Storage getStorage() {
+        return this.storage;
+    }
+
+    private void resetPageBufferAllocator() {
+        if (this.pageBufferAllocator != null) {
+            try {
+                this.pageBufferAllocator.close();
+            }
+            catch (IOException exception) {
+                // Nothing useful can be done about this, and the old pages are being discarded anyway
+            }
+            this.pageBufferAllocator = null;
+        }
+
+        ByteOrder order = switch (this.endianness) {
+            case BIG_ENDIAN -> ByteOrder.BIG_ENDIAN;
+            case LITTLE_ENDIAN -> ByteOrder.LITTLE_ENDIAN;
+        };
+        switch (this.storage) {
+            case HEAP -> {}
+            case OFF_HEAP -> this.pageBufferAllocator = new PageBufferAllocator(order);
+            case MAPPED_FILE -> {
+                try {
+                    this.pageBufferAllocator = new PageBufferAllocator(order, this.storageFile, this.layout.dynamicRange);
+                }
+                catch (IOException exception) {
+                    System.err.println("Unable to create memory file " + this.storageFile + ", using off-heap memory instead: " + exception);
+                    this.pageBufferAllocator = new PageBufferAllocator(order);
+                }
+            }
+        }
+    }
+
     /**
      * Get the current endianness (i.e. byte ordering) in use.
      * This reflects the value of {@link mars.settings.Settings#useBigEndian};
@@ -424,6 +658,51 @@ public class Memory {
         return result;
     }
 
+    /**
+     * Map part of a file into a new page-aligned block of heap memory, roughly equivalent to <code>mmap</code> in C.
+     * Nothing is copied up front: each page is created from the mapped buffer the first time it is accessed,
+     * and the operating system reads its contents from the file on demand.
+     * <p>
+     * If <code>shared</code> is true, writes to the block go directly back to the file, which requires the channel
+     * to be open for both reading and writing. Otherwise, each page is copied the first time it is written,
+     * leaving the file unchanged. Any part of the block extending past the end of the file reads as zeros
+     * and is never written back.
+     * <p>
+     * Listeners are not notified of the new contents.
+     *
+     * @param channel  The file to map.
+     * @param position The position within the file of the first byte to map.
+     * @param length   The number of bytes to map, which must be positive.
+     * @param shared   Whether writes to the block should be written back to the file.
+     * @return Address of the mapped block, which is aligned to a page boundary.
+     * @throws IllegalArgumentException Thrown if the position or length is invalid, or the block exceeds
+     *         available heap storage.
+     * @throws IOException Thrown if the file could not be mapped.
+     */
+    public int mapFile(FileChannel channel, long position, int length, boolean shared) throws IOException {
+        if (position < 0 || length <= 0) {
+            throw new IllegalArgumentException("invalid file mapping of " + length + " bytes at position " + position + " requested");
+        }
+        int address = alignToNext(this.nextHeapAddress, BYTES_PER_PAGE);
+        int newHeapAddress = alignToNext(address + length, BYTES_PER_PAGE);
+        if (Integer.compareUnsigned(address, this.nextHeapAddress) < 0
+            || Integer.compareUnsigned(newHeapAddress, address) <= 0
+            || Integer.compareUnsigned(newHeapAddress - 1, this.layout.dynamicRange.maxAddress()) > 0) {
+            throw new IllegalArgumentException("file mapping of " + length + " bytes failed due to insufficient heap space");
+        }
+
+        // Only the part of the requested range which lies within the file is mapped, since mapping past
+        // the end of the file would extend it
+        int fileLength = (int) Math.max(0, Math.min(length, channel.size() - position));
+        if (fileLength > 0) {
+            FileChannel.MapMode mode = (shared) ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+            MappedByteBuffer buffer = channel.map(mode, position, fileLength);
+            this.fileMappings.add(new FileMapping(address >>> PAGE_SHIFT, buffer));
+        }
+        this.nextHeapAddress = newHeapAddress;
+        return address;
+    }
+
     /**
      * Determine whether the current memory configuration fits a 16-bit address space.
      *
@@ -489,42 +768,318 @@ public class Memory {
     }
 
     /**
-     * Get the data memory region a given address is mapped to, if applicable.
+     * Get the region a given address is mapped to according to the page table.
      *
      * @param address The address to find the region for.
-     * @return The corresponding data region, or null if no data regions use the given address.
+     * @return The region containing the address, which is {@link Region#UNMAPPED} if the address is not mapped.
+     */
+    public Region getRegion(int address) {
+        int pageNumber = address >>> PAGE_SHIFT;
+        if ((this.pagePermissions[pageNumber] & PAGE_PARTIAL) != 0) {
+            return this.getRegionFromLayout(address);
+        }
+        return REGIONS[this.pageRegions[pageNumber]];
+    }
+
+    /**
+     * Get the permissions of the page containing a given address.
+     *
+     * @param address The address to find the permissions for.
+     * @return A combination of {@link #PERMISSION_READ}, {@link #PERMISSION_WRITE} and {@link #PERMISSION_EXECUTE},
+     *         which is 0 if the address is not mapped.
+     */
+    public int getPermissions(int address) {
+        int pageNumber = address >>> PAGE_SHIFT;
+        int permissions = this.pagePermissions[pageNumber];
+        if ((permissions & PAGE_PARTIAL) != 0) {
+            return this.getRegionFromLayout(address).getDefaultPermissions();
+        }
+        return permissions;
+    }
+
+    /**
+     * Determine the region of an address by checking each range of the memory layout. This is only needed for
+     * pages which are not fully covered by a single region.
      */
-    public DataRegion getDataRegionForAddress(int address) {
+    private Region getRegionFromLayout(int address) {
         if (this.isInDataSegment(address)) {
-            return this.dataSegmentRegion;
+            return Region.DATA;
         }
         else if (this.isInKernelDataSegment(address)) {
-            return this.kernelDataSegmentRegion;
+            return Region.KERNEL_DATA;
         }
         else if (this.isInMemoryMappedIO(address)) {
-            return this.mmioRegion;
+            return Region.MMIO;
+        }
+        else if (this.isInTextSegment(address)) {
+            return Region.TEXT;
+        }
+        else if (this.isInKernelTextSegment(address)) {
+            return Region.KERNEL_TEXT;
         }
         else {
-            return null;
+            return Region.UNMAPPED;
+        }
+    }
+
+    /**
+     * Assign all pages overlapping an address range to the given region. Pages which are only partially covered
+     * by the range, or which were already assigned to another region, are flagged with {@link #PAGE_PARTIAL}.
+     */
+    private void mapRange(MemoryLayout.Range range, Region region) {
+        if (Integer.compareUnsigned(range.minAddress(), range.maxAddress()) > 0) {
+            return;
+        }
+        int firstPage = range.minAddress() >>> PAGE_SHIFT;
+        int lastPage = range.maxAddress() >>> PAGE_SHIFT;
+        for (int pageNumber = firstPage; pageNumber <= lastPage; pageNumber++) {
+            int pageAddress = pageNumber << PAGE_SHIFT;
+            boolean isCovered = Integer.compareUnsigned(range.minAddress(), pageAddress) <= 0
+                && Integer.compareUnsigned(pageAddress + (BYTES_PER_PAGE - 1), range.maxAddress()) <= 0;
+            if (isCovered && this.pageRegions[pageNumber] == Region.UNMAPPED.ordinal() && this.pagePermissions[pageNumber] == 0) {
+                this.pageRegions[pageNumber] = (byte) region.ordinal();
+                this.pagePermissions[pageNumber] = (byte) region.getDefaultPermissions();
+            }
+            else {
+                this.pagePermissions[pageNumber] |= (byte) (PAGE_PARTIAL | region.getDefaultPermissions());
+            }
         }
     }
 
+    private static int getWordIndex(int address) {
+        return (address >>> 2) & (WORDS_PER_PAGE - 1);
+    }
+
+    /**
+     * Get the number of bits the byte at a given address is shifted left within its word,
+     * according to the endianness setting.
+     */
+    private int getByteShift(int address) {
+        int offset = address & (BYTES_PER_WORD - 1);
+        return switch (this.endianness) {
+            case BIG_ENDIAN -> (BYTES_PER_WORD - 1 - offset) << 3;
+            case LITTLE_ENDIAN -> offset << 3;
+        };
+    }
+
+    /**
+     * Get the number of bits the halfword at a given halfword-aligned address is shifted left within its word,
+     * according to the endianness setting.
+     */
+    private int getHalfwordShift(int address) {
+        int offset = address & BYTES_PER_HALFWORD;
+        return switch (this.endianness) {
+            case BIG_ENDIAN -> (BYTES_PER_HALFWORD - offset) << 3;
+            case LITTLE_ENDIAN -> offset << 3;
+        };
+    }
+
     /**
-     * Get the text memory region a given address is mapped to, if applicable.
+     * Get the page containing a given address in order to read data from it, consulting the lookaside cache first.
      *
-     * @param address The address to find the region for.
-     * @return The corresponding text region, or null if no text regions use the given address.
+     * @param address The address to be read.
+     * @return The page, {@link Page#EMPTY} if the address lies in a data page which has not been written yet,
+     *         or null if the address lies in text.
+     * @throws AddressErrorException Thrown if the address is not mapped or cannot be read.
      */
-    public TextRegion getTextRegionForAddress(int address) {
-        if (this.isInTextSegment(address)) {
-            return this.textSegmentRegion;
+    private Page getDataPageForFetch(int address) throws AddressErrorException {
+        int pageNumber = address >>> PAGE_SHIFT;
+        Page page = this.dataPageCache[pageNumber & (PAGE_CACHE_SIZE - 1)];
+        if (page != null && page.number == pageNumber) {
+            return page;
         }
-        else if (this.isInKernelTextSegment(address)) {
-            return this.kernelTextSegmentRegion;
+
+        Region region = this.getRegion(address);
+        if (region.isText()) {
+            return null;
         }
-        else {
+        if ((this.getPermissions(address) & PERMISSION_READ) == 0) {
+            throw new AddressErrorException("segmentation fault (address out of range)", ExceptionCause.ADDRESS_FETCH, address);
+        }
+        page = this.getPage(pageNumber);
+        if (page == null) {
+            return Page.EMPTY;
+        }
+        this.cacheDataPage(page);
+        return page;
+    }
+
+    /**
+     * Get the page containing a given address in order to write data to it, consulting the lookaside cache first.
+     * The page is allocated if necessary.
+     *
+     * @param address The address to be written.
+     * @return The page, or null if the address lies in text.
+     * @throws AddressErrorException Thrown if the address is not mapped or cannot be written.
+     */
+    private Page getDataPageForStore(int address) throws AddressErrorException {
+        int pageNumber = address >>> PAGE_SHIFT;
+        Page page = this.dataPageCache[pageNumber & (PAGE_CACHE_SIZE - 1)];
+        if (page != null && page.number == pageNumber) {
+            return page;
+        }
+
+        Region region = this.getRegion(address);
+        if (region.isText()) {
             return null;
         }
+        if (region == Region.UNMAPPED) {
+            throw new AddressErrorException("segmentation fault (address out of range)", ExceptionCause.ADDRESS_STORE, address);
+        }
+        if ((this.getPermissions(address) & PERMISSION_WRITE) == 0) {
+            throw new AddressErrorException("segmentation fault (page is not writable)", ExceptionCause.ADDRESS_STORE, address);
+        }
+        page = this.getOrAllocatePage(pageNumber);
+        this.cacheDataPage(page);
+        return page;
+    }
+
+    private void cacheDataPage(Page page) {
+        if (this.pagePermissions[page.number] == (PERMISSION_READ | PERMISSION_WRITE) && page.hasWords()) {
+            this.dataPageCache[page.number & (PAGE_CACHE_SIZE - 1)] = page;
+        }
+    }
+
+    private void cacheTextPage(Page page) {
+        if ((this.pagePermissions[page.number] & PAGE_PARTIAL) == 0 && page.statements != null) {
+            this.textPageCache[page.number & (PAGE_CACHE_SIZE - 1)] = page;
+        }
+    }
+
+    /**
+     * Get a page from the page table, creating it first if it lies within a mapped file.
+     */
+    private Page getPage(int pageNumber) {
+        Page page = this.pages[pageNumber];
+        if (page == null && !this.fileMappings.isEmpty()) {
+            page = this.faultMappedPage(pageNumber);
+        }
+        return page;
+    }
+
+    private synchronized Page faultMappedPage(int pageNumber) {
+        Page page = this.pages[pageNumber];
+        if (page != null) {
+            return page;
+        }
+        for (FileMapping mapping : this.fileMappings) {
+            long pageOffset = (long) (pageNumber - mapping.firstPage) * BYTES_PER_PAGE;
+            if (pageNumber < mapping.firstPage || pageOffset >= mapping.buffer.capacity()) {
+                continue;
+            }
+            boolean hasStatements = (this.pagePermissions[pageNumber] & PAGE_PARTIAL) != 0;
+            ByteOrder order = (this.endianness == Endianness.BIG_ENDIAN) ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+            int offset = (int) pageOffset;
+            int available = mapping.buffer.capacity() - offset;
+            if (available >= BYTES_PER_PAGE) {
+                page = new MappedPage(pageNumber, mapping.buffer.slice(offset, BYTES_PER_PAGE).order(order), null, hasStatements);
+            }
+            else {
+                // The file ends partway through this page, so copy what there is and write changes through
+                // to the mapped part (if it is writable)
+                ByteBuffer bytes = ByteBuffer.allocate(BYTES_PER_PAGE).order(order);
+                bytes.put(0, mapping.buffer, offset, available);
+                ByteBuffer writeThrough = (mapping.buffer.isReadOnly()) ? null : mapping.buffer.slice(offset, available);
+                page = new MappedPage(pageNumber, bytes, writeThrough, hasStatements);
+            }
+            this.pages[pageNumber] = page;
+            return page;
+        }
+        return null;
+    }
+
+    private synchronized Page getOrAllocatePage(int pageNumber) throws AddressErrorException {
+        Page page = this.getPage(pageNumber);
+        if (page == null) {
+            // A page shared between regions may need to hold both data and text
+            boolean isPartial = (this.pagePermissions[pageNumber] & PAGE_PARTIAL) != 0;
+            Region region = REGIONS[this.pageRegions[pageNumber]];
+            boolean hasWords = isPartial || !region.isText();
+            boolean hasStatements = isPartial || region.isText();
+            if (hasWords && this.pageBufferAllocator != null) {
+                try {
+                    page = new BufferPage(pageNumber, this.pageBufferAllocator.getPageBuffer(pageNumber), hasStatements);
+                }
+                catch (IOException | OutOfMemoryError error) {
+                    throw new AddressErrorException("unable to allocate memory page (" + error.getMessage() + ")", ExceptionCause.ADDRESS_STORE, pageNumber << PAGE_SHIFT);
+                }
+            }
+            else {
+                page = new HeapPage(pageNumber, hasWords, hasStatements);
+            }
+            this.pages[pageNumber] = page;
+        }
+        return page;
+    }
+
+    /**
+     * Get a view of the bytes of the page containing a given address, for transferring data to or from memory without
+     * copying (e.g. with a {@link java.nio.channels.FileChannel}). This is only possible when data pages are stored
+     * outside the Java heap (see {@link #setStorage(Storage, Path)}). The buffer uses the byte order of the simulated
+     * memory, so the byte at a given address is at index <code>address % BYTES_PER_PAGE</code>.
+     * <p>
+     * Accesses through the buffer bypass permissions, listeners and back-stepping, so callers are responsible
+     * for handling these as appropriate.
+     *
+     * @param address Any address within the page.
+     * @return A new buffer sharing the contents of the page, or null if the page has not been allocated
+     *         or is not stored in a buffer.
+     */
+    public ByteBuffer getPageBuffer(int address) {
+        Page page = this.pages[address >>> PAGE_SHIFT];
+        if (page instanceof BufferPage bufferPage) {
+            return bufferPage.bytes.duplicate().order(bufferPage.bytes.order());
+        }
+        return null;
+    }
+
+    /**
+     * Fetch a statement from a page containing text without any checks.
+     */
+    private BasicStatement fetchStatementFromText(int address) {
+        Page page = this.pages[address >>> PAGE_SHIFT];
+        return (page == null || page.statements == null) ? null : page.statements[getWordIndex(address)];
+    }
+
+    /**
+     * Fetch the binary encoding of a statement from a page containing text without any checks.
+     */
+    private int fetchWordFromText(int address) {
+        BasicStatement statement = this.fetchStatementFromText(address);
+        return (statement == null) ? 0 : statement.getBinaryEncoding();
+    }
+
+    /**
+     * Store a word to a page containing text, decoding it as a statement. This is only permitted if
+     * {@link mars.settings.Settings#selfModifyingCodeEnabled} is set to true.
+     */
+    private void storeWordToText(int address, int value) throws AddressErrorException {
+        checkTextWritable(address);
+        BasicStatement oldStatement = this.decodeWordToText(address, value);
+        // Add a corresponding backstep for the write
+        Simulator.getInstance().getBackStepper().statementWritten(address, oldStatement);
+    }
+
+    private static void checkTextWritable(int address) throws AddressErrorException {
+        // Burch Mod (Jan 2013): replace throw with call to storeStatement
+        // DPS adaptation 5-Jul-2013: either throw or call, depending on setting
+        if (!Application.getSettings().selfModifyingCodeEnabled.get()) {
+            throw new AddressErrorException("cannot write to text segment unless self-modifying code is enabled", ExceptionCause.ADDRESS_STORE, address);
+        }
+    }
+
+    /**
+     * Decode a word and store the resulting statement to a page containing text without any checks.
+     *
+     * @return The statement previously stored at the address.
+     */
+    private BasicStatement decodeWordToText(int address, int value) throws AddressErrorException {
+        BasicStatement statement = Application.instructionSet.getDecoder().decodeStatement(value);
+        Page page = this.getOrAllocatePage(address >>> PAGE_SHIFT);
+        int index = getWordIndex(address);
+        BasicStatement oldStatement = page.statements[index];
+        page.statements[index] = statement;
+        return oldStatement;
     }
 
     /**
@@ -565,29 +1120,18 @@ public class Memory {
     public void storeWord(int address, int value, boolean notify) throws AddressErrorException {
         enforceWordAlignment(address, ExceptionCause.ADDRESS_STORE);
 
-        DataRegion dataRegion;
-        TextRegion textRegion;
-        if ((dataRegion = this.getDataRegionForAddress(address)) != null) {
-            // Falls within a region containing data
-            int oldValue = dataRegion.storeWord(address, value);
+        Page page = this.getDataPageForStore(address);
+        if (page != null) {
+            // Falls within a page containing data
+            int index = getWordIndex(address);
+            int oldValue = page.getWord(index);
+            page.setWord(index, value);
             // Add a corresponding backstep for the write
             Simulator.getInstance().getBackStepper().wordWritten(address, oldValue);
         }
-        else if ((textRegion = this.getTextRegionForAddress(address)) != null) {
-            // Falls within a region containing text
-            // Burch Mod (Jan 2013): replace throw with call to storeStatement
-            // DPS adaptation 5-Jul-2013: either throw or call, depending on setting
-            if (!Application.getSettings().selfModifyingCodeEnabled.get()) {
-                throw new AddressErrorException("cannot write to text segment unless self-modifying code is enabled", ExceptionCause.ADDRESS_STORE, address);
-            }
-            BasicStatement statement = Application.instructionSet.getDecoder().decodeStatement(value);
-            BasicStatement oldStatement = textRegion.storeStatement(address, statement);
-            // Add a corresponding backstep for the write
-            Simulator.getInstance().getBackStepper().statementWritten(address, oldStatement);
-        }
         else {
-            // Falls outside mapped addressing range
-            throw new AddressErrorException("segmentation fault (address out of range)", ExceptionCause.ADDRESS_STORE, address);
+            // Falls within a page containing text
+            this.storeWordToText(address, value);
         }
 
         if (notify) {
@@ -612,22 +1156,27 @@ public class Memory {
         // Discard all but the lowest 16 bits
         value &= 0xFFFF;
 
-        // Fetch the surrounding word from memory
+        // Use the endianness setting to write to the correct inner halfword
         int wordAddress = alignToPrevious(address, BYTES_PER_WORD);
-        int wordValue = this.fetchWord(wordAddress, false);
-
-        if ((this.endianness == Endianness.BIG_ENDIAN) == (address == wordAddress)) {
-            // Write to high-order halfword
-            wordValue = (wordValue & 0x0000FFFF) | (value << 16);
+        int shift = this.getHalfwordShift(address);
+        int wordValue;
+
+        Page page = this.getDataPageForStore(address);
+        if (page != null) {
+            // Modify the surrounding word in place
+            int index = getWordIndex(address);
+            int oldValue = page.getWord(index);
+            wordValue = (oldValue & ~(0xFFFF << shift)) | (value << shift);
+            page.setWord(index, wordValue);
+            // Add a corresponding backstep for the write
+            Simulator.getInstance().getBackStepper().wordWritten(wordAddress, oldValue);
         }
         else {
-            // Write to low-order halfword
-            wordValue = (wordValue & 0xFFFF0000) | value;
+            // Text is stored as statements, so the whole word must be re-decoded
+            wordValue = (this.fetchWordFromText(wordAddress) & ~(0xFFFF << shift)) | (value << shift);
+            this.storeWordToText(wordAddress, wordValue);
         }
 
-        // Store the augmented word back into memory
-        this.storeWord(wordAddress, wordValue, false);
-
         if (notify) {
             // Notify listeners of the write operation
             this.dispatchWriteEvent(address, BYTES_PER_HALFWORD, value, wordAddress, wordValue);
@@ -647,18 +1196,26 @@ public class Memory {
         // Discard all but the lowest 8 bits
         value &= 0xFF;
 
-        // Fetch the surrounding word from memory
-        int wordAddress = alignToPrevious(address, BYTES_PER_WORD);
-        int wordValue = this.fetchWord(wordAddress, false);
-
         // Use the endianness setting to write to the correct inner byte
-        wordValue = Binary.setByte(wordValue, switch (this.endianness) {
-            case BIG_ENDIAN -> wordAddress - address + (BYTES_PER_WORD - 1);
-            case LITTLE_ENDIAN -> address - wordAddress;
-        }, value);
-
-        // Store the augmented word back into memory
-        this.storeWord(wordAddress, wordValue, false);
+        int wordAddress = alignToPrevious(address, BYTES_PER_WORD);
+        int shift = this.getByteShift(address);
+        int wordValue;
+
+        Page page = this.getDataPageForStore(address);
+        if (page != null) {
+            // Modify the surrounding word in place
+            int index = getWordIndex(address);
+            int oldValue = page.getWord(index);
+            wordValue = (oldValue & ~(0xFF << shift)) | (value << shift);
+            page.setWord(index, wordValue);
+            // Add a corresponding backstep for the write
+            Simulator.getInstance().getBackStepper().wordWritten(wordAddress, oldValue);
+        }
+        else {
+            // Text is stored as statements, so the whole word must be re-decoded
+            wordValue = (this.fetchWordFromText(wordAddress) & ~(0xFF << shift)) | (value << shift);
+            this.storeWordToText(wordAddress, wordValue);
+        }
 
         if (notify) {
             // Notify listeners of the write operation
@@ -696,6 +1253,231 @@ public class Memory {
         }
     }
 
+    /**
+     * Store a sequence of bytes in memory starting at a given address, which need not be aligned.
+     * May write to a memory region containing text, but only if
+     * {@link mars.settings.Settings#selfModifyingCodeEnabled} is set to true.
+     * <p>
+     * This is much faster than storing each byte individually, and only a single back-step and
+     * a single listener event (see {@link Listener#memoryBlockWritten(int, int)}) are generated for the operation.
+     * The entire range is checked before anything is written, so either all bytes are stored or none are.
+     *
+     * @param address Address of the first byte where memory will be written.
+     * @param bytes   Array containing the bytes to be stored.
+     * @param offset  Index of the first byte in <code>bytes</code> to be stored.
+     * @param length  Number of bytes to be stored.
+     * @param notify  Whether to notify listeners of the write operation.
+     * @throws AddressErrorException Thrown if any address in the range is out of range or does not allow
+     *         this operation.
+     */
+    public void storeBytes(int address, byte[] bytes, int offset, int length, boolean notify) throws AddressErrorException {
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        this.storeBytes(address, ByteBuffer.wrap(bytes), offset, length, notify);
+    }
+
+    /**
+     * Store a sequence of bytes in memory starting at a given address, which need not be aligned.
+     * May write to a memory region containing text, but only if
+     * {@link mars.settings.Settings#selfModifyingCodeEnabled} is set to true.
+     * <p>
+     * This is much faster than storing each byte individually, and only a single back-step and
+     * a single listener event (see {@link Listener#memoryBlockWritten(int, int)}) are generated for the operation.
+     * The entire range is checked before anything is written, so either all bytes are stored or none are.
+     *
+     * @param address Address of the first byte where memory will be written.
+     * @param source  Buffer containing the bytes to be stored. Its position and limit are ignored and unchanged.
+     * @param offset  Absolute index of the first byte in <code>source</code> to be stored.
+     * @param length  Number of bytes to be stored.
+     * @param notify  Whether to notify listeners of the write operation.
+     * @throws AddressErrorException Thrown if any address in the range is out of range or does not allow
+     *         this operation.
+     */
+    public void storeBytes(int address, ByteBuffer source, int offset, int length, boolean notify) throws AddressErrorException {
+        Objects.checkFromIndexSize(offset, length, source.capacity());
+        if (length == 0) {
+            return;
+        }
+        this.checkBlockWritable(address, length);
+
+        // Save the previous contents for a single corresponding backstep
+        byte[] restoreBytes = null;
+        if (Simulator.getInstance().getBackStepper().isEnabled()) {
+            restoreBytes = new byte[length];
+            this.transferBytes(address, ByteBuffer.wrap(restoreBytes), 0, length, false);
+        }
+
+        this.transferBytes(address, source, offset, length, true);
+
+        if (restoreBytes != null) {
+            Simulator.getInstance().getBackStepper().bytesWritten(address, restoreBytes);
+        }
+        if (notify) {
+            // Notify listeners of the write operation
+            this.dispatchBlockEvent(address, length, true);
+        }
+    }
+
+    /**
+     * Load a sequence of bytes into memory starting at a given address, as part of preparing memory before
+     * the program runs (e.g. with precomputed tables or test inputs). This works like
+     * {@link #storeBytes(int, ByteBuffer, int, int, boolean)}, except that no back-step is recorded, so loading
+     * a large amount of data does not require a copy of the memory it replaces.
+     *
+     * @param address Address of the first byte where memory will be written.
+     * @param source  Buffer containing the bytes to be loaded. Its position and limit are ignored and unchanged.
+     * @param offset  Absolute index of the first byte in <code>source</code> to be loaded.
+     * @param length  Number of bytes to be loaded.
+     * @param notify  Whether to notify listeners of the write operation.
+     * @throws AddressErrorException Thrown if any address in the range is out of range or does not allow
+     *         this operation.
+     */
+    public void loadBytes(int address, ByteBuffer source, int offset, int length, boolean notify) throws AddressErrorException {
+        Objects.checkFromIndexSize(offset, length, source.capacity());
+        if (length == 0) {
+            return;
+        }
+        this.checkBlockWritable(address, length);
+        this.transferBytes(address, source, offset, length, true);
+        if (notify) {
+            // Notify listeners of the write operation
+            this.dispatchBlockEvent(address, length, true);
+        }
+    }
+
+    /**
+     * Fill memory with repeated copies of a sequence of bytes starting at a given address, as part of preparing
+     * memory before the program runs (e.g. for repeated values in assembler directives). Like
+     * {@link #loadBytes(int, ByteBuffer, int, int, boolean)}, no back-step is recorded.
+     * <p>
+     * Every page in the range is allocated, even when filling with zeros, since memory dumps treat
+     * unallocated words as the end of the data in a segment.
+     *
+     * @param address Address of the first byte where memory will be written.
+     * @param pattern The bytes to be repeated, in order of increasing address.
+     * @param count   Number of copies of <code>pattern</code> to be written.
+     * @param notify  Whether to notify listeners of the write operation.
+     * @throws AddressErrorException Thrown if any address in the range is out of range or does not allow
+     *         this operation.
+     */
+    public void fillBytes(int address, byte[] pattern, int count, boolean notify) throws AddressErrorException {
+        long length = (long) pattern.length * count;
+        if (length <= 0) {
+            return;
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new AddressErrorException("segmentation fault (address out of range)", ExceptionCause.ADDRESS_STORE, address);
+        }
+        this.checkBlockWritable(address, length);
+
+        // Build a chunk of whole copies of the pattern, so consecutive chunks continue the pattern seamlessly
+        int chunkCount = Math.min(count, Math.max(1, BYTES_PER_PAGE / pattern.length));
+        ByteBuffer chunk = ByteBuffer.allocate(chunkCount * pattern.length);
+        for (int copy = 0; copy < chunkCount; copy++) {
+            chunk.put(pattern);
+        }
+
+        long current = Integer.toUnsignedLong(address);
+        long endAddress = current + length;
+        int chunkOffset = 0;
+        while (current < endAddress) {
+            int currentAddress = (int) current;
+            int segmentLength = Math.min(this.getBlockSegmentLength(currentAddress, endAddress - current), chunk.capacity() - chunkOffset);
+            this.transferBytes(currentAddress, chunk, chunkOffset, segmentLength, true);
+            chunkOffset = (chunkOffset + segmentLength) % chunk.capacity();
+            current += segmentLength;
+        }
+
+        if (notify) {
+            // Notify listeners of the write operation
+            this.dispatchBlockEvent(address, (int) length, true);
+        }
+    }
+
+    /**
+     * Ensure every byte in a range can be written, so a bulk write does not fail partway through.
+     */
+    private void checkBlockWritable(int address, long length) throws AddressErrorException {
+        long endAddress = Integer.toUnsignedLong(address) + length;
+        if (endAddress > 0x1_0000_0000L) {
+            throw new AddressErrorException("segmentation fault (address out of range)", ExceptionCause.ADDRESS_STORE, 0);
+        }
+        long current = Integer.toUnsignedLong(address);
+        while (current < endAddress) {
+            int currentAddress = (int) current;
+            Region region = this.getRegion(currentAddress);
+            if (region.isText()) {
+                checkTextWritable(currentAddress);
+            }
+            else if (region == Region.UNMAPPED) {
+                throw new AddressErrorException("segmentation fault (address out of range)", ExceptionCause.ADDRESS_STORE, currentAddress);
+            }
+            else if ((this.getPermissions(currentAddress) & PERMISSION_WRITE) == 0) {
+                throw new AddressErrorException("segmentation fault (page is not writable)", ExceptionCause.ADDRESS_STORE, currentAddress);
+            }
+            current += this.getBlockSegmentLength(currentAddress, endAddress - current);
+        }
+    }
+
+    /**
+     * Get the number of bytes starting at an address which can be transferred as part of the same page,
+     * i.e. up to the end of the page. Pages shared between regions are transferred one word at a time,
+     * since their region may differ from word to word.
+     */
+    private int getBlockSegmentLength(int address, long remaining) {
+        int segmentLength = ((this.pagePermissions[address >>> PAGE_SHIFT] & PAGE_PARTIAL) != 0)
+            ? BYTES_PER_WORD - (address & (BYTES_PER_WORD - 1))
+            : BYTES_PER_PAGE - (address & (BYTES_PER_PAGE - 1));
+        return (int) Math.min(segmentLength, remaining);
+    }
+
+    /**
+     * Copy bytes between memory and a buffer one page at a time, without any notification or back-stepping.
+     * When storing, the range must have already been checked with {@link #checkBlockWritable(int, int)}.
+     */
+    private void transferBytes(int address, ByteBuffer buffer, int offset, int length, boolean isStore) throws AddressErrorException {
+        boolean isBigEndian = this.endianness == Endianness.BIG_ENDIAN;
+        long current = Integer.toUnsignedLong(address);
+        long endAddress = current + length;
+        while (current < endAddress) {
+            int currentAddress = (int) current;
+            int segmentLength = this.getBlockSegmentLength(currentAddress, endAddress - current);
+            int pageOffset = currentAddress & (BYTES_PER_PAGE - 1);
+            Page page = (isStore) ? this.getDataPageForStore(currentAddress) : this.getDataPageForFetch(currentAddress);
+            if (page != null) {
+                // Falls within a page containing data
+                if (isStore) {
+                    page.putBytes(pageOffset, buffer, offset, segmentLength, isBigEndian);
+                }
+                else {
+                    page.getBytes(pageOffset, buffer, offset, segmentLength, isBigEndian);
+                }
+            }
+            else {
+                // Falls within a page containing text, which must be transferred a word at a time
+                for (int index = 0; index < segmentLength; ) {
+                    int byteAddress = currentAddress + index;
+                    int wordAddress = alignToPrevious(byteAddress, BYTES_PER_WORD);
+                    int wordValue = this.fetchWordFromText(wordAddress);
+                    int wordEnd = Math.min(segmentLength, index + (wordAddress + BYTES_PER_WORD - byteAddress));
+                    for (; index < wordEnd; index++) {
+                        int shift = this.getByteShift(currentAddress + index);
+                        if (isStore) {
+                            wordValue = (wordValue & ~(0xFF << shift)) | ((buffer.get(offset + index) & 0xFF) << shift);
+                        }
+                        else {
+                            buffer.put(offset + index, (byte) (wordValue >>> shift));
+                        }
+                    }
+                    if (isStore) {
+                        this.decodeWordToText(wordAddress, wordValue);
+                    }
+                }
+            }
+            offset += segmentLength;
+            current += segmentLength;
+        }
+    }
+
     /**
      * Store a statement in memory at a given address, which must be aligned to a word boundary.
      * May write to a memory region containing data, but only if
@@ -713,20 +1495,23 @@ public class Memory {
         // Obtain the binary representation of the statement
         int binaryStatement = (statement == null) ? 0 : statement.getBinaryEncoding();
 
-        TextRegion textRegion;
-        DataRegion dataRegion;
-        if ((textRegion = this.getTextRegionForAddress(address)) != null) {
+        Region region = this.getRegion(address);
+        if (region.isText()) {
             // Falls within a region containing text
-            BasicStatement oldStatement = textRegion.storeStatement(address, statement);
+            Page page = this.getOrAllocatePage(address >>> PAGE_SHIFT);
+            int index = getWordIndex(address);
+            BasicStatement oldStatement = page.statements[index];
+            page.statements[index] = statement;
             // Add a corresponding backstep for the write
             Simulator.getInstance().getBackStepper().statementWritten(address, oldStatement);
         }
-        else if ((dataRegion = this.getDataRegionForAddress(address)) != null) {
+        else if (region.isData()) {
             // Falls within a region containing data
             if (!Application.getSettings().selfModifyingCodeEnabled.get()) {
                 throw new AddressErrorException("cannot store code beyond text segment unless self-modifying code is enabled", ExceptionCause.ADDRESS_FETCH, address);
             }
-            dataRegion.storeWord(address, binaryStatement);
+            Page page = this.getOrAllocatePage(address >>> PAGE_SHIFT);
+            page.setWord(getWordIndex(address), binaryStatement);
         }
         else {
             // Falls outside mapped addressing range
@@ -776,23 +1561,17 @@ public class Memory {
         enforceWordAlignment(address, ExceptionCause.ADDRESS_FETCH);
 
         int value;
-        DataRegion dataRegion;
-        TextRegion textRegion;
-        if ((dataRegion = this.getDataRegionForAddress(address)) != null) {
-            // Falls within a region containing data
-            value = dataRegion.fetchWord(address);
+        Page page = this.getDataPageForFetch(address);
+        if (page != null) {
+            // Falls within a page containing data
+            value = page.getWord(getWordIndex(address));
         }
-        else if ((textRegion = this.getTextRegionForAddress(address)) != null) {
-            // Falls within a region containing text
+        else {
+            // Falls within a page containing text
             // Burch Mod (Jan 2013): replace throw with calls to fetchStatement & getBinaryStatement
             // DPS adaptation 5-Jul-2013: either throw or call, depending on setting
             // Sean Clarke (05/2024): don't throw, reading should be fine regardless of self-modifying code setting
-            BasicStatement statement = textRegion.fetchStatement(address);
-            value = statement == null ? 0 : statement.getBinaryEncoding();
-        }
-        else {
-            // Falls outside mapped addressing range
-            throw new AddressErrorException("segmentation fault (address out of range)", ExceptionCause.ADDRESS_FETCH, address);
+            value = this.fetchWordFromText(address);
         }
 
         if (notify) {
@@ -826,18 +1605,18 @@ public class Memory {
     public Integer fetchWordOrNull(int address) throws AddressErrorException {
         enforceWordAlignment(address, ExceptionCause.ADDRESS_FETCH);
 
-        DataRegion dataRegion;
-        TextRegion textRegion;
-        if ((dataRegion = this.getDataRegionForAddress(address)) != null) {
+        Region region = this.getRegion(address);
+        if (region.isData()) {
             // Falls within a region containing data
-            return dataRegion.fetchWordOrNull(address);
+            Page page = this.getPage(address >>> PAGE_SHIFT);
+            return (page == null || !page.hasWords()) ? null : page.getWord(getWordIndex(address));
         }
-        else if ((textRegion = this.getTextRegionForAddress(address)) != null) {
+        else if (region.isText()) {
             // Falls within a region containing text
             // Burch Mod (Jan 2013): replace throw with calls to getStatementNoNotify & getBinaryStatement
             // DPS adaptation 5-Jul-2013: either throw or call, depending on setting
             // Sean Clarke (05/2024): don't throw, reading should be fine regardless of self-modifying code setting
-            BasicStatement statement = textRegion.fetchStatement(address);
+            BasicStatement statement = this.fetchStatementFromText(address);
             return statement == null ? null : statement.getBinaryEncoding();
         }
         else {
@@ -861,17 +1640,11 @@ public class Memory {
 
         // Fetch the surrounding word from memory
         int wordAddress = alignToPrevious(address, BYTES_PER_WORD);
-        int wordValue = this.fetchWord(wordAddress, false);
+        Page page = this.getDataPageForFetch(address);
+        int wordValue = (page != null) ? page.getWord(getWordIndex(address)) : this.fetchWordFromText(wordAddress);
 
-        int value;
-        if ((this.endianness == Endianness.BIG_ENDIAN) == (address == wordAddress)) {
-            // Extract the high-order halfword
-            value = wordValue >>> 16;
-        }
-        else {
-            // Extract the low-order halfword
-            value = wordValue & 0xFFFF;
-        }
+        // Use the endianness setting to extract the correct inner halfword
+        int value = (wordValue >>> this.getHalfwordShift(address)) & 0xFFFF;
 
         if (notify) {
             // Notify listeners of the read operation
@@ -892,13 +1665,11 @@ public class Memory {
     public int fetchByte(int address, boolean notify) throws AddressErrorException {
         // Fetch the surrounding word from memory
         int wordAddress = alignToPrevious(address, BYTES_PER_WORD);
-        int wordValue = this.fetchWord(wordAddress, false);
+        Page page = this.getDataPageForFetch(address);
+        int wordValue = (page != null) ? page.getWord(getWordIndex(address)) : this.fetchWordFromText(wordAddress);
 
         // Use the endianness setting to extract the correct inner byte
-        int value = Binary.getByte(wordValue, switch (this.endianness) {
-            case BIG_ENDIAN -> wordAddress - address + (BYTES_PER_WORD - 1);
-            case LITTLE_ENDIAN -> address - wordAddress;
-        });
+        int value = (wordValue >>> this.getByteShift(address)) & 0xFF;
 
         if (notify) {
             // Notify listeners of the read operation
@@ -934,6 +1705,58 @@ public class Memory {
         };
     }
 
+    /**
+     * Fetch a sequence of bytes from memory starting at a given address, which need not be aligned.
+     * May read from a memory region containing text, even if
+     * {@link mars.settings.Settings#selfModifyingCodeEnabled} is set to false.
+     * <p>
+     * This is much faster than fetching each byte individually, and only a single listener event
+     * (see {@link Listener#memoryBlockRead(int, int)}) is generated for the operation.
+     *
+     * @param address Address of the first byte to fetch.
+     * @param bytes   Array to place the fetched bytes in.
+     * @param offset  Index in <code>bytes</code> to place the first byte fetched.
+     * @param length  Number of bytes to fetch.
+     * @param notify  Whether to notify listeners of the read operation.
+     * @throws AddressErrorException Thrown if any address in the range is out of range.
+     */
+    public void fetchBytes(int address, byte[] bytes, int offset, int length, boolean notify) throws AddressErrorException {
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        this.fetchBytes(address, ByteBuffer.wrap(bytes), offset, length, notify);
+    }
+
+    /**
+     * Fetch a sequence of bytes from memory starting at a given address, which need not be aligned.
+     * May read from a memory region containing text, even if
+     * {@link mars.settings.Settings#selfModifyingCodeEnabled} is set to false.
+     * <p>
+     * This is much faster than fetching each byte individually, and only a single listener event
+     * (see {@link Listener#memoryBlockRead(int, int)}) is generated for the operation.
+     *
+     * @param address     Address of the first byte to fetch.
+     * @param destination Buffer to place the fetched bytes in. Its position and limit are ignored and unchanged.
+     * @param offset      Absolute index in <code>destination</code> to place the first byte fetched.
+     * @param length      Number of bytes to fetch.
+     * @param notify      Whether to notify listeners of the read operation.
+     * @throws AddressErrorException Thrown if any address in the range is out of range.
+     */
+    public void fetchBytes(int address, ByteBuffer destination, int offset, int length, boolean notify) throws AddressErrorException {
+        Objects.checkFromIndexSize(offset, length, destination.capacity());
+        if (length == 0) {
+            return;
+        }
+        if (Integer.toUnsignedLong(address) + length > 0x1_0000_0000L) {
+            throw new AddressErrorException("segmentation fault (address out of range)", ExceptionCause.ADDRESS_FETCH, 0);
+        }
+
+        this.transferBytes(address, destination, offset, length, false);
+
+        if (notify) {
+            // Notify listeners of the read operation
+            this.dispatchBlockEvent(address, length, false);
+        }
+    }
+
     /**
      * Fetch a statement from memory at a given address, which must be aligned to a word boundary.
      * May read from a memory region containing data, but only if
@@ -949,31 +1772,50 @@ public class Memory {
         enforceWordAlignment(address, ExceptionCause.ADDRESS_FETCH);
 
         BasicStatement statement;
-        TextRegion textRegion;
-        DataRegion dataRegion;
-        if ((textRegion = this.getTextRegionForAddress(address)) != null) {
+        int pageNumber = address >>> PAGE_SHIFT;
+        Page page = this.textPageCache[pageNumber & (PAGE_CACHE_SIZE - 1)];
+        if (page != null && page.number == pageNumber) {
+            // Recently used page containing text
+            statement = page.statements[getWordIndex(address)];
+        }
+        else {
+            statement = this.fetchStatementUncached(address);
+        }
+
+        if (notify) {
+            // Notify listeners of the read operation
+            int binaryStatement = (statement == null) ? 0 : statement.getBinaryEncoding();
+            this.dispatchReadEvent(address, Instruction.BYTES_PER_INSTRUCTION, binaryStatement, address, binaryStatement);
+        }
+        return statement;
+    }
+
+    private BasicStatement fetchStatementUncached(int address) throws AddressErrorException {
+        Region region = this.getRegion(address);
+        if (region.isText()) {
             // Falls within a region containing text
-            statement = textRegion.fetchStatement(address);
+            if ((this.getPermissions(address) & PERMISSION_EXECUTE) == 0) {
+                throw new AddressErrorException("segmentation fault (page is not executable)", ExceptionCause.ADDRESS_FETCH, address);
+            }
+            Page page = this.pages[address >>> PAGE_SHIFT];
+            if (page == null) {
+                return null;
+            }
+            this.cacheTextPage(page);
+            return page.statements[getWordIndex(address)];
         }
-        else if ((dataRegion = this.getDataRegionForAddress(address)) != null) {
+        else if (region.isData()) {
             // Falls within a region containing data
             if (!Application.getSettings().selfModifyingCodeEnabled.get()) {
                 throw new AddressErrorException("cannot execute beyond text segment unless self-modifying code is enabled", ExceptionCause.ADDRESS_FETCH, address);
             }
-            Integer binaryStatement = dataRegion.fetchWordOrNull(address);
-            statement = (binaryStatement == null) ? null : Application.instructionSet.getDecoder().decodeStatement(binaryStatement);
+            Integer binaryStatement = this.fetchWordOrNull(address);
+            return (binaryStatement == null) ? null : Application.instructionSet.getDecoder().decodeStatement(binaryStatement);
         }
         else {
             // Falls outside mapped addressing range
             throw new AddressErrorException("segmentation fault (address out of range)", ExceptionCause.ADDRESS_FETCH, address);
         }
-
-        if (notify) {
-            // Notify listeners of the read operation
-            int binaryStatement = (statement == null) ? 0 : statement.getBinaryEncoding();
-            this.dispatchReadEvent(address, Instruction.BYTES_PER_INSTRUCTION, binaryStatement, address, binaryStatement);
-        }
-        return statement;
     }
 
     /**
@@ -986,12 +1828,46 @@ public class Memory {
     public String fetchNullTerminatedString(int address) throws AddressErrorException {
         StringBuilder content = new StringBuilder();
 
-        char ch;
-        while ((ch = (char) this.fetchByte(address++, false)) != 0) {
-            content.append(ch);
+        // Scan a word at a time, only examining individual bytes in the word containing the terminator
+        while (true) {
+            int wordAddress = alignToPrevious(address, BYTES_PER_WORD);
+            Page page = this.getDataPageForFetch(address);
+            int wordValue = (page != null) ? page.getWord(getWordIndex(address)) : this.fetchWordFromText(wordAddress);
+            if (address == wordAddress && !containsZeroByte(wordValue)) {
+                for (int index = 0; index < BYTES_PER_WORD; index++) {
+                    content.append((char) ((wordValue >>> this.getByteShift(address + index)) & 0xFF));
+                }
+                address += BYTES_PER_WORD;
+                continue;
+            }
+            for (; address != wordAddress + BYTES_PER_WORD; address++) {
+                char ch = (char) ((wordValue >>> this.getByteShift(address)) & 0xFF);
+                if (ch == 0) {
+                    return content.toString();
+                }
+                content.append(ch);
+            }
         }
+    }
+
+    /**
+     * Determine whether any of the 4 bytes in a word is zero, without examining each byte individually.
+     */
+    private static boolean containsZeroByte(int word) {
+        return ((word - 0x01010101) & ~word & 0x80808080) != 0;
+    }
 
-        return content.toString();
+    /**
+     * Fetch a word without notifying listeners, treating unmapped or unreadable addresses as containing zero.
+     */
+    private int fetchWordQuietly(int address) {
+        try {
+            Integer value = this.fetchWordOrNull(address);
+            return (value == null) ? 0 : value;
+        }
+        catch (AddressErrorException exception) {
+            return 0;
+        }
     }
 
     /**
@@ -1014,244 +1890,351 @@ public class Memory {
     }
 
     /**
-     * Class representing an arbitrary contiguous region of memory which contains data.
-     * <p>
-     * Obviously, allocating one array for the entire region of memory would be extremely wasteful
-     * (and perhaps not even possible), so the region is divided into many fixed-size tables,
-     * each of which is further subdivided into many blocks, a block being an array of memory words.
-     * Currently, each block contains 1024 words, and each table contains 1024 blocks. Thus, each block
-     * holds 4 KiB of data, and each table can accommodate up to 4 MiB of data in total.
-     * <p>
-     * Although this structure uses a three-dimensional array, this makes it relatively space-efficient since
-     * only the outermost array of tables is allocated initially. Tables and blocks are only allocated
-     * when a write occurs somewhere in their range; otherwise, they are simply left as null references.
-     * In addition, the array of tables only has as many elements as is necessary to fully cover the region.
-     * A base address is used as the memory offset of the first table in the array.
-     * <p>
-     * Sean Clarke (05/2024): The note below is interesting, but not really relevant. I'll keep it here for now.
-     * <p>
-     * The SPIM simulator stores statically allocated data (i.e. data following a <code>.data</code> directive)
-     * starting at address <code>0x10010000</code>. This is the first word beyond the reach of <code>$gp</code>
-     * used in conjunction with a signed 16-bit immediate offset. <code>$gp</code> has value <code>0x10008000</code>,
-     * and with the signed 16-bit offset, it can reach from <code>0x10008000 - 0x8000 = 0x10000000</code>
-     * (base of the data segment) to <code>0x10008000 + 0x7FFF = 0x1000FFFF</code>
-     * (the byte preceding <code>0x10010000</code>).
+     * Find the address of the last word in an address range which contains a value, as indicated by the return value
+     * of {@link #fetchWordOrNull}. Unlike {@link #getAddressOfFirstNullWord(int, int)}, this looks past any
+     * unallocated gaps in the range, so it can be used to find the end of everything which needs to be dumped.
+     *
+     * @param firstAddress First address to be searched. Must be word-aligned.
+     * @param lastAddress  Last address to be searched.
+     * @return Address of the last word within the specified range that contains a value,
+     *         or <code>firstAddress - BYTES_PER_WORD</code> if there is none.
+     * @throws AddressErrorException Thrown if the first address is not word-aligned.
      */
-    public static class DataRegion {
-        private static final int WORDS_PER_BLOCK = 1024;
-        private static final int BLOCKS_PER_TABLE = 1024;
-        private static final int WORDS_PER_TABLE = WORDS_PER_BLOCK * BLOCKS_PER_TABLE;
-        private static final int BYTES_PER_TABLE = BYTES_PER_WORD * WORDS_PER_TABLE;
-
-        private static int getWordIndex(int wordOffset) {
-            return wordOffset & (WORDS_PER_BLOCK - 1);
+    public int getAddressOfLastAllocatedWord(int firstAddress, int lastAddress) throws AddressErrorException {
+        enforceWordAlignment(firstAddress, ExceptionCause.ADDRESS_FETCH);
+        List<AllocatedBlock> blocks = new ArrayList<>();
+        for (AllocatedBlock block : this.getAllocatedBlocks(firstAddress, lastAddress)) {
+            blocks.add(block);
+        }
+        // Data pages contain a value at every word, but text pages only contain statements up to the end of the program
+        for (int index = blocks.size() - 1; index >= 0; index--) {
+            AllocatedBlock block = blocks.get(index);
+            long address = Integer.toUnsignedLong(alignToPrevious(block.lastAddress(), BYTES_PER_WORD));
+            for (; address >= Integer.toUnsignedLong(block.firstAddress()); address -= BYTES_PER_WORD) {
+                if (this.fetchWordOrNull((int) address) != null) {
+                    return (int) address;
+                }
+            }
         }
+        return firstAddress - BYTES_PER_WORD;
+    }
 
-        private static int getBlockIndex(int wordOffset) {
-            return (wordOffset / WORDS_PER_BLOCK) & (BLOCKS_PER_TABLE - 1);
+    /**
+     * A range of addresses in which memory has been allocated, as found by {@link #getAllocatedBlocks(int, int)}.
+     *
+     * @param firstAddress The first address in the block.
+     * @param lastAddress  The last address in the block (inclusive).
+     */
+    public record AllocatedBlock(int firstAddress, int lastAddress) {
+        /**
+         * Get the number of bytes in the block.
+         *
+         * @return The length of the block in bytes.
+         */
+        public long length() {
+            return Integer.toUnsignedLong(this.lastAddress) - Integer.toUnsignedLong(this.firstAddress) + 1;
         }
+    }
 
-        private static int getTableIndex(int wordOffset) {
-            return wordOffset / WORDS_PER_TABLE;
-        }
+    /**
+     * Iterate over the blocks of memory which have been allocated within an address range, in ascending order
+     * of address. Each block is a maximal run of consecutive pages which have been written to (or hold statements,
+     * or are mapped from a file) since the last call to {@link #reset()}, clipped to the range. Everything outside of
+     * these blocks reads as zero, so tools such as memory dumps can skip it without examining each word.
+     * <p>
+     * The page table is examined lazily as the iteration proceeds, so blocks allocated during the iteration
+     * may or may not be included.
+     *
+     * @param firstAddress The first address in the range.
+     * @param lastAddress  The last address in the range (inclusive).
+     * @return An iterable over the allocated blocks, which may be iterated more than once.
+     */
+    public Iterable<AllocatedBlock> getAllocatedBlocks(int firstAddress, int lastAddress) {
+        int firstPage = firstAddress >>> PAGE_SHIFT;
+        int lastPage = lastAddress >>> PAGE_SHIFT;
+        boolean isEmpty = Integer.compareUnsigned(firstAddress, lastAddress) > 0;
+        return () -> new Iterator<>() {
+            private int pageNumber = firstPage;
+            private boolean isDone = isEmpty;
+            private AllocatedBlock next = null;
+
+            @Override
+            public boolean hasNext() {
+                if (this.next == null) {
+                    this.next = this.findNext();
+                }
+                return this.next != null;
+            }
 
-        private final int[][][] tables;
-        private final int baseAddress;
+            @Override
+            public AllocatedBlock next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                AllocatedBlock block = this.next;
+                this.next = null;
+                return block;
+            }
 
-        /**
-         * Allocate a new region of memory containing data.
-         *
-         * @param addressRange The range of addresses this region is required to contain.
-         */
-        public DataRegion(MemoryLayout.Range addressRange) {
-            // Get the base address, which must be aligned to a table boundary
-            this.baseAddress = alignToPrevious(addressRange.minAddress(), BYTES_PER_TABLE);
-            // Determine how many tables are needed to cover the region
-            int tableCount = (addressRange.maxAddress() - this.baseAddress) / BYTES_PER_TABLE + 1;
-            // Allocate an array which can hold that many tables
-            this.tables = new int[tableCount][][];
+            private AllocatedBlock findNext() {
+                while (!this.isDone) {
+                    if (Memory.this.isPageAllocated(this.pageNumber)) {
+                        int startPage = this.pageNumber;
+                        while (this.pageNumber != lastPage && Memory.this.isPageAllocated(this.pageNumber + 1)) {
+                            this.pageNumber++;
+                        }
+                        int endPage = this.pageNumber;
+                        this.advance();
+                        return new AllocatedBlock(
+                            (startPage == firstPage) ? firstAddress : startPage << PAGE_SHIFT,
+                            (endPage == lastPage) ? lastAddress : (endPage << PAGE_SHIFT) | (BYTES_PER_PAGE - 1)
+                        );
+                    }
+                    this.advance();
+                }
+                return null;
+            }
+
+            private void advance() {
+                if (this.pageNumber == lastPage) {
+                    this.isDone = true;
+                }
+                else {
+                    this.pageNumber++;
+                }
+            }
+        };
+    }
+
+    private boolean isPageAllocated(int pageNumber) {
+        if (this.pages[pageNumber] != null) {
+            return true;
+        }
+        // Pages of mapped files count as allocated even before they are first accessed
+        for (FileMapping mapping : this.fileMappings) {
+            if (pageNumber >= mapping.firstPage() && (long) (pageNumber - mapping.firstPage()) * BYTES_PER_PAGE < mapping.buffer().capacity()) {
+                return true;
+            }
         }
+        return false;
+    }
 
+    /**
+     * A single page of memory in the page table, which holds either raw words (for data) or references to
+     * {@link BasicStatement} objects (for text). Holding statements is less space-efficient, but it is much more
+     * time-efficient for the {@link mars.simulator.Simulator} as it reads the code in the text segment.
+     * A page which is shared between regions may hold both.
+     * <p>
+     * This replaces the former three-level structure of tables and blocks used by each region. Since the page number
+     * is simply the upper 20 bits of an address, locating a page takes a single array access,
+     * and recently used pages are found without consulting the page table at all.
+     */
+    private abstract static class Page {
         /**
-         * Store a word in the region at a given address.
-         * The caller is responsible for ensuring that the address is word-aligned and falls within this region,
-         * as no checking will be done.
-         *
-         * @param address The address to store the word at.
-         * @param value   The value to store at the given address.
-         * @return The previous value which was overwritten (defaults to 0).
+         * Shared read-only page returned for data pages which have not been written to yet.
          */
-        public synchronized int storeWord(int address, int value) {
-            // Compute the indices for the address
-            int wordOffset = (address - this.baseAddress) >>> 2;
-            int wordIndex = getWordIndex(wordOffset);
-            int blockIndex = getBlockIndex(wordOffset);
-            int tableIndex = getTableIndex(wordOffset);
-
-            // Allocate the table if necessary
-            if (this.tables[tableIndex] == null) {
-                this.tables[tableIndex] = new int[BLOCKS_PER_TABLE][];
-            }
-            // Allocate the block if necessary
-            if (this.tables[tableIndex][blockIndex] == null) {
-                this.tables[tableIndex][blockIndex] = new int[WORDS_PER_BLOCK];
-            }
+        private static final Page EMPTY = new HeapPage(-1, true, false);
+
+        protected final int number;
+        protected final BasicStatement[] statements;
 
-            int oldValue = this.tables[tableIndex][blockIndex][wordIndex];
-            this.tables[tableIndex][blockIndex][wordIndex] = value;
-            return oldValue;
+        protected Page(int number, boolean hasStatements) {
+            this.number = number;
+            this.statements = hasStatements ? new BasicStatement[WORDS_PER_PAGE] : null;
         }
 
+        public abstract boolean hasWords();
+
+        public abstract int getWord(int index);
+
+        public abstract void setWord(int index, int value);
+
         /**
-         * Fetch a word from the region at a given address.
-         * The caller is responsible for ensuring that the address is word-aligned and falls within this region,
-         * as no checking will be done.
+         * Copy bytes from this page into a buffer.
          *
-         * @param address The address of the word to fetch.
-         * @return The value stored at the given address (defaults to 0).
+         * @param pageOffset  The offset of the first byte within the page.
+         * @param destination The buffer to copy into, using absolute indices.
+         * @param index       The index of the first byte in the buffer.
+         * @param length      The number of bytes to copy, which must not extend beyond the page.
+         * @param isBigEndian Whether memory is big-endian.
          */
-        public synchronized int fetchWord(int address) {
-            // Compute the indices for the address
-            int wordOffset = (address - this.baseAddress) >>> 2;
-            int wordIndex = getWordIndex(wordOffset);
-            int blockIndex = getBlockIndex(wordOffset);
-            int tableIndex = getTableIndex(wordOffset);
-
-            if (this.tables[tableIndex] == null || this.tables[tableIndex][blockIndex] == null) {
-                // The table or block has not been allocated, so assume it is 0 by default
-                return 0;
-            }
-            else {
-                return this.tables[tableIndex][blockIndex][wordIndex];
-            }
-        }
+        public abstract void getBytes(int pageOffset, ByteBuffer destination, int index, int length, boolean isBigEndian);
 
         /**
-         * Fetch a word from the region at a given address, or null if the word lies in a block
-         * which has not been allocated before.
-         * The caller is responsible for ensuring that the address is word-aligned and falls within this region,
-         * as no checking will be done.
-         * <p>
-         * Originally developed by Greg Gibeling of UC Berkeley, fall 2007.
+         * Copy bytes from a buffer into this page.
          *
-         * @param address The address of the word to fetch.
-         * @return The value stored at the given address (defaults to 0 within allocated blocks).
+         * @param pageOffset  The offset of the first byte within the page.
+         * @param source      The buffer to copy from, using absolute indices.
+         * @param index       The index of the first byte in the buffer.
+         * @param length      The number of bytes to copy, which must not extend beyond the page.
+         * @param isBigEndian Whether memory is big-endian.
          */
-        public synchronized Integer fetchWordOrNull(int address) {
-            // Compute the indices for the address
-            int wordOffset = (address - this.baseAddress) >>> 2;
-            int wordIndex = getWordIndex(wordOffset);
-            int blockIndex = getBlockIndex(wordOffset);
-            int tableIndex = getTableIndex(wordOffset);
-
-            if (this.tables[tableIndex] == null || this.tables[tableIndex][blockIndex] == null) {
-                // The table or block has not been allocated, so return null
-                return null;
+        public abstract void putBytes(int pageOffset, ByteBuffer source, int index, int length, boolean isBigEndian);
+
+        protected static int getByteShift(int pageOffset, boolean isBigEndian) {
+            int offset = pageOffset & (BYTES_PER_WORD - 1);
+            return ((isBigEndian) ? BYTES_PER_WORD - 1 - offset : offset) << 3;
+        }
+    }
+
+    /**
+     * Page whose words are stored in an array on the Java heap.
+     */
+    private static final class HeapPage extends Page {
+        private final int[] words;
+
+        private HeapPage(int number, boolean hasWords, boolean hasStatements) {
+            super(number, hasStatements);
+            this.words = hasWords ? new int[WORDS_PER_PAGE] : null;
+        }
+
+        @Override
+        public boolean hasWords() {
+            return this.words != null;
+        }
+
+        @Override
+        public int getWord(int index) {
+            return this.words[index];
+        }
+
+        @Override
+        public void setWord(int index, int value) {
+            this.words[index] = value;
+        }
+
+        @Override
+        public void getBytes(int pageOffset, ByteBuffer destination, int index, int length, boolean isBigEndian) {
+            for (int count = 0; count < length; count++, pageOffset++) {
+                int shift = getByteShift(pageOffset, isBigEndian);
+                destination.put(index + count, (byte) (this.words[pageOffset >>> 2] >>> shift));
             }
-            else {
-                return this.tables[tableIndex][blockIndex][wordIndex];
+        }
+
+        @Override
+        public void putBytes(int pageOffset, ByteBuffer source, int index, int length, boolean isBigEndian) {
+            for (int count = 0; count < length; count++, pageOffset++) {
+                int shift = getByteShift(pageOffset, isBigEndian);
+                int wordIndex = pageOffset >>> 2;
+                this.words[wordIndex] = (this.words[wordIndex] & ~(0xFF << shift)) | ((source.get(index + count) & 0xFF) << shift);
             }
         }
     }
 
     /**
-     * Class representing an arbitrary contiguous region of memory which contains text.
-     * <p>
-     * This uses a very similar structure to {@link DataRegion}. The primary difference is that <code>DataRegion</code>
-     * contains raw memory words at the innermost level, whereas this contains references to
-     * {@link BasicStatement} objects instead. While less space-efficient, it is much more time-efficient
-     * for the {@link mars.simulator.Simulator} as it reads the code in the text segment.
-     * (Especially since the current code to construct a <code>BasicStatement</code> from its binary data
-     * isn't too great, which is certainly on the to-do list to improve.)
+     * Page whose words are stored in a byte buffer allocated outside the Java heap, possibly mapped from a file.
+     * The buffer uses the byte order of the simulated memory.
      */
-    public static class TextRegion {
-        private static final int WORDS_PER_BLOCK = 1024;
-        private static final int BLOCKS_PER_TABLE = 1024;
-        private static final int WORDS_PER_TABLE = WORDS_PER_BLOCK * BLOCKS_PER_TABLE;
-        private static final int BYTES_PER_TABLE = BYTES_PER_WORD * WORDS_PER_TABLE;
+    private static final class BufferPage extends Page {
+        private final ByteBuffer bytes;
+
+        private BufferPage(int number, ByteBuffer bytes, boolean hasStatements) {
+            super(number, hasStatements);
+            this.bytes = bytes;
+        }
 
-        private static int getWordIndex(int wordOffset) {
-            return wordOffset & (WORDS_PER_BLOCK - 1);
+        @Override
+        public boolean hasWords() {
+            return true;
         }
 
-        private static int getBlockIndex(int wordOffset) {
-            return (wordOffset / WORDS_PER_BLOCK) & (BLOCKS_PER_TABLE - 1);
+        @Override
+        public int getWord(int index) {
+            return this.bytes.getInt(index << 2);
         }
 
-        private static int getTableIndex(int wordOffset) {
-            return wordOffset / WORDS_PER_TABLE;
+        @Override
+        public void setWord(int index, int value) {
+            this.bytes.putInt(index << 2, value);
         }
 
-        private final BasicStatement[][][] tables;
-        private final int baseAddress;
+        @Override
+        public void getBytes(int pageOffset, ByteBuffer destination, int index, int length, boolean isBigEndian) {
+            // The buffer already uses the byte order of memory, so the bytes can be copied directly
+            destination.put(index, this.bytes, pageOffset, length);
+        }
 
-        /**
-         * Allocate a new region of memory containing text.
-         *
-         * @param addressRange The range of addresses this region is required to contain.
-         */
-        public TextRegion(MemoryLayout.Range addressRange) {
-            // Get the base address, which must be aligned to a table boundary
-            this.baseAddress = alignToPrevious(addressRange.minAddress(), BYTES_PER_TABLE);
-            // Determine how many tables are needed to cover the region
-            int tableCount = (addressRange.maxAddress() - this.baseAddress) / BYTES_PER_TABLE + 1;
-            // Allocate an array which can hold that many tables
-            this.tables = new BasicStatement[tableCount][][];
+        @Override
+        public void putBytes(int pageOffset, ByteBuffer source, int index, int length, boolean isBigEndian) {
+            this.bytes.put(pageOffset, source, index, length);
         }
+    }
+
+    /**
+     * Page whose words are stored in part of a file mapped by {@link #mapFile(FileChannel, long, int, boolean)}.
+     * If the mapped buffer is read-only, it is replaced with a private copy the first time the page is written.
+     * The buffer uses the byte order of the simulated memory.
+     */
+    private static final class MappedPage extends Page {
+        private ByteBuffer bytes;
+        private final ByteBuffer writeThrough;
 
         /**
-         * Store a statement in the region at a given address.
-         * The caller is responsible for ensuring that the address is word-aligned and falls within this region,
-         * as no checking will be done.
-         *
-         * @param address   The address to store the statement at.
-         * @param statement The statement to store at the given address.
-         * @return The previous statement which was overwritten (defaults to null).
+         * @param bytes        The contents of the page.
+         * @param writeThrough A buffer mapped from the start of the page, to which changes to the bytes it covers
+         *                     are copied, or null if none.
          */
-        public synchronized BasicStatement storeStatement(int address, BasicStatement statement) {
-            // Compute the indices for the address
-            int wordOffset = (address - this.baseAddress) >>> 2;
-            int wordIndex = getWordIndex(wordOffset);
-            int blockIndex = getBlockIndex(wordOffset);
-            int tableIndex = getTableIndex(wordOffset);
-
-            if (this.tables[tableIndex] == null) {
-                this.tables[tableIndex] = new BasicStatement[BLOCKS_PER_TABLE][];
-            }
-            if (this.tables[tableIndex][blockIndex] == null) {
-                this.tables[tableIndex][blockIndex] = new BasicStatement[WORDS_PER_BLOCK];
-            }
+        private MappedPage(int number, ByteBuffer bytes, ByteBuffer writeThrough, boolean hasStatements) {
+            super(number, hasStatements);
+            this.bytes = bytes;
+            this.writeThrough = writeThrough;
+        }
 
-            BasicStatement oldStatement = this.tables[tableIndex][blockIndex][wordIndex];
-            this.tables[tableIndex][blockIndex][wordIndex] = statement;
-            return oldStatement;
+        @Override
+        public boolean hasWords() {
+            return true;
         }
 
-        /**
-         * Fetch a statement from the region at a given address.
-         * The caller is responsible for ensuring that the address is word-aligned and falls within this region,
-         * as no checking will be done.
-         *
-         * @param address The address of the statement to fetch.
-         * @return The statement stored at the given address (defaults to null).
-         */
-        public synchronized BasicStatement fetchStatement(int address) {
-            // Compute the indices for the address
-            int wordOffset = (address - this.baseAddress) >>> 2;
-            int wordIndex = getWordIndex(wordOffset);
-            int blockIndex = getBlockIndex(wordOffset);
-            int tableIndex = getTableIndex(wordOffset);
-
-            if (this.tables[tableIndex] == null || this.tables[tableIndex][blockIndex] == null) {
-                // The table or block has not been allocated, so return null
-                return null;
+        @Override
+        public int getWord(int index) {
+            return this.bytes.getInt(index << 2);
+        }
+
+        @Override
+        public void setWord(int index, int value) {
+            this.ensureWritable();
+            this.bytes.putInt(index << 2, value);
+            this.writeThrough(index << 2, BYTES_PER_WORD);
+        }
+
+        @Override
+        public void getBytes(int pageOffset, ByteBuffer destination, int index, int length, boolean isBigEndian) {
+            destination.put(index, this.bytes, pageOffset, length);
+        }
+
+        @Override
+        public void putBytes(int pageOffset, ByteBuffer source, int index, int length, boolean isBigEndian) {
+            this.ensureWritable();
+            this.bytes.put(pageOffset, source, index, length);
+            this.writeThrough(pageOffset, length);
+        }
+
+        private void ensureWritable() {
+            if (this.bytes.isReadOnly()) {
+                ByteBuffer copy = ByteBuffer.allocate(BYTES_PER_PAGE).order(this.bytes.order());
+                copy.put(0, this.bytes, 0, BYTES_PER_PAGE);
+                this.bytes = copy;
             }
-            else {
-                return this.tables[tableIndex][blockIndex][wordIndex];
+        }
+
+        private void writeThrough(int pageOffset, int length) {
+            if (this.writeThrough != null) {
+                int end = Math.min(pageOffset + length, this.writeThrough.capacity());
+                if (pageOffset < end) {
+                    this.writeThrough.put(pageOffset, this.bytes, pageOffset, end - pageOffset);
+                }
             }
         }
     }
 
+    /**
+     * A file mapped into the heap.
+     *
+     * @param firstPage The number of the page the mapping starts at.
+     * @param buffer    The mapped part of the file, which may end partway through a page.
+     */
+    private record FileMapping(int firstPage, MappedByteBuffer buffer) {}
+
     /**
      * Record representing a memory listener combined with its range of applicable addresses.
      *
@@ -1375,4 +2358,19 @@ public class Memory {
             range.listener.memoryWritten(address, length, value, wordAddress, wordValue);
         }
     }
+
+    private void dispatchBlockEvent(int address, int length, boolean isWrite) {
+        int lastAddress = address + length - 1;
+        for (ListenerRange range : this.getListeners(address, length)) {
+            // Clip the operation to the range of the listener
+            int firstClipped = (Integer.compareUnsigned(address, range.firstAddress) < 0) ? range.firstAddress : address;
+            int lastClipped = (Integer.compareUnsigned(lastAddress, range.lastAddress) > 0) ? range.lastAddress : lastAddress;
+            if (isWrite) {
+                range.listener.memoryBlockWritten(firstClipped, lastClipped - firstClipped + 1);
+            }
+            else {
+                range.listener.memoryBlockRead(firstClipped, lastClipped - firstClipped + 1);
+            }
+        }
+    }
 }
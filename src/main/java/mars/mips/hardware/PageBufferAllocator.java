@@ -0,0 +1,115 @@
+package mars.mips.hardware;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Allocates the byte buffers backing memory pages outside the Java heap, for use by {@link Memory} when its storage
+ * is set to {@link Memory.Storage#OFF_HEAP} or {@link Memory.Storage#MAPPED_FILE}. Buffers are carved out of larger
+ * chunks so that the cost of each native allocation or file mapping is shared between several pages, and chunks are
+ * only allocated once one of their pages is first written.
+ * <p>
+ * When a file is given, pages within a given address range are mapped from that file instead. The file is created
+ * sparse, so it only occupies disk space for the pages which have actually been written, and the operating system
+ * is free to page its contents out of RAM.
+ */
+class PageBufferAllocator {
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGES_PER_CHUNK = 64;
+    private static final int CHUNK_SHIFT = 6;
+    private static final int BYTES_PER_CHUNK = PAGES_PER_CHUNK * Memory.BYTES_PER_PAGE;
+
+    private final ByteOrder order;
+    private final ByteBuffer[] chunks;
+    private final FileChannel fileChannel;
+    private final int firstFilePage;
+    private final int lastFilePage;
+
+    /**
+     * Create a new allocator which allocates every page from native memory.
+     *
+     * @param order The byte order of the allocated buffers, which should match the simulated endianness.
+     */
+    PageBufferAllocator(ByteOrder order) {
+        this.order = order;
+        this.chunks = new ByteBuffer[(int) ((1L << Integer.SIZE) / BYTES_PER_CHUNK)];
+        this.fileChannel = null;
+        this.firstFilePage = -1;
+        this.lastFilePage = -1;
+    }
+
+    /**
+     * Create a new allocator which maps pages in the given address range from a file, and allocates all other pages
+     * from native memory. Any existing file at the given path is replaced.
+     *
+     * @param order     The byte order of the allocated buffers, which should match the simulated endianness.
+     * @param file      The path of the file to map pages from.
+     * @param fileRange The range of addresses whose pages will be mapped from the file.
+     * @throws IOException Thrown if the file could not be created.
+     */
+    PageBufferAllocator(ByteOrder order, Path file, MemoryLayout.Range fileRange) throws IOException {
+        this.order = order;
+        this.chunks = new ByteBuffer[(int) ((1L << Integer.SIZE) / BYTES_PER_CHUNK)];
+        // Delete rather than truncate, since buffers mapped by a previous allocator may still be reachable,
+        // and accessing a truncated mapping crashes the VM
+        Files.deleteIfExists(file);
+        this.fileChannel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.SPARSE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Align the mapped range to whole chunks so that no chunk is split between the file and native memory
+        this.firstFilePage = (fileRange.minAddress() >>> PAGE_SHIFT) & ~(PAGES_PER_CHUNK - 1);
+        this.lastFilePage = (fileRange.maxAddress() >>> PAGE_SHIFT) | (PAGES_PER_CHUNK - 1);
+    }
+
+    /**
+     * Get the buffer backing a page, allocating its chunk if necessary. The buffer is initially filled with zeros.
+     *
+     * @param pageNumber The number of the page (the upper 20 bits of its addresses).
+     * @return A buffer of {@link Memory#BYTES_PER_PAGE} bytes in the byte order given to the allocator.
+     * @throws IOException Thrown if the page could not be mapped from the file.
+     */
+    synchronized ByteBuffer getPageBuffer(int pageNumber) throws IOException {
+        int chunkNumber = pageNumber >>> CHUNK_SHIFT;
+        ByteBuffer chunk = this.chunks[chunkNumber];
+        if (chunk == null) {
+            if (this.isFileBacked(pageNumber)) {
+                long position = (long) (chunkNumber - (this.firstFilePage >>> CHUNK_SHIFT)) * BYTES_PER_CHUNK;
+                // Mapping past the end of the file extends it without allocating the space in between
+                chunk = this.fileChannel.map(FileChannel.MapMode.READ_WRITE, position, BYTES_PER_CHUNK);
+            }
+            else {
+                chunk = ByteBuffer.allocateDirect(BYTES_PER_CHUNK);
+            }
+            this.chunks[chunkNumber] = chunk;
+        }
+        int offset = (pageNumber & (PAGES_PER_CHUNK - 1)) * Memory.BYTES_PER_PAGE;
+        return chunk.slice(offset, Memory.BYTES_PER_PAGE).order(this.order);
+    }
+
+    /**
+     * Determine whether a page is mapped from the file rather than allocated from native memory.
+     *
+     * @param pageNumber The number of the page.
+     * @return <code>true</code> if the page is backed by the file, or <code>false</code> otherwise.
+     */
+    boolean isFileBacked(int pageNumber) {
+        return this.fileChannel != null
+            && Integer.compareUnsigned(this.firstFilePage, pageNumber) <= 0
+            && Integer.compareUnsigned(pageNumber, this.lastFilePage) <= 0;
+    }
+
+    /**
+     * Close the backing file, if any. Mapped buffers remain valid until they are garbage collected.
+     *
+     * @throws IOException Thrown if the file could not be closed.
+     */
+    void close() throws IOException {
+        if (this.fileChannel != null) {
+            this.fileChannel.close();
+        }
+    }
+}
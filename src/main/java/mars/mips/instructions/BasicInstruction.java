@@ -52,6 +52,7 @@ public class BasicInstruction extends Instruction {
     private final int operationKey; // integer matching constants required (0/1 unchanged, f/s/t become 0)
     private final int[] operandMasks;
     private final int[] operandShifts;
+    private int index;
 
     /**
      * Create a new <code>BasicInstruction</code>.
@@ -101,6 +102,7 @@ public class BasicInstruction extends Instruction {
         this.format = format;
         this.controlTransferInstruction = isCTI;
         this.function = function;
+        this.index = -1;
 
         StringBuilder encodingDescriptor = new StringBuilder();
         int operationMask = 0;
@@ -189,6 +191,26 @@ public class BasicInstruction extends Instruction {
         return this.controlTransferInstruction;
     }
 
+    /**
+     * Get the position of this instruction in {@link InstructionSet#getBasicInstructions()}. This can be used
+     * to index arrays holding per-instruction data, such as execution counts, without a map lookup.
+     *
+     * @return The index of this instruction in the instruction set, or -1 if it was never added to one.
+     */
+    public int getIndex() {
+        return this.index;
+    }
+
+    /**
+     * Set the position of this instruction in {@link InstructionSet#getBasicInstructions()}.
+     * This is called by {@link InstructionSet#addBasicInstruction(BasicInstruction)}.
+     *
+     * @param index The index of this instruction in the instruction set.
+     */
+    void setIndex(int index) {
+        this.index = index;
+    }
+
     /**
      * @return
      */
@@ -65,7 +65,7 @@ public class InstructionSet {
     private final Map<String, List<Instruction>> allInstructions;
     private final Map<String, List<BasicInstruction>> basicInstructions;
     private final Map<String, List<ExtendedInstruction>> extendedInstructions;
-    private final StringTrie<List<Instruction>> allInstructionsTrie;
+    private StringTrie<List<Instruction>> allInstructionsTrie;
     private final InstructionDecoder decoder;
 
     /**
@@ -78,7 +78,7 @@ public class InstructionSet {
         this.allInstructions = new HashMap<>();
         this.basicInstructions = new HashMap<>();
         this.extendedInstructions = new HashMap<>();
-        this.allInstructionsTrie = new StringTrie<>();
+        this.allInstructionsTrie = null;
         this.decoder = new InstructionDecoder();
     }
 
@@ -106,12 +106,12 @@ public class InstructionSet {
     }
 
     public void addBasicInstruction(BasicInstruction instruction) {
+        instruction.setIndex(this.basicInstructionsList.size());
         this.basicInstructions.computeIfAbsent(instruction.getMnemonic(), mnemonic -> new ArrayList<>())
             .add(instruction);
         this.allInstructions.computeIfAbsent(instruction.getMnemonic(), mnemonic -> new ArrayList<>())
             .add(instruction);
-        this.allInstructionsTrie.computeIfAbsent(instruction.getMnemonic(), mnemonic -> new ArrayList<>())
-            .add(instruction);
+        this.allInstructionsTrie = null;
 
         this.basicInstructionsList.add(instruction);
         this.allInstructionsList.add(instruction);
@@ -124,8 +124,7 @@ public class InstructionSet {
             .add(instruction);
         this.allInstructions.computeIfAbsent(instruction.getMnemonic(), mnemonic -> new ArrayList<>())
             .add(instruction);
-        this.allInstructionsTrie.computeIfAbsent(instruction.getMnemonic(), mnemonic -> new ArrayList<>())
-            .add(instruction);
+        this.allInstructionsTrie = null;
 
         this.extendedInstructionsList.add(instruction);
         this.allInstructionsList.add(instruction);
@@ -142,6 +141,21 @@ public class InstructionSet {
         this.loadExtendedInstructions();
         // Ensure syscalls are loaded
         SyscallManager.getSyscalls();
+        // Build the mnemonic lookup now that all instructions have been added
+        this.getAllInstructionsTrie();
+    }
+
+    /**
+     * Get the trie mapping each mnemonic to its instructions, building it first if instructions have been added
+     * since it was last built.
+     *
+     * @return The trie of all mnemonics, which ignores case.
+     */
+    public StringTrie<List<Instruction>> getAllInstructionsTrie() {
+        if (this.allInstructionsTrie == null) {
+            this.allInstructionsTrie = new StringTrie<>(this.allInstructions, true);
+        }
+        return this.allInstructionsTrie;
     }
     
     public void loadBasicInstructions() {
@@ -2860,28 +2874,21 @@ public class InstructionSet {
      * @return list of corresponding Instruction object(s), empty if none match.
      */
     public List<Instruction> matchMnemonic(String mnemonic) {
-        return this.allInstructions.getOrDefault(mnemonic.toLowerCase(), List.of());
+        return this.getAllInstructionsTrie().getOrDefault(mnemonic, List.of());
     }
 
     /**
      * Given a string, will return the Instruction object(s) from the instruction
      * set whose operator mnemonic prefix matches it.  Case-insensitive.  For example
-     * "s" will match "sw", "sh", "sb", etc.
+     * "s" will match "sw", "sh", "sb", etc.  The result is a view of the instruction trie,
+     * so nothing is copied and the matches are only retrieved as they are accessed.
      *
      * @param mnemonicPrefix a string
-     * @return list of matching Instruction object(s), empty if none match.
+     * @return unmodifiable list of the matching Instruction object(s), grouped by mnemonic in sorted order,
+     *         empty if none match.
      */
-    public List<Instruction> matchMnemonicPrefix(String mnemonicPrefix) {
-        List<Instruction> matchingInstructions = new ArrayList<>();
-
-        StringTrie<List<Instruction>> subTrie = this.allInstructionsTrie.getSubTrieIfPresent(mnemonicPrefix.toLowerCase());
-        if (subTrie != null) {
-            for (List<Instruction> variants : subTrie.values()) {
-                matchingInstructions.addAll(variants);
-            }
-        }
-
-        return matchingInstructions;
+    public List<List<Instruction>> matchMnemonicPrefix(String mnemonicPrefix) {
+        return this.getAllInstructionsTrie().valuesWithPrefix(mnemonicPrefix);
     }
 
     public static <T extends Instruction> T matchInstruction(List<T> mnemonicMatches, List<OperandType> givenTypes) {
@@ -0,0 +1,33 @@
+package mars.mips.instructions.syscalls;
+
+import mars.simulator.SimulatorException;
+import mars.assembler.BasicStatement;
+import mars.mips.hardware.Processor;
+import mars.simulator.Simulator;
+
+/**
+ * Service to flush any buffered output for the file descriptor given in $a0. When running from the command line,
+ * standard output and standard error are buffered, so this can be used to make output visible immediately.
+ * Returns 0 in $v0 on success, or -1 if the descriptor is not open for writing.
+ */
+public class SyscallFlush extends AbstractSyscall {
+    /**
+     * Build an instance of the syscall with its default service number and name.
+     */
+    @SuppressWarnings("unused")
+    public SyscallFlush() {
+        super(62, "Flush");
+    }
+
+    /**
+     * Performs syscall function to flush any buffered output for the file descriptor given in $a0.
+     * Returns 0 in $v0 on success, or -1 if the descriptor is not open for writing.
+     */
+    @Override
+    public void simulate(BasicStatement statement) throws SimulatorException {
+        int descriptor = Processor.getValue(Processor.ARGUMENT_0); // $a0: file descriptor
+
+        int result = Simulator.getInstance().getSystemIO().flushFile(descriptor);
+        Processor.setValue(Processor.VALUE_0, result); // Put return value in $v0
+    }
+}
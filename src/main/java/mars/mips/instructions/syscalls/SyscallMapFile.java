@@ -0,0 +1,51 @@
+package mars.mips.instructions.syscalls;
+
+import mars.simulator.SimulatorException;
+import mars.assembler.BasicStatement;
+import mars.mips.hardware.Processor;
+import mars.simulator.ExceptionCause;
+import mars.simulator.Simulator;
+
+/**
+ * Service to map part of the file with descriptor $a0 into a new block of heap memory, starting at position $a1
+ * in the file and covering $a2 bytes. If $a3 is 1, writes to the block are written back to the file, which must be
+ * open for reading and writing; if $a3 is 0, writes only affect memory. Pages of the file are only read once
+ * they are accessed, so large files can be processed in place without copying them with the Read syscall.
+ * Returns the page-aligned address of the block in $v0, or -1 if the file could not be mapped.
+ */
+public class SyscallMapFile extends AbstractSyscall {
+    /**
+     * Build an instance of the syscall with its default service number and name.
+     */
+    @SuppressWarnings("unused")
+    public SyscallMapFile() {
+        super(63, "MapFile");
+    }
+
+    /**
+     * Performs syscall function to map $a2 bytes of the file with descriptor $a0, starting at position $a1,
+     * into heap memory, writing changes back to the file if $a3 is 1. Returns the address in $v0, or -1 on error.
+     */
+    @Override
+    public void simulate(BasicStatement statement) throws SimulatorException {
+        int descriptor = Processor.getValue(Processor.ARGUMENT_0); // $a0: file descriptor
+        int offset = Processor.getValue(Processor.ARGUMENT_1); // $a1: position in file
+        int length = Processor.getValue(Processor.ARGUMENT_2); // $a2: number of bytes to map
+        int flags = Processor.getValue(Processor.ARGUMENT_3); // $a3: 1 to write changes back to the file
+
+        if (length <= 0) {
+            throw new SimulatorException(statement, "Length value in $a2 must be positive for " + this.getName() + " (syscall " + this.getNumber() + ")", ExceptionCause.SYSCALL);
+        }
+        if (flags != 0 && flags != 1) {
+            throw new SimulatorException(statement, "Flags value in $a3 must be 0 or 1 for " + this.getName() + " (syscall " + this.getNumber() + ")", ExceptionCause.SYSCALL);
+        }
+
+        try {
+            int address = Simulator.getInstance().getSystemIO().mapFile(descriptor, Integer.toUnsignedLong(offset), length, flags == 1);
+            Processor.setValue(Processor.VALUE_0, address); // Put address into $v0
+        }
+        catch (IllegalArgumentException exception) {
+            throw new SimulatorException(statement, exception.getMessage() + " (syscall " + this.getNumber() + ")", ExceptionCause.SYSCALL);
+        }
+    }
+}
@@ -66,18 +66,17 @@ public class SyscallRead extends AbstractSyscall {
         if (maxLength < 0) {
             throw new SimulatorException(statement, "Length value in $a2 cannot be negative for " + this.getName() + " (syscall " + this.getNumber() + ")", ExceptionCause.SYSCALL);
         }
-        ByteBuffer buffer = ByteBuffer.allocateDirect(maxLength);
+        // A heap buffer is much cheaper to allocate than a direct one, and I/O channels copy through
+        // their own cached direct buffers anyway
+        ByteBuffer buffer = ByteBuffer.allocate(maxLength);
 
         int readLength = Simulator.getInstance().getSystemIO().readFromFile(descriptor, buffer);
         Processor.setValue(Processor.VALUE_0, readLength); // Put return value in $v0
 
-        // Flip buffer from put-mode to get-mode
-        buffer.flip();
-
-        // Copy bytes from intermediate buffer into MARS memory
+        // Copy bytes from intermediate buffer into MARS memory in a single transfer
         try {
-            for (int index = 0; index < readLength; index++) {
-                Memory.getInstance().storeByte(byteAddress++, buffer.get(index), true);
+            if (readLength > 0) {
+                Memory.getInstance().storeBytes(byteAddress, buffer, 0, readLength, true);
             }
         }
         catch (AddressErrorException exception) {
@@ -67,17 +67,19 @@ public class SyscallReadString extends AbstractSyscall {
         String inputString = Simulator.getInstance().getSystemIO().readString(maxLength);
 
         int stringLength = Math.min(maxLength, inputString.length());
+        // Leave room for the newline and null terminator
+        byte[] bytes = new byte[stringLength + 2];
+        for (int index = 0; index < stringLength; index++) {
+            bytes[index] = (byte) inputString.charAt(index);
+        }
+        if (stringLength < maxLength) {
+            bytes[stringLength++] = '\n';
+        }
+        if (addNullByte) {
+            bytes[stringLength++] = 0;
+        }
         try {
-            for (int index = 0; index < stringLength; index++) {
-                Memory.getInstance().storeByte(buf + index, inputString.charAt(index), true);
-            }
-            if (stringLength < maxLength) {
-                Memory.getInstance().storeByte(buf + stringLength, '\n', true);
-                stringLength++;
-            }
-            if (addNullByte) {
-                Memory.getInstance().storeByte(buf + stringLength, 0, true);
-            }
+            Memory.getInstance().storeBytes(buf, bytes, 0, stringLength, true);
         }
         catch (AddressErrorException exception) {
             throw new SimulatorException(statement, exception);
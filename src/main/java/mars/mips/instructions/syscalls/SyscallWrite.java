@@ -65,24 +65,16 @@ public class SyscallWrite extends AbstractSyscall {
         if (maxLength < 0) {
             throw new SimulatorException(statement, "Length value in $a2 cannot be negative for " + this.getName() + " (syscall " + this.getNumber() + ")");
         }
-        ByteBuffer buffer = ByteBuffer.allocateDirect(maxLength + 1); // Leave room for a possible null terminator
+        ByteBuffer buffer = ByteBuffer.allocate(maxLength);
 
         try {
             // Stop at requested length, with no special treatment of null bytes
-            for (int index = 0; index < maxLength; index++, byteAddress++) {
-                buffer.put((byte) Memory.getInstance().fetchByte(byteAddress, false));
-            }
-            // Add null terminator
-            // Probably not needed? - CW
-            // buffer.put((byte) 0);
+            Memory.getInstance().fetchBytes(byteAddress, buffer, 0, maxLength, false);
         }
         catch (AddressErrorException exception) {
             throw new SimulatorException(statement, exception);
         }
 
-        // Flip buffer from put-mode to get-mode
-        buffer.flip();
-
         int writtenLength = Simulator.getInstance().getSystemIO().writeToFile(descriptor, buffer);
         Processor.setValue(Processor.VALUE_0, writtenLength); // Put return value in $v0
     }
@@ -368,6 +368,16 @@ public class Settings {
         20,
         false
     );
+    /**
+     * Approximate maximum number of bytes of output that can be kept in a console at once.
+     * Once exceeded, the oldest output is discarded.
+     */
+    public final IntegerSetting consoleMaxBytes = new IntegerSetting(
+        this,
+        "ConsoleMaxBytes",
+        16 * 1024 * 1024,
+        false
+    );
     /**
      * Maximum number of errors that a single assembler run can produce.
      */
@@ -464,6 +474,7 @@ public class Settings {
         this.maxRecentFiles,
         this.consoleMaxLines,
         this.consoleTrimLines,
+        this.consoleMaxBytes,
         this.assemblerMaxErrors,
         this.maxBacksteps,
         this.symbolTableSortState,
@@ -121,6 +121,9 @@ public class BackStepper {
                     case MEMORY_STATEMENT -> {
                         Memory.getInstance().storeStatement(action.address, action.restoreStatement, true);
                     }
+                    case MEMORY_BYTES -> {
+                        Memory.getInstance().storeBytes(action.address, action.restoreBytes, 0, action.restoreBytes.length, true);
+                    }
                 }
             }
             catch (AddressErrorException exception) {
@@ -184,6 +187,23 @@ public class BackStepper {
         }
     }
 
+    /**
+     * Add a new "back step" (the undo action) to the stack. The action here
+     * is to restore a sequence of bytes written by a single bulk memory operation.
+     *
+     * @param address      The address of the first affected byte.
+     * @param restoreBytes The "restore" values to be stored there.
+     */
+    public void bytesWritten(int address, byte[] restoreBytes) {
+        if (this.isEnabled()) {
+            Action action = this.stack.push();
+            action.target = RestoreTarget.MEMORY_BYTES;
+            action.stepID = this.currentStepID;
+            action.address = address;
+            action.restoreBytes = restoreBytes;
+        }
+    }
+
     /**
      * The types of "undo" actions.
      */
@@ -191,6 +211,7 @@ public class BackStepper {
         REGISTER_VALUE,
         MEMORY_WORD,
         MEMORY_STATEMENT,
+        MEMORY_BYTES,
     }
 
     /**
@@ -203,6 +224,7 @@ public class BackStepper {
         public int address;
         public int restoreValue;
         public BasicStatement restoreStatement;
+        public byte[] restoreBytes;
     }
 
     /**
@@ -257,8 +279,10 @@ public class BackStepper {
                 this.size++;
             }
 
-            // Reuse existing entry object to form "new" entry
-            return this.entries[this.top];
+            // Reuse existing entry object to form "new" entry, releasing any bytes it was holding onto
+            Action action = this.entries[this.top];
+            action.restoreBytes = null;
+            return action;
         }
 
         public synchronized Action pop() {
@@ -0,0 +1,138 @@
+package mars.simulator;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Buffered channel for standard output or standard error when running from the command line. Output from print
+ * syscalls and writes to the corresponding file descriptor is collected in a large buffer, with strings encoded
+ * directly into it, and is only passed on to the underlying stream when the buffer fills up or
+ * {@link #flush()} is called. {@link SystemIO} flushes before reading from standard input, when the program stops,
+ * and when the program requests it via the Flush syscall.
+ * <p>
+ * Standard output and standard error are paired so that flushing one first flushes any output pending in the other,
+ * which preserves the relative order of the two when both are shown on the same terminal.
+ */
+class ConsoleOutputChannel implements WritableByteChannel {
+    /**
+     * The number of bytes which can be buffered before the buffer is flushed automatically.
+     */
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    private final PrintStream stream;
+    private final ByteBuffer buffer;
+    private final CharsetEncoder encoder;
+    private ConsoleOutputChannel sibling;
+
+    /**
+     * Create a new buffered channel writing to the given stream.
+     *
+     * @param stream The stream to pass output on to, typically {@link System#out} or {@link System#err}.
+     */
+    public ConsoleOutputChannel(PrintStream stream) {
+        this.stream = stream;
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.encoder = Charset.defaultCharset().newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.sibling = null;
+    }
+
+    /**
+     * Pair two channels so that output to one flushes any output pending in the other beforehand.
+     *
+     * @param first  The first channel.
+     * @param second The second channel.
+     */
+    public static void pair(ConsoleOutputChannel first, ConsoleOutputChannel second) {
+        first.sibling = second;
+        second.sibling = first;
+    }
+
+    /**
+     * Encode a string into the buffer using the default charset.
+     *
+     * @param text The text to output.
+     */
+    public void print(CharSequence text) {
+        // Done outside of the lock so the two channels never wait on each other
+        this.flushSibling();
+        synchronized (this) {
+            CharBuffer input = CharBuffer.wrap(text);
+            this.encoder.reset();
+            while (this.encoder.encode(input, this.buffer, true).isOverflow()) {
+                this.flush();
+            }
+            if (this.encoder.flush(this.buffer).isOverflow()) {
+                this.flush();
+                this.encoder.flush(this.buffer);
+            }
+        }
+    }
+
+    @Override
+    public int write(ByteBuffer source) {
+        // Done outside of the lock so the two channels never wait on each other
+        this.flushSibling();
+        synchronized (this) {
+            int length = source.remaining();
+            if (length > this.buffer.remaining()) {
+                this.flush();
+                if (length > this.buffer.capacity()) {
+                    // Too large to be worth buffering, so write it out directly
+                    byte[] bytes = new byte[length];
+                    source.get(bytes);
+                    this.stream.write(bytes, 0, length);
+                    this.stream.flush();
+                    return length;
+                }
+            }
+            this.buffer.put(source);
+            return length;
+        }
+    }
+
+    /**
+     * Pass any buffered output on to the underlying stream.
+     */
+    public synchronized void flush() {
+        if (this.buffer.position() > 0) {
+            this.stream.write(this.buffer.array(), 0, this.buffer.position());
+            this.buffer.clear();
+        }
+        this.stream.flush();
+    }
+
+    /**
+     * Determine whether any output is waiting to be flushed.
+     *
+     * @return <code>true</code> if the buffer is not empty, or <code>false</code> otherwise.
+     */
+    public synchronized boolean hasPendingOutput() {
+        return this.buffer.position() > 0;
+    }
+
+    private void flushSibling() {
+        if (this.sibling != null && this.sibling.hasPendingOutput()) {
+            this.sibling.flush();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return true;
+    }
+
+    /**
+     * Flush any buffered output. The underlying stream is left open.
+     */
+    @Override
+    public void close() {
+        this.flush();
+    }
+}
@@ -0,0 +1,75 @@
+package mars.simulator;
+
+import mars.assembler.BasicStatement;
+
+import java.util.EventListener;
+
+/**
+ * Listener which is fed directly by the execution loop of the simulator thread, as opposed to a
+ * {@link mars.mips.hardware.Memory.Listener} or {@link SimulatorListener}. This is intended for side models
+ * which need to observe every instruction executed at full speed, such as profilers and performance counters.
+ * It can be attached to the {@link Simulator} via {@link Simulator#addExecutionListener(ExecutionListener)}.
+ * <p>
+ * Except where noted, all callbacks are executed on the simulator thread, and should be kept as cheap as possible.
+ * When no listeners are attached, the execution loop does not call anything at all.
+ */
+public interface ExecutionListener extends EventListener {
+    /**
+     * Called when the simulator is reset, i.e. when a program is assembled or the Reset action is used.
+     * Any data gathered about the previous run should be discarded. This is never called while the simulator
+     * thread is running, and may be called from any thread.
+     */
+    default void simulatorReset() {
+        // Do nothing by default
+    }
+
+    /**
+     * Called when the simulator thread starts running the program.
+     */
+    default void executionStarted() {
+        // Do nothing by default
+    }
+
+    /**
+     * Called when the simulator thread stops running the program for any reason.
+     */
+    default void executionStopped() {
+        // Do nothing by default
+    }
+
+    /**
+     * Called just before a statement is simulated.
+     *
+     * @param statement The statement about to be simulated.
+     * @param address   The address of the statement.
+     */
+    default void instructionIssued(BasicStatement statement, int address) {
+        // Do nothing by default
+    }
+
+    /**
+     * Called after a statement has been simulated without raising an exception. This is also called for an exit
+     * syscall, which completes even though it is implemented using an exception.
+     *
+     * @param statement  The statement which was simulated.
+     * @param address    The address of the statement.
+     * @param jumped     <code>true</code> if the statement redirected the program counter (e.g. a taken branch),
+     *                   or <code>false</code> otherwise.
+     * @param nextFetchPC The address which will be fetched after the delay slot, which is the jump target
+     *                    if <code>jumped</code> is <code>true</code>.
+     */
+    default void instructionRetired(BasicStatement statement, int address, boolean jumped, int nextFetchPC) {
+        // Do nothing by default
+    }
+
+    /**
+     * Called when a statement raises an exception or an external interrupt is taken. This is not called for
+     * exit syscalls, which are implemented using exceptions but simply end the program.
+     *
+     * @param exception The exception which was raised.
+     * @param address   The address of the statement which raised the exception.
+     */
+    default void exceptionRaised(SimulatorException exception, int address) {
+        // Do nothing by default
+    }
+}
@@ -0,0 +1,215 @@
+package mars.simulator;
+
+import mars.Application;
+import mars.assembler.BasicStatement;
+import mars.mips.hardware.Processor;
+import mars.mips.instructions.BasicInstruction;
+import mars.mips.instructions.InstructionFormat;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Counters describing the dynamic behavior of a program, maintained directly by the simulator thread as each
+ * instruction is executed. Counting only happens while an instance is attached to the simulator via
+ * {@link Simulator#setPerformanceCounters(PerformanceCounters)}, so the counters cost nothing otherwise.
+ * This is implemented as an {@link ExecutionListener}.
+ * <p>
+ * Per-instruction counts are stored in a primitive array indexed by {@link BasicInstruction#getIndex()},
+ * and everything else (counts by format and mnemonic, loads and stores by width, etc.) is derived from it
+ * when a report is generated.
+ */
+public class PerformanceCounters implements ExecutionListener {
+    private static final byte KIND_OTHER = 0;
+    private static final byte KIND_LOAD = 1;
+    private static final byte KIND_STORE = 2;
+    private static final byte KIND_BRANCH = 3;
+    private static final byte KIND_JUMP = 4;
+    private static final byte KIND_SYSCALL = 5;
+
+    private final List<BasicInstruction> instructions;
+    private final byte[] instructionKinds;
+    private final int[] accessWidths;
+    private final long[] retiredCounts;
+    private long branchesTaken;
+    private long branchesNotTaken;
+    private final Map<Integer, Long> syscallCounts;
+    private long exceptionCount;
+    private long elapsedNanos;
+    private long startNanos;
+
+    /**
+     * Create a new set of counters for the instructions in {@link Application#instructionSet}, all initially zero.
+     */
+    public PerformanceCounters() {
+        this.instructions = Application.instructionSet.getBasicInstructions();
+        this.instructionKinds = new byte[this.instructions.size()];
+        this.accessWidths = new int[this.instructions.size()];
+        this.retiredCounts = new long[this.instructions.size()];
+        this.syscallCounts = new TreeMap<>();
+
+        for (BasicInstruction instruction : this.instructions) {
+            int index = instruction.getIndex();
+            switch (instruction.getMnemonic()) {
+                case "lb", "lbu" -> this.classifyAccess(index, KIND_LOAD, 1);
+                case "lh", "lhu" -> this.classifyAccess(index, KIND_LOAD, 2);
+                case "lw", "ll", "lwl", "lwr", "lwc1" -> this.classifyAccess(index, KIND_LOAD, 4);
+                case "ldc1" -> this.classifyAccess(index, KIND_LOAD, 8);
+                case "sb" -> this.classifyAccess(index, KIND_STORE, 1);
+                case "sh" -> this.classifyAccess(index, KIND_STORE, 2);
+                case "sw", "sc", "swl", "swr", "swc1" -> this.classifyAccess(index, KIND_STORE, 4);
+                case "sdc1" -> this.classifyAccess(index, KIND_STORE, 8);
+                case "syscall" -> this.instructionKinds[index] = KIND_SYSCALL;
+                default -> {
+                    if (instruction.getFormat() == InstructionFormat.I_TYPE_BRANCH
+                        || instruction.getFormat() == InstructionFormat.FI_TYPE_BRANCH) {
+                        this.instructionKinds[index] = KIND_BRANCH;
+                    }
+                    else if (instruction.isControlTransferInstruction()) {
+                        this.instructionKinds[index] = KIND_JUMP;
+                    }
+                }
+            }
+        }
+    }
+
+    private void classifyAccess(int index, byte kind, int width) {
+        this.instructionKinds[index] = kind;
+        this.accessWidths[index] = width;
+    }
+
+    @Override
+    public void simulatorReset() {
+        this.reset();
+    }
+
+    /**
+     * Reset all counters to zero.
+     */
+    public void reset() {
+        Arrays.fill(this.retiredCounts, 0L);
+        this.branchesTaken = 0;
+        this.branchesNotTaken = 0;
+        this.syscallCounts.clear();
+        this.exceptionCount = 0;
+        this.elapsedNanos = 0;
+    }
+
+    @Override
+    public void executionStarted() {
+        this.startNanos = System.nanoTime();
+    }
+
+    @Override
+    public void executionStopped() {
+        this.elapsedNanos += System.nanoTime() - this.startNanos;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This is where syscalls are counted, since the service number in <code>$v0</code> may be overwritten
+     * by the syscall itself.
+     */
+    @Override
+    public void instructionIssued(BasicStatement statement, int address) {
+        BasicInstruction instruction = statement.getInstruction();
+        if (instruction != null && this.instructionKinds[instruction.getIndex()] == KIND_SYSCALL) {
+            this.syscallCounts.merge(Processor.getValue(Processor.VALUE_0), 1L, Long::sum);
+        }
+    }
+
+    @Override
+    public void instructionRetired(BasicStatement statement, int address, boolean jumped, int nextFetchPC) {
+        int index = statement.getInstruction().getIndex();
+        this.retiredCounts[index]++;
+        if (this.instructionKinds[index] == KIND_BRANCH) {
+            if (jumped) {
+                this.branchesTaken++;
+            }
+            else {
+                this.branchesNotTaken++;
+            }
+        }
+    }
+
+    @Override
+    public void exceptionRaised(SimulatorException exception, int address) {
+        this.exceptionCount++;
+    }
+
+    /**
+     * Get the total number of instructions which completed execution.
+     *
+     * @return The number of instructions retired.
+     */
+    public long getInstructionsRetired() {
+        long total = 0;
+        for (long count : this.retiredCounts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Get the total host time spent running the program, excluding time spent paused.
+     *
+     * @return The elapsed wall time, in seconds.
+     */
+    public double getWallTimeSeconds() {
+        return this.elapsedNanos / 1e9;
+    }
+
+    /**
+     * Generate a machine-readable report of all counters, along with the host wall time and
+     * simulation speed in millions of instructions per second.
+     *
+     * @return The report as a JSON object.
+     */
+    public JSONObject toJSON() {
+        Map<String, Long> byFormat = new TreeMap<>();
+        Map<String, Long> byMnemonic = new TreeMap<>();
+        Map<String, Long> loadsByWidth = new TreeMap<>();
+        Map<String, Long> storesByWidth = new TreeMap<>();
+        long retired = 0;
+        long jumps = 0;
+        for (BasicInstruction instruction : this.instructions) {
+            int index = instruction.getIndex();
+            long count = this.retiredCounts[index];
+            if (count == 0) {
+                continue;
+            }
+            retired += count;
+            byFormat.merge(instruction.getFormat().name(), count, Long::sum);
+            byMnemonic.merge(instruction.getMnemonic(), count, Long::sum);
+            switch (this.instructionKinds[index]) {
+                case KIND_LOAD -> loadsByWidth.merge(Integer.toString(this.accessWidths[index]), count, Long::sum);
+                case KIND_STORE -> storesByWidth.merge(Integer.toString(this.accessWidths[index]), count, Long::sum);
+                case KIND_JUMP -> jumps += count;
+            }
+        }
+
+        JSONObject syscalls = new JSONObject();
+        for (Map.Entry<Integer, Long> entry : this.syscallCounts.entrySet()) {
+            syscalls.put(Integer.toString(entry.getKey()), entry.getValue());
+        }
+
+        double wallTime = this.getWallTimeSeconds();
+        return new JSONObject()
+            .put("instructionsRetired", retired)
+            .put("instructionsByFormat", new JSONObject(byFormat))
+            .put("instructionsByMnemonic", new JSONObject(byMnemonic))
+            .put("loadsByWidth", new JSONObject(loadsByWidth))
+            .put("storesByWidth", new JSONObject(storesByWidth))
+            .put("branchesTaken", this.branchesTaken)
+            .put("branchesNotTaken", this.branchesNotTaken)
+            .put("jumps", jumps)
+            .put("syscallsByNumber", syscalls)
+            .put("exceptions", this.exceptionCount)
+            .put("wallTimeSeconds", wallTime)
+            .put("mips", (wallTime > 0.0) ? retired / wallTime / 1e6 : 0.0);
+    }
+}
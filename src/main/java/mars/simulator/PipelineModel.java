@@ -0,0 +1,721 @@
+package mars.simulator;
+
+import mars.Application;
+import mars.assembler.BasicStatement;
+import mars.assembler.OperandType;
+import mars.assembler.log.SourceLocation;
+import mars.mips.instructions.BasicInstruction;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.*;
+
+/**
+ * Cycle-level timing model of the classic five-stage MIPS pipeline (IF, ID, EX, MEM, WB), which estimates how many
+ * clock cycles the program would take on pipelined hardware rather than simply counting instructions. The model
+ * runs alongside the functional simulator as an {@link ExecutionListener}, and only looks at the stream of retired
+ * instructions, so it never affects the results of the program.
+ * <p>
+ * Each instruction enters EX one cycle after the previous one unless it has to stall. Rather than simulating each
+ * stage, the model keeps track of the cycle in which the latest value of each register is computed, and delays an
+ * instruction until all of its operands can be obtained, either through forwarding or, if forwarding is disabled,
+ * from the register file after writeback. The following are modeled:
+ * <ul>
+ * <li>Data hazards on general purpose, floating point, HI/LO and FPU condition flag registers.
+ * <li>Load-use hazards, since a loaded value is only available after MEM. Store data is only needed in MEM,
+ *     so a load followed by a store of the loaded value does not stall when forwarding is enabled.
+ * <li>Multi-cycle multiplication and division (including floating point), executed in a single unpipelined unit.
+ *     Other instructions continue to flow while it is busy, and only wait for its results.
+ * <li>Branch penalties, with branches and register jumps resolved in either ID or EX, and all other instructions
+ *     fetched as if branches are not taken. If delayed branching is enabled, the delay slot hides one cycle of the
+ *     penalty. Otherwise, the <code>nop</code> which the assembler inserts after each control transfer is not
+ *     counted as an instruction, since it only exists to make the functional simulator behave correctly.
+ * </ul>
+ * Caches are not modeled (every memory access takes one cycle), and neither are the costs of exceptions and syscalls.
+ * <p>
+ * Stall cycles are attributed to the instruction which waited, or to the branch in the case of branch penalties,
+ * and can be reported per instruction via {@link #getInstructionStatistics()}, per source line via
+ * {@link #getLineStatistics()}, or as a whole via {@link #getSummary()}.
+ */
+public class PipelineModel implements ExecutionListener {
+    /**
+     * Timing parameters of the pipeline.
+     *
+     * @param forwardingEnabled         Whether results are forwarded to later instructions as soon as they are
+     *                                  computed. If not, they can only be read from the register file in ID,
+     *                                  which is written in the first half of WB.
+     * @param branchesResolvedInExecute Whether branches and register jumps are resolved in EX rather than ID.
+     *                                  Branches resolved in ID need their operands a cycle earlier.
+     * @param multiplyLatency           The number of cycles spent in EX by multiplication instructions.
+     * @param divideLatency             The number of cycles spent in EX by division and square root instructions.
+     */
+    public record Configuration(
+        boolean forwardingEnabled,
+        boolean branchesResolvedInExecute,
+        int multiplyLatency,
+        int divideLatency
+    ) {
+        /**
+         * Forwarding, branches resolved in ID, 4-cycle multiplication and 32-cycle division.
+         */
+        public static final Configuration DEFAULT = new Configuration(true, false, 4, 32);
+
+        public Configuration {
+            if (multiplyLatency < 1 || divideLatency < 1) {
+                throw new IllegalArgumentException("latencies must be at least 1 cycle");
+            }
+        }
+    }
+
+    /**
+     * Totals for the whole program.
+     *
+     * @param instructionCount     The number of instructions executed.
+     * @param cycleCount           The number of cycles from the first fetch to the last writeback.
+     * @param dataStalls           Stall cycles waiting on results of instructions other than loads and
+     *                             multiplication/division.
+     * @param loadUseStalls        Stall cycles waiting on results of loads.
+     * @param multiplyDivideStalls Stall cycles waiting on results of multiplication/division, or for the unit itself.
+     * @param branchStalls         Cycles lost to fetching past taken branches and jumps.
+     */
+    public record Summary(
+        long instructionCount,
+        long cycleCount,
+        long dataStalls,
+        long loadUseStalls,
+        long multiplyDivideStalls,
+        long branchStalls
+    ) {
+        /**
+         * Get the total number of stall cycles.
+         *
+         * @return The sum of all stall cycles.
+         */
+        public long stallCount() {
+            return this.dataStalls + this.loadUseStalls + this.multiplyDivideStalls + this.branchStalls;
+        }
+
+        /**
+         * Get the average number of cycles per instruction.
+         *
+         * @return The CPI, or 0 if no instructions have been executed.
+         */
+        public double cyclesPerInstruction() {
+            return (this.instructionCount == 0) ? 0.0 : (double) this.cycleCount / this.instructionCount;
+        }
+    }
+
+    /**
+     * Execution and stall counts for a single instruction in the program.
+     *
+     * @param address              The address of the instruction.
+     * @param statement            The instruction, or <code>null</code> if it is not part of the assembled program.
+     * @param executions           The number of times the instruction was executed.
+     * @param dataStalls           See {@link Summary#dataStalls()}.
+     * @param loadUseStalls        See {@link Summary#loadUseStalls()}.
+     * @param multiplyDivideStalls See {@link Summary#multiplyDivideStalls()}.
+     * @param branchStalls         See {@link Summary#branchStalls()}.
+     */
+    public record InstructionStatistics(
+        int address,
+        BasicStatement statement,
+        long executions,
+        long dataStalls,
+        long loadUseStalls,
+        long multiplyDivideStalls,
+        long branchStalls
+    ) {
+        /**
+         * Get the total number of stall cycles.
+         *
+         * @return The sum of all stall cycles.
+         */
+        public long stallCount() {
+            return this.dataStalls + this.loadUseStalls + this.multiplyDivideStalls + this.branchStalls;
+        }
+    }
+
+    /**
+     * Execution and stall counts for a single line of source code.
+     *
+     * @param location             The location of the line in the source code.
+     * @param source               The raw source code of the line.
+     * @param executions           The number of instructions executed which were generated from this line.
+     * @param dataStalls           See {@link Summary#dataStalls()}.
+     * @param loadUseStalls        See {@link Summary#loadUseStalls()}.
+     * @param multiplyDivideStalls See {@link Summary#multiplyDivideStalls()}.
+     * @param branchStalls         See {@link Summary#branchStalls()}.
+     */
+    public record LineStatistics(
+        SourceLocation location,
+        String source,
+        long executions,
+        long dataStalls,
+        long loadUseStalls,
+        long multiplyDivideStalls,
+        long branchStalls
+    ) {
+        /**
+         * Get the total number of stall cycles.
+         *
+         * @return The sum of all stall cycles.
+         */
+        public long stallCount() {
+            return this.dataStalls + this.loadUseStalls + this.multiplyDivideStalls + this.branchStalls;
+        }
+    }
+
+    private static final byte KIND_OTHER = 0;
+    private static final byte KIND_LOAD = 1;
+    private static final byte KIND_STORE = 2;
+    private static final byte KIND_MULTIPLY = 3;
+    private static final byte KIND_DIVIDE = 4;
+    private static final byte KIND_BRANCH = 5;
+    private static final byte KIND_JUMP = 6;
+
+    // Operand roles are bit flags, combined with ROLE_FP for floating point registers
+    private static final int MAX_OPERANDS = 3;
+    private static final byte ROLE_SOURCE = 1;
+    private static final byte ROLE_DESTINATION = 2;
+    private static final byte ROLE_STORE_DATA = 4;
+    private static final byte ROLE_FP = 8;
+
+    // Registers read or written without being operands
+    private static final byte IMPLICIT_HI = 1;
+    private static final byte IMPLICIT_LO = 2;
+    private static final byte IMPLICIT_CONDITION_FLAGS = 4;
+    private static final byte IMPLICIT_RETURN_ADDRESS = 8;
+
+    // Timing is tracked for 32 GPRs, 32 FPRs, HI, LO, and the FPU condition flags as a whole
+    private static final int FP_REGISTER_BASE = 32;
+    private static final int HI_REGISTER = 64;
+    private static final int LO_REGISTER = 65;
+    private static final int CONDITION_FLAGS = 66;
+    private static final int RETURN_ADDRESS_REGISTER = 31;
+    private static final int REGISTER_COUNT = 67;
+    // Registers corresponding to each combination of implicit register flags
+    private static final int[][] IMPLICIT_REGISTERS = new int[16][];
+
+    static {
+        for (int flags = 0; flags < IMPLICIT_REGISTERS.length; flags++) {
+            IMPLICIT_REGISTERS[flags] = new int[Integer.bitCount(flags)];
+            int count = 0;
+            if ((flags & IMPLICIT_HI) != 0) {
+                IMPLICIT_REGISTERS[flags][count++] = HI_REGISTER;
+            }
+            if ((flags & IMPLICIT_LO) != 0) {
+                IMPLICIT_REGISTERS[flags][count++] = LO_REGISTER;
+            }
+            if ((flags & IMPLICIT_CONDITION_FLAGS) != 0) {
+                IMPLICIT_REGISTERS[flags][count++] = CONDITION_FLAGS;
+            }
+            if ((flags & IMPLICIT_RETURN_ADDRESS) != 0) {
+                IMPLICIT_REGISTERS[flags][count] = RETURN_ADDRESS_REGISTER;
+            }
+        }
+    }
+
+    private static final int CAUSE_DATA = 0;
+    private static final int CAUSE_LOAD_USE = 1;
+    private static final int CAUSE_MULTIPLY_DIVIDE = 2;
+    private static final int CAUSE_BRANCH = 3;
+    private static final int CAUSE_COUNT = 4;
+
+    // Per-address counts consist of the execution count followed by stall counts for each cause
+    private static final int EXECUTIONS = CAUSE_COUNT;
+    private static final int ADDRESS_STRIDE = CAUSE_COUNT + 1;
+    private static final int MAX_ADDRESS_SPAN = 1 << 20;
+
+    private static final Set<String> NO_DESTINATION_MNEMONICS = Set.of(
+        "mult", "multu", "div", "divu", "madd", "maddu", "msub", "msubu", "mthi", "mtlo", "mtc0", "mtc1",
+        "teq", "teqi", "tge", "tgei", "tgeiu", "tgeu", "tlt", "tlti", "tltiu", "tltu", "tne", "tnei"
+    );
+
+    private final byte[] instructionKinds;
+    private final byte[] operandRoles;
+    private final byte[] implicitReads;
+    private final byte[] implicitWrites;
+
+    private Configuration configuration;
+    private boolean delayedBranching;
+
+    private final long[] resultCycles;
+    private final long[] writebackCycles;
+    private final byte[] producerCauses;
+    private long lastExecuteCycle;
+    private long lastCycle;
+    private long multiplyDivideFreeCycle;
+    private long pendingPenalty;
+    private int pendingPenaltyDelay;
+    private boolean skipPending;
+    private int skipAddress;
+
+    private long instructionCount;
+    private final long[] stallCounts;
+    private int countsBaseAddress;
+    private long[] addressCounts;
+    private final Map<Integer, long[]> outlyingAddressCounts;
+
+    /**
+     * Create a new pipeline model for the instructions in {@link Application#instructionSet},
+     * using {@link Configuration#DEFAULT}.
+     */
+    public PipelineModel() {
+        this(Configuration.DEFAULT);
+    }
+
+    /**
+     * Create a new pipeline model for the instructions in {@link Application#instructionSet}.
+     *
+     * @param configuration The timing parameters of the pipeline.
+     */
+    public PipelineModel(Configuration configuration) {
+        List<BasicInstruction> instructions = Application.instructionSet.getBasicInstructions();
+        this.instructionKinds = new byte[instructions.size()];
+        this.operandRoles = new byte[instructions.size() * MAX_OPERANDS];
+        this.implicitReads = new byte[instructions.size()];
+        this.implicitWrites = new byte[instructions.size()];
+        for (BasicInstruction instruction : instructions) {
+            this.classifyInstruction(instruction);
+        }
+
+        this.configuration = configuration;
+        this.resultCycles = new long[REGISTER_COUNT];
+        this.writebackCycles = new long[REGISTER_COUNT];
+        this.producerCauses = new byte[REGISTER_COUNT];
+        this.stallCounts = new long[CAUSE_COUNT];
+        this.outlyingAddressCounts = new HashMap<>();
+        this.reset();
+    }
+
+    private void classifyInstruction(BasicInstruction instruction) {
+        int index = instruction.getIndex();
+        String mnemonic = instruction.getMnemonic();
+        List<OperandType> operandTypes = instruction.getOperandTypes();
+
+        byte kind = switch (mnemonic) {
+            case "lb", "lbu", "lh", "lhu", "lw", "lwl", "lwr", "ll", "lwc1", "ldc1" -> KIND_LOAD;
+            case "sb", "sh", "sw", "swl", "swr", "sc", "swc1", "sdc1" -> KIND_STORE;
+            case "mult", "multu", "mul", "madd", "maddu", "msub", "msubu", "mul.s", "mul.d" -> KIND_MULTIPLY;
+            case "div", "divu", "div.s", "div.d", "sqrt.s", "sqrt.d" -> KIND_DIVIDE;
+            case "j", "jal" -> KIND_JUMP;
+            default -> instruction.isControlTransferInstruction() ? KIND_BRANCH : KIND_OTHER;
+        };
+        this.instructionKinds[index] = kind;
+
+        // Normally, the first register operand is the destination and any others are sources
+        boolean firstIsDestination = kind != KIND_STORE
+            && !NO_DESTINATION_MNEMONICS.contains(mnemonic)
+            && !mnemonic.startsWith("c.")
+            && !(instruction.isControlTransferInstruction() && !(mnemonic.equals("jalr") && operandTypes.size() == 2));
+        for (int operand = 0; operand < Math.min(operandTypes.size(), MAX_OPERANDS); operand++) {
+            byte role;
+            if (operand == 0 && kind == KIND_STORE) {
+                role = ROLE_STORE_DATA;
+            }
+            else if (operand == 0 && firstIsDestination) {
+                role = ROLE_DESTINATION;
+            }
+            else {
+                role = ROLE_SOURCE;
+            }
+            switch (operandTypes.get(operand)) {
+                case REGISTER, PAREN_REGISTER -> this.operandRoles[index * MAX_OPERANDS + operand] = role;
+                case FP_REGISTER -> this.operandRoles[index * MAX_OPERANDS + operand] = (byte) (role | ROLE_FP);
+                default -> {}
+            }
+        }
+
+        // Exceptions to the rule above
+        switch (mnemonic) {
+            case "lwl", "lwr" -> this.operandRoles[index * MAX_OPERANDS] |= ROLE_SOURCE;
+            case "sc" -> this.operandRoles[index * MAX_OPERANDS] |= ROLE_DESTINATION;
+            case "mtc1" -> this.operandRoles[index * MAX_OPERANDS + 1] = ROLE_DESTINATION | ROLE_FP;
+            // The second operand is a Coprocessor 0 register, which is not tracked
+            case "mfc0", "mtc0" -> this.operandRoles[index * MAX_OPERANDS + 1] = 0;
+        }
+
+        this.implicitReads[index] = switch (mnemonic) {
+            case "mfhi" -> IMPLICIT_HI;
+            case "mflo" -> IMPLICIT_LO;
+            case "madd", "maddu", "msub", "msubu" -> IMPLICIT_HI | IMPLICIT_LO;
+            case "bc1t", "bc1f", "movf", "movt", "movf.s", "movt.s", "movf.d", "movt.d" -> IMPLICIT_CONDITION_FLAGS;
+            default -> 0;
+        };
+        this.implicitWrites[index] = switch (mnemonic) {
+            case "mthi" -> IMPLICIT_HI;
+            case "mtlo" -> IMPLICIT_LO;
+            case "mult", "multu", "div", "divu", "madd", "maddu", "msub", "msubu" -> IMPLICIT_HI | IMPLICIT_LO;
+            case "jal", "bgezal", "bltzal" -> IMPLICIT_RETURN_ADDRESS;
+            case "jalr" -> (operandTypes.size() == 1) ? IMPLICIT_RETURN_ADDRESS : 0;
+            default -> mnemonic.startsWith("c.") ? IMPLICIT_CONDITION_FLAGS : 0;
+        };
+    }
+
+    @Override
+    public void simulatorReset() {
+        this.reset();
+    }
+
+    /**
+     * Discard all timing state and statistics gathered so far.
+     */
+    public synchronized void reset() {
+        this.delayedBranching = Application.getSettings().delayedBranchingEnabled.get();
+        Arrays.fill(this.resultCycles, 0L);
+        Arrays.fill(this.writebackCycles, 0L);
+        Arrays.fill(this.producerCauses, (byte) CAUSE_DATA);
+        // The first instruction is fetched in cycle 1, so it reaches EX in cycle 3
+        this.lastExecuteCycle = 2;
+        this.lastCycle = 0;
+        this.multiplyDivideFreeCycle = 0;
+        this.pendingPenalty = 0;
+        this.pendingPenaltyDelay = 0;
+        this.skipPending = false;
+        this.instructionCount = 0;
+        Arrays.fill(this.stallCounts, 0L);
+        this.addressCounts = new long[0];
+        this.outlyingAddressCounts.clear();
+    }
+
+    /**
+     * Get the timing parameters of the pipeline.
+     *
+     * @return The current configuration.
+     */
+    public synchronized Configuration getConfiguration() {
+        return this.configuration;
+    }
+
+    /**
+     * Change the timing parameters of the pipeline. This also calls {@link #reset()}, since the timing state
+     * gathered so far no longer applies. This should not be called while the simulator is running.
+     *
+     * @param configuration The new configuration.
+     */
+    public synchronized void setConfiguration(Configuration configuration) {
+        this.configuration = configuration;
+        this.reset();
+    }
+
+    @Override
+    public void executionStarted() {
+        this.delayedBranching = Application.getSettings().delayedBranchingEnabled.get();
+    }
+
+    @Override
+    public void instructionRetired(BasicStatement statement, int address, boolean jumped, int nextFetchPC) {
+        if (this.skipPending) {
+            this.skipPending = false;
+            if (address == this.skipAddress && statement.getBinaryEncoding() == 0) {
+                // This is the nop inserted after a control transfer when delayed branching is disabled
+                return;
+            }
+        }
+
+        int index = statement.getInstruction().getIndex();
+        byte kind = this.instructionKinds[index];
+
+        long idealCycle = this.lastExecuteCycle + 1;
+        if (this.pendingPenalty > 0) {
+            if (this.pendingPenaltyDelay > 0) {
+                this.pendingPenaltyDelay--;
+            }
+            else {
+                // Already counted against the branch
+                idealCycle += this.pendingPenalty;
+                this.pendingPenalty = 0;
+            }
+        }
+
+        // Wait until every operand can be obtained
+        long executeCycle = idealCycle;
+        int cause = CAUSE_DATA;
+        int operandBase = index * MAX_OPERANDS;
+        for (int operand = 0; operand < MAX_OPERANDS; operand++) {
+            byte role = this.operandRoles[operandBase + operand];
+            if ((role & ROLE_SOURCE) != 0 || (role & ROLE_STORE_DATA) != 0) {
+                int register = this.getRegister(statement.getOperand(operand), role);
+                int neededOffset;
+                if ((role & ROLE_STORE_DATA) != 0) {
+                    neededOffset = 1; // MEM
+                }
+                else if (kind == KIND_BRANCH && !this.configuration.branchesResolvedInExecute()) {
+                    neededOffset = -1; // ID
+                }
+                else {
+                    neededOffset = 0; // EX
+                }
+                long requiredCycle = this.getRequiredExecuteCycle(register, neededOffset);
+                if (requiredCycle > executeCycle) {
+                    executeCycle = requiredCycle;
+                    cause = this.producerCauses[register];
+                }
+            }
+        }
+        byte reads = this.implicitReads[index];
+        if (reads != 0) {
+            int neededOffset = (kind == KIND_BRANCH && !this.configuration.branchesResolvedInExecute()) ? -1 : 0;
+            for (int register : IMPLICIT_REGISTERS[reads]) {
+                long requiredCycle = this.getRequiredExecuteCycle(register, neededOffset);
+                if (requiredCycle > executeCycle) {
+                    executeCycle = requiredCycle;
+                    cause = this.producerCauses[register];
+                }
+            }
+        }
+        boolean usesMultiplyDivideUnit = kind == KIND_MULTIPLY || kind == KIND_DIVIDE;
+        if (usesMultiplyDivideUnit && this.multiplyDivideFreeCycle > executeCycle) {
+            executeCycle = this.multiplyDivideFreeCycle;
+            cause = CAUSE_MULTIPLY_DIVIDE;
+        }
+
+        this.instructionCount++;
+        this.count(address, EXECUTIONS, 1);
+        if (executeCycle > idealCycle) {
+            this.stallCounts[cause] += executeCycle - idealCycle;
+            this.count(address, cause, executeCycle - idealCycle);
+        }
+
+        // Record when the results of this instruction will be available
+        long resultCycle;
+        byte producerCause;
+        switch (kind) {
+            case KIND_LOAD, KIND_STORE -> {
+                resultCycle = executeCycle + 1;
+                producerCause = CAUSE_LOAD_USE;
+            }
+            case KIND_MULTIPLY -> {
+                resultCycle = executeCycle + this.configuration.multiplyLatency() - 1;
+                producerCause = CAUSE_MULTIPLY_DIVIDE;
+                this.multiplyDivideFreeCycle = resultCycle + 1;
+            }
+            case KIND_DIVIDE -> {
+                resultCycle = executeCycle + this.configuration.divideLatency() - 1;
+                producerCause = CAUSE_MULTIPLY_DIVIDE;
+                this.multiplyDivideFreeCycle = resultCycle + 1;
+            }
+            default -> {
+                resultCycle = executeCycle;
+                producerCause = CAUSE_DATA;
+            }
+        }
+        long writebackCycle = Math.max(executeCycle + 2, resultCycle + 1);
+        for (int operand = 0; operand < MAX_OPERANDS; operand++) {
+            byte role = this.operandRoles[operandBase + operand];
+            if ((role & ROLE_DESTINATION) != 0) {
+                this.recordResult(this.getRegister(statement.getOperand(operand), role), resultCycle, writebackCycle, producerCause);
+            }
+        }
+        byte writes = this.implicitWrites[index];
+        if (writes != 0) {
+            for (int register : IMPLICIT_REGISTERS[writes]) {
+                this.recordResult(register, resultCycle, writebackCycle, producerCause);
+            }
+        }
+        this.lastExecuteCycle = executeCycle;
+        this.lastCycle = Math.max(this.lastCycle, writebackCycle);
+
+        if (kind == KIND_BRANCH || kind == KIND_JUMP) {
+            if (jumped) {
+                // Instructions fetched after this one until the target is known are wasted, aside from the delay slot
+                int resolveCycles = (kind == KIND_BRANCH && this.configuration.branchesResolvedInExecute()) ? 2 : 1;
+                long penalty = resolveCycles - (this.delayedBranching ? 1 : 0);
+                if (penalty > 0) {
+                    this.stallCounts[CAUSE_BRANCH] += penalty;
+                    this.count(address, CAUSE_BRANCH, penalty);
+                    this.pendingPenalty = penalty;
+                    this.pendingPenaltyDelay = this.delayedBranching ? 1 : 0;
+                }
+            }
+            if (!this.delayedBranching) {
+                this.skipPending = true;
+                this.skipAddress = address + BasicInstruction.BYTES_PER_INSTRUCTION;
+            }
+        }
+    }
+
+    private int getRegister(int operand, byte role) {
+        return ((role & ROLE_FP) != 0) ? FP_REGISTER_BASE + operand : operand;
+    }
+
+
+    /**
+     * Determine the earliest cycle in which an instruction can be in EX, given that it needs the value of
+     * a register in the stage at the given offset from EX.
+     */
+    private long getRequiredExecuteCycle(int register, int neededOffset) {
+        if (this.configuration.forwardingEnabled()) {
+            return this.resultCycles[register] + 1 - neededOffset;
+        }
+        else {
+            // Registers are read in ID, which can happen in the same cycle as WB
+            return this.writebackCycles[register] + 1;
+        }
+    }
+
+    private void recordResult(int register, long resultCycle, long writebackCycle, byte producerCause) {
+        // $zero never changes
+        if (register != 0) {
+            this.resultCycles[register] = resultCycle;
+            this.writebackCycles[register] = writebackCycle;
+            this.producerCauses[register] = producerCause;
+        }
+    }
+
+    private void count(int address, int slot, long amount) {
+        int offset = (address - this.countsBaseAddress) >> 2;
+        if (offset >= 0 && offset < this.addressCounts.length / ADDRESS_STRIDE) {
+            this.addressCounts[offset * ADDRESS_STRIDE + slot] += amount;
+        }
+        else if (this.addressCounts.length == 0) {
+            // The first address seen becomes the base; anything below it is an outlier
+            this.countsBaseAddress = address;
+            this.addressCounts = new long[1024 * ADDRESS_STRIDE];
+            this.addressCounts[slot] += amount;
+        }
+        else if (offset >= 0 && offset < MAX_ADDRESS_SPAN) {
+            // Grow to cover this address, up to a 4 MiB span of text
+            int length = Math.max(offset + 1, 2 * this.addressCounts.length / ADDRESS_STRIDE);
+            this.addressCounts = Arrays.copyOf(this.addressCounts, length * ADDRESS_STRIDE);
+            this.addressCounts[offset * ADDRESS_STRIDE + slot] += amount;
+        }
+        else {
+            this.outlyingAddressCounts.computeIfAbsent(address, key -> new long[ADDRESS_STRIDE])[slot] += amount;
+        }
+    }
+
+    /**
+     * Get the totals for the whole program. This should not be called while the simulator is running.
+     *
+     * @return The summary of the program's timing.
+     */
+    public synchronized Summary getSummary() {
+        return new Summary(
+            this.instructionCount,
+            this.lastCycle,
+            this.stallCounts[CAUSE_DATA],
+            this.stallCounts[CAUSE_LOAD_USE],
+            this.stallCounts[CAUSE_MULTIPLY_DIVIDE],
+            this.stallCounts[CAUSE_BRANCH]
+        );
+    }
+
+    private Map<Integer, long[]> getCountsByAddress() {
+        Map<Integer, long[]> countsByAddress = new HashMap<>(this.outlyingAddressCounts);
+        for (int offset = 0; offset < this.addressCounts.length / ADDRESS_STRIDE; offset++) {
+            if (this.addressCounts[offset * ADDRESS_STRIDE + EXECUTIONS] != 0) {
+                long[] counts = Arrays.copyOfRange(this.addressCounts, offset * ADDRESS_STRIDE, (offset + 1) * ADDRESS_STRIDE);
+                countsByAddress.put(this.countsBaseAddress + (offset << 2), counts);
+            }
+        }
+        return countsByAddress;
+    }
+
+    /**
+     * Compute execution and stall counts for each instruction which was executed.
+     * This should not be called while the simulator is running.
+     *
+     * @return The list of statistics, sorted by address.
+     */
+    public synchronized List<InstructionStatistics> getInstructionStatistics() {
+        SortedMap<Integer, BasicStatement> statements = Application.assembler.getAssembledStatements();
+        List<InstructionStatistics> statistics = new ArrayList<>();
+        for (Map.Entry<Integer, long[]> entry : this.getCountsByAddress().entrySet()) {
+            long[] counts = entry.getValue();
+            statistics.add(new InstructionStatistics(
+                entry.getKey(),
+                statements.get(entry.getKey()),
+                counts[EXECUTIONS],
+                counts[CAUSE_DATA],
+                counts[CAUSE_LOAD_USE],
+                counts[CAUSE_MULTIPLY_DIVIDE],
+                counts[CAUSE_BRANCH]
+            ));
+        }
+        // Addresses are compared as unsigned so kernel text sorts after user text
+        statistics.sort((statistics1, statistics2) -> Integer.compareUnsigned(statistics1.address(), statistics2.address()));
+        return statistics;
+    }
+
+    /**
+     * Compute execution and stall counts for each line of source code which was executed.
+     * This should not be called while the simulator is running.
+     *
+     * @return The list of statistics, sorted by source location.
+     */
+    public synchronized List<LineStatistics> getLineStatistics() {
+        SortedMap<Integer, BasicStatement> statements = Application.assembler.getAssembledStatements();
+        Map<SourceLocation, String> sources = new HashMap<>();
+        Map<SourceLocation, long[]> countsByLine = new TreeMap<>();
+        for (Map.Entry<Integer, long[]> entry : this.getCountsByAddress().entrySet()) {
+            BasicStatement statement = statements.get(entry.getKey());
+            if (statement == null || statement.getSyntax() == null) {
+                continue;
+            }
+            // Only the file and line are relevant, not the column
+            SourceLocation location = statement.getSyntax().getSourceLine().getLocation().toLineLocation();
+            sources.putIfAbsent(location, statement.getSyntax().getSourceLine().getContent());
+            long[] lineCounts = countsByLine.computeIfAbsent(location, key -> new long[ADDRESS_STRIDE]);
+            for (int slot = 0; slot < ADDRESS_STRIDE; slot++) {
+                lineCounts[slot] += entry.getValue()[slot];
+            }
+        }
+
+        List<LineStatistics> statistics = new ArrayList<>(countsByLine.size());
+        for (Map.Entry<SourceLocation, long[]> entry : countsByLine.entrySet()) {
+            long[] counts = entry.getValue();
+            statistics.add(new LineStatistics(
+                entry.getKey(),
+                sources.get(entry.getKey()),
+                counts[EXECUTIONS],
+                counts[CAUSE_DATA],
+                counts[CAUSE_LOAD_USE],
+                counts[CAUSE_MULTIPLY_DIVIDE],
+                counts[CAUSE_BRANCH]
+            ));
+        }
+        return statistics;
+    }
+
+    /**
+     * Generate a machine-readable report of the configuration, the totals for the whole program,
+     * and the execution and stall counts for each line of source code.
+     * This should not be called while the simulator is running.
+     *
+     * @return The report as a JSON object.
+     */
+    public synchronized JSONObject toJSON() {
+        Summary summary = this.getSummary();
+        JSONArray lines = new JSONArray();
+        for (LineStatistics line : this.getLineStatistics()) {
+            lines.put(new JSONObject()
+                .put("file", line.location().getFilename())
+                .put("line", line.location().getLineIndex() + 1)
+                .put("source", line.source().strip())
+                .put("instructions", line.executions())
+                .put("stalls", toJSON(line.dataStalls(), line.loadUseStalls(), line.multiplyDivideStalls(), line.branchStalls())));
+        }
+        return new JSONObject()
+            .put("configuration", new JSONObject()
+                .put("forwarding", this.configuration.forwardingEnabled())
+                .put("branchesResolvedIn", this.configuration.branchesResolvedInExecute() ? "EX" : "ID")
+                .put("multiplyLatency", this.configuration.multiplyLatency())
+                .put("divideLatency", this.configuration.divideLatency())
+                .put("delayedBranching", this.delayedBranching))
+            .put("instructions", summary.instructionCount())
+            .put("cycles", summary.cycleCount())
+            .put("cpi", summary.cyclesPerInstruction())
+            .put("stalls", toJSON(summary.dataStalls(), summary.loadUseStalls(), summary.multiplyDivideStalls(), summary.branchStalls()))
+            .put("lines", lines);
+    }
+
+    private static JSONObject toJSON(long dataStalls, long loadUseStalls, long multiplyDivideStalls, long branchStalls) {
+        return new JSONObject()
+            .put("data", dataStalls)
+            .put("loadUse", loadUseStalls)
+            .put("multiplyDivide", multiplyDivideStalls)
+            .put("branch", branchStalls)
+            .put("total", dataStalls + loadUseStalls + multiplyDivideStalls + branchStalls);
+    }
+}
@@ -0,0 +1,383 @@
+package mars.simulator;
+
+import mars.Application;
+import mars.assembler.Assembler;
+import mars.assembler.BasicStatement;
+import mars.assembler.Symbol;
+import mars.assembler.log.SourceLocation;
+import mars.mips.hardware.Processor;
+import mars.mips.instructions.BasicInstruction;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Call-graph profiler which follows <code>jal</code>, <code>jalr</code> (and the linking branches) and
+ * <code>jr $ra</code> to maintain a shadow call stack as the program runs. Each instruction executed is attributed
+ * to the function on top of the stack, where a function is identified by the nearest text label preceding its
+ * entry point in the assembler's symbol tables. Instruction counts are also kept per address, which allows them
+ * to be reported per source line.
+ * <p>
+ * The profiler is attached to the simulator as an {@link ExecutionListener}. Results can be obtained as a table of
+ * inclusive and exclusive counts via {@link #getFunctionStatistics()}, as per-line counts via
+ * {@link #getLineStatistics()}, or in the "folded stacks" format used by flame graph tools via
+ * {@link #writeFoldedStacks(Writer)}.
+ * <p>
+ * Since MARS always executes the instruction following a jump (either the delay slot or an inserted <code>nop</code>),
+ * calls and returns take effect on the shadow stack only after that instruction.
+ */
+public class Profiler implements ExecutionListener {
+    /**
+     * Name used for code which does not follow any text label.
+     */
+    public static final String UNKNOWN_FUNCTION_NAME = "[unknown]";
+
+    private static final byte KIND_OTHER = 0;
+    private static final byte KIND_CALL = 1;
+    private static final byte KIND_JUMP_REGISTER = 2;
+
+    private static final byte ACTION_NONE = 0;
+    private static final byte ACTION_CALL = 1;
+    private static final byte ACTION_RETURN = 2;
+
+    /**
+     * Inclusive and exclusive instruction counts for a single function.
+     *
+     * @param name      The name of the function, i.e. the text label at its entry point.
+     * @param address   The address of the label, or -1 for {@link #UNKNOWN_FUNCTION_NAME}.
+     * @param calls     The number of times the function was called.
+     * @param inclusive The number of instructions executed in the function and everything it called.
+     * @param exclusive The number of instructions executed in the function itself.
+     */
+    public record FunctionStatistics(String name, int address, long calls, long inclusive, long exclusive) {}
+
+    /**
+     * Instruction count for a single line of source code.
+     *
+     * @param location The location of the line in the source code.
+     * @param source   The raw source code of the line.
+     * @param count    The number of instructions executed which were generated from this line.
+     */
+    public record LineStatistics(SourceLocation location, String source, long count) {}
+
+    /**
+     * Node in the call tree, representing a unique path of calls from the root function.
+     */
+    private static class CallNode {
+        private final CallNode parent;
+        private final int function;
+        private final Map<Integer, CallNode> children;
+        private final int depth;
+        private long calls;
+        private long selfCount;
+        private long subtreeCount;
+
+        private CallNode(CallNode parent, int function) {
+            this.parent = parent;
+            this.function = function;
+            this.depth = (parent == null) ? 0 : parent.depth + 1;
+            this.children = new HashMap<>();
+        }
+
+        private CallNode getChild(int function) {
+            return this.children.computeIfAbsent(function, key -> new CallNode(this, key));
+        }
+    }
+
+    private byte[] instructionKinds;
+    private int[] functionAddresses;
+    private String[] functionNames;
+    private CallNode root;
+    private CallNode current;
+    private byte pendingAction;
+    private int pendingTarget;
+    private int pendingDelay;
+    private int countsBaseAddress;
+    private long[] addressCounts;
+    private final Map<Integer, Long> outlyingAddressCounts;
+
+    /**
+     * Create a new profiler with no data.
+     */
+    public Profiler() {
+        this.outlyingAddressCounts = new HashMap<>();
+        this.classifyInstructions();
+        this.reset();
+    }
+
+    @Override
+    public void simulatorReset() {
+        this.reset();
+    }
+
+    /**
+     * Discard all data gathered so far. The symbol tables will be read again when they are next needed,
+     * so this should be called whenever the program is reassembled.
+     */
+    public synchronized void reset() {
+        this.functionAddresses = null;
+        this.functionNames = null;
+        this.root = null;
+        this.current = null;
+        this.pendingAction = ACTION_NONE;
+        this.addressCounts = new long[0];
+        this.outlyingAddressCounts.clear();
+    }
+
+    private void classifyInstructions() {
+        List<BasicInstruction> instructions = Application.instructionSet.getBasicInstructions();
+        this.instructionKinds = new byte[instructions.size()];
+        for (BasicInstruction instruction : instructions) {
+            this.instructionKinds[instruction.getIndex()] = switch (instruction.getMnemonic()) {
+                case "jal", "jalr", "bgezal", "bltzal" -> KIND_CALL;
+                case "jr" -> KIND_JUMP_REGISTER;
+                default -> KIND_OTHER;
+            };
+        }
+    }
+
+    private void loadFunctionSymbols(Assembler assembler) {
+        // Only one name is kept for each address, with global symbols taking precedence
+        SortedMap<Integer, String> functions = new TreeMap<>();
+        for (String filename : assembler.getSourceFilenames()) {
+            for (Symbol symbol : assembler.getLocalSymbolTable(filename).getTextSymbols()) {
+                functions.merge(symbol.getAddress(), symbol.getIdentifier(), (existing, added) -> (existing.compareTo(added) <= 0) ? existing : added);
+            }
+        }
+        for (Symbol symbol : assembler.getGlobalSymbolTable().getTextSymbols()) {
+            functions.put(symbol.getAddress(), symbol.getIdentifier());
+        }
+
+        // Addresses are compared as unsigned so kernel text sorts after user text
+        List<Map.Entry<Integer, String>> entries = new ArrayList<>(functions.entrySet());
+        entries.sort((entry1, entry2) -> Integer.compareUnsigned(entry1.getKey(), entry2.getKey()));
+        this.functionAddresses = new int[entries.size()];
+        this.functionNames = new String[entries.size()];
+        for (int index = 0; index < entries.size(); index++) {
+            this.functionAddresses[index] = entries.get(index).getKey();
+            this.functionNames[index] = entries.get(index).getValue();
+        }
+    }
+
+    /**
+     * Find the function containing the given address, i.e. the nearest text label at or before it.
+     *
+     * @return The index of the function, or -1 if there is no preceding label.
+     */
+    private int findFunction(int address) {
+        if (this.functionAddresses == null) {
+            this.loadFunctionSymbols(Application.assembler);
+        }
+        int low = 0;
+        int high = this.functionAddresses.length - 1;
+        int result = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (Integer.compareUnsigned(this.functionAddresses[middle], address) <= 0) {
+                result = middle;
+                low = middle + 1;
+            }
+            else {
+                high = middle - 1;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void instructionIssued(BasicStatement statement, int address) {
+        if (this.current == null) {
+            this.root = new CallNode(null, this.findFunction(address));
+            this.root.calls = 1;
+            this.current = this.root;
+        }
+        else if (this.pendingAction != ACTION_NONE) {
+            if (this.pendingDelay > 0) {
+                // This is the instruction in the delay slot, which still belongs to the caller
+                this.pendingDelay--;
+            }
+            else {
+                if (this.pendingAction == ACTION_CALL) {
+                    this.current = this.current.getChild(this.findFunction(this.pendingTarget));
+                    this.current.calls++;
+                }
+                else if (this.current.parent != null) {
+                    this.current = this.current.parent;
+                }
+                this.pendingAction = ACTION_NONE;
+            }
+        }
+    }
+
+    @Override
+    public void instructionRetired(BasicStatement statement, int address, boolean jumped, int nextFetchPC) {
+        this.current.selfCount++;
+        this.countAddress(address);
+
+        if (jumped) {
+            byte kind = this.instructionKinds[statement.getInstruction().getIndex()];
+            if (kind == KIND_CALL) {
+                this.pendingAction = ACTION_CALL;
+                this.pendingTarget = nextFetchPC;
+                this.pendingDelay = 1;
+            }
+            else if (kind == KIND_JUMP_REGISTER && statement.getOperand(0) == Processor.RETURN_ADDRESS) {
+                this.pendingAction = ACTION_RETURN;
+                this.pendingDelay = 1;
+            }
+        }
+    }
+
+    private void countAddress(int address) {
+        int offset = (address - this.countsBaseAddress) >> 2;
+        if (offset >= 0 && offset < this.addressCounts.length) {
+            this.addressCounts[offset]++;
+        }
+        else if (this.addressCounts.length == 0) {
+            // The first address seen becomes the base; anything below it is an outlier
+            this.countsBaseAddress = address;
+            this.addressCounts = new long[1024];
+            this.addressCounts[0]++;
+        }
+        else if (offset >= 0 && offset < (1 << 22)) {
+            // Grow to cover this address, up to a 16 MiB span of text
+            this.addressCounts = Arrays.copyOf(this.addressCounts, Math.max(offset + 1, this.addressCounts.length * 2));
+            this.addressCounts[offset]++;
+        }
+        else {
+            this.outlyingAddressCounts.merge(address, 1L, Long::sum);
+        }
+    }
+
+    private String getFunctionName(int function) {
+        return (function < 0) ? UNKNOWN_FUNCTION_NAME : this.functionNames[function];
+    }
+
+    /**
+     * Compute inclusive and exclusive instruction counts for each function which was executed.
+     * This should not be called while the simulator is running.
+     *
+     * @return The list of statistics, in no particular order.
+     */
+    public synchronized List<FunctionStatistics> getFunctionStatistics() {
+        Map<Integer, long[]> totals = new HashMap<>(); // calls, inclusive, exclusive
+        // Recursive calls must only be counted once toward inclusive counts, so keep track of how many times
+        // each function appears on the current path. The tree is walked iteratively since deeply recursive
+        // programs produce equally deep call trees.
+        Map<Integer, Integer> activeFunctions = new HashMap<>();
+        Deque<CallNode> pending = new ArrayDeque<>();
+        Deque<CallNode> exiting = new ArrayDeque<>();
+        if (this.root != null) {
+            pending.push(this.root);
+        }
+        while (!pending.isEmpty() || !exiting.isEmpty()) {
+            if (!exiting.isEmpty() && (pending.isEmpty() || pending.peek().parent != exiting.peek())) {
+                // All children of this node have been visited
+                CallNode node = exiting.pop();
+                activeFunctions.merge(node.function, -1, (count, delta) -> (count + delta == 0) ? null : count + delta);
+                if (!activeFunctions.containsKey(node.function)) {
+                    totals.get(node.function)[1] += node.subtreeCount;
+                }
+                if (node.parent != null) {
+                    node.parent.subtreeCount += node.subtreeCount;
+                }
+                continue;
+            }
+            CallNode node = pending.pop();
+            long[] values = totals.computeIfAbsent(node.function, key -> new long[3]);
+            values[0] += node.calls;
+            values[2] += node.selfCount;
+            node.subtreeCount = node.selfCount;
+            activeFunctions.merge(node.function, 1, Integer::sum);
+            exiting.push(node);
+            for (CallNode child : node.children.values()) {
+                pending.push(child);
+            }
+        }
+
+        List<FunctionStatistics> statistics = new ArrayList<>(totals.size());
+        for (Map.Entry<Integer, long[]> entry : totals.entrySet()) {
+            int function = entry.getKey();
+            long[] values = entry.getValue();
+            int address = (function < 0) ? -1 : this.functionAddresses[function];
+            statistics.add(new FunctionStatistics(this.getFunctionName(function), address, values[0], values[1], values[2]));
+        }
+        return statistics;
+    }
+
+    /**
+     * Compute instruction counts for each line of source code which was executed.
+     * This should not be called while the simulator is running.
+     *
+     * @return The list of statistics, sorted by source location.
+     */
+    public synchronized List<LineStatistics> getLineStatistics() {
+        Map<Integer, Long> countsByAddress = new HashMap<>(this.outlyingAddressCounts);
+        for (int offset = 0; offset < this.addressCounts.length; offset++) {
+            if (this.addressCounts[offset] != 0) {
+                countsByAddress.merge(this.countsBaseAddress + (offset << 2), this.addressCounts[offset], Long::sum);
+            }
+        }
+
+        SortedMap<Integer, BasicStatement> statements = Application.assembler.getAssembledStatements();
+        Map<SourceLocation, String> sources = new HashMap<>();
+        Map<SourceLocation, Long> countsByLine = new TreeMap<>();
+        for (Map.Entry<Integer, Long> entry : countsByAddress.entrySet()) {
+            BasicStatement statement = statements.get(entry.getKey());
+            if (statement == null || statement.getSyntax() == null) {
+                continue;
+            }
+            SourceLocation location = statement.getSyntax().getSourceLine().getLocation();
+            // Only the file and line are relevant, not the column
+            location = new SourceLocation(location.getFilename(), location.getLineIndex());
+            sources.putIfAbsent(location, statement.getSyntax().getSourceLine().getContent());
+            countsByLine.merge(location, entry.getValue(), Long::sum);
+        }
+
+        List<LineStatistics> statistics = new ArrayList<>(countsByLine.size());
+        for (Map.Entry<SourceLocation, Long> entry : countsByLine.entrySet()) {
+            statistics.add(new LineStatistics(entry.getKey(), sources.get(entry.getKey()), entry.getValue()));
+        }
+        return statistics;
+    }
+
+    /**
+     * Write the call tree in the "folded stacks" format, where each line contains a semicolon-separated call stack
+     * from the root function followed by a space and the number of instructions executed with that exact stack.
+     * This is the input format expected by common flame graph tools.
+     * This should not be called while the simulator is running.
+     *
+     * @param writer The writer to write the output to.
+     * @throws IOException Thrown if the writer fails.
+     */
+    public synchronized void writeFoldedStacks(Writer writer) throws IOException {
+        // The tree is walked iteratively since deeply recursive programs produce equally deep call trees
+        Deque<CallNode> pending = new ArrayDeque<>();
+        Deque<Integer> stackLengths = new ArrayDeque<>();
+        StringBuilder stack = new StringBuilder();
+        if (this.root != null) {
+            pending.push(this.root);
+        }
+        while (!pending.isEmpty()) {
+            CallNode node = pending.pop();
+            // Unwind the stack string to this node's parent, which is the most recent ancestor still tracked
+            int depth = node.depth;
+            while (stackLengths.size() > depth) {
+                stack.setLength(stackLengths.pop());
+            }
+            stackLengths.push(stack.length());
+            if (depth > 0) {
+                stack.append(';');
+            }
+            stack.append(this.getFunctionName(node.function));
+            if (node.selfCount > 0) {
+                writer.write(stack + " " + node.selfCount + "\n");
+            }
+            for (CallNode child : node.children.values()) {
+                pending.push(child);
+            }
+        }
+        writer.flush();
+    }
+}
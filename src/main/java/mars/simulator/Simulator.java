@@ -5,7 +5,11 @@ import mars.mips.hardware.*;
 
 import javax.swing.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
 
 /*
 Copyright (c) 2003-2010,  Pete Sanderson and Kenneth Vollmar
@@ -61,8 +65,23 @@ public class Simulator {
      * The device is identified by the address of its MMIO control register.
      * DPS 23 July 2008
      */
-    private volatile Integer externalInterruptDevice;
-    private final List<Runnable> queuedStateChanges;
+    private final AtomicReference<Integer> externalInterruptDevice;
+    /**
+     * Lock-free queue of state changes submitted by other threads while the simulator is running.
+     * Any number of threads may add to it, but only the simulator thread drains it.
+     */
+    private final Queue<Runnable> queuedStateChanges;
+    /**
+     * Set by any thread which needs the simulator thread to do something between instructions, i.e. queue a state
+     * change, raise an external interrupt, or stop the simulator. This is the only field polled on every step,
+     * so the simulator does not need any synchronization while nothing has been requested.
+     */
+    private volatile boolean hasPendingWork;
+    /**
+     * Copy-on-write array of execution listeners, so the simulator thread can take a snapshot without locking.
+     */
+    private volatile ExecutionListener[] executionListeners;
+    private PerformanceCounters performanceCounters;
 
     private SimulatorThread thread;
     private boolean hasQueuedStepEvent;
@@ -85,8 +104,11 @@ public class Simulator {
         this.backStepper = new BackStepper();
         this.systemIO = new SystemIO();
         this.runSpeed = UNLIMITED_SPEED;
-        this.externalInterruptDevice = null;
-        this.queuedStateChanges = new ArrayList<>();
+        this.externalInterruptDevice = new AtomicReference<>();
+        this.queuedStateChanges = new ConcurrentLinkedQueue<>();
+        this.hasPendingWork = false;
+        this.executionListeners = new ExecutionListener[0];
+        this.performanceCounters = null;
         this.thread = null;
         this.hasQueuedStepEvent = false;
     }
@@ -114,7 +136,72 @@ public class Simulator {
         Coprocessor0.reset();
         this.backStepper.reset();
         this.systemIO.resetFiles();
-        this.externalInterruptDevice = null;
+        this.externalInterruptDevice.set(null);
+        for (ExecutionListener listener : this.executionListeners) {
+            listener.simulatorReset();
+        }
+    }
+
+    /**
+     * Get the performance counters currently being maintained by the simulator, if any.
+     *
+     * @return The attached performance counters, or <code>null</code> if counting is disabled.
+     */
+    public PerformanceCounters getPerformanceCounters() {
+        return this.performanceCounters;
+    }
+
+    /**
+     * Attach performance counters to be maintained by the simulator as it executes instructions,
+     * replacing any which were previously attached. The counters are attached as an {@link ExecutionListener},
+     * so this should be called while the simulator is not running.
+     *
+     * @param performanceCounters The counters to maintain, or <code>null</code> to disable counting.
+     */
+    public void setPerformanceCounters(PerformanceCounters performanceCounters) {
+        if (this.performanceCounters != null) {
+            this.removeExecutionListener(this.performanceCounters);
+        }
+        this.performanceCounters = performanceCounters;
+        if (performanceCounters != null) {
+            this.addExecutionListener(performanceCounters);
+        }
+    }
+
+    /**
+     * Add an {@link ExecutionListener} whose callbacks will be executed on the simulator thread for every
+     * instruction executed. Listeners are picked up when the simulator starts running, so a listener added
+     * while the simulator is running will not be notified until the next time it starts.
+     *
+     * @param listener The listener to add.
+     * @see #removeExecutionListener(ExecutionListener)
+     */
+    public synchronized void addExecutionListener(ExecutionListener listener) {
+        if (!List.of(this.executionListeners).contains(listener)) {
+            ExecutionListener[] listeners = Arrays.copyOf(this.executionListeners, this.executionListeners.length + 1);
+            listeners[listeners.length - 1] = listener;
+            this.executionListeners = listeners;
+        }
+    }
+
+    /**
+     * Remove an {@link ExecutionListener} which was added via {@link #addExecutionListener(ExecutionListener)}.
+     *
+     * @param listener The listener to remove.
+     */
+    public synchronized void removeExecutionListener(ExecutionListener listener) {
+        this.executionListeners = Arrays.stream(this.executionListeners)
+            .filter(existing -> existing != listener)
+            .toArray(ExecutionListener[]::new);
+    }
+
+    /**
+     * Get a snapshot of the execution listeners currently attached to the simulator.
+     *
+     * @return The array of execution listeners, which should not be modified.
+     */
+    public ExecutionListener[] getExecutionListeners() {
+        return this.executionListeners;
     }
 
     /**
@@ -176,9 +263,7 @@ public class Simulator {
      *         or null if no interrupt was flagged.
      */
     public Integer checkExternalInterruptDevice() {
-        Integer device = this.externalInterruptDevice;
-        this.externalInterruptDevice = null;
-        return device;
+        return this.externalInterruptDevice.getAndSet(null);
     }
 
     /**
@@ -189,7 +274,38 @@ public class Simulator {
      * @param device The device identifier, typically the address of the control register.
      */
     public void raiseExternalInterrupt(int device) {
-        this.externalInterruptDevice = device;
+        this.externalInterruptDevice.set(device);
+        this.hasPendingWork = true;
+    }
+
+    /**
+     * Determine whether another thread has requested work from the simulator thread since the last call to
+     * {@link #clearPendingWork()}, i.e. a queued state change, an external interrupt, or a request to stop.
+     * This is polled by the simulator thread after every instruction, and is cheap to call.
+     *
+     * @return <code>true</code> if there may be pending work to perform, or <code>false</code> otherwise.
+     */
+    public boolean hasPendingWork() {
+        return this.hasPendingWork;
+    }
+
+    /**
+     * Flag that there is work for the simulator thread to perform between instructions.
+     * <p>
+     * This method may be called from any thread.
+     */
+    public void signalPendingWork() {
+        this.hasPendingWork = true;
+    }
+
+    /**
+     * Reset the pending work flag. This must be done <i>before</i> the pending work is actually performed, so that
+     * any requests made while it is being performed will set the flag again rather than being missed.
+     * <p>
+     * <b>Note: This method must be called from the simulator thread.</b>
+     */
+    public void clearPendingWork() {
+        this.hasPendingWork = false;
     }
 
     /**
@@ -205,9 +321,8 @@ public class Simulator {
     public void changeState(Runnable stateChanger) {
         if (this.isRunning()) {
             // This change will be performed asynchronously
-            synchronized (this.queuedStateChanges) {
-                this.queuedStateChanges.add(stateChanger);
-            }
+            this.queuedStateChanges.add(stateChanger);
+            this.hasPendingWork = true;
         }
         else {
             // Perform this change synchronously, as well as any others that haven't occurred yet
@@ -222,11 +337,9 @@ public class Simulator {
      * <b>Note: This method must be called from the simulator thread.</b>
      */
     public void flushStateChanges() {
-        synchronized (this.queuedStateChanges) {
-            for (Runnable stateChanger : this.queuedStateChanges) {
-                stateChanger.run();
-            }
-            this.queuedStateChanges.clear();
+        Runnable stateChanger;
+        while ((stateChanger = this.queuedStateChanges.poll()) != null) {
+            stateChanger.run();
         }
     }
 
@@ -314,19 +427,28 @@ public class Simulator {
         try {
             // The first step is to store all of the argument strings underneath the stack
             // Start at highest dynamic data address, sits "under" stack
-            int address = Memory.alignToPrevious(Memory.getInstance().getLayout().dynamicRange.maxAddress(), Memory.BYTES_PER_WORD);
+            int topAddress = Memory.alignToPrevious(Memory.getInstance().getLayout().dynamicRange.maxAddress(), Memory.BYTES_PER_WORD);
+            int totalLength = 0;
+            for (String argument : arguments) {
+                totalLength += argument.length() + 1;
+            }
+            // Build all of the strings in a single block so they can be stored in one transfer
+            byte[] block = new byte[totalLength];
+            int blockIndex = totalLength - 1;
+            int address = topAddress;
             List<Integer> argumentAddresses = new ArrayList<>(arguments.size());
             for (String argument : arguments) {
                 // Store a null terminator byte
-                Memory.getInstance().storeByte(address, 0, true);
+                block[blockIndex--] = 0;
                 address--;
                 // Store the string from end to start since stack grows downward
                 for (int index = argument.length() - 1; index >= 0; index--) {
-                    Memory.getInstance().storeByte(address, argument.charAt(index), true);
+                    block[blockIndex--] = (byte) argument.charAt(index);
                     address--;
                 }
                 argumentAddresses.add(address + 1);
             }
+            Memory.getInstance().storeBytes(address + 1, block, 0, totalLength, true);
 
             // Determine where the bottom of the runtime stack is
             int stackAddress = Memory.getInstance().getLayout().initialStackPointer;
@@ -381,7 +503,10 @@ public class Simulator {
             SimulatorListener exceptionListener = new SimulatorListener() {
                 @Override
                 public void simulatorFinished(SimulatorFinishEvent event) {
-                    exception[0] = event.getException();
+                    // Exit syscalls also carry an exception (with an exit code), but are not errors
+                    if (event.getReason() == SimulatorFinishEvent.Reason.EXCEPTION) {
+                        exception[0] = event.getException();
+                    }
                 }
             };
             this.addThreadListener(exceptionListener);
@@ -453,6 +578,8 @@ public class Simulator {
      * Invokes {@link SimulatorListener#simulatorPaused(SimulatorPauseEvent)} for all listeners.
      */
     public void dispatchPauseEvent(int stepCount, SimulatorPauseEvent.Reason reason) {
+        // Output must be visible by the time listeners find out the program has stopped
+        this.systemIO.flushOutput();
         final SimulatorPauseEvent event = new SimulatorPauseEvent(this, stepCount, reason);
         for (SimulatorListener listener : this.threadListeners) {
             listener.simulatorPaused(event);
@@ -471,6 +598,8 @@ public class Simulator {
      * Invokes {@link SimulatorListener#simulatorFinished(SimulatorFinishEvent)} for all listeners.
      */
     public void dispatchFinishEvent(SimulatorFinishEvent.Reason reason, SimulatorException exception) {
+        // Output must be visible by the time listeners find out the program has stopped
+        this.systemIO.flushOutput();
         final SimulatorFinishEvent event = new SimulatorFinishEvent(this, reason, exception);
         for (SimulatorListener listener : this.threadListeners) {
             listener.simulatorFinished(event);
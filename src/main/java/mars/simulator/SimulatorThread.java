@@ -18,6 +18,7 @@ public class SimulatorThread extends Thread {
     private final int[] breakPoints;
     private volatile Runnable stopEventDispatcher;
     private volatile int nextFetchPC;
+    private boolean hasJumped;
 
     /**
      * Create a new <code>SimulatorThread</code> without starting it.
@@ -42,6 +43,7 @@ public class SimulatorThread extends Thread {
     public void stopForPause() {
         this.stopEventDispatcher = this::dispatchExternalPauseEvent;
         this.interrupt();
+        this.simulator.signalPendingWork();
     }
 
     /**
@@ -53,10 +55,12 @@ public class SimulatorThread extends Thread {
     public void stopForTermination() {
         this.stopEventDispatcher = this::dispatchExternalFinishEvent;
         this.interrupt();
+        this.simulator.signalPendingWork();
     }
 
     public void processJump(int nextFetchPC) {
         this.nextFetchPC = nextFetchPC;
+        this.hasJumped = true;
     }
 
     private void dispatchExternalPauseEvent() {
@@ -84,8 +88,13 @@ public class SimulatorThread extends Thread {
         // Let the main thread run a bit to finish updating the GUI
         Thread.yield();
 
+        // Listeners attached after this point will not be notified until the next run
+        ExecutionListener[] listeners = this.simulator.getExecutionListeners();
+        for (ExecutionListener listener : listeners) {
+            listener.executionStarted();
+        }
         try {
-            this.runSimulation();
+            this.runSimulation(listeners);
         }
         catch (SimulatorException exception) {
             // An unhandled exception occurred during simulation
@@ -101,12 +110,19 @@ public class SimulatorThread extends Thread {
             exception.printStackTrace(System.err);
             this.simulator.dispatchFinishEvent(SimulatorFinishEvent.Reason.INTERNAL_ERROR, null);
         }
+        finally {
+            for (ExecutionListener listener : listeners) {
+                listener.executionStopped();
+            }
+        }
     }
 
     /**
      * The main simulation logic. This is run on the simulator thread, and is always called from {@link #run()}.
+     *
+     * @param listeners The execution listeners to notify for each instruction, which may be empty.
      */
-    private void runSimulation() throws SimulatorException, InterruptedException {
+    private void runSimulation(ExecutionListener[] listeners) throws SimulatorException, InterruptedException {
         if (this.breakPoints != null) {
             // Must be pre-sorted for binary search
             Arrays.sort(this.breakPoints);
@@ -116,6 +132,9 @@ public class SimulatorThread extends Thread {
 
         // If there is a step limit, this is used to track the number of steps taken
         int stepCount = 0;
+        // Whether an external interrupt may have been raised, in which case it is taken before the next instruction.
+        // The device is left in the simulator until then, so an interrupt raised just before a pause is not lost.
+        boolean checkExternalInterrupt = true;
 
         // *******************  PS addition 26 July 2006  **********************
         // A couple statements below were added for the purpose of assuring that when
@@ -165,17 +184,37 @@ public class SimulatorThread extends Thread {
 
             try {
                 // Handle external interrupt if necessary
-                Integer externalInterruptDevice = this.simulator.checkExternalInterruptDevice();
-                if (externalInterruptDevice != null) {
-                    throw new SimulatorException(statement, "external interrupt", externalInterruptDevice);
+                if (checkExternalInterrupt) {
+                    checkExternalInterrupt = false;
+                    Integer device = this.simulator.checkExternalInterruptDevice();
+                    if (device != null) {
+                        throw new SimulatorException(statement, "external interrupt", device);
+                    }
                 }
 
                 // Simulate the statement execution
-                statement.simulate();
+                if (listeners.length == 0) {
+                    statement.simulate();
+                }
+                else {
+                    this.simulateObserved(statement, listeners);
+                }
             }
             catch (SimulatorException exception) {
+                if (listeners.length > 0 && exception.getExitCode() == null) {
+                    int address = Processor.getExecuteProgramCounter();
+                    for (ExecutionListener listener : listeners) {
+                        listener.exceptionRaised(exception, address);
+                    }
+                }
                 if (exception.getExitCode() != null) {
-                    // There are no errors attached, so this was caused by an exit syscall
+                    // There are no errors attached, so this was caused by an exit syscall, which still completed
+                    if (listeners.length > 0) {
+                        int address = Processor.getExecuteProgramCounter();
+                        for (ExecutionListener listener : listeners) {
+                            listener.instructionRetired(statement, address, false, this.nextFetchPC);
+                        }
+                    }
                     this.simulator.dispatchFinishEvent(SimulatorFinishEvent.Reason.EXIT_SYSCALL, exception);
                     return;
                 }
@@ -207,8 +246,16 @@ public class SimulatorThread extends Thread {
             // Update both the fetch program counter and execute program counter to simulate a pipeline
             Processor.incrementProgramCounter(this.nextFetchPC);
 
-            // Carry out any state changes meant to happen between instructions
-            this.simulator.flushStateChanges();
+            // Requests from other threads are only serviced once flagged, so a step which has nothing to do
+            // between instructions does not have to touch any synchronized state
+            boolean hasPendingWork = this.simulator.hasPendingWork();
+            if (hasPendingWork) {
+                this.simulator.clearPendingWork();
+                // Carry out any state changes meant to happen between instructions
+                this.simulator.flushStateChanges();
+                // An external interrupt may have been raised, so check for one before the next instruction
+                checkExternalInterrupt = true;
+            }
 
             // Mark the end of a step in the backstepper so all actions from this iteration are considered one step
             this.simulator.getBackStepper().finishStep();
@@ -216,7 +263,7 @@ public class SimulatorThread extends Thread {
             // END OF SIMULATOR STEP
 
             // Check for a thread interrupt (either a pause or termination)
-            if (this.isInterrupted()) {
+            if (hasPendingWork && this.isInterrupted()) {
                 throw new InterruptedException();
             }
             // Check whether the step limit has been reached (if it is set)
@@ -244,6 +291,24 @@ public class SimulatorThread extends Thread {
         }
     }
 
+    /**
+     * Simulate a statement while notifying execution listeners before and after. This is kept separate from
+     * the main loop so the common case of having no listeners does not pay for any of it.
+     */
+    private void simulateObserved(BasicStatement statement, ExecutionListener[] listeners) throws SimulatorException, InterruptedException {
+        int address = Processor.getExecuteProgramCounter();
+        for (ExecutionListener listener : listeners) {
+            listener.instructionIssued(statement, address);
+        }
+        this.hasJumped = false;
+        statement.simulate();
+        boolean jumped = this.hasJumped;
+        int nextFetchPC = this.nextFetchPC;
+        for (ExecutionListener listener : listeners) {
+            listener.instructionRetired(statement, address, jumped, nextFetchPC);
+        }
+    }
+
     private BasicStatement fetchStatement() throws SimulatorException {
         try {
             return Memory.getInstance().fetchStatement(Processor.getExecuteProgramCounter(), true);
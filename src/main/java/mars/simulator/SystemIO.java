@@ -1,6 +1,9 @@
 package mars.simulator;
 
 import mars.Application;
+import mars.mips.hardware.Memory;
+import mars.simulator.fs.HostFileSystem;
+import mars.simulator.fs.SimulatedFileSystem;
 import mars.util.Binary;
 
 import java.io.*;
@@ -151,6 +154,9 @@ public class SystemIO {
     private static BufferedReader inputReader = null;
 
     private Path workingDirectory = null;
+    private SimulatedFileSystem fileSystem = new HostFileSystem();
+    private ConsoleOutputChannel standardOutput = null;
+    private ConsoleOutputChannel standardError = null;
     private List<FileHandle> handles;
     private int nextDescriptor;
     private String fileOperationMessage = null;
@@ -188,15 +194,54 @@ public class SystemIO {
     }
 
     private void initHandles() {
+        // Don't lose any output still buffered from a previous run
+        this.flushOutput();
+        this.standardOutput = new ConsoleOutputChannel(System.out);
+        this.standardError = new ConsoleOutputChannel(System.err);
+        ConsoleOutputChannel.pair(this.standardOutput, this.standardError);
         this.handles = new ArrayList<>(3);
         this.handles.add(new FileHandle("stdin", Channels.newChannel(System.in), READ_ONLY_FLAGS));
-        this.handles.add(new FileHandle("stdout", Channels.newChannel(System.out), WRITE_ONLY_FLAG));
-        this.handles.add(new FileHandle("stderr", Channels.newChannel(System.err), WRITE_ONLY_FLAG));
+        this.handles.add(new FileHandle("stdout", this.standardOutput, WRITE_ONLY_FLAG));
+        this.handles.add(new FileHandle("stderr", this.standardError, WRITE_ONLY_FLAG));
         System.out.flush();
         System.err.flush();
         this.nextDescriptor = this.handles.size();
     }
 
+    /**
+     * Pass any buffered standard output and standard error on to {@link System#out} and {@link System#err}.
+     * When running from the command line, output to these is buffered, and this is called whenever the program
+     * stops or reads from standard input.
+     */
+    public void flushOutput() {
+        if (this.standardOutput != null) {
+            this.standardOutput.flush();
+        }
+        if (this.standardError != null) {
+            this.standardError.flush();
+        }
+    }
+
+    /**
+     * Flush any output buffered for a file descriptor. Only standard output and standard error are buffered by
+     * this class, so this has no effect on other files.
+     *
+     * @param descriptor Target file descriptor.
+     * @return 0 on success, or -1 on error.
+     */
+    public int flushFile(int descriptor) {
+        Channel channel = this.getChannel(descriptor);
+        if (!(channel instanceof WritableByteChannel)) {
+            this.fileOperationMessage = "File with descriptor " + descriptor + " is not open for writing";
+            return -1;
+        }
+        if (channel instanceof ConsoleOutputChannel consoleChannel) {
+            consoleChannel.flush();
+        }
+        this.fileOperationMessage = "Successfully flushed file with descriptor " + descriptor;
+        return 0;
+    }
+
     /**
      * Get the working directory which is used to calculate relative paths when using {@link #openFile(Path, int)}.
      *
@@ -217,6 +262,25 @@ public class SystemIO {
         this.workingDirectory = workingDirectory;
     }
 
+    /**
+     * Get the file system which files are opened from when using {@link #openFile(Path, int)}.
+     *
+     * @return The file system in use, which is the host file system by default.
+     */
+    public SimulatedFileSystem getFileSystem() {
+        return this.fileSystem;
+    }
+
+    /**
+     * Set the file system which files are opened from when using {@link #openFile(Path, int)}.
+     * Files which are already open are unaffected.
+     *
+     * @param fileSystem The file system to use, such as an {@link mars.simulator.fs.InMemoryFileSystem}.
+     */
+    public void setFileSystem(SimulatedFileSystem fileSystem) {
+        this.fileSystem = Objects.requireNonNull(fileSystem);
+    }
+
     /**
      * Get the string message indicating the result of the previous file operation.
      *
@@ -289,14 +353,10 @@ public class SystemIO {
      * @author Ken Vollmar
      */
     public int openFile(Path filename, int flags) {
-        FileChannel channel;
+        SeekableByteChannel channel;
         Set<OpenOption> options = new HashSet<>();
         String mode;
 
-        if (this.workingDirectory != null) {
-            filename = this.workingDirectory.resolve(filename);
-        }
-
         boolean readOnly = (flags == READ_ONLY_FLAGS);
         boolean writeOnly = ((flags & WRITE_ONLY_FLAG) != 0);
         boolean readWrite = ((flags & READ_WRITE_FLAG) != 0);
@@ -340,7 +400,7 @@ public class SystemIO {
         }
 
         try {
-            channel = FileChannel.open(filename, options);
+            channel = this.fileSystem.open(this.workingDirectory, filename, options);
         }
         catch (IOException exception) {
             this.fileOperationMessage = "File \"" + filename + "\" unable to open for " + mode;
@@ -474,6 +534,11 @@ public class SystemIO {
         }
         // When running in command mode, code below works for either regular file or STDIN.
 
+        if (descriptor == STDIN_DESCRIPTOR) {
+            // Make sure any prompt has been shown before waiting for input
+            this.flushOutput();
+        }
+
         // Retrieve the readable channel corresponding to the descriptor
         ReadableByteChannel channel = this.getReadableChannel(descriptor);
         // Ensure the file descriptor has been opened for reading
@@ -546,6 +611,48 @@ public class SystemIO {
         }
     }
 
+    /**
+     * Map part of a file into a new block of heap memory using {@link Memory#mapFile(FileChannel, long, int, boolean)}.
+     * Only files on the host file system can be mapped.
+     *
+     * @param descriptor Target file descriptor.
+     * @param offset     Position within the file of the first byte to map.
+     * @param length     Number of bytes to map.
+     * @param shared     Whether writes to the block should be written back to the file, which requires the file
+     *                   to be open for both reading and writing.
+     * @return Address of the mapped block, or -1 if an error occurred.
+     * @throws IllegalArgumentException Thrown if the length is invalid or the block exceeds available heap storage.
+     */
+    public int mapFile(int descriptor, long offset, int length, boolean shared) {
+        FileHandle handle = this.getOpenHandle(descriptor);
+        if (handle == null) {
+            this.fileOperationMessage = "File descriptor " + descriptor + " is not open and cannot be mapped";
+            return -1;
+        }
+        if (!(handle.getChannel() instanceof FileChannel fileChannel)) {
+            this.fileOperationMessage = "File with descriptor " + descriptor + " does not support mapping";
+            return -1;
+        }
+        if (offset < 0) {
+            this.fileOperationMessage = "Cannot map file with descriptor " + descriptor + " from negative position " + offset;
+            return -1;
+        }
+        if (shared && (handle.getFlags() & READ_WRITE_FLAG) == 0) {
+            this.fileOperationMessage = "File with descriptor " + descriptor + " must be open for reading and writing to map it shared";
+            return -1;
+        }
+
+        try {
+            int address = Memory.getInstance().mapFile(fileChannel, offset, length, shared);
+            this.fileOperationMessage = "Successfully mapped " + length + " bytes of file with descriptor " + descriptor + " to address " + Binary.intToHexString(address);
+            return address;
+        }
+        catch (IOException | NonReadableChannelException exception) {
+            this.fileOperationMessage = "Failed to map file with descriptor " + descriptor;
+            return -1;
+        }
+    }
+
     /**
      * Virtual representation of a file for the file-related syscalls to use.
      * An instance of this class can be in one of two states: <b>open</b> or <b>closed</b>.
@@ -681,7 +788,7 @@ public class SystemIO {
      */
     public void printString(String string) {
         if (Application.getGUI() == null) {
-            System.out.print(string);
+            this.standardOutput.print(string);
         }
         else {
             Application.getGUI().getMessagesPane().getConsole().writeOutput(string);
@@ -697,6 +804,8 @@ public class SystemIO {
     public int readInteger() throws NumberFormatException, InterruptedException {
         String input = "";
         if (Application.getGUI() == null) {
+            // Make sure any prompt has been shown before waiting for input
+            this.flushOutput();
             try {
                 input = getInputReader().readLine();
             }
@@ -727,6 +836,8 @@ public class SystemIO {
     public float readFloat() throws NumberFormatException, InterruptedException {
         String input = "";
         if (Application.getGUI() == null) {
+            // Make sure any prompt has been shown before waiting for input
+            this.flushOutput();
             try {
                 input = getInputReader().readLine();
             }
@@ -755,6 +866,8 @@ public class SystemIO {
     public double readDouble() throws NumberFormatException, InterruptedException {
         String input = "";
         if (Application.getGUI() == null) {
+            // Make sure any prompt has been shown before waiting for input
+            this.flushOutput();
             try {
                 input = getInputReader().readLine();
             }
@@ -782,6 +895,8 @@ public class SystemIO {
     public String readString(int maxLength) throws InterruptedException {
         String input = "";
         if (Application.getGUI() == null) {
+            // Make sure any prompt has been shown before waiting for input
+            this.flushOutput();
             try {
                 input = getInputReader().readLine();
             }
@@ -819,6 +934,8 @@ public class SystemIO {
     public int readChar() throws IndexOutOfBoundsException, InterruptedException {
         String input = "";
         if (Application.getGUI() == null) {
+            // Make sure any prompt has been shown before waiting for input
+            this.flushOutput();
             try {
                 input = getInputReader().readLine();
             }
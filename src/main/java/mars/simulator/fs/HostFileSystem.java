@@ -0,0 +1,22 @@
+package mars.simulator.fs;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * The file system of the host machine, accessed through {@link FileChannel}. This is the default file system
+ * used by the file-related syscalls.
+ */
+public class HostFileSystem implements SimulatedFileSystem {
+    @Override
+    public SeekableByteChannel open(Path workingDirectory, Path path, Set<? extends OpenOption> options) throws IOException {
+        if (workingDirectory != null) {
+            path = workingDirectory.resolve(path);
+        }
+        return FileChannel.open(path, options);
+    }
+}
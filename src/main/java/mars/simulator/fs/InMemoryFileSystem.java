@@ -0,0 +1,343 @@
+package mars.simulator.fs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonReadableChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * A file system held entirely in memory, so the file-related syscalls never touch the disk. Files can be loaded
+ * ahead of time with {@link #addFile(String, byte[])} or {@link #addHostFiles(Path)}, and files written by the
+ * program can be retrieved afterward with {@link #getFileContents(String)}.
+ * <p>
+ * A file system can be layered on top of a <i>base</i> file system, which is never modified by the layer. Reads fall
+ * through to the base when a file does not exist in the layer, and a file from the base is copied into the layer the
+ * first time it is opened for writing. This allows a set of input fixtures to be loaded once and shared read-only
+ * by any number of runs, each of which uses its own layer to capture the files it writes.
+ * <p>
+ * Paths are normalized, but otherwise used as-is; in particular, relative and absolute paths are distinct,
+ * and there are no directories.
+ */
+public class InMemoryFileSystem implements SimulatedFileSystem {
+    private final InMemoryFileSystem base;
+    private final Map<String, InMemoryFile> files;
+
+    /**
+     * Create a new, empty file system.
+     */
+    public InMemoryFileSystem() {
+        this(null);
+    }
+
+    /**
+     * Create a new, empty layer on top of a base file system.
+     *
+     * @param base The file system to read files from if they do not exist in this one, or null for none.
+     *             It will never be modified through this file system.
+     */
+    public InMemoryFileSystem(InMemoryFileSystem base) {
+        this.base = base;
+        this.files = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Get the file system this one is layered on top of.
+     *
+     * @return The base file system, or null if there is none.
+     */
+    public InMemoryFileSystem getBase() {
+        return this.base;
+    }
+
+    /**
+     * Add a file to this file system, replacing any existing file with the same path.
+     *
+     * @param path     The path of the file.
+     * @param contents The contents of the file, which are copied.
+     */
+    public void addFile(String path, byte[] contents) {
+        this.files.put(normalize(path), new InMemoryFile(contents.clone(), contents.length));
+    }
+
+    /**
+     * Load a file or directory from the host file system into this file system. A file is added using its
+     * file name, and the files in a directory (including subdirectories) are added using their paths relative
+     * to the directory.
+     *
+     * @param hostPath The file or directory to load.
+     * @return The number of files loaded.
+     * @throws IOException Thrown if a file could not be read.
+     */
+    public int addHostFiles(Path hostPath) throws IOException {
+        if (!Files.isDirectory(hostPath)) {
+            this.addFile(hostPath.getFileName().toString(), Files.readAllBytes(hostPath));
+            return 1;
+        }
+        List<Path> hostFiles;
+        try (Stream<Path> stream = Files.walk(hostPath)) {
+            hostFiles = stream.filter(Files::isRegularFile).toList();
+        }
+        for (Path hostFile : hostFiles) {
+            this.addFile(hostPath.relativize(hostFile).toString(), Files.readAllBytes(hostFile));
+        }
+        return hostFiles.size();
+    }
+
+    /**
+     * Determine whether a file exists in this file system or its base.
+     *
+     * @param path The path of the file.
+     * @return <code>true</code> if the file exists, or <code>false</code> otherwise.
+     */
+    public boolean exists(String path) {
+        return this.findFile(normalize(path)) != null;
+    }
+
+    /**
+     * Get a copy of the current contents of a file in this file system or its base.
+     *
+     * @param path The path of the file.
+     * @return The contents of the file, or null if it does not exist.
+     */
+    public byte[] getFileContents(String path) {
+        InMemoryFile file = this.findFile(normalize(path));
+        return (file == null) ? null : file.getContents();
+    }
+
+    /**
+     * Get the paths of all files in this layer, not including those only present in the base file system.
+     * For a layer on top of a set of fixtures, these are the files written by the program.
+     *
+     * @return The sorted paths of the files.
+     */
+    public SortedSet<String> getFileNames() {
+        return new TreeSet<>(this.files.keySet());
+    }
+
+    /**
+     * Remove all files from this layer. The base file system is unaffected.
+     */
+    public void clear() {
+        this.files.clear();
+    }
+
+    @Override
+    public SeekableByteChannel open(Path workingDirectory, Path path, Set<? extends OpenOption> options) throws IOException {
+        String key = normalize(path.toString());
+        boolean read = options.contains(StandardOpenOption.READ);
+        boolean append = options.contains(StandardOpenOption.APPEND);
+        boolean write = append || options.contains(StandardOpenOption.WRITE);
+        if (!read && !write) {
+            read = true;
+        }
+
+        InMemoryFile file;
+        if (!write) {
+            // Reading only, so the file can be shared with the base file system
+            file = this.findFile(key);
+            if (file == null) {
+                throw new NoSuchFileException(key);
+            }
+        }
+        else {
+            file = this.files.get(key);
+            if (file != null && options.contains(StandardOpenOption.CREATE_NEW)) {
+                throw new FileAlreadyExistsException(key);
+            }
+            if (file == null) {
+                InMemoryFile baseFile = (this.base == null) ? null : this.base.findFile(key);
+                if (baseFile != null) {
+                    if (options.contains(StandardOpenOption.CREATE_NEW)) {
+                        throw new FileAlreadyExistsException(key);
+                    }
+                    // Copy on write so the base file system is never modified
+                    byte[] contents = baseFile.getContents();
+                    file = new InMemoryFile(contents, contents.length);
+                }
+                else if (options.contains(StandardOpenOption.CREATE) || options.contains(StandardOpenOption.CREATE_NEW)) {
+                    file = new InMemoryFile(new byte[0], 0);
+                }
+                else {
+                    throw new NoSuchFileException(key);
+                }
+                InMemoryFile existing = this.files.putIfAbsent(key, file);
+                if (existing != null) {
+                    file = existing;
+                }
+            }
+            if (options.contains(StandardOpenOption.TRUNCATE_EXISTING)) {
+                file.truncate(0);
+            }
+        }
+        return new InMemoryChannel(file, read, write, append);
+    }
+
+    private InMemoryFile findFile(String key) {
+        InMemoryFile file = this.files.get(key);
+        if (file == null && this.base != null) {
+            file = this.base.findFile(key);
+        }
+        return file;
+    }
+
+    private static String normalize(String path) {
+        return Path.of(path).normalize().toString();
+    }
+
+    /**
+     * The contents of a single file, which grow as needed.
+     */
+    private static class InMemoryFile {
+        private byte[] data;
+        private int size;
+
+        public InMemoryFile(byte[] data, int size) {
+            this.data = data;
+            this.size = size;
+        }
+
+        public synchronized byte[] getContents() {
+            return Arrays.copyOf(this.data, this.size);
+        }
+
+        public synchronized int size() {
+            return this.size;
+        }
+
+        public synchronized int read(long position, ByteBuffer destination) {
+            if (position >= this.size) {
+                return -1;
+            }
+            int length = (int) Math.min(destination.remaining(), this.size - position);
+            destination.put(this.data, (int) position, length);
+            return length;
+        }
+
+        public synchronized int write(long position, ByteBuffer source) throws IOException {
+            int length = source.remaining();
+            long end = position + length;
+            if (end > Integer.MAX_VALUE - 8) {
+                throw new IOException("file too large");
+            }
+            if (end > this.data.length) {
+                this.data = Arrays.copyOf(this.data, (int) Math.min(Math.max(end, 2L * this.data.length), Integer.MAX_VALUE - 8));
+            }
+            if (position > this.size) {
+                // Writing past the end leaves a gap of zeros, which may contain old data from a truncation
+                Arrays.fill(this.data, this.size, (int) position, (byte) 0);
+            }
+            source.get(this.data, (int) position, length);
+            this.size = Math.max(this.size, (int) end);
+            return length;
+        }
+
+        public synchronized void truncate(long size) {
+            if (size < this.size) {
+                this.size = (int) size;
+            }
+        }
+    }
+
+    /**
+     * A channel for reading and/or writing an {@link InMemoryFile}, with its own position.
+     */
+    private static class InMemoryChannel implements SeekableByteChannel {
+        private final InMemoryFile file;
+        private final boolean readable;
+        private final boolean writable;
+        private final boolean append;
+        private long position;
+        private boolean open;
+
+        public InMemoryChannel(InMemoryFile file, boolean readable, boolean writable, boolean append) {
+            this.file = file;
+            this.readable = readable;
+            this.writable = writable;
+            this.append = append;
+            this.position = 0;
+            this.open = true;
+        }
+
+        @Override
+        public int read(ByteBuffer destination) throws IOException {
+            this.ensureOpen();
+            if (!this.readable) {
+                throw new NonReadableChannelException();
+            }
+            int length = this.file.read(this.position, destination);
+            if (length > 0) {
+                this.position += length;
+            }
+            return length;
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            this.ensureOpen();
+            if (!this.writable) {
+                throw new NonWritableChannelException();
+            }
+            if (this.append) {
+                this.position = this.file.size();
+            }
+            int length = this.file.write(this.position, source);
+            this.position += length;
+            return length;
+        }
+
+        @Override
+        public long position() throws IOException {
+            this.ensureOpen();
+            return this.position;
+        }
+
+        @Override
+        public SeekableByteChannel position(long newPosition) throws IOException {
+            this.ensureOpen();
+            if (newPosition < 0) {
+                throw new IllegalArgumentException("negative position");
+            }
+            this.position = newPosition;
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            this.ensureOpen();
+            return this.file.size();
+        }
+
+        @Override
+        public SeekableByteChannel truncate(long size) throws IOException {
+            this.ensureOpen();
+            if (!this.writable) {
+                throw new NonWritableChannelException();
+            }
+            this.file.truncate(size);
+            this.position = Math.min(this.position, size);
+            return this;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return this.open;
+        }
+
+        @Override
+        public void close() {
+            this.open = false;
+        }
+
+        private void ensureOpen() throws ClosedChannelException {
+            if (!this.open) {
+                throw new ClosedChannelException();
+            }
+        }
+    }
+}
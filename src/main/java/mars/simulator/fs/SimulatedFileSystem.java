@@ -0,0 +1,32 @@
+package mars.simulator.fs;
+
+import java.io.IOException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * A file system which the file-related syscalls operate on, as set by
+ * {@link mars.simulator.SystemIO#setFileSystem(SimulatedFileSystem)}. By default this is the
+ * {@link HostFileSystem host file system}, but an {@link InMemoryFileSystem} can be used instead to avoid
+ * disk I/O entirely.
+ */
+public interface SimulatedFileSystem {
+    /**
+     * Open a file for reading and/or writing.
+     *
+     * @param workingDirectory The directory relative paths should be resolved against, or null to use the default.
+     *                         File systems which do not correspond to the host file system may ignore this.
+     * @param path             The path of the file to open.
+     * @param options          The options to open the file with. Only {@link java.nio.file.StandardOpenOption#READ},
+     *                         {@link java.nio.file.StandardOpenOption#WRITE},
+     *                         {@link java.nio.file.StandardOpenOption#APPEND},
+     *                         {@link java.nio.file.StandardOpenOption#CREATE},
+     *                         {@link java.nio.file.StandardOpenOption#CREATE_NEW} and
+     *                         {@link java.nio.file.StandardOpenOption#TRUNCATE_EXISTING} are required to be supported.
+     * @return A channel for accessing the file.
+     * @throws IOException Thrown if the file could not be opened with the given options.
+     */
+    SeekableByteChannel open(Path workingDirectory, Path path, Set<? extends OpenOption> options) throws IOException;
+}
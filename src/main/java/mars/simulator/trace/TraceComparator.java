@@ -0,0 +1,314 @@
+package mars.simulator.trace;
+
+import mars.Application;
+import mars.util.Binary;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the first step at which two execution traces recorded by {@link TraceRecorder} diverge, such as a student's
+ * program and a reference solution, or the same program before and after a change. Both traces are streamed
+ * side by side, so memory use depends only on the size of the context window, not the length of the traces.
+ * <p>
+ * Two steps are considered equivalent if they have the same address and encoding, leave every register they write
+ * with the same value, perform the same memory writes, and raise the same exception (if any). Register state is
+ * reconstructed from the initial register values and register writes in each trace, so redundant writes
+ * (which leave a register unchanged) do not count as a divergence.
+ * <p>
+ * Usage: <code>java -cp mars.jar mars.simulator.trace.TraceComparator &lt;trace&gt; &lt;trace&gt; [context steps]</code>
+ */
+public class TraceComparator {
+    /**
+     * The default number of steps preceding the divergence to keep for context.
+     */
+    public static final int DEFAULT_CONTEXT_SIZE = 8;
+
+    private static final int REGISTER_COUNT = 256;
+
+    /**
+     * The way in which two traces first differ.
+     */
+    public enum DivergenceKind {
+        /**
+         * The steps executed instructions at different addresses (i.e. control flow differs).
+         */
+        ADDRESS,
+        /**
+         * The steps executed different instructions at the same address.
+         */
+        ENCODING,
+        /**
+         * The steps left a register with different values.
+         */
+        REGISTER,
+        /**
+         * The steps wrote to memory differently.
+         */
+        MEMORY,
+        /**
+         * One step raised an exception and the other did not, or the causes differ.
+         */
+        EXCEPTION,
+        /**
+         * One trace ended before the other.
+         */
+        LENGTH,
+        /**
+         * Steps were dropped from one of the traces, so the traces cannot be compared past this point.
+         */
+        GAP,
+    }
+
+    /**
+     * Description of the first point at which two traces diverge.
+     *
+     * @param index               The index of the first divergent step.
+     * @param kind                The way in which the steps differ.
+     * @param description         A short human-readable description of the difference.
+     * @param context             The steps preceding the divergence (identical in both traces), oldest first.
+     * @param first               The divergent step in the first trace, or null if the first trace ended
+     *                            or the initial register states differ.
+     * @param second              The divergent step in the second trace, or null if the second trace ended
+     *                            or the initial register states differ.
+     * @param registerDifferences Descriptions of every register whose value differs between the traces
+     *                            after the divergent step.
+     */
+    public record Divergence(
+        long index,
+        DivergenceKind kind,
+        String description,
+        List<TraceStep> context,
+        TraceStep first,
+        TraceStep second,
+        List<String> registerDifferences
+    ) {}
+
+    private final int contextSize;
+    private long comparedCount;
+
+    /**
+     * Create a new comparator.
+     *
+     * @param contextSize The number of steps preceding the divergence to keep for context.
+     */
+    public TraceComparator(int contextSize) {
+        this.contextSize = Math.max(contextSize, 0);
+    }
+
+    /**
+     * Get the number of equivalent steps found by the last call to {@link #compare(TraceReader, TraceReader)}.
+     *
+     * @return The number of steps compared before the traces diverged or ended.
+     */
+    public long getComparedCount() {
+        return this.comparedCount;
+    }
+
+    /**
+     * Compare two traces from the current position of each reader until they diverge or both end.
+     *
+     * @param firstReader  The first trace.
+     * @param secondReader The second trace.
+     * @return The point of divergence, or null if the traces are equivalent.
+     * @throws IOException Thrown if either trace could not be read.
+     */
+    public Divergence compare(TraceReader firstReader, TraceReader secondReader) throws IOException {
+        this.comparedCount = 0;
+        int[] firstRegisters = initialRegisterState(firstReader);
+        int[] secondRegisters = initialRegisterState(secondReader);
+        List<String> initialDifferences = describeRegisterDifferences(firstRegisters, secondRegisters);
+        if (!initialDifferences.isEmpty()) {
+            // The traces were started from different states, so every later step is suspect
+            return new Divergence(0, DivergenceKind.REGISTER, "initial " + initialDifferences.get(0), List.of(),
+                null, null, initialDifferences);
+        }
+        ArrayDeque<TraceStep> context = new ArrayDeque<>(this.contextSize + 1);
+
+        while (true) {
+            TraceStep first = firstReader.next();
+            TraceStep second = secondReader.next();
+            if (first == null && second == null) {
+                return null;
+            }
+
+            DivergenceKind kind = null;
+            String description = null;
+            if (first == null || second == null) {
+                kind = DivergenceKind.LENGTH;
+                description = ((first == null) ? "first" : "second") + " trace ended after " + this.comparedCount + " steps";
+            }
+            else if (first.droppedBefore() > 0 || second.droppedBefore() > 0) {
+                kind = DivergenceKind.GAP;
+                description = "steps were dropped from the " + ((first.droppedBefore() > 0) ? "first" : "second") + " trace";
+            }
+            else if (first.address() != second.address()) {
+                kind = DivergenceKind.ADDRESS;
+                description = "executed " + Binary.intToHexString(first.address()) + " vs " + Binary.intToHexString(second.address());
+            }
+            else if (first.encoding() != second.encoding()) {
+                kind = DivergenceKind.ENCODING;
+                description = "instruction " + Binary.intToHexString(first.encoding()) + " vs " + Binary.intToHexString(second.encoding());
+            }
+            else if (first.exceptionCause() != second.exceptionCause()) {
+                kind = DivergenceKind.EXCEPTION;
+                description = "exception cause " + first.exceptionCause() + " vs " + second.exceptionCause();
+            }
+
+            if (first != null) {
+                applyRegisterWrites(firstRegisters, first);
+            }
+            if (second != null) {
+                applyRegisterWrites(secondRegisters, second);
+            }
+
+            if (kind == null) {
+                String register = findRegisterDifference(first, second, firstRegisters, secondRegisters);
+                if (register != null) {
+                    kind = DivergenceKind.REGISTER;
+                    description = register;
+                }
+                else if (!getMemoryWrites(first).equals(getMemoryWrites(second))) {
+                    kind = DivergenceKind.MEMORY;
+                    description = "memory writes differ";
+                }
+            }
+
+            if (kind != null) {
+                long index = (first != null) ? first.index() : second.index();
+                return new Divergence(index, kind, description, new ArrayList<>(context), first, second,
+                    describeRegisterDifferences(firstRegisters, secondRegisters));
+            }
+
+            this.comparedCount++;
+            if (this.contextSize > 0) {
+                if (context.size() == this.contextSize) {
+                    context.removeFirst();
+                }
+                context.addLast(first);
+            }
+        }
+    }
+
+    /**
+     * Print a report of a comparison.
+     *
+     * @param out        The stream to print to.
+     * @param divergence The result of {@link #compare(TraceReader, TraceReader)}.
+     */
+    public void printReport(PrintStream out, Divergence divergence) {
+        if (divergence == null) {
+            out.println("Traces are equivalent (" + this.comparedCount + " steps).");
+            return;
+        }
+        out.println("Traces diverge at step #" + divergence.index() + " (" + divergence.kind().name().toLowerCase()
+            + "): " + divergence.description());
+        if (!divergence.context().isEmpty()) {
+            out.println("Preceding steps:");
+            for (TraceStep step : divergence.context()) {
+                out.println("    " + TracePrinter.formatStep(step));
+            }
+        }
+        boolean initialState = divergence.first() == null && divergence.second() == null;
+        if (!initialState) {
+            out.println("First trace:");
+            out.println("  > " + ((divergence.first() == null) ? "(end of trace)" : TracePrinter.formatStep(divergence.first())));
+            out.println("Second trace:");
+            out.println("  > " + ((divergence.second() == null) ? "(end of trace)" : TracePrinter.formatStep(divergence.second())));
+        }
+        if (!divergence.registerDifferences().isEmpty()) {
+            out.println(initialState ? "Registers which differ initially:" : "Registers which differ after this step:");
+            for (String difference : divergence.registerDifferences()) {
+                out.println("    " + difference);
+            }
+        }
+    }
+
+    private static int[] initialRegisterState(TraceReader reader) {
+        int[] registers = new int[REGISTER_COUNT];
+        for (TraceStep.RegisterWrite write : reader.getInitialRegisters()) {
+            registers[write.register()] = write.value();
+        }
+        return registers;
+    }
+
+    private static void applyRegisterWrites(int[] registers, TraceStep step) {
+        for (TraceStep.RegisterWrite write : step.registerWrites()) {
+            registers[write.register()] = write.value();
+        }
+    }
+
+    private static String findRegisterDifference(TraceStep first, TraceStep second, int[] firstRegisters, int[] secondRegisters) {
+        // Only registers written by either step need to be checked, since all others were equal before the step
+        for (TraceStep step : List.of(first, second)) {
+            for (TraceStep.RegisterWrite write : step.registerWrites()) {
+                int number = write.register();
+                if (firstRegisters[number] != secondRegisters[number]) {
+                    return TraceFormat.getRegisterName(number) + " = " + Binary.intToHexString(firstRegisters[number])
+                        + " vs " + Binary.intToHexString(secondRegisters[number]);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static List<TraceStep.MemoryAccess> getMemoryWrites(TraceStep step) {
+        List<TraceStep.MemoryAccess> writes = new ArrayList<>(step.memoryAccesses().size());
+        for (TraceStep.MemoryAccess access : step.memoryAccesses()) {
+            if (access.isWrite()) {
+                writes.add(access);
+            }
+        }
+        return writes;
+    }
+
+    private static List<String> describeRegisterDifferences(int[] firstRegisters, int[] secondRegisters) {
+        List<String> differences = new ArrayList<>();
+        for (int number = 0; number < REGISTER_COUNT; number++) {
+            if (firstRegisters[number] != secondRegisters[number]) {
+                differences.add(TraceFormat.getRegisterName(number) + " = " + Binary.intToHexString(firstRegisters[number])
+                    + " vs " + Binary.intToHexString(secondRegisters[number]));
+            }
+        }
+        return differences;
+    }
+
+    /**
+     * Entry point for the command-line trace comparison tool.
+     *
+     * @param args The paths of the two trace files, optionally followed by the number of context steps to show.
+     */
+    public static void main(String[] args) {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: TraceComparator <trace> <trace> [context steps]");
+            System.exit(2);
+        }
+        Application.initialize();
+        int contextSize = DEFAULT_CONTEXT_SIZE;
+        if (args.length > 2) {
+            try {
+                contextSize = Integer.parseInt(args[2]);
+            }
+            catch (NumberFormatException exception) {
+                System.err.println("Invalid context size: " + args[2]);
+                System.exit(2);
+            }
+        }
+        TraceComparator comparator = new TraceComparator(contextSize);
+        Divergence divergence;
+        try (TraceReader first = new TraceReader(Path.of(args[0])); TraceReader second = new TraceReader(Path.of(args[1]))) {
+            divergence = comparator.compare(first, second);
+        }
+        catch (IOException exception) {
+            System.err.println("Error reading traces: " + exception.getMessage());
+            System.exit(2);
+            return;
+        }
+        comparator.printReport(System.out, divergence);
+        System.exit((divergence == null) ? 0 : 1);
+    }
+}
@@ -0,0 +1,112 @@
+package mars.simulator.trace;
+
+import mars.mips.hardware.Coprocessor0;
+import mars.mips.hardware.Processor;
+import mars.mips.hardware.Register;
+
+/**
+ * Constants describing the binary execution trace format shared by {@link TraceRecorder} and {@link TraceReader}.
+ * <p>
+ * A trace file is a GZIP stream beginning with the 4-byte magic number <code>MTRC</code> and a 1-byte version,
+ * followed by a sequence of records, each introduced by a 1-byte tag. All multibyte fields are big-endian.
+ * <ul>
+ * <li><code>STEP address:int encoding:int</code> -- Begins a new step, i.e. one instruction issued by the simulator.
+ *     All records up to the next <code>STEP</code> belong to this step.
+ * <li><code>REGISTER number:u8 value:int</code> -- A register changed value as a result of the step.
+ *     See {@link #getRegisterName(int)} for the register numbering.
+ * <li><code>READ length:u8 address:int value:int</code> -- A memory read performed by the step.
+ * <li><code>WRITE length:u8 address:int value:int</code> -- A memory write performed by the step.
+ * <li><code>EXCEPTION cause:int</code> -- The step raised an exception instead of completing.
+ * <li><code>GAP count:int</code> -- The given number of steps were dropped because the buffer was full.
+ * <li><code>END steps:long dropped:long</code> -- Marks the end of a complete trace.
+ * </ul>
+ */
+public final class TraceFormat {
+    static final int MAGIC = 0x4D545243; // "MTRC"
+    static final int VERSION = 1;
+
+    static final int TAG_STEP = 0x01;
+    static final int TAG_REGISTER = 0x02;
+    static final int TAG_READ = 0x03;
+    static final int TAG_WRITE = 0x04;
+    static final int TAG_EXCEPTION = 0x05;
+    static final int TAG_GAP = 0x06;
+    static final int TAG_END = 0x7F;
+
+    static final int STEP_SIZE = 9;
+    static final int REGISTER_SIZE = 6;
+    static final int ACCESS_SIZE = 10;
+    static final int EXCEPTION_SIZE = 5;
+    static final int GAP_SIZE = 5;
+    static final int END_SIZE = 17;
+
+    /**
+     * Trace register number of the first general-purpose register, <code>$zero</code>.
+     */
+    public static final int FIRST_GENERAL_REGISTER = 0;
+    /**
+     * Trace register number of the <code>hi</code> register.
+     */
+    public static final int HIGH_ORDER_REGISTER = Processor.HIGH_ORDER;
+    /**
+     * Trace register number of the <code>lo</code> register.
+     */
+    public static final int LOW_ORDER_REGISTER = Processor.LOW_ORDER;
+    /**
+     * Trace register number of the first floating-point register, <code>$f0</code>.
+     */
+    public static final int FIRST_FLOATING_POINT_REGISTER = 64;
+    /**
+     * Trace register number of the first Coprocessor 0 register. The Coprocessor 0 register number is added to this.
+     */
+    public static final int FIRST_COPROCESSOR_0_REGISTER = 128;
+
+    /**
+     * The Coprocessor 0 registers which are traced.
+     */
+    static final int[] COPROCESSOR_0_REGISTERS = {
+        Coprocessor0.BAD_V_ADDR,
+        Coprocessor0.STATUS,
+        Coprocessor0.CAUSE,
+        Coprocessor0.EPC,
+    };
+
+    private TraceFormat() {
+        // Not instantiable
+    }
+
+    /**
+     * Get a human-readable name for a register number used in a trace. Registers are numbered as follows:
+     * <ul>
+     * <li>0-31 -- General-purpose registers <code>$0</code> through <code>$31</code>.
+     * <li>32, 33 -- The <code>hi</code> and <code>lo</code> registers.
+     * <li>64-95 -- Floating-point registers <code>$f0</code> through <code>$f31</code>.
+     * <li>128-159 -- Coprocessor 0 registers <code>$0</code> through <code>$31</code>
+     *     (only BadVAddr, Status, Cause and EPC are traced).
+     * </ul>
+     *
+     * @param number The trace register number.
+     * @return The name of the register.
+     */
+    public static String getRegisterName(int number) {
+        if (number < HIGH_ORDER_REGISTER) {
+            return Processor.getRegisters()[number].getName();
+        }
+        else if (number == HIGH_ORDER_REGISTER) {
+            return "hi";
+        }
+        else if (number == LOW_ORDER_REGISTER) {
+            return "lo";
+        }
+        else if (number >= FIRST_FLOATING_POINT_REGISTER && number < FIRST_FLOATING_POINT_REGISTER + 32) {
+            return "$f" + (number - FIRST_FLOATING_POINT_REGISTER);
+        }
+        else if (number >= FIRST_COPROCESSOR_0_REGISTER && number < FIRST_COPROCESSOR_0_REGISTER + 32) {
+            Register register = Coprocessor0.getRegisters()[number - FIRST_COPROCESSOR_0_REGISTER];
+            return (register != null) ? register.getName() : "cp0:$" + (number - FIRST_COPROCESSOR_0_REGISTER);
+        }
+        else {
+            return "?" + number;
+        }
+    }
+}
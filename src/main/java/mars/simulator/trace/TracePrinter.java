@@ -0,0 +1,140 @@
+package mars.simulator.trace;
+
+import mars.Application;
+import mars.assembler.BasicStatement;
+import mars.util.Binary;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+
+/**
+ * Command-line pretty-printer for execution traces recorded by {@link TraceRecorder}. Each step is printed on a
+ * single line containing the step index, address, encoding, disassembly, and the effects of the instruction.
+ * <p>
+ * Usage: <code>java -cp mars.jar mars.simulator.trace.TracePrinter &lt;trace&gt; [first step] [step count]</code>
+ */
+public class TracePrinter {
+    private final PrintStream out;
+
+    /**
+     * Create a new pretty-printer writing to the given stream.
+     *
+     * @param out The stream to print to.
+     */
+    public TracePrinter(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Print steps from a trace.
+     *
+     * @param reader The trace to print.
+     * @param first  The index of the first step to print.
+     * @param count  The maximum number of steps to print, or a negative number for no maximum.
+     * @throws IOException Thrown if the trace could not be read.
+     */
+    public void print(TraceReader reader, long first, long count) throws IOException {
+        if (first == 0) {
+            StringBuilder line = new StringBuilder("initial");
+            for (TraceStep.RegisterWrite write : reader.getInitialRegisters()) {
+                if (write.value() != 0) {
+                    appendRegisterWrite(line, write);
+                }
+            }
+            this.out.println(line);
+        }
+
+        long printed = 0;
+        TraceStep step;
+        while ((count < 0 || printed < count) && (step = reader.next()) != null) {
+            if (step.index() < first) {
+                continue;
+            }
+            if (step.droppedBefore() > 0) {
+                this.out.println("... " + step.droppedBefore() + " steps dropped ...");
+            }
+            this.out.println(formatStep(step));
+            printed++;
+        }
+
+        if (count < 0 || printed < count) {
+            if (reader.isComplete()) {
+                this.out.println("end of trace: " + reader.getRecordedStepCount() + " steps, "
+                    + reader.getRecordedDroppedCount() + " dropped");
+            }
+            else {
+                this.out.println("end of trace (incomplete)");
+            }
+        }
+    }
+
+    /**
+     * Format a single step as a line of text.
+     *
+     * @param step The step to format.
+     * @return The formatted step.
+     */
+    public static String formatStep(TraceStep step) {
+        StringBuilder line = new StringBuilder();
+        line.append('#').append(step.index()).append(' ');
+        line.append(Binary.intToHexString(step.address())).append(' ');
+        line.append(Binary.intToHexString(step.encoding())).append("  ");
+        String disassembly = (step.encoding() == 0 && step.raisedException())
+            ? "(interrupt)"
+            : disassemble(step.encoding());
+        line.append(disassembly);
+        for (int padding = disassembly.length(); padding < 28; padding++) {
+            line.append(' ');
+        }
+        for (TraceStep.RegisterWrite write : step.registerWrites()) {
+            appendRegisterWrite(line, write);
+        }
+        for (TraceStep.MemoryAccess access : step.memoryAccesses()) {
+            line.append(access.isWrite() ? "  W" : "  R").append(access.length());
+            line.append('[').append(Binary.intToHexString(access.address())).append("]=");
+            line.append(Binary.intToHexString(access.value()));
+        }
+        if (step.raisedException()) {
+            line.append("  exception ").append(step.exceptionCause());
+        }
+        return line.toString();
+    }
+
+    private static void appendRegisterWrite(StringBuilder line, TraceStep.RegisterWrite write) {
+        line.append("  ").append(TraceFormat.getRegisterName(write.register()));
+        line.append('=').append(Binary.intToHexString(write.value()));
+    }
+
+    private static String disassemble(int encoding) {
+        BasicStatement statement = Application.instructionSet.getDecoder().decodeStatement(encoding);
+        return statement.toString();
+    }
+
+    /**
+     * Entry point for the command-line pretty-printer.
+     *
+     * @param args The path of the trace file, optionally followed by the index of the first step to print
+     *             and the number of steps to print.
+     */
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 3) {
+            System.err.println("Usage: TracePrinter <trace> [first step] [step count]");
+            System.exit(2);
+        }
+        Application.initialize();
+        try (TraceReader reader = new TraceReader(Path.of(args[0]))) {
+            long first = (args.length > 1) ? Long.parseLong(args[1]) : 0;
+            long count = (args.length > 2) ? Long.parseLong(args[2]) : -1;
+            new TracePrinter(System.out).print(reader, first, count);
+        }
+        catch (IOException exception) {
+            System.err.println("Error reading trace " + args[0] + ": " + exception.getMessage());
+            System.exit(1);
+        }
+        catch (NumberFormatException exception) {
+            System.err.println("Invalid step number: " + exception.getMessage());
+            System.exit(2);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package mars.simulator.trace;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads an execution trace written by {@link TraceRecorder}, one {@link TraceStep} at a time. Only the current step
+ * is held in memory, so traces of any length can be read.
+ */
+public class TraceReader implements Closeable {
+    private static final int INPUT_BUFFER_SIZE = 1 << 16;
+
+    private final DataInputStream input;
+    private final List<TraceStep.RegisterWrite> initialRegisters;
+    private int nextTag;
+    private long nextIndex;
+    private boolean isComplete;
+    private long recordedStepCount;
+    private long recordedDroppedCount;
+
+    /**
+     * Open a trace file for reading. The header and initial register values are read immediately.
+     *
+     * @param path The path of the trace file.
+     * @throws IOException Thrown if the file cannot be read or is not a trace file.
+     */
+    public TraceReader(Path path) throws IOException {
+        this(Files.newInputStream(path));
+    }
+
+    /**
+     * Read a trace from a stream. The header and initial register values are read immediately.
+     *
+     * @param stream The compressed trace data.
+     * @throws IOException Thrown if the stream cannot be read or does not contain a trace.
+     */
+    public TraceReader(InputStream stream) throws IOException {
+        this.input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(stream, INPUT_BUFFER_SIZE), INPUT_BUFFER_SIZE));
+        if (this.input.readInt() != TraceFormat.MAGIC) {
+            this.input.close();
+            throw new IOException("not an execution trace");
+        }
+        int version = this.input.readUnsignedByte();
+        if (version != TraceFormat.VERSION) {
+            this.input.close();
+            throw new IOException("unsupported trace version " + version);
+        }
+
+        // Any register records before the first step give the initial register values
+        this.initialRegisters = new ArrayList<>();
+        this.nextTag = this.input.read();
+        while (this.nextTag == TraceFormat.TAG_REGISTER) {
+            this.initialRegisters.add(new TraceStep.RegisterWrite(this.input.readUnsignedByte(), this.input.readInt()));
+            this.nextTag = this.input.read();
+        }
+        this.checkForEnd();
+    }
+
+    /**
+     * Get the values of all traced registers at the time recording began.
+     *
+     * @return The initial register values, which may be empty if the program never ran.
+     */
+    public List<TraceStep.RegisterWrite> getInitialRegisters() {
+        return this.initialRegisters;
+    }
+
+    /**
+     * Read the next step from the trace.
+     *
+     * @return The next step, or null if the end of the trace has been reached.
+     * @throws IOException Thrown if the trace could not be read or is malformed.
+     */
+    public TraceStep next() throws IOException {
+        long droppedBefore = 0;
+        while (this.nextTag == TraceFormat.TAG_GAP) {
+            droppedBefore += this.input.readInt() & 0xFFFFFFFFL;
+            this.nextTag = this.input.read();
+        }
+        if (this.nextTag == TraceFormat.TAG_END || this.nextTag < 0) {
+            return null;
+        }
+        if (this.nextTag != TraceFormat.TAG_STEP) {
+            throw new IOException("malformed trace: unexpected record type " + this.nextTag);
+        }
+        this.nextIndex += droppedBefore;
+        long index = this.nextIndex++;
+        int address = this.input.readInt();
+        int encoding = this.input.readInt();
+        int exceptionCause = -1;
+        List<TraceStep.RegisterWrite> registerWrites = new ArrayList<>(2);
+        List<TraceStep.MemoryAccess> memoryAccesses = new ArrayList<>(1);
+
+        while (true) {
+            this.nextTag = this.input.read();
+            switch (this.nextTag) {
+                case TraceFormat.TAG_REGISTER -> {
+                    registerWrites.add(new TraceStep.RegisterWrite(this.input.readUnsignedByte(), this.input.readInt()));
+                }
+                case TraceFormat.TAG_READ, TraceFormat.TAG_WRITE -> {
+                    int length = this.input.readUnsignedByte();
+                    int accessAddress = this.input.readInt();
+                    int value = this.input.readInt();
+                    memoryAccesses.add(new TraceStep.MemoryAccess(this.nextTag == TraceFormat.TAG_WRITE, accessAddress, length, value));
+                }
+                case TraceFormat.TAG_EXCEPTION -> {
+                    exceptionCause = this.input.readInt();
+                }
+                default -> {
+                    this.checkForEnd();
+                    return new TraceStep(index, address, encoding, droppedBefore, exceptionCause, registerWrites, memoryAccesses);
+                }
+            }
+        }
+    }
+
+    /**
+     * Determine whether the end of the trace was marked by the recorder. This is only known once
+     * {@link #next()} has returned null. A trace which was not closed properly will not be complete.
+     *
+     * @return <code>true</code> if the end of the trace was reached and the trace is complete,
+     *         or <code>false</code> otherwise.
+     */
+    public boolean isComplete() {
+        return this.isComplete;
+    }
+
+    /**
+     * Get the total number of steps according to the end of the trace, including dropped steps.
+     *
+     * @return The number of steps seen by the recorder, or -1 if the end of the trace has not been reached.
+     */
+    public long getRecordedStepCount() {
+        return this.isComplete ? this.recordedStepCount : -1;
+    }
+
+    /**
+     * Get the total number of steps dropped according to the end of the trace.
+     *
+     * @return The number of steps dropped by the recorder, or -1 if the end of the trace has not been reached.
+     */
+    public long getRecordedDroppedCount() {
+        return this.isComplete ? this.recordedDroppedCount : -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.input.close();
+    }
+
+    private void checkForEnd() throws IOException {
+        if (this.nextTag == TraceFormat.TAG_END && !this.isComplete) {
+            this.recordedStepCount = this.input.readLong();
+            this.recordedDroppedCount = this.input.readLong();
+            this.isComplete = true;
+        }
+    }
+}
@@ -0,0 +1,481 @@
+package mars.simulator.trace;
+
+import mars.assembler.BasicStatement;
+import mars.mips.hardware.*;
+import mars.simulator.ExecutionListener;
+import mars.simulator.SimulatorException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records a binary execution trace of the running program, as described in {@link TraceFormat}. For each instruction,
+ * the address, binary encoding, register writes and memory accesses are recorded. This is implemented as an
+ * {@link ExecutionListener}, so it can be attached via
+ * {@link mars.simulator.Simulator#addExecutionListener(ExecutionListener)}.
+ * <p>
+ * The records for each instruction are assembled on the simulator thread and copied into a preallocated ring buffer.
+ * A background thread drains the ring buffer into a compressed file, so the simulator thread never waits on I/O
+ * unless the ring buffer is full. In that case, the {@link OverflowPolicy} decides whether the instruction's
+ * records are dropped (leaving a gap in the trace) or the simulator thread stalls until space is available.
+ * <p>
+ * The recorder must be {@linkplain #close() closed} once the simulator is finished with it in order to flush
+ * the remaining records and finish the file.
+ */
+public class TraceRecorder implements ExecutionListener, Closeable {
+    /**
+     * What the simulator thread does when the ring buffer does not have room for an instruction's records.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Discard the records for the instruction. The trace will contain a gap noting how many steps were lost.
+         */
+        DROP,
+        /**
+         * Wait for the background thread to make room in the buffer. The trace will be complete, but simulation
+         * is slowed down to the speed at which the trace can be written.
+         */
+        STALL,
+    }
+
+    /**
+     * The default size of the ring buffer, in bytes.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 22;
+
+    private static final int MINIMUM_BUFFER_SIZE = 1 << 12;
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+    private static final long DRAIN_INTERVAL_NANOS = 1_000_000L;
+    private static final long STALL_INTERVAL_NANOS = 50_000L;
+
+    private final OverflowPolicy overflowPolicy;
+    private final WritableByteChannel channel;
+    private final Thread drainThread;
+
+    // Ring buffer shared between the simulator thread (producer) and the drain thread (consumer)
+    private final byte[] ring;
+    private final int mask;
+    private volatile long writePosition;
+    private volatile long readPosition;
+    private volatile boolean drainWaiting;
+    private volatile boolean closing;
+    private volatile IOException failure;
+
+    // State owned by the producer
+    private long cachedReadPosition;
+    private byte[] group;
+    private int groupLength;
+    private boolean groupOpen;
+    private boolean preambleWritten;
+    private boolean closed;
+    private Thread simulatorThread;
+    private long stepCount;
+    private long droppedCount;
+    private int droppedSinceLastCommit;
+
+    private final Memory.Listener memoryListener = new Memory.Listener() {
+        @Override
+        public void memoryWritten(int address, int length, int value, int wordAddress, int wordValue) {
+            TraceRecorder.this.memoryAccessed(TraceFormat.TAG_WRITE, address, length, value);
+        }
+
+        @Override
+        public void memoryRead(int address, int length, int value, int wordAddress, int wordValue) {
+            TraceRecorder.this.memoryAccessed(TraceFormat.TAG_READ, address, length, value);
+        }
+    };
+    private final Register.Listener generalRegisterListener = new RegisterListener(TraceFormat.FIRST_GENERAL_REGISTER);
+    private final Register.Listener floatingPointRegisterListener = new RegisterListener(TraceFormat.FIRST_FLOATING_POINT_REGISTER);
+    private final Register.Listener coprocessor0RegisterListener = new RegisterListener(TraceFormat.FIRST_COPROCESSOR_0_REGISTER);
+
+    /**
+     * Create a new trace recorder writing to the given file, which is created or truncated.
+     * The recorder does nothing until it is attached to the simulator.
+     *
+     * @param path           The path of the trace file.
+     * @param bufferSize     The size of the ring buffer, in bytes. This is rounded up to a power of 2.
+     * @param overflowPolicy What to do when the ring buffer is full.
+     * @throws IOException Thrown if the file cannot be opened.
+     */
+    public TraceRecorder(Path path, int bufferSize, OverflowPolicy overflowPolicy) throws IOException {
+        int capacity = Math.max(Integer.highestOneBit(bufferSize), MINIMUM_BUFFER_SIZE);
+        if (capacity < bufferSize) {
+            capacity <<= 1;
+        }
+        this.overflowPolicy = overflowPolicy;
+        this.ring = new byte[capacity];
+        this.mask = capacity - 1;
+        this.group = new byte[256];
+
+        FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        // Favor compression speed over ratio so the drain thread keeps up with the simulator
+        this.channel = Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(fileChannel), OUTPUT_BUFFER_SIZE) {
+            {
+                this.def.setLevel(Deflater.BEST_SPEED);
+            }
+        });
+
+        // The header is placed in the ring buffer before the drain thread starts, so it is written first
+        this.putInt(TraceFormat.MAGIC);
+        this.putByte(TraceFormat.VERSION);
+        this.writeGroup();
+
+        this.drainThread = new Thread(this::drain, "Trace Writer");
+        this.drainThread.setDaemon(true);
+        this.drainThread.start();
+    }
+
+    /**
+     * Get the policy used when the ring buffer is full.
+     *
+     * @return The overflow policy.
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return this.overflowPolicy;
+    }
+
+    /**
+     * Get the number of steps (instructions issued) seen by the recorder so far, including dropped steps.
+     *
+     * @return The number of steps.
+     */
+    public long getStepCount() {
+        return this.stepCount;
+    }
+
+    /**
+     * Get the number of steps which were dropped because the ring buffer was full.
+     * This is always zero when using {@link OverflowPolicy#STALL}.
+     *
+     * @return The number of dropped steps.
+     */
+    public long getDroppedCount() {
+        return this.droppedCount;
+    }
+
+    @Override
+    public void executionStarted() {
+        this.simulatorThread = Thread.currentThread();
+        if (!this.preambleWritten) {
+            // Record the initial value of every traced register before the first step
+            this.preambleWritten = true;
+            Register[] generalRegisters = Processor.getRegisters();
+            for (int number = 0; number < generalRegisters.length; number++) {
+                this.putRegister(TraceFormat.FIRST_GENERAL_REGISTER + number, generalRegisters[number].getValueNoNotify());
+            }
+            this.putRegister(TraceFormat.HIGH_ORDER_REGISTER, Processor.getHighOrderRegister().getValueNoNotify());
+            this.putRegister(TraceFormat.LOW_ORDER_REGISTER, Processor.getLowOrderRegister().getValueNoNotify());
+            Register[] floatingPointRegisters = Coprocessor1.getRegisters();
+            for (int number = 0; number < floatingPointRegisters.length; number++) {
+                this.putRegister(TraceFormat.FIRST_FLOATING_POINT_REGISTER + number, floatingPointRegisters[number].getValueNoNotify());
+            }
+            for (int number : TraceFormat.COPROCESSOR_0_REGISTERS) {
+                this.putRegister(TraceFormat.FIRST_COPROCESSOR_0_REGISTER + number, Coprocessor0.getRegisters()[number].getValueNoNotify());
+            }
+            this.writeGroup();
+        }
+
+        Memory.getInstance().addListener(this.memoryListener);
+        for (Register register : Processor.getRegisters()) {
+            register.addListener(this.generalRegisterListener);
+        }
+        Processor.getHighOrderRegister().addListener(this.generalRegisterListener);
+        Processor.getLowOrderRegister().addListener(this.generalRegisterListener);
+        for (Register register : Coprocessor1.getRegisters()) {
+            register.addListener(this.floatingPointRegisterListener);
+        }
+        for (int number : TraceFormat.COPROCESSOR_0_REGISTERS) {
+            Coprocessor0.getRegisters()[number].addListener(this.coprocessor0RegisterListener);
+        }
+    }
+
+    @Override
+    public void executionStopped() {
+        Memory.getInstance().removeListener(this.memoryListener);
+        for (Register register : Processor.getRegisters()) {
+            register.removeListener(this.generalRegisterListener);
+        }
+        Processor.getHighOrderRegister().removeListener(this.generalRegisterListener);
+        Processor.getLowOrderRegister().removeListener(this.generalRegisterListener);
+        for (Register register : Coprocessor1.getRegisters()) {
+            register.removeListener(this.floatingPointRegisterListener);
+        }
+        for (int number : TraceFormat.COPROCESSOR_0_REGISTERS) {
+            Coprocessor0.getRegisters()[number].removeListener(this.coprocessor0RegisterListener);
+        }
+
+        // The last step may not have retired (e.g. an exit syscall), but it still happened
+        if (this.groupOpen) {
+            this.commitGroup();
+        }
+        this.simulatorThread = null;
+        LockSupport.unpark(this.drainThread);
+    }
+
+    @Override
+    public void instructionIssued(BasicStatement statement, int address) {
+        if (this.groupOpen) {
+            this.commitGroup();
+        }
+        this.openGroup(address, statement.getBinaryEncoding());
+    }
+
+    @Override
+    public void instructionRetired(BasicStatement statement, int address, boolean jumped, int nextFetchPC) {
+        this.commitGroup();
+    }
+
+    @Override
+    public void exceptionRaised(SimulatorException exception, int address) {
+        if (!this.groupOpen) {
+            // External interrupts are raised before the statement is issued
+            this.openGroup(address, 0);
+        }
+        int cause = Coprocessor0.getRegisters()[Coprocessor0.CAUSE].getValueNoNotify();
+        this.putByte(TraceFormat.TAG_EXCEPTION);
+        this.putInt((cause >>> 2) & 0x1F);
+        this.commitGroup();
+    }
+
+    private void memoryAccessed(int tag, int address, int length, int value) {
+        if (this.groupOpen && Thread.currentThread() == this.simulatorThread) {
+            this.putByte(tag);
+            this.putByte(length);
+            this.putInt(address);
+            this.putInt(value);
+        }
+    }
+
+    /**
+     * Flush all remaining records, write the end of the trace, and close the file. The recorder should be
+     * detached from the simulator first. If the background thread failed to write the trace at some point,
+     * the exception that occurred is thrown here.
+     *
+     * @throws IOException Thrown if the trace could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        if (this.groupOpen) {
+            this.commitGroup();
+        }
+        this.putByte(TraceFormat.TAG_END);
+        this.putLong(this.stepCount);
+        this.putLong(this.droppedCount);
+        this.writeGroup();
+
+        this.closing = true;
+        LockSupport.unpark(this.drainThread);
+        try {
+            this.drainThread.join();
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            this.channel.close();
+        }
+        catch (IOException exception) {
+            if (this.failure == null) {
+                this.failure = exception;
+            }
+        }
+        if (this.failure != null) {
+            throw this.failure;
+        }
+    }
+
+    private void openGroup(int address, int encoding) {
+        this.groupLength = 0;
+        this.groupOpen = true;
+        this.stepCount++;
+        this.putByte(TraceFormat.TAG_STEP);
+        this.putInt(address);
+        this.putInt(encoding);
+    }
+
+    /**
+     * Copy the records for the current step into the ring buffer, applying the overflow policy if necessary.
+     */
+    private void commitGroup() {
+        this.groupOpen = false;
+        if (this.overflowPolicy == OverflowPolicy.STALL) {
+            this.writeGroup();
+            return;
+        }
+
+        int required = this.groupLength + (this.droppedSinceLastCommit > 0 ? TraceFormat.GAP_SIZE : 0);
+        if (this.failure != null || !this.hasSpace(required)) {
+            this.droppedCount++;
+            this.droppedSinceLastCommit++;
+            this.groupLength = 0;
+            return;
+        }
+        long position = this.writePosition;
+        if (this.droppedSinceLastCommit > 0) {
+            byte[] gap = {
+                (byte) TraceFormat.TAG_GAP,
+                (byte) (this.droppedSinceLastCommit >>> 24),
+                (byte) (this.droppedSinceLastCommit >>> 16),
+                (byte) (this.droppedSinceLastCommit >>> 8),
+                (byte) this.droppedSinceLastCommit,
+            };
+            position = this.copyToRing(position, gap, 0, gap.length);
+            this.droppedSinceLastCommit = 0;
+        }
+        position = this.copyToRing(position, this.group, 0, this.groupLength);
+        this.groupLength = 0;
+        this.publish(position);
+    }
+
+    /**
+     * Copy the current group into the ring buffer in its entirety, waiting for space as needed, then clear it.
+     * Groups larger than the ring buffer are copied in pieces.
+     */
+    private void writeGroup() {
+        long position = this.writePosition;
+        int offset = 0;
+        while (offset < this.groupLength) {
+            long free = this.ring.length - (position - this.cachedReadPosition);
+            if (free == 0) {
+                this.cachedReadPosition = this.readPosition;
+                free = this.ring.length - (position - this.cachedReadPosition);
+                if (free == 0) {
+                    if (this.failure != null) {
+                        this.groupLength = 0;
+                        return;
+                    }
+                    this.publish(position);
+                    LockSupport.unpark(this.drainThread);
+                    LockSupport.parkNanos(this, STALL_INTERVAL_NANOS);
+                    continue;
+                }
+            }
+            int length = (int) Math.min(free, this.groupLength - offset);
+            position = this.copyToRing(position, this.group, offset, length);
+            offset += length;
+        }
+        this.groupLength = 0;
+        this.publish(position);
+    }
+
+    private boolean hasSpace(int required) {
+        long position = this.writePosition;
+        if (position + required - this.cachedReadPosition <= this.ring.length) {
+            return true;
+        }
+        this.cachedReadPosition = this.readPosition;
+        return position + required - this.cachedReadPosition <= this.ring.length;
+    }
+
+    private long copyToRing(long position, byte[] source, int offset, int length) {
+        int index = (int) (position & this.mask);
+        int firstLength = Math.min(length, this.ring.length - index);
+        System.arraycopy(source, offset, this.ring, index, firstLength);
+        System.arraycopy(source, offset + firstLength, this.ring, 0, length - firstLength);
+        return position + length;
+    }
+
+    private void publish(long position) {
+        this.writePosition = position;
+        // Wake the drain thread early if the buffer is filling up faster than it is being drained
+        if (this.drainWaiting && position - this.cachedReadPosition >= this.ring.length / 2) {
+            this.cachedReadPosition = this.readPosition;
+            if (position - this.cachedReadPosition >= this.ring.length / 2) {
+                LockSupport.unpark(this.drainThread);
+            }
+        }
+    }
+
+    /**
+     * Main loop of the drain thread, which writes everything between the read and write positions to the channel.
+     */
+    private void drain() {
+        try {
+            while (true) {
+                long read = this.readPosition;
+                long write = this.writePosition;
+                if (read == write) {
+                    if (this.closing && this.writePosition == read) {
+                        break;
+                    }
+                    this.drainWaiting = true;
+                    LockSupport.parkNanos(this, DRAIN_INTERVAL_NANOS);
+                    this.drainWaiting = false;
+                    continue;
+                }
+                int offset = (int) (read & this.mask);
+                int length = (int) Math.min(write - read, this.ring.length - offset);
+                ByteBuffer buffer = ByteBuffer.wrap(this.ring, offset, length);
+                while (buffer.hasRemaining()) {
+                    this.channel.write(buffer);
+                }
+                this.readPosition = read + length;
+            }
+        }
+        catch (IOException exception) {
+            this.failure = exception;
+        }
+    }
+
+    private void ensureGroupCapacity(int additional) {
+        if (this.groupLength + additional > this.group.length) {
+            this.group = Arrays.copyOf(this.group, Math.max(this.group.length * 2, this.groupLength + additional));
+        }
+    }
+
+    private void putByte(int value) {
+        this.ensureGroupCapacity(1);
+        this.group[this.groupLength++] = (byte) value;
+    }
+
+    private void putInt(int value) {
+        this.ensureGroupCapacity(4);
+        this.group[this.groupLength++] = (byte) (value >>> 24);
+        this.group[this.groupLength++] = (byte) (value >>> 16);
+        this.group[this.groupLength++] = (byte) (value >>> 8);
+        this.group[this.groupLength++] = (byte) value;
+    }
+
+    private void putLong(long value) {
+        this.putInt((int) (value >>> 32));
+        this.putInt((int) value);
+    }
+
+    private void putRegister(int number, int value) {
+        this.putByte(TraceFormat.TAG_REGISTER);
+        this.putByte(number);
+        this.putInt(value);
+    }
+
+    /**
+     * Register listener which records writes to a bank of registers, adding a fixed offset to the register number.
+     */
+    private class RegisterListener implements Register.Listener {
+        private final int firstNumber;
+
+        public RegisterListener(int firstNumber) {
+            this.firstNumber = firstNumber;
+        }
+
+        @Override
+        public void registerWritten(Register register) {
+            if (TraceRecorder.this.groupOpen && Thread.currentThread() == TraceRecorder.this.simulatorThread) {
+                TraceRecorder.this.putRegister(this.firstNumber + register.getNumber(), register.getValueNoNotify());
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package mars.simulator.trace;
+
+import java.util.List;
+
+/**
+ * A single step read from an execution trace, i.e. one instruction issued by the simulator along with its effects.
+ *
+ * @param index           The index of the step in the trace, starting at 0. Dropped steps are counted.
+ * @param address         The address of the instruction.
+ * @param encoding        The binary encoding of the instruction, or 0 if the step is an external interrupt
+ *                        taken before the instruction was issued.
+ * @param droppedBefore   The number of steps dropped from the trace immediately before this one.
+ * @param exceptionCause  The exception cause code if the step raised an exception, or -1 if it did not.
+ * @param registerWrites  The registers written by the step, in order.
+ * @param memoryAccesses  The memory reads and writes performed by the step, in order.
+ */
+public record TraceStep(
+    long index,
+    int address,
+    int encoding,
+    long droppedBefore,
+    int exceptionCause,
+    List<RegisterWrite> registerWrites,
+    List<MemoryAccess> memoryAccesses
+) {
+    /**
+     * A register written during a step.
+     *
+     * @param register The trace register number; see {@link TraceFormat#getRegisterName(int)}.
+     * @param value    The new value of the register.
+     */
+    public record RegisterWrite(int register, int value) {}
+
+    /**
+     * A memory read or write performed during a step.
+     *
+     * @param isWrite <code>true</code> for a write, or <code>false</code> for a read.
+     * @param address The address of the first byte accessed.
+     * @param length  The number of bytes accessed.
+     * @param value   The value read or written.
+     */
+    public record MemoryAccess(boolean isWrite, int address, int length, int value) {}
+
+    /**
+     * Determine whether this step raised an exception.
+     *
+     * @return <code>true</code> if the step raised an exception, or <code>false</code> otherwise.
+     */
+    public boolean raisedException() {
+        return this.exceptionCause >= 0;
+    }
+}
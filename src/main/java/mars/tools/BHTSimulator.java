@@ -29,11 +29,17 @@ package mars.tools;
 
 import mars.assembler.BasicStatement;
 import mars.mips.hardware.*;
-import mars.tools.bhtsim.BHTSimGUI;
-import mars.tools.bhtsim.BHTableModel;
+import mars.simulator.ExecutionListener;
+import mars.simulator.Simulator;
+import mars.simulator.SimulatorFinishEvent;
+import mars.simulator.SimulatorListener;
+import mars.simulator.SimulatorPauseEvent;
+import mars.tools.bhtsim.*;
 import mars.util.Binary;
 
 import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -48,10 +54,15 @@ import java.util.Objects;
  * <p>
  * The tool can be used to show how branch prediction works in case of loops and how effective such simple methods are.
  * In case of nested loops the difference of BHT with 1 or 2 Bit history can be explored and visualized.
+ * <p>
+ * Additionally, a number of more sophisticated predictors (gshare, two-level local, tournament, and a branch target
+ * buffer with a return address stack) can be run side by side on the same stream of branches, so they can be compared
+ * in a single run of the program. These are fed directly by the execution loop of the simulator via an
+ * {@link ExecutionListener}, and their results are displayed whenever the program is paused or finishes.
  *
  * @author Ingo Kofler (ingo.kofler@itec.uni-klu.ac.at)
  */
-public class BHTSimulator extends AbstractMarsTool {
+public class BHTSimulator extends AbstractMarsTool implements SimulatorListener {
     /**
      * Constant for the default size of the BHT.
      */
@@ -64,6 +75,26 @@ public class BHTSimulator extends AbstractMarsTool {
      * Constant for the default inital value.
      */
     public static final boolean DEFAULT_INITIAL_VALUE = false;
+    /**
+     * Constant for the default number of entries in the tables of the compared predictors.
+     */
+    public static final int DEFAULT_PATTERN_TABLE_SIZE = 1024;
+    /**
+     * Constant for the default global history size of the compared predictors.
+     */
+    public static final int DEFAULT_GLOBAL_HISTORY_SIZE = 10;
+    /**
+     * Constant for the default local history size of the compared predictors.
+     */
+    public static final int DEFAULT_LOCAL_HISTORY_SIZE = 10;
+    /**
+     * Constant for the default number of BTB entries.
+     */
+    public static final int DEFAULT_BRANCH_TARGET_BUFFER_SIZE = 256;
+    /**
+     * Constant for the default depth of the return address stack.
+     */
+    public static final int DEFAULT_RETURN_ADDRESS_STACK_DEPTH = 8;
     /**
      * The name of the tool.
      */
@@ -71,7 +102,7 @@ public class BHTSimulator extends AbstractMarsTool {
     /**
      * The version of the tool.
      */
-    public static final String VERSION = "Version 1.0 (Ingo Kofler)";
+    public static final String VERSION = "Version 1.1 (Ingo Kofler)";
 
     /**
      * The GUI of the BHT simulator.
@@ -89,6 +120,24 @@ public class BHTSimulator extends AbstractMarsTool {
      * State variable that signals if the last branch was taken.
      */
     private boolean lastBranchTaken;
+    /**
+     * The model for the predictor comparison table.
+     */
+    private PredictorTableModel predictorTableModel;
+    /**
+     * The predictors currently being compared. The list is replaced rather than modified, so that the simulator
+     * thread can keep using the old predictors until it sees the new list.
+     */
+    private volatile List<BranchPredictor> predictors = List.of();
+    /**
+     * Listener which feeds every retired control transfer instruction to the compared predictors.
+     */
+    private final ExecutionListener predictorFeeder = new ExecutionListener() {
+        @Override
+        public void instructionRetired(BasicStatement statement, int address, boolean jumped, int nextFetchPC) {
+            BHTSimulator.this.handleRetiredInstruction(statement, address, jumped, nextFetchPC);
+        }
+    };
 
     /**
      * Construct an instance of this tool. This will be used by the {@link mars.venus.ToolManager}.
@@ -113,11 +162,15 @@ public class BHTSimulator extends AbstractMarsTool {
             Memory.getInstance().getLayout().kernelTextRange.minAddress(),
             Memory.getInstance().getLayout().kernelTextRange.maxAddress()
         );
+        Simulator.getInstance().addExecutionListener(this.predictorFeeder);
+        Simulator.getInstance().addGUIListener(this);
     }
 
     @Override
     protected void stopObserving() {
         Memory.getInstance().removeListener(this);
+        Simulator.getInstance().removeExecutionListener(this.predictorFeeder);
+        Simulator.getInstance().removeGUIListener(this);
     }
 
     /**
@@ -136,6 +189,27 @@ public class BHTSimulator extends AbstractMarsTool {
         this.gui.getHistorySizeComboBox().addActionListener(event -> this.reset());
         this.gui.getInitialValueComboBox().addActionListener(event -> this.reset());
 
+        this.predictorTableModel = new PredictorTableModel();
+        this.gui.getPredictorTable().setModel(this.predictorTableModel);
+        this.gui.getPredictorTable().getColumnModel().getColumn(1).setPreferredWidth(250);
+        this.gui.getPatternTableSizeComboBox().setSelectedItem(DEFAULT_PATTERN_TABLE_SIZE);
+        this.gui.getGlobalHistorySizeComboBox().setSelectedItem(DEFAULT_GLOBAL_HISTORY_SIZE);
+        this.gui.getLocalHistorySizeComboBox().setSelectedItem(DEFAULT_LOCAL_HISTORY_SIZE);
+        this.gui.getBranchTargetBufferSizeComboBox().setSelectedItem(DEFAULT_BRANCH_TARGET_BUFFER_SIZE);
+        this.gui.getReturnAddressStackDepthComboBox().setSelectedItem(DEFAULT_RETURN_ADDRESS_STACK_DEPTH);
+
+        this.gui.getBimodalCheckBox().addActionListener(event -> this.resetPredictors());
+        this.gui.getGshareCheckBox().addActionListener(event -> this.resetPredictors());
+        this.gui.getLocalHistoryCheckBox().addActionListener(event -> this.resetPredictors());
+        this.gui.getTournamentCheckBox().addActionListener(event -> this.resetPredictors());
+        this.gui.getBranchTargetCheckBox().addActionListener(event -> this.resetPredictors());
+        this.gui.getPatternTableSizeComboBox().addActionListener(event -> this.resetPredictors());
+        this.gui.getGlobalHistorySizeComboBox().addActionListener(event -> this.resetPredictors());
+        this.gui.getLocalHistorySizeComboBox().addActionListener(event -> this.resetPredictors());
+        this.gui.getBranchTargetBufferSizeComboBox().addActionListener(event -> this.resetPredictors());
+        this.gui.getReturnAddressStackDepthComboBox().addActionListener(event -> this.resetPredictors());
+        this.resetPredictors();
+
         return this.gui;
     }
 
@@ -167,6 +241,79 @@ public class BHTSimulator extends AbstractMarsTool {
 
         this.pendingBranchInstructionAddress = 0;
         this.lastBranchTaken = false;
+
+        this.resetPredictors();
+    }
+
+    /**
+     * Replace the compared predictors with new ones according to the current configuration,
+     * discarding all of their state and statistics.
+     */
+    private void resetPredictors() {
+        int tableSize = (Integer) Objects.requireNonNullElse(this.gui.getPatternTableSizeComboBox().getSelectedItem(), DEFAULT_PATTERN_TABLE_SIZE);
+        int globalHistorySize = (Integer) Objects.requireNonNullElse(this.gui.getGlobalHistorySizeComboBox().getSelectedItem(), DEFAULT_GLOBAL_HISTORY_SIZE);
+        int localHistorySize = (Integer) Objects.requireNonNullElse(this.gui.getLocalHistorySizeComboBox().getSelectedItem(), DEFAULT_LOCAL_HISTORY_SIZE);
+
+        List<BranchPredictor> predictors = new ArrayList<>();
+        if (this.gui.getBimodalCheckBox().isSelected()) {
+            predictors.add(new BimodalPredictor(tableSize));
+        }
+        if (this.gui.getGshareCheckBox().isSelected()) {
+            predictors.add(new GsharePredictor(tableSize, globalHistorySize));
+        }
+        if (this.gui.getLocalHistoryCheckBox().isSelected()) {
+            predictors.add(new LocalHistoryPredictor(tableSize, localHistorySize));
+        }
+        if (this.gui.getTournamentCheckBox().isSelected()) {
+            predictors.add(new TournamentPredictor(
+                new LocalHistoryPredictor(tableSize, localHistorySize),
+                new GsharePredictor(tableSize, globalHistorySize),
+                tableSize
+            ));
+        }
+        if (this.gui.getBranchTargetCheckBox().isSelected()) {
+            predictors.add(new BranchTargetPredictor(
+                (Integer) Objects.requireNonNullElse(this.gui.getBranchTargetBufferSizeComboBox().getSelectedItem(), DEFAULT_BRANCH_TARGET_BUFFER_SIZE),
+                (Integer) Objects.requireNonNullElse(this.gui.getReturnAddressStackDepthComboBox().getSelectedItem(), DEFAULT_RETURN_ADDRESS_STACK_DEPTH)
+            ));
+        }
+
+        this.predictors = List.copyOf(predictors);
+        this.predictorTableModel.setPredictors(this.predictors);
+    }
+
+    /**
+     * Feeds a retired instruction to the compared predictors if it is a branch or jump.
+     * This method is called by the simulator thread after each instruction is executed.
+     *
+     * @param statement   The statement which was executed.
+     * @param address     The address of the statement.
+     * @param jumped      Whether the statement redirected the program counter.
+     * @param nextFetchPC The address fetched after the statement and its delay slot.
+     */
+    private void handleRetiredInstruction(BasicStatement statement, int address, boolean jumped, int nextFetchPC) {
+        int encoding = statement.getBinaryEncoding();
+        BranchPredictor.BranchType type = BranchPredictor.BranchType.of(encoding);
+        if (type == null) {
+            return;
+        }
+        int returnAddress = 0;
+        if (type == BranchPredictor.BranchType.CALL) {
+            returnAddress = Processor.getValue(BranchPredictor.BranchType.getLinkRegister(encoding));
+        }
+        for (BranchPredictor predictor : this.predictors) {
+            predictor.branchRetired(address, type, jumped, nextFetchPC, returnAddress);
+        }
+    }
+
+    @Override
+    public void simulatorPaused(SimulatorPauseEvent event) {
+        this.predictorTableModel.refresh();
+    }
+
+    @Override
+    public void simulatorFinished(SimulatorFinishEvent event) {
+        this.predictorTableModel.refresh();
     }
 
     /**
@@ -1,16 +1,28 @@
 package mars.tools;
 
+import mars.assembler.BasicStatement;
 import mars.mips.hardware.Memory;
+import mars.simulator.ExecutionListener;
+import mars.simulator.Simulator;
+import mars.simulator.SimulatorFinishEvent;
+import mars.simulator.SimulatorListener;
+import mars.simulator.SimulatorPauseEvent;
+import mars.simulator.SimulatorStartEvent;
+import mars.tools.cachesim.CacheHierarchy;
+import mars.tools.cachesim.CacheLevel;
+import mars.tools.cachesim.StackDistanceProfiler;
 import mars.util.Binary;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.TitledBorder;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.awt.event.ItemEvent;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
-import java.util.Random;
 
 /*
 Copyright (c) 2003-2011,  Pete Sanderson and Kenneth Vollmar
@@ -48,18 +60,26 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  * <li><b>Version 1.2</b> (23 December 2010) fixes a bug in the hit/miss animator under full or N-way set associative.
  *     It was animating the block of initial access (first block of set).  Now it animates the block of final access
  *     (where address found or stored). Also added log display to GUI (previously used {@link System#out}).</li>
+ * <li><b>Version 1.3</b> adds a design space sweep, which profiles every LRU configuration offered by the tool
+ *     in a single run using a {@link StackDistanceProfiler}, and tabulates their miss rates.</li>
+ * <li><b>Version 1.4</b> adds a memory hierarchy with split L1 instruction and data caches and an optional unified
+ *     L2 cache, modeled by a {@link CacheHierarchy}. Instruction fetches are fed to it directly by the execution loop,
+ *     and per-level statistics include the average memory access time.</li>
+ * <li><b>Version 1.5</b> separates the cache model from its display. The cache is now a {@link CacheLevel}, which
+ *     is only updated by the simulator thread, and the display samples its statistics on the GUI thread at a fixed
+ *     frame rate. Individual accesses are only animated and logged while the run speed is limited.</li>
  * </ul>
  *
  * @author Pete Sanderson
  */
-public class CacheSimulator extends AbstractMarsTool {
+public class CacheSimulator extends AbstractMarsTool implements SimulatorListener {
     /**
      * Controls display of debugging info.
      */
     public boolean debug = false;
 
     public static final String NAME = "Data Cache Simulator";
-    public static final String VERSION = "Version 1.2";
+    public static final String VERSION = "Version 1.5";
 
     // Major GUI components
     private JComboBox<Integer> cacheBlockSizeSelector;
@@ -74,6 +94,19 @@ public class CacheSimulator extends AbstractMarsTool {
     private JProgressBar cacheHitRateDisplay;
     private Animation animations;
     private JTextArea logDisplay;
+    private JCheckBox animateAccesses;
+    private SweepTableModel sweepTableModel;
+    private JLabel sweepStatusLabel;
+    private Timer refreshTimer;
+    private HierarchyTableModel hierarchyTableModel;
+    private JLabel hierarchyStatusLabel;
+    private LevelControls[] hierarchyLevelControls;
+    private JCheckBox unifiedCacheEnabled;
+    private JComboBox<CacheLevel.WritePolicy> hierarchyWritePolicySelector;
+    private JCheckBox hierarchyWriteAllocate;
+    private JComboBox<ReplacementPolicy> hierarchyReplacementSelector;
+    private JSpinner memoryAccessTimeSelector;
+    private boolean hierarchyEnabled;
 
     // Some GUI settings
     private final EmptyBorder emptyBorder = new EmptyBorder(4, 4, 4, 4);
@@ -126,14 +159,29 @@ public class CacheSimulator extends AbstractMarsTool {
 
     // Cache-related data structures
     private Integer[] cacheSetSizeChoices; // Will change dynamically based on the other selections
-    private AbstractCache cache;
-    private int memoryAccessCount;
-    private int cacheHitCount;
-    private int cacheMissCount;
-    private double cacheHitRate;
-
-    // RNG used for random replacement policy.  For testing, set seed for reproducible stream
-    private final Random random = new Random(0);
+    // Replaced rather than reset, so the simulator thread is the only one to ever modify a given cache
+    private volatile CacheLevel cache;
+    // Mirrors the "Animate accesses" check box so the simulator thread never has to query Swing
+    private volatile boolean animationEnabled = true;
+    private boolean lastAccessHit;
+
+    // Only present while the design space sweep is enabled; accessed from the simulator thread
+    private volatile StackDistanceProfiler sweepProfiler;
+    private long sweepDisplayedAccessCount;
+    // Only present while the memory hierarchy is enabled; accessed from the simulator thread
+    private volatile CacheHierarchy hierarchy;
+    private final ExecutionListener instructionFetchListener = new ExecutionListener() {
+        @Override
+        public void instructionIssued(BasicStatement statement, int address) {
+            CacheHierarchy hierarchy = CacheSimulator.this.hierarchy;
+            if (hierarchy != null) {
+                hierarchy.fetchInstruction(address);
+            }
+        }
+    };
+    private int frameCount;
+    private static final int FRAME_INTERVAL = 50; // milliseconds
+    private static final int SWEEP_FRAME_INTERVAL = 20; // frames
 
     /**
      * Construct an instance of this tool. This will be used by the {@link mars.venus.ToolManager}.
@@ -158,20 +206,147 @@ public class CacheSimulator extends AbstractMarsTool {
      * into three major components: the cache configuration which an be modified
      * using combo boxes, the cache performance which is updated as the
      * attached MIPS program executes, and the runtime log which is optionally used
-     * to display log of each cache access.
+     * to display log of each cache access.  The optional memory hierarchy and
+     * design space sweep are placed in tabs of their own.
      *
-     * @return The GUI component containing these three areas.
+     * @return The GUI component containing these areas.
      */
     @Override
     protected JComponent buildMainDisplayArea() {
         // Overall structure of main UI (center)
-        Box mainArea = Box.createVerticalBox();
-        mainArea.add(this.buildOrganizationArea());
-        mainArea.add(this.buildPerformanceArea());
-        mainArea.add(this.buildLogArea());
+        Box cacheArea = Box.createVerticalBox();
+        cacheArea.add(this.buildOrganizationArea());
+        cacheArea.add(this.buildPerformanceArea());
+        cacheArea.add(this.buildLogArea());
+        JTabbedPane mainArea = new JTabbedPane();
+        mainArea.addTab("Data Cache", cacheArea);
+        mainArea.addTab("Memory Hierarchy", this.buildHierarchyArea());
+        mainArea.addTab("Design Space Sweep", this.buildSweepArea());
+        // Results are pulled from the models at a fixed frame rate rather than pushed on every access
+        this.refreshTimer = new Timer(FRAME_INTERVAL, event -> this.updateSampledDisplays());
         return mainArea;
     }
 
+    private JComponent buildHierarchyArea() {
+        JPanel hierarchyPanel = new JPanel(new BorderLayout(4, 4));
+        hierarchyPanel.setBorder(BorderFactory.createTitledBorder(null, "Memory Hierarchy", TitledBorder.CENTER, TitledBorder.DEFAULT_POSITION));
+
+        JCheckBox hierarchyEnabled = new JCheckBox("Enabled", false);
+        hierarchyEnabled.setToolTipText("Simulate instruction fetches and data accesses through the hierarchy below");
+        hierarchyEnabled.addItemListener(event -> {
+            this.hierarchyEnabled = event.getStateChange() == ItemEvent.SELECTED;
+            this.resetHierarchy();
+        });
+
+        // One row per level, one column per parameter
+        JPanel levelsPanel = new JPanel(new GridLayout(4, 5, 4, 4));
+        levelsPanel.setBorder(this.emptyBorder);
+        levelsPanel.add(new JLabel("Level"));
+        levelsPanel.add(new JLabel("Number of blocks"));
+        levelsPanel.add(new JLabel("Block size (words)"));
+        levelsPanel.add(new JLabel("Set size (blocks)"));
+        levelsPanel.add(new JLabel("Hit time (cycles)"));
+        this.hierarchyLevelControls = new LevelControls[] {
+            new LevelControls(64, 4, 2, 1),
+            new LevelControls(64, 4, 2, 1),
+            new LevelControls(512, 8, 8, 10),
+        };
+        this.unifiedCacheEnabled = new JCheckBox("L2 (unified)", true);
+        this.unifiedCacheEnabled.setToolTipText("Back the L1 caches with a unified L2 cache instead of main memory");
+        this.unifiedCacheEnabled.addItemListener(event -> this.resetHierarchy());
+        this.hierarchyLevelControls[0].addTo(levelsPanel, new JLabel("L1 instruction"));
+        this.hierarchyLevelControls[1].addTo(levelsPanel, new JLabel("L1 data"));
+        this.hierarchyLevelControls[2].addTo(levelsPanel, this.unifiedCacheEnabled);
+
+        this.hierarchyWritePolicySelector = new JComboBox<>(CacheLevel.WritePolicy.values());
+        this.hierarchyWritePolicySelector.addActionListener(event -> this.resetHierarchy());
+        this.hierarchyWriteAllocate = new JCheckBox("Write-allocate", true);
+        this.hierarchyWriteAllocate.setToolTipText("Bring the block into the cache when a write misses");
+        this.hierarchyWriteAllocate.addItemListener(event -> this.resetHierarchy());
+        this.hierarchyReplacementSelector = new JComboBox<>(ReplacementPolicy.values());
+        this.hierarchyReplacementSelector.setSelectedItem(ReplacementPolicy.DEFAULT);
+        this.hierarchyReplacementSelector.addActionListener(event -> this.resetHierarchy());
+        this.memoryAccessTimeSelector = new JSpinner(new SpinnerNumberModel(100, 0, 100000, 1));
+        this.memoryAccessTimeSelector.addChangeListener(event -> this.resetHierarchy());
+        JPanel policiesPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        policiesPanel.add(hierarchyEnabled);
+        policiesPanel.add(this.hierarchyWritePolicySelector);
+        policiesPanel.add(this.hierarchyWriteAllocate);
+        policiesPanel.add(new JLabel("Replacement"));
+        policiesPanel.add(this.hierarchyReplacementSelector);
+        policiesPanel.add(new JLabel("Memory time (cycles)"));
+        policiesPanel.add(this.memoryAccessTimeSelector);
+
+        JPanel configurationPanel = new JPanel(new BorderLayout());
+        configurationPanel.add(policiesPanel, BorderLayout.NORTH);
+        configurationPanel.add(levelsPanel, BorderLayout.CENTER);
+
+        this.hierarchyTableModel = new HierarchyTableModel();
+        JTable hierarchyTable = new JTable(this.hierarchyTableModel);
+        JScrollPane hierarchyScroll = new JScrollPane(hierarchyTable);
+        hierarchyScroll.setPreferredSize(new Dimension(560, 100));
+
+        this.hierarchyStatusLabel = new JLabel();
+
+        hierarchyPanel.add(configurationPanel, BorderLayout.NORTH);
+        hierarchyPanel.add(hierarchyScroll, BorderLayout.CENTER);
+        hierarchyPanel.add(this.hierarchyStatusLabel, BorderLayout.SOUTH);
+        this.updateHierarchyDisplay();
+        return hierarchyPanel;
+    }
+
+    private JComponent buildSweepArea() {
+        JPanel sweepPanel = new JPanel(new BorderLayout(4, 4));
+        sweepPanel.setBorder(BorderFactory.createTitledBorder(null, "Design Space Sweep (LRU)", TitledBorder.CENTER, TitledBorder.DEFAULT_POSITION));
+
+        this.sweepTableModel = new SweepTableModel();
+        JTable sweepTable = new JTable(this.sweepTableModel);
+        TableRowSorter<SweepTableModel> sorter = new TableRowSorter<>(this.sweepTableModel);
+        sweepTable.setRowSorter(sorter);
+        JScrollPane sweepScroll = new JScrollPane(sweepTable);
+        sweepScroll.setPreferredSize(new Dimension(560, 150));
+
+        JCheckBox sweepEnabled = new JCheckBox("Profile every configuration", false);
+        sweepEnabled.setToolTipText("Simulate every LRU cache configuration at once, regardless of the selection above");
+        sweepEnabled.addItemListener(event -> {
+            if (event.getStateChange() == ItemEvent.SELECTED) {
+                this.sweepProfiler = createSweepProfiler();
+            }
+            else {
+                this.sweepProfiler = null;
+            }
+            this.updateSweepDisplay();
+        });
+
+        JComboBox<Object> blockSizeFilter = new JComboBox<>();
+        blockSizeFilter.addItem("All");
+        for (int blockSize : CACHE_BLOCK_SIZE_CHOICES) {
+            blockSizeFilter.addItem(blockSize);
+        }
+        blockSizeFilter.setToolTipText("Only show configurations with this block size");
+        blockSizeFilter.addActionListener(event -> {
+            if (blockSizeFilter.getSelectedItem() instanceof Integer blockSize) {
+                sorter.setRowFilter(RowFilter.numberFilter(RowFilter.ComparisonType.EQUAL, blockSize, 0));
+            }
+            else {
+                sorter.setRowFilter(null);
+            }
+        });
+
+        this.sweepStatusLabel = new JLabel();
+        JPanel sweepControls = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        sweepControls.add(sweepEnabled);
+        sweepControls.add(new JLabel("Block size (words):"));
+        sweepControls.add(blockSizeFilter);
+        sweepControls.add(this.sweepStatusLabel);
+
+        sweepPanel.add(sweepControls, BorderLayout.NORTH);
+        sweepPanel.add(sweepScroll, BorderLayout.CENTER);
+
+        this.updateSweepDisplay();
+        return sweepPanel;
+    }
+
     private JComponent buildLogArea() {
         JPanel logPanel = new JPanel();
         TitledBorder ltb = new TitledBorder("Runtime Log");
@@ -208,6 +383,7 @@ public class CacheSimulator extends AbstractMarsTool {
         this.cacheReplacementSelector = new JComboBox<>(ReplacementPolicy.values());
         this.cacheReplacementSelector.setEditable(false);
         this.cacheReplacementSelector.setSelectedItem(ReplacementPolicy.DEFAULT);
+        this.cacheReplacementSelector.addActionListener(event -> this.reset());
 
         this.cacheBlockSizeSelector = new JComboBox<>(Arrays.stream(CACHE_BLOCK_SIZE_CHOICES).boxed().toArray(Integer[]::new));
         this.cacheBlockSizeSelector.setEditable(false);
@@ -222,7 +398,6 @@ public class CacheSimulator extends AbstractMarsTool {
         this.cacheBlockCountSelector.addActionListener(event -> {
             this.updateCacheSetSizeSelector();
             this.cache = this.createNewCache();
-            this.resetCounts();
             this.updateDisplay();
             this.updateCacheSizeDisplay();
             this.animations.fillAnimationBoxWithCacheBlocks();
@@ -329,7 +504,6 @@ public class CacheSimulator extends AbstractMarsTool {
         this.cacheHitRateDisplay.setFont(this.countFonts);
         cacheHitRateRow.add(this.cacheHitRateDisplay, BorderLayout.EAST);
 
-        this.resetCounts();
         this.updateDisplay();
 
         // Vertically align these 4 measures in a grid, then add to left column of main grid.
@@ -351,6 +525,12 @@ public class CacheSimulator extends AbstractMarsTool {
         tableTitle2.add(new JLabel("(block 0 at top)"));
         animationsLabel.add(tableTitle1);
         animationsLabel.add(tableTitle2);
+        this.animateAccesses = new JCheckBox("Animate accesses", true);
+        this.animateAccesses.setToolTipText("Show each access in the block table while the run speed is limited");
+        this.animateAccesses.addItemListener(event -> this.animationEnabled = event.getStateChange() == ItemEvent.SELECTED);
+        JPanel animateAccessesRow = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        animateAccessesRow.add(this.animateAccesses);
+        animationsLabel.add(animateAccessesRow);
         Dimension colorKeyBoxSize = new Dimension(8, 8);
 
         JPanel emptyKey = new JPanel(new FlowLayout(FlowLayout.LEFT));
@@ -394,42 +574,121 @@ public class CacheSimulator extends AbstractMarsTool {
             Memory.getInstance().getLayout().dataRange.minAddress(),
             Memory.getInstance().getLayout().dataRange.maxAddress()
         );
+        Simulator.getInstance().addGUIListener(this);
+        Simulator.getInstance().addExecutionListener(this.instructionFetchListener);
     }
 
     @Override
     protected void stopObserving() {
         Memory.getInstance().removeListener(this);
+        Simulator.getInstance().removeGUIListener(this);
+        Simulator.getInstance().removeExecutionListener(this.instructionFetchListener);
+    }
+
+    @Override
+    protected void handleClose() {
+        this.refreshTimer.stop();
+    }
+
+    @Override
+    public void simulatorStarted(SimulatorStartEvent event) {
+        this.refreshTimer.start();
+    }
+
+    @Override
+    public void simulatorPaused(SimulatorPauseEvent event) {
+        this.refreshTimer.stop();
+        this.updateSampledDisplays();
+        this.showLastAccess();
+    }
+
+    @Override
+    public void simulatorFinished(SimulatorFinishEvent event) {
+        this.refreshTimer.stop();
+        this.updateSampledDisplays();
     }
 
     @Override
     public void memoryRead(int address, int length, int value, int wordAddress, int wordValue) {
-        this.processMemoryAccess(wordAddress);
+        CacheHierarchy hierarchy = this.hierarchy;
+        if (hierarchy != null) {
+            hierarchy.readData(wordAddress);
+        }
+        this.processMemoryAccess(wordAddress, false);
     }
 
     @Override
     public void memoryWritten(int address, int length, int value, int wordAddress, int wordValue) {
-        this.processMemoryAccess(wordAddress);
+        CacheHierarchy hierarchy = this.hierarchy;
+        if (hierarchy != null) {
+            hierarchy.writeData(wordAddress);
+        }
+        this.processMemoryAccess(wordAddress, true);
     }
 
     /**
-     * Apply caching policies and update display when connected MIPS program accesses (data) memory.
+     * Apply caching policies when connected MIPS program accesses (data) memory.  This runs on the
+     * simulator thread, so it only updates the models; the display catches up on its next frame.
+     * While the run speed is limited, the access is also animated on the GUI thread.
      */
-    private void processMemoryAccess(int address) {
-        this.memoryAccessCount++;
-        CacheAccessResult cacheAccessResult = this.cache.isItAHitThenReadOnMiss(address);
-        if (cacheAccessResult.isHit()) {
-            this.cacheHitCount++;
-            this.animations.showHit(cacheAccessResult.blockNumber);
+    private void processMemoryAccess(int address, boolean write) {
+        StackDistanceProfiler sweepProfiler = this.sweepProfiler;
+        if (sweepProfiler != null) {
+            sweepProfiler.access(address);
         }
-        else {
-            this.cacheMissCount++;
-            this.animations.showMiss(cacheAccessResult.blockNumber);
+        CacheLevel cache = this.cache;
+        boolean hit = cache.access(address, write);
+        this.lastAccessHit = hit;
+        if (this.animationEnabled && Simulator.getInstance().isLimitingRunSpeed()) {
+            int blockIndex = cache.getLastBlockIndex();
+            long accessCount = cache.getStatistics().accessCount();
+            SwingUtilities.invokeLater(() -> this.showAccess(cache, accessCount, address, hit, blockIndex));
         }
-        this.cacheHitRate = this.cacheHitCount / (double) this.memoryAccessCount;
+    }
 
+    /**
+     * Animate a single access and log it if logging is enabled.  This must be called on the GUI thread.
+     */
+    private void showAccess(CacheLevel cache, long accessCount, int address, boolean hit, int blockIndex) {
+        // Ignore accesses to a cache which has since been replaced
+        if (cache != this.cache) {
+            return;
+        }
+        if (blockIndex >= 0) {
+            if (hit) {
+                this.animations.showHit(blockIndex);
+            }
+            else {
+                this.animations.showMiss(blockIndex);
+            }
+        }
+        if (this.debug) {
+            this.writeLog("(" + accessCount + ") address: " + Binary.intToHexString(address)
+                + ((hit) ? " -- HIT" : " -- MISS") + " block " + blockIndex + "\n");
+        }
         this.updateDisplay();
     }
 
+    /**
+     * Animate the most recent access, which has not been animated if the run speed is unlimited.
+     * This must be called on the GUI thread while the simulator is paused.
+     */
+    private void showLastAccess() {
+        CacheLevel cache = this.cache;
+        if (cache == null || Simulator.getInstance().isLimitingRunSpeed() || !this.animationEnabled) {
+            return;
+        }
+        int blockIndex = cache.getLastBlockIndex();
+        if (blockIndex >= 0) {
+            if (this.lastAccessHit) {
+                this.animations.showHit(blockIndex);
+            }
+            else {
+                this.animations.showMiss(blockIndex);
+            }
+        }
+    }
+
     /**
      * Initialize all JComboBox choice structures not already initialized at declaration.
      * Also creates initial default cache object. Overrides inherited method that does nothing.
@@ -455,22 +714,28 @@ public class CacheSimulator extends AbstractMarsTool {
     @Override
     protected void reset() {
         this.cache = this.createNewCache();
-        this.resetCounts();
         this.updateDisplay();
         this.animations.reset();
         this.resetLogDisplay();
+        // The profiler may be in use by the simulator thread, so it is replaced rather than reset
+        if (this.sweepProfiler != null) {
+            this.sweepProfiler = createSweepProfiler();
+        }
+        this.updateSweepDisplay();
+        this.resetHierarchy();
     }
 
     /**
-     * Updates display immediately after each memory access is processed, after
-     * cache configuration changes as needed, and after each execution step when Mars
-     * is running in timed mode.  Overrides inherited method that does nothing.
+     * Updates display from a snapshot of the cache statistics on each frame while the program runs,
+     * after cache configuration changes, and when the program pauses or finishes.
      */
     private void updateDisplay() {
-        this.updateMemoryAccessCountDisplay();
-        this.updateCacheHitCountDisplay();
-        this.updateCacheMissCountDisplay();
-        this.updateCacheHitRateDisplay();
+        CacheLevel cache = this.cache;
+        CacheLevel.Statistics statistics = (cache == null) ? new CacheLevel.Statistics(0, 0, 0, 0, 0, 0, 0) : cache.getStatistics();
+        this.memoryAccessCountDisplay.setText(Long.toString(statistics.accessCount()));
+        this.cacheHitCountDisplay.setText(Long.toString(statistics.hitCount()));
+        this.cacheMissCountDisplay.setText(Long.toString(statistics.missCount()));
+        this.cacheHitRateDisplay.setValue((int) Math.round((1.0 - statistics.missRate()) * 100.0));
     }
 
     /**
@@ -509,35 +774,18 @@ public class CacheSimulator extends AbstractMarsTool {
     /**
      * Create and return a new cache object based on current specs.
      */
-    private AbstractCache createNewCache() {
-        return new AnyCache(
+    private CacheLevel createNewCache() {
+        // Writes are treated like reads, so write-back with write-allocate, which never forwards anything
+        // to the next level, gives the same hits and misses as a cache that ignores the distinction
+        return new CacheLevel("Data Cache", new CacheLevel.Configuration(
             CACHE_BLOCK_COUNT_CHOICES[this.cacheBlockCountSelector.getSelectedIndex()],
             CACHE_BLOCK_SIZE_CHOICES[this.cacheBlockSizeSelector.getSelectedIndex()],
-            (Integer) Objects.requireNonNull(this.cacheSetSizeSelector.getSelectedItem())
-        );
-    }
-
-    private void resetCounts() {
-        this.memoryAccessCount = 0;
-        this.cacheHitCount = 0;
-        this.cacheMissCount = 0;
-        this.cacheHitRate = 0.0;
-    }
-
-    private void updateMemoryAccessCountDisplay() {
-        this.memoryAccessCountDisplay.setText(Integer.toString(this.memoryAccessCount));
-    }
-
-    private void updateCacheHitCountDisplay() {
-        this.cacheHitCountDisplay.setText(Integer.toString(this.cacheHitCount));
-    }
-
-    private void updateCacheMissCountDisplay() {
-        this.cacheMissCountDisplay.setText(Integer.toString(this.cacheMissCount));
-    }
-
-    private void updateCacheHitRateDisplay() {
-        this.cacheHitRateDisplay.setValue((int) Math.round(this.cacheHitRate * 100.0));
+            (Integer) Objects.requireNonNull(this.cacheSetSizeSelector.getSelectedItem()),
+            (ReplacementPolicy) Objects.requireNonNull(this.cacheReplacementSelector.getSelectedItem()),
+            CacheLevel.WritePolicy.WRITE_BACK,
+            true,
+            1
+        ), null);
     }
 
     private void updateCacheSizeDisplay() {
@@ -547,255 +795,103 @@ public class CacheSimulator extends AbstractMarsTool {
         cacheSizeDisplay.setText(Integer.toString(cacheSize));
     }
 
-    private JPanel getPanelWithBorderLayout() {
-        return new JPanel(new BorderLayout(2, 2));
-    }
-
-    private void resetLogDisplay() {
-        this.logDisplay.setText("");
-    }
-
-    private void writeLog(String text) {
-        this.logDisplay.append(text);
-        this.logDisplay.setCaretPosition(this.logDisplay.getDocument().getLength());
-    }
-
     /**
-     * Represents a block in the cache.  Since we are only simulating
-     * cache performance, there's no need to actually store memory contents.
+     * Refresh the displays which sample the models rather than being updated on every access.
      */
-    private static class CacheBlock {
-        public boolean valid;
-        public int tag;
-        public int sizeInWords;
-        public int mostRecentAccessTime;
-
-        public CacheBlock(int sizeInWords) {
-            this.valid = false;
-            this.tag = 0;
-            this.sizeInWords = sizeInWords;
-            this.mostRecentAccessTime = -1;
+    private void updateSampledDisplays() {
+        this.updateDisplay();
+        this.updateHierarchyDisplay();
+        // The sweep results take much longer to compute, so they are refreshed less often
+        if (this.frameCount++ % SWEEP_FRAME_INTERVAL == 0) {
+            this.updateSweepDisplay();
         }
     }
 
     /**
-     * Represents the outcome of a cache access.  There are two parts:
-     * whether it was a hit or not, and in which block is the value stored.
-     * In the case of a hit, the block associated with address.  In the case of
-     * a miss, the block where new association is made.
-     *
-     * @author DPS 23-Dec-2010
+     * Replace the memory hierarchy with an empty one built from the current settings,
+     * or remove it if the hierarchy is disabled.
      */
-    private record CacheAccessResult(boolean isHit, int blockNumber) {}
+    private void resetHierarchy() {
+        if (this.hierarchyEnabled) {
+            CacheLevel.WritePolicy writePolicy = (CacheLevel.WritePolicy) this.hierarchyWritePolicySelector.getSelectedItem();
+            ReplacementPolicy replacementPolicy = (ReplacementPolicy) this.hierarchyReplacementSelector.getSelectedItem();
+            boolean writeAllocate = this.hierarchyWriteAllocate.isSelected();
+            this.hierarchy = new CacheHierarchy(
+                this.hierarchyLevelControls[0].getConfiguration(replacementPolicy, writePolicy, writeAllocate),
+                this.hierarchyLevelControls[1].getConfiguration(replacementPolicy, writePolicy, writeAllocate),
+                this.unifiedCacheEnabled.isSelected()
+                    ? this.hierarchyLevelControls[2].getConfiguration(replacementPolicy, writePolicy, writeAllocate)
+                    : null,
+                (Integer) this.memoryAccessTimeSelector.getValue()
+            );
+        }
+        else {
+            this.hierarchy = null;
+        }
+        this.updateHierarchyDisplay();
+    }
 
     /**
-     * Abstract Cache class.  Subclasses will implement specific policies.
+     * Refresh the hierarchy statistics from the model.
      */
-    private abstract static class AbstractCache {
-        private final int numberOfBlocks;
-        private final int blockSizeInWords;
-        private final int setSizeInBlocks;
-        private final int numberOfSets;
-        protected CacheBlock[] blocks;
-
-        protected AbstractCache(int numberOfBlocks, int blockSizeInWords, int setSizeInBlocks) {
-            this.numberOfBlocks = numberOfBlocks;
-            this.blockSizeInWords = blockSizeInWords;
-            this.setSizeInBlocks = setSizeInBlocks;
-            this.numberOfSets = numberOfBlocks / setSizeInBlocks;
-            this.blocks = new CacheBlock[numberOfBlocks];
-            this.reset();
+    private void updateHierarchyDisplay() {
+        CacheHierarchy hierarchy = this.hierarchy;
+        this.hierarchyTableModel.setData(hierarchy);
+        if (hierarchy == null) {
+            this.hierarchyStatusLabel.setText("Disabled");
+            return;
         }
-
-        // This will work regardless of placement. 
-        // For direct map, #sets==#blocks
-        // For full assoc, #sets==1 so anything % #sets == 0
-        // For n-way assoc, it extracts the set bits in address.
-        public int getSetNumber(int address) {
-            return address / Memory.BYTES_PER_WORD / this.blockSizeInWords % this.numberOfSets;
+        long memoryReadCount = 0;
+        long memoryWriteCount = 0;
+        for (CacheLevel.Statistics statistics : this.hierarchyTableModel.getStatistics()) {
+            memoryReadCount += statistics.memoryReadCount();
+            memoryWriteCount += statistics.memoryWriteCount();
         }
+        this.hierarchyStatusLabel.setText(String.format(
+            "Overall AMAT: %.2f cycles    Memory reads: %d    Memory writes: %d",
+            hierarchy.getOverallAverageAccessTime(), memoryReadCount, memoryWriteCount
+        ));
+    }
 
-        // This will work regardless of placement policy (direct map, n-way or full assoc)
-        public int getTag(int address) {
-            return address / Memory.BYTES_PER_WORD / this.blockSizeInWords / this.numberOfSets;
-        }
+    /**
+     * Create an empty profiler covering every configuration offered by the tool.
+     */
+    private static StackDistanceProfiler createSweepProfiler() {
+        return new StackDistanceProfiler(
+            CACHE_BLOCK_SIZE_CHOICES,
+            CACHE_BLOCK_COUNT_CHOICES,
+            CACHE_BLOCK_COUNT_CHOICES[CACHE_BLOCK_COUNT_CHOICES.length - 1]
+        );
+    }
 
-        // This will work regardless of placement policy (direct map, n-way or full assoc)
-        // Returns absolute block offset into the cache.
-        public int getFirstBlockToSearch(int address) {
-            return this.getSetNumber(address) * this.setSizeInBlocks;
+    /**
+     * Refresh the sweep table from the profiler, if there is anything new to show.
+     */
+    private void updateSweepDisplay() {
+        StackDistanceProfiler sweepProfiler = this.sweepProfiler;
+        if (sweepProfiler == null) {
+            this.sweepStatusLabel.setText("Disabled");
+            return;
         }
-
-        // This will work regardless of placement policy (direct map, n-way or full assoc)
-        // Returns absolute block offset into the cache.
-        public int getLastBlockToSearch(int address) {
-            return this.getFirstBlockToSearch(address) + this.setSizeInBlocks - 1;
+        long accessCount = sweepProfiler.getAccessCount();
+        if (accessCount != this.sweepDisplayedAccessCount || this.sweepTableModel.getRowCount() == 0) {
+            this.sweepDisplayedAccessCount = accessCount;
+            this.sweepTableModel.setData(sweepProfiler.getSweepResults());
         }
+        this.sweepStatusLabel.setText("Accesses profiled: " + accessCount);
+    }
 
-        /**
-         * Reset the cache contents.
-         */
-        public void reset() {
-            for (int block = 0; block < this.numberOfBlocks; block++) {
-                this.blocks[block] = new CacheBlock(this.blockSizeInWords);
-            }
-            System.gc(); // Scoop 'em up now
-        }
-
-        // Subclass must implement this according to its policies
-        public abstract CacheAccessResult isItAHitThenReadOnMiss(int address);
-    }
-
-    // Implements any of the well-known cache organizations.  Physical memory
-    // address is partitioned depending on organization:
-    //    Direct Mapping:    [ tag | block | word | byte ]
-    //    Fully Associative: [ tag | word | byte ]
-    //    Set Associative:   [ tag | set | word | byte ]
-    //
-    // Bit lengths of each part are determined as follows:
-    // Direct Mapping:
-    //   byte  = log2 of #bytes in a word (typically 4)
-    //   word  = log2 of #words in a block
-    //   block = log2 of #blocks in the cache
-    //   tag   = #bytes in address - (byte+word+block)
-    // Fully Associative:
-    //   byte  = log2 of #bytes in a word (typically 4)
-    //   word  = log2 of #words in a block
-    //   tag   = #bytes in address - (byte+word)
-    // Set Associative:
-    //   byte  = log2 of #bytes in a word (typically 4)
-    //   word  = log2 of #words in a block
-    //   set   = log2 of #sets in the cache
-    //   tag   = #bytes in address - (byte+word+set)
-    //
-    // Direct Mapping (1 way set associative):
-    // The block value for a given address identifies its block index into the cache.
-    // That's why its called "direct mapped."  This is the only cache block it can
-    // occupy.  If that cache block is empty or if it is occupied by a different tag,
-    // this is a MISS.  If that cache block is occupied by the same tag, this is a HIT.
-    // There is no replacement policy: upon a cache miss of an occupied block, the old
-    // block is written out (unless write-through) and the new one read in.
-    // Those actions are not simulated here.
-    //
-    // Fully Associative:
-    // There is one set, and very tag has to be searched before determining hit or miss.
-    // If tag is matched, it is a hit.  If tag is not matched and there is at least one
-    // empty block, it is a miss and the new tag will occupy it.  If tag is not matched
-    // and every block is occupied, it is a miss and one of the occupied blocks will be
-    // selected for removal and the new tag will replace it.
-    //
-    // n-way Set Associative:
-    // Each set consists of n blocks, and the number of sets in the cache is total number
-    // of blocks divided by n.  The set bits in the address will identify which set to
-    // search, and every tag in that set has to be searched before determining hit or miss.
-    // If tag is matched, it is a hit.  If tag is not matched and there is at least one
-    // empty block, it is a miss and the new tag will occupy it.  If tag is not matched
-    // and every block is occupied, it is a miss and one of the occupied blocks will be
-    // selected for removal and the new tag will replace it.
-    //
-    private class AnyCache extends AbstractCache {
-        public AnyCache(int numberOfBlocks, int blockSizeInWords, int setSizeInBlocks) {
-            super(numberOfBlocks, blockSizeInWords, setSizeInBlocks);
-        }
-
-        private enum CacheResultReason {
-            SET_FULL,
-            HIT,
-            MISS,
-        }
+    private JPanel getPanelWithBorderLayout() {
+        return new JPanel(new BorderLayout(2, 2));
+    }
 
-        /**
-         * This method works for any of the placement policies:
-         * direct mapped, full associative or n-way set associative.
-         */
-        @Override
-        public CacheAccessResult isItAHitThenReadOnMiss(int address) {
-            CacheResultReason result = CacheResultReason.SET_FULL;
-            int firstBlock = this.getFirstBlockToSearch(address);
-            int lastBlock = this.getLastBlockToSearch(address);
-            if (CacheSimulator.this.debug) {
-                CacheSimulator.this.writeLog("(" + CacheSimulator.this.memoryAccessCount + ") address: "
-                    + Binary.intToHexString(address) + " (tag " + Binary.intToHexString(this.getTag(address)) + ") "
-                    + " block range: " + firstBlock + "-" + lastBlock + "\n");
-            }
-            CacheBlock block;
-            int blockNumber;
-            // Will do a sequential instead of associative search!
-            for (blockNumber = firstBlock; blockNumber <= lastBlock; blockNumber++) {
-                block = this.blocks[blockNumber];
-                if (CacheSimulator.this.debug) {
-                    CacheSimulator.this.writeLog("   trying block " + blockNumber + ((block.valid)
-                        ? " tag " + Binary.intToHexString(block.tag)
-                        : " empty"));
-                }
-                if (block.valid && block.tag == getTag(address)) {//  it's a hit!
-                    if (CacheSimulator.this.debug) {
-                        CacheSimulator.this.writeLog(" -- HIT\n");
-                    }
-                    result = CacheResultReason.HIT;
-                    block.mostRecentAccessTime = CacheSimulator.this.memoryAccessCount;
-                    break;
-                }
-                if (!block.valid) {
-                    // It's a miss but I got it now because it is empty!
-                    if (CacheSimulator.this.debug) {
-                        CacheSimulator.this.writeLog(" -- MISS\n");
-                    }
-                    result = CacheResultReason.MISS;
-                    block.valid = true;
-                    block.tag = this.getTag(address);
-                    block.mostRecentAccessTime = CacheSimulator.this.memoryAccessCount;
-                    break;
-                }
-                if (CacheSimulator.this.debug) {
-                    CacheSimulator.this.writeLog(" -- OCCUPIED\n");
-                }
-            }
-            if (result == CacheResultReason.SET_FULL) {
-                // Select one to replace and replace it...
-                if (CacheSimulator.this.debug) {
-                    CacheSimulator.this.writeLog("   MISS due to FULL SET");
-                }
-                int blockToReplace = this.selectBlockToReplace(firstBlock, lastBlock);
-                block = blocks[blockToReplace];
-                block.tag = this.getTag(address);
-                block.mostRecentAccessTime = CacheSimulator.this.memoryAccessCount;
-                blockNumber = blockToReplace;
-            }
-            return new CacheAccessResult(result == CacheResultReason.HIT, blockNumber);
-        }
+    private void resetLogDisplay() {
+        this.logDisplay.setText("");
+    }
 
-        /**
-         * Call this if all blocks in the set are full.  If the set contains more than one block,
-         * It will pick on to replace based on selected replacement policy.
-         */
-        private int selectBlockToReplace(int first, int last) {
-            int replaceBlock = first;
-            if (first != last) {
-                switch ((ReplacementPolicy) Objects.requireNonNull(CacheSimulator.this.cacheReplacementSelector.getSelectedItem())) {
-                    case RANDOM:
-                        replaceBlock = first + CacheSimulator.this.random.nextInt(last - first + 1);
-                        if (CacheSimulator.this.debug) {
-                            CacheSimulator.this.writeLog(" -- Random replace block " + replaceBlock + "\n");
-                        }
-                        break;
-                    case LRU:
-                    default:
-                        int leastRecentAccessTime = CacheSimulator.this.memoryAccessCount; // All of them have to be less than this
-                        for (int block = first; block <= last; block++) {
-                            if (this.blocks[block].mostRecentAccessTime < leastRecentAccessTime) {
-                                leastRecentAccessTime = this.blocks[block].mostRecentAccessTime;
-                                replaceBlock = block;
-                            }
-                        }
-                        if (CacheSimulator.this.debug) {
-                            CacheSimulator.this.writeLog(" -- LRU replace block " + replaceBlock + "; unused since (" + leastRecentAccessTime + ")\n");
-                        }
-                        break;
-                }
-            }
-            return replaceBlock;
-        }
+    private void writeLog(String text) {
+        this.logDisplay.append(text);
+        this.logDisplay.setCaretPosition(this.logDisplay.getDocument().getLength());
     }
 
     /**
@@ -854,4 +950,162 @@ public class CacheSimulator extends AbstractMarsTool {
             this.animation.setVisible(true);
         }
     }
+
+    /**
+     * Selectors for the organization and hit time of one level of the memory hierarchy.
+     */
+    private class LevelControls {
+        private final JComboBox<Integer> blockCountSelector;
+        private final JComboBox<Integer> blockSizeSelector;
+        private final JComboBox<Integer> setSizeSelector;
+        private final JSpinner hitTimeSelector;
+
+        public LevelControls(int blockCount, int blockSize, int setSize, int hitTime) {
+            this.blockCountSelector = new JComboBox<>(Arrays.stream(CACHE_BLOCK_COUNT_CHOICES).boxed().toArray(Integer[]::new));
+            this.blockCountSelector.setSelectedItem(blockCount);
+            this.blockCountSelector.addActionListener(event -> CacheSimulator.this.resetHierarchy());
+            this.blockSizeSelector = new JComboBox<>(Arrays.stream(CACHE_BLOCK_SIZE_CHOICES).boxed().toArray(Integer[]::new));
+            this.blockSizeSelector.setSelectedItem(blockSize);
+            this.blockSizeSelector.addActionListener(event -> CacheSimulator.this.resetHierarchy());
+            // Set sizes larger than the number of blocks are treated as fully associative
+            this.setSizeSelector = new JComboBox<>(Arrays.stream(CACHE_BLOCK_COUNT_CHOICES).boxed().toArray(Integer[]::new));
+            this.setSizeSelector.setSelectedItem(setSize);
+            this.setSizeSelector.addActionListener(event -> CacheSimulator.this.resetHierarchy());
+            this.hitTimeSelector = new JSpinner(new SpinnerNumberModel(hitTime, 0, 100000, 1));
+            this.hitTimeSelector.addChangeListener(event -> CacheSimulator.this.resetHierarchy());
+        }
+
+        public void addTo(JPanel panel, JComponent label) {
+            panel.add(label);
+            panel.add(this.blockCountSelector);
+            panel.add(this.blockSizeSelector);
+            panel.add(this.setSizeSelector);
+            panel.add(this.hitTimeSelector);
+        }
+
+        public CacheLevel.Configuration getConfiguration(ReplacementPolicy replacementPolicy, CacheLevel.WritePolicy writePolicy, boolean writeAllocate) {
+            return new CacheLevel.Configuration(
+                (Integer) Objects.requireNonNull(this.blockCountSelector.getSelectedItem()),
+                (Integer) Objects.requireNonNull(this.blockSizeSelector.getSelectedItem()),
+                (Integer) Objects.requireNonNull(this.setSizeSelector.getSelectedItem()),
+                replacementPolicy,
+                writePolicy,
+                writeAllocate,
+                (Integer) this.hitTimeSelector.getValue()
+            );
+        }
+    }
+
+    private static class HierarchyTableModel extends AbstractTableModel {
+        private static final String[] COLUMN_NAMES = {"Level", "Reads", "Writes", "Misses", "Miss Rate %", "Writebacks", "AMAT (cycles)"};
+        private static final Class<?>[] COLUMN_CLASSES = {String.class, Long.class, Long.class, Long.class, Double.class, Long.class, Double.class};
+
+        private CacheHierarchy hierarchy = null;
+        private List<CacheLevel> levels = List.of();
+        private List<CacheLevel.Statistics> statistics = List.of();
+        private double[] averageAccessTimes = new double[0];
+
+        /**
+         * Take a new snapshot of the statistics for each level of a hierarchy.
+         */
+        public void setData(CacheHierarchy hierarchy) {
+            boolean structureChanged = hierarchy != this.hierarchy;
+            this.hierarchy = hierarchy;
+            this.levels = (hierarchy == null) ? List.of() : hierarchy.getLevels();
+            this.statistics = this.levels.stream().map(CacheLevel::getStatistics).toList();
+            this.averageAccessTimes = this.levels.stream().mapToDouble(level -> hierarchy.getAverageAccessTime(level)).toArray();
+            if (structureChanged) {
+                this.fireTableDataChanged();
+            }
+            else if (!this.levels.isEmpty()) {
+                this.fireTableRowsUpdated(0, this.levels.size() - 1);
+            }
+        }
+
+        public List<CacheLevel.Statistics> getStatistics() {
+            return this.statistics;
+        }
+
+        @Override
+        public int getRowCount() {
+            return this.levels.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMN_NAMES.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMN_NAMES[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return COLUMN_CLASSES[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            CacheLevel.Statistics statistics = this.statistics.get(row);
+            return switch (column) {
+                case 0 -> this.levels.get(row).getName();
+                case 1 -> statistics.readCount();
+                case 2 -> statistics.writeCount();
+                case 3 -> statistics.missCount();
+                case 4 -> Math.round(1000.0 * statistics.missRate()) / 10.0;
+                case 5 -> statistics.writebackCount();
+                case 6 -> Math.round(100.0 * this.averageAccessTimes[row]) / 100.0;
+                default -> null;
+            };
+        }
+    }
+
+    private static class SweepTableModel extends AbstractTableModel {
+        private static final String[] COLUMN_NAMES = {"Block Size", "Sets", "Set Size", "Blocks", "Cache Size (bytes)", "Misses", "Miss Rate %"};
+        private static final Class<?>[] COLUMN_CLASSES = {Integer.class, Integer.class, Integer.class, Integer.class, Long.class, Long.class, Double.class};
+
+        private List<StackDistanceProfiler.SweepResult> results = List.of();
+
+        public void setData(List<StackDistanceProfiler.SweepResult> results) {
+            this.results = results;
+            this.fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return this.results.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMN_NAMES.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMN_NAMES[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return COLUMN_CLASSES[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            StackDistanceProfiler.SweepResult result = this.results.get(row);
+            return switch (column) {
+                case 0 -> result.blockSizeInWords();
+                case 1 -> result.setCount();
+                case 2 -> result.associativity();
+                case 3 -> result.blockCount();
+                case 4 -> result.cacheSizeInBytes();
+                case 5 -> result.missCount();
+                case 6 -> Math.round(1000.0 * result.missRate()) / 10.0;
+                default -> null;
+            };
+        }
+    }
 }
@@ -0,0 +1,260 @@
+package mars.tools;
+
+import mars.simulator.*;
+import mars.util.Binary;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Tool which attaches a {@link Profiler} to the simulator and displays where the running program spends its time,
+ * both per function (with inclusive and exclusive instruction counts) and per source line. The results can also be
+ * saved in the "folded stacks" format used by flame graph tools.
+ * <p>
+ * The tables are refreshed whenever the simulator pauses or finishes, since the profiler is only safe to read
+ * while the simulator is not running.
+ */
+public class CallGraphProfiler extends AbstractMarsTool implements SimulatorListener {
+    private static final String NAME = "Call Graph Profiler";
+    private static final String VERSION = "Version 1.0";
+
+    private final Profiler profiler;
+    private FunctionTableModel functionTableModel;
+    private LineTableModel lineTableModel;
+    private JLabel totalLabel;
+
+    /**
+     * Construct an instance of this tool. This will be used by the {@link mars.venus.ToolManager}.
+     */
+    @SuppressWarnings("unused")
+    public CallGraphProfiler() {
+        super(NAME + ", " + VERSION);
+        this.profiler = new Profiler();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    protected JComponent buildMainDisplayArea() {
+        this.functionTableModel = new FunctionTableModel();
+        this.lineTableModel = new LineTableModel();
+
+        JTable functionTable = new JTable(this.functionTableModel);
+        functionTable.setAutoCreateRowSorter(true);
+        functionTable.getRowSorter().toggleSortOrder(3);
+        functionTable.getRowSorter().toggleSortOrder(3);
+        JTable lineTable = new JTable(this.lineTableModel);
+        lineTable.setAutoCreateRowSorter(true);
+        lineTable.getColumnModel().getColumn(2).setPreferredWidth(300);
+
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("Functions", new JScrollPane(functionTable));
+        tabs.addTab("Source Lines", new JScrollPane(lineTable));
+        tabs.setPreferredSize(new Dimension(640, 400));
+
+        this.totalLabel = new JLabel(" ");
+
+        JButton saveButton = new JButton("Save Folded Stacks...");
+        saveButton.setToolTipText("Save the call stacks in the folded format used by flame graph tools");
+        saveButton.addActionListener(event -> this.saveFoldedStacks());
+
+        JPanel bottomPanel = new JPanel(new BorderLayout(6, 6));
+        bottomPanel.add(this.totalLabel, BorderLayout.CENTER);
+        bottomPanel.add(saveButton, BorderLayout.EAST);
+
+        JPanel panel = new JPanel(new BorderLayout(6, 6));
+        panel.add(tabs, BorderLayout.CENTER);
+        panel.add(bottomPanel, BorderLayout.SOUTH);
+        return panel;
+    }
+
+    @Override
+    protected JComponent getHelpComponent() {
+        final String helpContent = """
+            Use this tool to find where a MIPS program spends its time.
+            Every instruction executed while the tool is connected is
+            counted against the function it belongs to and the source
+            line it came from.  Functions are entered by jal, jalr or a
+            linking branch, and exited by jr $ra.
+
+            The Functions tab lists the number of calls to each function,
+            along with its exclusive count (instructions executed in the
+            function itself) and inclusive count (including the functions
+            it calls).  The Source Lines tab lists the count for each line.
+            The tables are updated whenever the program pauses or finishes.
+
+            Save Folded Stacks writes one line per distinct call stack in
+            the format read by flame graph tools.  Reset discards all counts.
+            """;
+        JButton help = new JButton("Help");
+        help.putClientProperty("JButton.buttonType", "help");
+        help.addActionListener(event -> JOptionPane.showMessageDialog(this.dialog, helpContent));
+        return help;
+    }
+
+    @Override
+    protected void startObserving() {
+        Simulator.getInstance().addExecutionListener(this.profiler);
+        Simulator.getInstance().addGUIListener(this);
+    }
+
+    @Override
+    protected void stopObserving() {
+        Simulator.getInstance().removeExecutionListener(this.profiler);
+        Simulator.getInstance().removeGUIListener(this);
+    }
+
+    @Override
+    protected void reset() {
+        Simulator.getInstance().changeState(() -> {
+            this.profiler.reset();
+            SwingUtilities.invokeLater(this::updateDisplay);
+        });
+    }
+
+    @Override
+    public void simulatorPaused(SimulatorPauseEvent event) {
+        this.updateDisplay();
+    }
+
+    @Override
+    public void simulatorFinished(SimulatorFinishEvent event) {
+        this.updateDisplay();
+    }
+
+    private void updateDisplay() {
+        List<Profiler.FunctionStatistics> functions = this.profiler.getFunctionStatistics();
+        long total = 0;
+        for (Profiler.FunctionStatistics function : functions) {
+            total += function.exclusive();
+        }
+        this.functionTableModel.setData(functions, total);
+        this.lineTableModel.setData(this.profiler.getLineStatistics());
+        this.totalLabel.setText("Total instructions profiled: " + total);
+    }
+
+    private void saveFoldedStacks() {
+        if (Simulator.getInstance().isRunning()) {
+            JOptionPane.showMessageDialog(this.dialog, "Pause or stop the program before saving profiler results.");
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("profile.folded"));
+        if (chooser.showSaveDialog(this.dialog) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try (Writer writer = new BufferedWriter(new FileWriter(chooser.getSelectedFile()))) {
+            this.profiler.writeFoldedStacks(writer);
+        }
+        catch (IOException exception) {
+            JOptionPane.showMessageDialog(this.dialog, "Failed to save folded stacks: " + exception.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private static class FunctionTableModel extends AbstractTableModel {
+        private static final String[] COLUMN_NAMES = {"Function", "Address", "Calls", "Inclusive", "Exclusive", "Inclusive %", "Exclusive %"};
+        private static final Class<?>[] COLUMN_CLASSES = {String.class, String.class, Long.class, Long.class, Long.class, Double.class, Double.class};
+
+        private List<Profiler.FunctionStatistics> functions = List.of();
+        private long total = 0;
+
+        public void setData(List<Profiler.FunctionStatistics> functions, long total) {
+            this.functions = functions;
+            this.total = total;
+            this.fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return this.functions.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMN_NAMES.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMN_NAMES[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return COLUMN_CLASSES[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Profiler.FunctionStatistics function = this.functions.get(row);
+            return switch (column) {
+                case 0 -> function.name();
+                case 1 -> (function.address() == -1) ? "" : Binary.intToHexString(function.address());
+                case 2 -> function.calls();
+                case 3 -> function.inclusive();
+                case 4 -> function.exclusive();
+                case 5 -> this.getPercentage(function.inclusive());
+                case 6 -> this.getPercentage(function.exclusive());
+                default -> null;
+            };
+        }
+
+        private double getPercentage(long count) {
+            return (this.total == 0) ? 0.0 : Math.round(1000.0 * count / this.total) / 10.0;
+        }
+    }
+
+    private static class LineTableModel extends AbstractTableModel {
+        private static final String[] COLUMN_NAMES = {"File", "Line", "Source", "Count"};
+        private static final Class<?>[] COLUMN_CLASSES = {String.class, Integer.class, String.class, Long.class};
+
+        private List<Profiler.LineStatistics> lines = List.of();
+
+        public void setData(List<Profiler.LineStatistics> lines) {
+            this.lines = lines;
+            this.fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return this.lines.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMN_NAMES.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMN_NAMES[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return COLUMN_CLASSES[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Profiler.LineStatistics line = this.lines.get(row);
+            return switch (column) {
+                case 0 -> new File(line.location().getFilename()).getName();
+                case 1 -> line.location().getLineIndex() + 1;
+                case 2 -> line.source().strip();
+                case 3 -> line.count();
+                default -> null;
+            };
+        }
+    }
+}
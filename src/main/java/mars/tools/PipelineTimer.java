@@ -0,0 +1,310 @@
+package mars.tools;
+
+import mars.Application;
+import mars.simulator.*;
+import mars.util.Binary;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Tool which estimates the number of clock cycles a program would take on a five-stage pipeline using
+ * {@link PipelineModel}, and shows where the pipeline stalls, per instruction and per source line.
+ * The timing parameters can be changed at any time, which discards the results gathered so far.
+ * Results are updated whenever the program is paused or finishes.
+ */
+public class PipelineTimer extends AbstractMarsTool implements SimulatorListener {
+    private static final String NAME = "Pipeline Timer";
+    private static final String VERSION = "Version 1.0";
+    private static final String RESOLVED_IN_DECODE = "ID";
+    private static final String RESOLVED_IN_EXECUTE = "EX";
+    private static final int MAX_LATENCY = 100;
+
+    private final PipelineModel model;
+    private JCheckBox forwardingCheckBox;
+    private JComboBox<String> branchStageSelector;
+    private JSpinner multiplyLatencySpinner;
+    private JSpinner divideLatencySpinner;
+    private InstructionTableModel instructionTableModel;
+    private LineTableModel lineTableModel;
+    private JLabel summaryLabel;
+
+    /**
+     * Construct an instance of this tool. This will be used by the {@link mars.venus.ToolManager}.
+     */
+    @SuppressWarnings("unused")
+    public PipelineTimer() {
+        super(NAME + ", " + VERSION);
+        this.model = new PipelineModel();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    protected JComponent buildMainDisplayArea() {
+        PipelineModel.Configuration configuration = this.model.getConfiguration();
+        this.forwardingCheckBox = new JCheckBox("Forwarding", configuration.forwardingEnabled());
+        this.forwardingCheckBox.setToolTipText("Forward results to later instructions instead of waiting for writeback");
+        this.forwardingCheckBox.addActionListener(event -> this.applyConfiguration());
+        this.branchStageSelector = new JComboBox<>(new String[] {RESOLVED_IN_DECODE, RESOLVED_IN_EXECUTE});
+        this.branchStageSelector.setSelectedItem(configuration.branchesResolvedInExecute() ? RESOLVED_IN_EXECUTE : RESOLVED_IN_DECODE);
+        this.branchStageSelector.addActionListener(event -> this.applyConfiguration());
+        this.multiplyLatencySpinner = new JSpinner(new SpinnerNumberModel(configuration.multiplyLatency(), 1, MAX_LATENCY, 1));
+        this.multiplyLatencySpinner.addChangeListener(event -> this.applyConfiguration());
+        this.divideLatencySpinner = new JSpinner(new SpinnerNumberModel(configuration.divideLatency(), 1, MAX_LATENCY, 1));
+        this.divideLatencySpinner.addChangeListener(event -> this.applyConfiguration());
+
+        JPanel configurationPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        configurationPanel.add(this.forwardingCheckBox);
+        configurationPanel.add(new JLabel("Branches resolved in"));
+        configurationPanel.add(this.branchStageSelector);
+        configurationPanel.add(new JLabel("Multiply latency"));
+        configurationPanel.add(this.multiplyLatencySpinner);
+        configurationPanel.add(new JLabel("Divide latency"));
+        configurationPanel.add(this.divideLatencySpinner);
+
+        this.instructionTableModel = new InstructionTableModel();
+        this.lineTableModel = new LineTableModel();
+
+        JTable instructionTable = new JTable(this.instructionTableModel);
+        instructionTable.setAutoCreateRowSorter(true);
+        instructionTable.getColumnModel().getColumn(1).setPreferredWidth(200);
+        JTable lineTable = new JTable(this.lineTableModel);
+        lineTable.setAutoCreateRowSorter(true);
+        lineTable.getColumnModel().getColumn(2).setPreferredWidth(200);
+
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("Instructions", new JScrollPane(instructionTable));
+        tabs.addTab("Source Lines", new JScrollPane(lineTable));
+        tabs.setPreferredSize(new Dimension(720, 400));
+
+        this.summaryLabel = new JLabel(" ");
+
+        JButton saveButton = new JButton("Save Report...");
+        saveButton.setToolTipText("Save the cycle count, CPI and stalls per source line as JSON");
+        saveButton.addActionListener(event -> this.saveReport());
+
+        JPanel bottomPanel = new JPanel(new BorderLayout(6, 6));
+        bottomPanel.add(this.summaryLabel, BorderLayout.CENTER);
+        bottomPanel.add(saveButton, BorderLayout.EAST);
+
+        JPanel panel = new JPanel(new BorderLayout(6, 6));
+        panel.add(configurationPanel, BorderLayout.NORTH);
+        panel.add(tabs, BorderLayout.CENTER);
+        panel.add(bottomPanel, BorderLayout.SOUTH);
+        return panel;
+    }
+
+    @Override
+    protected JComponent getHelpComponent() {
+        final String helpContent = """
+            Use this tool to estimate how many clock cycles a MIPS program
+            would take on the classic five-stage pipeline (IF, ID, EX, MEM,
+            WB), and to see where the pipeline stalls.  Each instruction
+            executed while the tool is connected is timed as it retires.
+
+            Stalls are split into four kinds: waiting on the result of an
+            earlier instruction, waiting on a load, waiting on the
+            multiply/divide unit, and cycles lost to taken branches and
+            jumps.  The options at the top control whether results are
+            forwarded, which stage resolves branches, and the latency of
+            multiplication and division.  Changing an option discards the
+            results gathered so far.
+
+            The Instructions and Source Lines tabs list the stalls per
+            instruction and per line, and are updated whenever the program
+            pauses or finishes.  Save Report writes the totals and the
+            stalls per source line as JSON.
+            """;
+        JButton help = new JButton("Help");
+        help.putClientProperty("JButton.buttonType", "help");
+        help.addActionListener(event -> JOptionPane.showMessageDialog(this.dialog, helpContent));
+        return help;
+    }
+
+    @Override
+    protected void startObserving() {
+        Simulator.getInstance().addExecutionListener(this.model);
+        Simulator.getInstance().addGUIListener(this);
+    }
+
+    @Override
+    protected void stopObserving() {
+        Simulator.getInstance().removeExecutionListener(this.model);
+        Simulator.getInstance().removeGUIListener(this);
+    }
+
+    @Override
+    protected void reset() {
+        Simulator.getInstance().changeState(() -> {
+            this.model.reset();
+            SwingUtilities.invokeLater(this::updateDisplay);
+        });
+    }
+
+    @Override
+    public void simulatorPaused(SimulatorPauseEvent event) {
+        this.updateDisplay();
+    }
+
+    @Override
+    public void simulatorFinished(SimulatorFinishEvent event) {
+        this.updateDisplay();
+    }
+
+    private void applyConfiguration() {
+        PipelineModel.Configuration configuration = new PipelineModel.Configuration(
+            this.forwardingCheckBox.isSelected(),
+            RESOLVED_IN_EXECUTE.equals(this.branchStageSelector.getSelectedItem()),
+            (Integer) this.multiplyLatencySpinner.getValue(),
+            (Integer) this.divideLatencySpinner.getValue()
+        );
+        Simulator.getInstance().changeState(() -> {
+            this.model.setConfiguration(configuration);
+            SwingUtilities.invokeLater(this::updateDisplay);
+        });
+    }
+
+    private void updateDisplay() {
+        this.instructionTableModel.setData(this.model.getInstructionStatistics());
+        this.lineTableModel.setData(this.model.getLineStatistics());
+
+        PipelineModel.Summary summary = this.model.getSummary();
+        this.summaryLabel.setText(String.format(
+            "Instructions: %d    Cycles: %d    CPI: %.3f    Stalls: %d data, %d load-use, %d mult/div, %d branch%s",
+            summary.instructionCount(),
+            summary.cycleCount(),
+            summary.cyclesPerInstruction(),
+            summary.dataStalls(),
+            summary.loadUseStalls(),
+            summary.multiplyDivideStalls(),
+            summary.branchStalls(),
+            Application.getSettings().delayedBranchingEnabled.get() ? "    (delayed branching)" : ""
+        ));
+    }
+
+    private void saveReport() {
+        if (Simulator.getInstance().isRunning()) {
+            JOptionPane.showMessageDialog(this.dialog, "Pause or stop the program before saving the pipeline report.");
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("pipeline.json"));
+        if (chooser.showSaveDialog(this.dialog) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try (Writer writer = new BufferedWriter(new FileWriter(chooser.getSelectedFile()))) {
+            this.model.toJSON().write(writer, 2, 0);
+        }
+        catch (IOException exception) {
+            JOptionPane.showMessageDialog(this.dialog, "Failed to save pipeline report: " + exception.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private static class InstructionTableModel extends AbstractTableModel {
+        private static final String[] COLUMN_NAMES = {"Address", "Instruction", "Executions", "Data", "Load-Use", "Mult/Div", "Branch", "Total Stalls"};
+        private static final Class<?>[] COLUMN_CLASSES = {String.class, String.class, Long.class, Long.class, Long.class, Long.class, Long.class, Long.class};
+
+        private List<PipelineModel.InstructionStatistics> instructions = List.of();
+
+        public void setData(List<PipelineModel.InstructionStatistics> instructions) {
+            this.instructions = instructions;
+            this.fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return this.instructions.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMN_NAMES.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMN_NAMES[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return COLUMN_CLASSES[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            PipelineModel.InstructionStatistics instruction = this.instructions.get(row);
+            return switch (column) {
+                case 0 -> Binary.intToHexString(instruction.address());
+                case 1 -> (instruction.statement() == null) ? "" : instruction.statement().toString();
+                case 2 -> instruction.executions();
+                case 3 -> instruction.dataStalls();
+                case 4 -> instruction.loadUseStalls();
+                case 5 -> instruction.multiplyDivideStalls();
+                case 6 -> instruction.branchStalls();
+                case 7 -> instruction.stallCount();
+                default -> null;
+            };
+        }
+    }
+
+    private static class LineTableModel extends AbstractTableModel {
+        private static final String[] COLUMN_NAMES = {"File", "Line", "Source", "Executions", "Data", "Load-Use", "Mult/Div", "Branch", "Total Stalls"};
+        private static final Class<?>[] COLUMN_CLASSES = {String.class, Integer.class, String.class, Long.class, Long.class, Long.class, Long.class, Long.class, Long.class};
+
+        private List<PipelineModel.LineStatistics> lines = List.of();
+
+        public void setData(List<PipelineModel.LineStatistics> lines) {
+            this.lines = lines;
+            this.fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return this.lines.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMN_NAMES.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMN_NAMES[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return COLUMN_CLASSES[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            PipelineModel.LineStatistics line = this.lines.get(row);
+            return switch (column) {
+                case 0 -> new File(line.location().getFilename()).getName();
+                case 1 -> line.location().getLineIndex() + 1;
+                case 2 -> line.source().strip();
+                case 3 -> line.executions();
+                case 4 -> line.dataStalls();
+                case 5 -> line.loadUseStalls();
+                case 6 -> line.multiplyDivideStalls();
+                case 7 -> line.branchStalls();
+                case 8 -> line.stallCount();
+                default -> null;
+            };
+        }
+    }
+}
@@ -43,6 +43,10 @@ import java.util.Vector;
  * <li>A table representing the BHT with all entries and their internal state and statistics.
  * <li>A log panel that summarizes the predictions in a textual form.
  * </ul>
+ * <p>
+ * A second tab allows a number of other branch predictors to be compared side by side on the same branch stream.
+ * It consists of a configuration panel to select the predictors and their table sizes,
+ * and a table listing the accuracy of each predictor.
  *
  * @author Ingo Kofler (ingo.kofler@itec.uni-klu.ac.at)
  */
@@ -100,20 +104,59 @@ public class BHTSimGUI extends JPanel {
      * Text field for log output.
      */
     private JTextArea logTextField;
+    /**
+     * Check boxes for enabling each of the compared predictors.
+     */
+    private JCheckBox bimodalCheckBox;
+    private JCheckBox gshareCheckBox;
+    private JCheckBox localHistoryCheckBox;
+    private JCheckBox tournamentCheckBox;
+    private JCheckBox branchTargetCheckBox;
+    /**
+     * Combo box for selecting the number of entries in the tables of the compared predictors.
+     */
+    private JComboBox<Integer> patternTableSizeComboBox;
+    /**
+     * Combo box for selecting the global history size of the compared predictors.
+     */
+    private JComboBox<Integer> globalHistorySizeComboBox;
+    /**
+     * Combo box for selecting the local history size of the compared predictors.
+     */
+    private JComboBox<Integer> localHistorySizeComboBox;
+    /**
+     * Combo box for selecting the number of BTB entries.
+     */
+    private JComboBox<Integer> branchTargetBufferSizeComboBox;
+    /**
+     * Combo box for selecting the depth of the return address stack.
+     */
+    private JComboBox<Integer> returnAddressStackDepthComboBox;
+    /**
+     * The table listing the accuracy of the compared predictors.
+     */
+    private final JTable predictorTable;
 
     /**
      * Creates the GUI components of the BHT Simulator
      * The GUI is a subclass of JPanel which is integrated in the GUI of the MARS tool.
      */
     public BHTSimGUI() {
-        this.setLayout(new BorderLayout(10, 10));
+        this.setLayout(new BorderLayout());
 
         this.table = this.createAndInitializeTable();
-
-        this.add(this.buildConfigPanel(), BorderLayout.NORTH);
-        this.add(this.buildInfoPanel(), BorderLayout.WEST);
-        this.add(new JScrollPane(this.table), BorderLayout.CENTER);
-        this.add(this.buildLogPanel(), BorderLayout.SOUTH);
+        this.predictorTable = this.createAndInitializeTable();
+
+        JPanel historyTablePanel = new JPanel(new BorderLayout(10, 10));
+        historyTablePanel.add(this.buildConfigPanel(), BorderLayout.NORTH);
+        historyTablePanel.add(this.buildInfoPanel(), BorderLayout.WEST);
+        historyTablePanel.add(new JScrollPane(this.table), BorderLayout.CENTER);
+        historyTablePanel.add(this.buildLogPanel(), BorderLayout.SOUTH);
+
+        JTabbedPane tabbedPane = new JTabbedPane();
+        tabbedPane.addTab("Branch History Table", historyTablePanel);
+        tabbedPane.addTab("Predictor Comparison", this.buildComparisonPanel());
+        this.add(tabbedPane, BorderLayout.CENTER);
     }
 
     /**
@@ -142,6 +185,7 @@ public class BHTSimGUI extends JPanel {
 
         table.setDefaultRenderer(Double.class, doubleRenderer);
         table.setDefaultRenderer(Integer.class, defaultRenderer);
+        table.setDefaultRenderer(Long.class, defaultRenderer);
         table.setDefaultRenderer(String.class, defaultRenderer);
 
         table.setSelectionBackground(BHTSimGUI.COLOR_PREPREDICTION);
@@ -228,6 +272,60 @@ public class BHTSimGUI extends JPanel {
         return panel;
     }
 
+    /**
+     * Creates and initializes the panel for comparing predictors.
+     * The panel contains check boxes for selecting the predictors, combo boxes for their configuration,
+     * and the table listing the accuracy of each predictor.
+     *
+     * @return The panel for the predictor comparison.
+     */
+    private JPanel buildComparisonPanel() {
+        this.bimodalCheckBox = new JCheckBox("Bimodal", true);
+        this.gshareCheckBox = new JCheckBox("Gshare", true);
+        this.localHistoryCheckBox = new JCheckBox("Local", true);
+        this.tournamentCheckBox = new JCheckBox("Tournament", true);
+        this.branchTargetCheckBox = new JCheckBox("BTB + RAS", true);
+
+        this.patternTableSizeComboBox = new JComboBox<>(new Integer[] {256, 1024, 4096, 16384});
+        this.globalHistorySizeComboBox = new JComboBox<>(new Integer[] {2, 4, 6, 8, 10, 12, 14});
+        this.localHistorySizeComboBox = new JComboBox<>(new Integer[] {2, 4, 6, 8, 10, 12, 14});
+        this.branchTargetBufferSizeComboBox = new JComboBox<>(new Integer[] {16, 64, 256, 1024});
+        this.returnAddressStackDepthComboBox = new JComboBox<>(new Integer[] {2, 4, 8, 16, 32});
+
+        JPanel selectionPanel = new JPanel();
+        selectionPanel.add(new JLabel("Predictors"));
+        selectionPanel.add(this.bimodalCheckBox);
+        selectionPanel.add(this.gshareCheckBox);
+        selectionPanel.add(this.localHistoryCheckBox);
+        selectionPanel.add(this.tournamentCheckBox);
+        selectionPanel.add(this.branchTargetCheckBox);
+
+        JPanel tableSizePanel = new JPanel();
+        tableSizePanel.add(new JLabel("Table entries"));
+        tableSizePanel.add(this.patternTableSizeComboBox);
+        tableSizePanel.add(new JLabel("Global history bits"));
+        tableSizePanel.add(this.globalHistorySizeComboBox);
+        tableSizePanel.add(new JLabel("Local history bits"));
+        tableSizePanel.add(this.localHistorySizeComboBox);
+
+        JPanel targetPanel = new JPanel();
+        targetPanel.add(new JLabel("BTB entries"));
+        targetPanel.add(this.branchTargetBufferSizeComboBox);
+        targetPanel.add(new JLabel("RAS depth"));
+        targetPanel.add(this.returnAddressStackDepthComboBox);
+
+        JPanel configPanel = new JPanel(new GridLayout(3, 1));
+        configPanel.add(selectionPanel);
+        configPanel.add(tableSizePanel);
+        configPanel.add(targetPanel);
+
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.add(configPanel, BorderLayout.NORTH);
+        panel.add(new JScrollPane(this.predictorTable), BorderLayout.CENTER);
+        panel.add(new JLabel("Results are updated whenever the program is paused or finishes."), BorderLayout.SOUTH);
+        return panel;
+    }
+
     /**
      * Creates and initializes the panel containing the log text area.
      *
@@ -315,4 +413,103 @@ public class BHTSimGUI extends JPanel {
     public JTextField getInstructionIndexTextField() {
         return this.instructionIndexTextField;
     }
+
+    /**
+     * Returns the check box for enabling the bimodal predictor.
+     *
+     * @return The reference to the check box.
+     */
+    public JCheckBox getBimodalCheckBox() {
+        return this.bimodalCheckBox;
+    }
+
+    /**
+     * Returns the check box for enabling the gshare predictor.
+     *
+     * @return The reference to the check box.
+     */
+    public JCheckBox getGshareCheckBox() {
+        return this.gshareCheckBox;
+    }
+
+    /**
+     * Returns the check box for enabling the two-level local predictor.
+     *
+     * @return The reference to the check box.
+     */
+    public JCheckBox getLocalHistoryCheckBox() {
+        return this.localHistoryCheckBox;
+    }
+
+    /**
+     * Returns the check box for enabling the tournament predictor.
+     *
+     * @return The reference to the check box.
+     */
+    public JCheckBox getTournamentCheckBox() {
+        return this.tournamentCheckBox;
+    }
+
+    /**
+     * Returns the check box for enabling the BTB and return address stack.
+     *
+     * @return The reference to the check box.
+     */
+    public JCheckBox getBranchTargetCheckBox() {
+        return this.branchTargetCheckBox;
+    }
+
+    /**
+     * Returns the combo box for selecting the number of entries in the tables of the compared predictors.
+     *
+     * @return The reference to the combo box.
+     */
+    public JComboBox<Integer> getPatternTableSizeComboBox() {
+        return this.patternTableSizeComboBox;
+    }
+
+    /**
+     * Returns the combo box for selecting the global history size of the compared predictors.
+     *
+     * @return The reference to the combo box.
+     */
+    public JComboBox<Integer> getGlobalHistorySizeComboBox() {
+        return this.globalHistorySizeComboBox;
+    }
+
+    /**
+     * Returns the combo box for selecting the local history size of the compared predictors.
+     *
+     * @return The reference to the combo box.
+     */
+    public JComboBox<Integer> getLocalHistorySizeComboBox() {
+        return this.localHistorySizeComboBox;
+    }
+
+    /**
+     * Returns the combo box for selecting the number of BTB entries.
+     *
+     * @return The reference to the combo box.
+     */
+    public JComboBox<Integer> getBranchTargetBufferSizeComboBox() {
+        return this.branchTargetBufferSizeComboBox;
+    }
+
+    /**
+     * Returns the combo box for selecting the depth of the return address stack.
+     *
+     * @return The reference to the combo box.
+     */
+    public JComboBox<Integer> getReturnAddressStackDepthComboBox() {
+        return this.returnAddressStackDepthComboBox;
+    }
+
+    /**
+     * Returns the table listing the accuracy of the compared predictors.
+     *
+     * @return The reference to the table.
+     */
+    public JTable getPredictorTable() {
+        return this.predictorTable;
+    }
 }
@@ -0,0 +1,37 @@
+package mars.tools.bhtsim;
+
+import java.util.Arrays;
+
+/**
+ * A bimodal predictor: a table of 2-bit saturating counters indexed by the address of the branch.
+ * This is the classic 2-bit counter scheme, and serves as a baseline for the other predictors.
+ */
+public class BimodalPredictor extends DirectionPredictor {
+    private final byte[] counters;
+
+    /**
+     * Create a new bimodal predictor.
+     *
+     * @param entryCount The number of counters, which must be a power of two.
+     */
+    public BimodalPredictor(int entryCount) {
+        super("Bimodal");
+        this.counters = new byte[entryCount];
+        Arrays.fill(this.counters, INITIAL_COUNTER);
+    }
+
+    @Override
+    public String getConfiguration() {
+        return this.counters.length + " counters";
+    }
+
+    @Override
+    protected boolean predict(int address) {
+        return isTaken(this.counters[getIndex(address, this.counters.length)]);
+    }
+
+    @Override
+    protected void update(int address, boolean taken) {
+        train(this.counters, getIndex(address, this.counters.length), taken);
+    }
+}
@@ -0,0 +1,201 @@
+package mars.tools.bhtsim;
+
+/**
+ * Base class for the branch predictors compared by the {@link mars.tools.BHTSimulator}. Every predictor sees the same
+ * stream of retired control transfer instructions, makes its prediction for each one it is interested in,
+ * and keeps count of how many of its predictions were correct.
+ * <p>
+ * Predictor state is kept in primitive arrays, and predictors are only ever updated by a single thread
+ * (the simulator thread), so the statistics should only be read while the simulator is not running.
+ */
+public abstract class BranchPredictor {
+    /**
+     * The kinds of control transfer instructions which are fed to predictors.
+     */
+    public enum BranchType {
+        /**
+         * A conditional branch, such as <code>beq</code> or <code>bc1t</code>.
+         */
+        CONDITIONAL,
+        /**
+         * An unconditional jump which does not link, such as <code>j</code>, or <code>jr</code> with a register
+         * other than <code>$ra</code>.
+         */
+        JUMP,
+        /**
+         * An instruction which saves a return address, such as <code>jal</code>, <code>jalr</code> or
+         * <code>bgezal</code>.
+         */
+        CALL,
+        /**
+         * A return from a subroutine, i.e. <code>jr $ra</code>.
+         */
+        RETURN;
+
+        /**
+         * Classify an instruction by its binary encoding.
+         *
+         * @param encoding The binary encoding of the instruction.
+         * @return The kind of control transfer, or <code>null</code> if the instruction is not a branch or jump.
+         */
+        public static BranchType of(int encoding) {
+            int opcode = encoding >>> 26;
+            int rs = (encoding >>> 21) & 0x1F;
+            int rt = (encoding >>> 16) & 0x1F;
+            int funct = encoding & 0x3F;
+            return switch (opcode) {
+                case 0x00 -> switch (funct) {
+                    case 0x08 -> (rs == RETURN_ADDRESS_REGISTER) ? RETURN : JUMP; // jr
+                    case 0x09 -> CALL; // jalr
+                    default -> null;
+                };
+                case 0x01 -> switch (rt) {
+                    case 0x00, 0x01, 0x02, 0x03 -> CONDITIONAL; // bltz, bgez, bltzl, bgezl
+                    case 0x10, 0x11, 0x12, 0x13 -> CALL; // bltzal, bgezal, bltzall, bgezall
+                    default -> null;
+                };
+                case 0x02 -> JUMP; // j
+                case 0x03 -> CALL; // jal
+                case 0x04, 0x05, 0x06, 0x07, 0x14, 0x15, 0x16, 0x17 -> CONDITIONAL; // beq, bne, blez, bgtz and likely forms
+                case 0x11 -> (rs == 0x08) ? CONDITIONAL : null; // bc1f, bc1t
+                default -> null;
+            };
+        }
+
+        /**
+         * Determine which register receives the return address of a {@link #CALL} instruction.
+         *
+         * @param encoding The binary encoding of the instruction.
+         * @return The number of the link register.
+         */
+        public static int getLinkRegister(int encoding) {
+            // Only jalr can link to a register other than $ra
+            boolean isJalr = (encoding >>> 26) == 0x00 && (encoding & 0x3F) == 0x09;
+            return isJalr ? (encoding >>> 11) & 0x1F : RETURN_ADDRESS_REGISTER;
+        }
+    }
+
+    private static final int RETURN_ADDRESS_REGISTER = 31;
+
+    private final String name;
+    private long predictionCount;
+    private long correctCount;
+
+    /**
+     * Create a new predictor with no statistics.
+     *
+     * @param name The name of the kind of predictor, for display purposes.
+     */
+    protected BranchPredictor(String name) {
+        this.name = name;
+        this.predictionCount = 0;
+        this.correctCount = 0;
+    }
+
+    /**
+     * Get the name of the kind of predictor.
+     *
+     * @return The name given when this predictor was created.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Get a short summary of the configuration of this predictor, for display purposes.
+     *
+     * @return The configuration of this predictor.
+     */
+    public abstract String getConfiguration();
+
+    /**
+     * Predict the outcome of a retired control transfer, score the prediction, and then train this predictor with
+     * the actual outcome. Instructions this predictor does not make predictions for should still be used to update
+     * any state which depends on them.
+     *
+     * @param address       The address of the instruction.
+     * @param type          The kind of control transfer.
+     * @param taken         Whether the instruction redirected the program counter.
+     * @param nextAddress   The address fetched after the instruction (and its delay slot, if any), which is the target
+     *                      if <code>taken</code> is true.
+     * @param returnAddress The return address saved by the instruction if it is a {@link BranchType#CALL},
+     *                      or 0 otherwise.
+     */
+    public abstract void branchRetired(int address, BranchType type, boolean taken, int nextAddress, int returnAddress);
+
+    /**
+     * Record the outcome of one prediction.
+     *
+     * @param correct Whether the prediction was correct.
+     */
+    protected void recordPrediction(boolean correct) {
+        this.predictionCount++;
+        if (correct) {
+            this.correctCount++;
+        }
+    }
+
+    /**
+     * Get the number of predictions made.
+     *
+     * @return The prediction count.
+     */
+    public long getPredictionCount() {
+        return this.predictionCount;
+    }
+
+    /**
+     * Get the number of predictions which were correct.
+     *
+     * @return The correct prediction count.
+     */
+    public long getCorrectCount() {
+        return this.correctCount;
+    }
+
+    /**
+     * Get the number of predictions which were incorrect.
+     *
+     * @return The misprediction count.
+     */
+    public long getIncorrectCount() {
+        return this.predictionCount - this.correctCount;
+    }
+
+    /**
+     * Get the percentage of predictions which were correct.
+     *
+     * @return The accuracy, from 0 to 100, or 0 if no predictions have been made.
+     */
+    public double getAccuracy() {
+        return (this.predictionCount == 0) ? 0.0 : 100.0 * this.correctCount / this.predictionCount;
+    }
+
+    /**
+     * Get the direction predicted by a 2-bit saturating counter.
+     *
+     * @param counter The counter, from 0 (strongly not taken) to 3 (strongly taken).
+     * @return Whether the branch is predicted to be taken.
+     */
+    protected static boolean isTaken(byte counter) {
+        return counter >= 2;
+    }
+
+    /**
+     * Move a 2-bit saturating counter toward an outcome.
+     *
+     * @param counters The array containing the counter.
+     * @param index    The index of the counter.
+     * @param taken    Whether the branch was taken.
+     */
+    protected static void train(byte[] counters, int index, boolean taken) {
+        if (taken) {
+            if (counters[index] < 3) {
+                counters[index]++;
+            }
+        }
+        else if (counters[index] > 0) {
+            counters[index]--;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package mars.tools.bhtsim;
+
+import java.util.Arrays;
+
+/**
+ * A branch target buffer (BTB) combined with a return address stack (RAS), which predicts the address fetched
+ * after every kind of control transfer rather than just the direction of conditional branches.
+ * <p>
+ * The BTB is a direct-mapped table of the targets of taken branches and jumps. A control transfer which hits in
+ * the BTB is predicted to go to the stored target, and one which misses is predicted not to be taken. Entries for
+ * conditional branches are removed when the branch is not taken, so the BTB doubles as a 1-bit direction predictor.
+ * <p>
+ * Calls push their return address onto the RAS, and returns pop their predicted target from it, falling back to
+ * the BTB if the stack is empty. When the stack is full, pushing overwrites the oldest entry.
+ * <p>
+ * A prediction is correct if both the direction and, for taken transfers, the target are correct.
+ */
+public class BranchTargetPredictor extends BranchPredictor {
+    // Tag for an empty BTB entry; real tags are word addresses, so they are never negative
+    private static final int INVALID = -1;
+
+    private final int[] tags;
+    private final int[] targets;
+    private final int[] returnAddresses;
+    private int returnAddressTop;
+    private int returnAddressCount;
+
+    /**
+     * Create a new BTB and RAS.
+     *
+     * @param entryCount         The number of BTB entries, which must be a power of two.
+     * @param returnAddressDepth The number of entries in the RAS.
+     */
+    public BranchTargetPredictor(int entryCount, int returnAddressDepth) {
+        super("BTB + RAS");
+        this.tags = new int[entryCount];
+        this.targets = new int[entryCount];
+        this.returnAddresses = new int[returnAddressDepth];
+        this.returnAddressTop = 0;
+        this.returnAddressCount = 0;
+        Arrays.fill(this.tags, INVALID);
+    }
+
+    @Override
+    public String getConfiguration() {
+        return this.tags.length + " BTB entries, " + this.returnAddresses.length + "-entry RAS";
+    }
+
+    @Override
+    public void branchRetired(int address, BranchType type, boolean taken, int nextAddress, int returnAddress) {
+        int tag = address >>> 2;
+        int index = tag & (this.tags.length - 1);
+
+        // Predict
+        boolean predictedTaken;
+        int predictedTarget = 0;
+        if (type == BranchType.RETURN && this.returnAddressCount > 0) {
+            predictedTaken = true;
+            predictedTarget = this.returnAddresses[this.returnAddressTop];
+            this.returnAddressTop = (this.returnAddressTop + this.returnAddresses.length - 1) % this.returnAddresses.length;
+            this.returnAddressCount--;
+        }
+        else {
+            predictedTaken = this.tags[index] == tag;
+            if (predictedTaken) {
+                predictedTarget = this.targets[index];
+            }
+        }
+        this.recordPrediction(predictedTaken ? (taken && predictedTarget == nextAddress) : !taken);
+
+        // Update
+        if (type == BranchType.CALL && taken) {
+            this.returnAddressTop = (this.returnAddressTop + 1) % this.returnAddresses.length;
+            this.returnAddresses[this.returnAddressTop] = returnAddress;
+            this.returnAddressCount = Math.min(this.returnAddressCount + 1, this.returnAddresses.length);
+        }
+        if (taken) {
+            this.tags[index] = tag;
+            this.targets[index] = nextAddress;
+        }
+        else if (this.tags[index] == tag) {
+            this.tags[index] = INVALID;
+        }
+    }
+}
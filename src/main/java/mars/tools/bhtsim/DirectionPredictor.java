@@ -0,0 +1,59 @@
+package mars.tools.bhtsim;
+
+/**
+ * Base class for predictors which only predict whether conditional branches are taken. Predictions are scored
+ * against the actual direction of each conditional branch; other control transfers are ignored.
+ * <p>
+ * All pattern history tables consist of 2-bit saturating counters, which start out weakly not taken.
+ */
+public abstract class DirectionPredictor extends BranchPredictor {
+    /**
+     * Initial value of each 2-bit counter, which is weakly not taken.
+     */
+    protected static final byte INITIAL_COUNTER = 1;
+
+    /**
+     * Create a new predictor with no statistics.
+     *
+     * @param name The name of the kind of predictor, for display purposes.
+     */
+    protected DirectionPredictor(String name) {
+        super(name);
+    }
+
+    @Override
+    public void branchRetired(int address, BranchType type, boolean taken, int nextAddress, int returnAddress) {
+        if (type == BranchType.CONDITIONAL) {
+            this.recordPrediction(this.predict(address) == taken);
+            this.update(address, taken);
+        }
+    }
+
+    /**
+     * Predict the direction of a conditional branch.
+     *
+     * @param address The address of the branch.
+     * @return Whether the branch is predicted to be taken.
+     */
+    protected abstract boolean predict(int address);
+
+    /**
+     * Train this predictor with the actual direction of a conditional branch. This is always called
+     * right after {@link #predict(int)} for the same branch.
+     *
+     * @param address The address of the branch.
+     * @param taken   Whether the branch was taken.
+     */
+    protected abstract void update(int address, boolean taken);
+
+    /**
+     * Get the index of a branch in a table, which is the word address of the branch modulo the table size.
+     *
+     * @param address    The address of the branch.
+     * @param entryCount The number of entries in the table, which must be a power of two.
+     * @return The index into the table.
+     */
+    protected static int getIndex(int address, int entryCount) {
+        return (address >>> 2) & (entryCount - 1);
+    }
+}
@@ -0,0 +1,57 @@
+package mars.tools.bhtsim;
+
+import java.util.Arrays;
+
+/**
+ * A gshare predictor: a table of 2-bit saturating counters indexed by the address of the branch exclusive-ORed
+ * with a global history register, which holds the directions of the most recent conditional branches.
+ * This lets the predictor learn branches whose outcome correlates with the branches executed before them.
+ */
+public class GsharePredictor extends DirectionPredictor {
+    private final byte[] counters;
+    private final int historyMask;
+    private int history;
+
+    /**
+     * Create a new gshare predictor.
+     *
+     * @param entryCount  The number of counters, which must be a power of two.
+     * @param historySize The number of branch outcomes kept in the global history, from 0 to 30.
+     */
+    public GsharePredictor(int entryCount, int historySize) {
+        super("Gshare");
+        this.counters = new byte[entryCount];
+        this.historyMask = (1 << historySize) - 1;
+        this.history = 0;
+        Arrays.fill(this.counters, INITIAL_COUNTER);
+    }
+
+    @Override
+    public String getConfiguration() {
+        return this.counters.length + " counters, " + Integer.bitCount(this.historyMask) + "-bit global history";
+    }
+
+    /**
+     * Get the global history register.
+     *
+     * @return The directions of the most recent conditional branches, with the most recent in the lowest bit.
+     */
+    public int getHistory() {
+        return this.history;
+    }
+
+    private int getCounterIndex(int address) {
+        return ((address >>> 2) ^ this.history) & (this.counters.length - 1);
+    }
+
+    @Override
+    protected boolean predict(int address) {
+        return isTaken(this.counters[this.getCounterIndex(address)]);
+    }
+
+    @Override
+    protected void update(int address, boolean taken) {
+        train(this.counters, this.getCounterIndex(address), taken);
+        this.history = ((this.history << 1) | (taken ? 1 : 0)) & this.historyMask;
+    }
+}
@@ -0,0 +1,49 @@
+package mars.tools.bhtsim;
+
+import java.util.Arrays;
+
+/**
+ * A two-level local predictor. The first level is a table of per-branch histories, indexed by the address of
+ * the branch, each holding the most recent directions of that branch. The second level is a table of 2-bit
+ * saturating counters indexed by that history, so the predictor learns repeating patterns such as loops with
+ * a fixed trip count.
+ */
+public class LocalHistoryPredictor extends DirectionPredictor {
+    private final int[] histories;
+    private final byte[] counters;
+    private final int historyMask;
+
+    /**
+     * Create a new two-level local predictor.
+     *
+     * @param historyEntryCount The number of per-branch histories, which must be a power of two.
+     * @param historySize       The number of outcomes in each history, from 0 to 30. The pattern table has
+     *                          2<sup><code>historySize</code></sup> counters.
+     */
+    public LocalHistoryPredictor(int historyEntryCount, int historySize) {
+        super("Local");
+        this.histories = new int[historyEntryCount];
+        this.counters = new byte[1 << historySize];
+        this.historyMask = (1 << historySize) - 1;
+        Arrays.fill(this.counters, INITIAL_COUNTER);
+    }
+
+    @Override
+    public String getConfiguration() {
+        return this.histories.length + " histories of " + Integer.bitCount(this.historyMask) + " bits, "
+            + this.counters.length + " counters";
+    }
+
+    @Override
+    protected boolean predict(int address) {
+        return isTaken(this.counters[this.histories[getIndex(address, this.histories.length)]]);
+    }
+
+    @Override
+    protected void update(int address, boolean taken) {
+        int historyIndex = getIndex(address, this.histories.length);
+        int history = this.histories[historyIndex];
+        train(this.counters, history, taken);
+        this.histories[historyIndex] = ((history << 1) | (taken ? 1 : 0)) & this.historyMask;
+    }
+}
@@ -0,0 +1,67 @@
+package mars.tools.bhtsim;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.List;
+
+/**
+ * Table model which lists the accuracy of each {@link BranchPredictor} being compared by the BHT Simulator.
+ * The values are read directly from the predictors, so {@link #refresh()} should be called whenever
+ * the predictors may have changed and the simulator is not running.
+ */
+public class PredictorTableModel extends AbstractTableModel {
+    private static final String[] COLUMN_NAMES = {"Predictor", "Configuration", "Predictions", "Correct", "Incorrect", "Accuracy"};
+    private static final Class<?>[] COLUMN_CLASSES = {String.class, String.class, Long.class, Long.class, Long.class, Double.class};
+
+    private List<BranchPredictor> predictors = List.of();
+
+    /**
+     * Replace the predictors displayed by the table.
+     *
+     * @param predictors The predictors to display, one per row.
+     */
+    public void setPredictors(List<BranchPredictor> predictors) {
+        this.predictors = predictors;
+        this.fireTableDataChanged();
+    }
+
+    /**
+     * Update the table with the current statistics of the predictors.
+     */
+    public void refresh() {
+        this.fireTableDataChanged();
+    }
+
+    @Override
+    public int getRowCount() {
+        return this.predictors.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return COLUMN_CLASSES[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        BranchPredictor predictor = this.predictors.get(row);
+        return switch (column) {
+            case 0 -> predictor.getName();
+            case 1 -> predictor.getConfiguration();
+            case 2 -> predictor.getPredictionCount();
+            case 3 -> predictor.getCorrectCount();
+            case 4 -> predictor.getIncorrectCount();
+            case 5 -> predictor.getAccuracy();
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package mars.tools.bhtsim;
+
+import java.util.Arrays;
+
+/**
+ * A tournament predictor, which runs a {@link LocalHistoryPredictor} and a {@link GsharePredictor} side by side and
+ * uses a table of 2-bit saturating counters, indexed by the global history, to choose which of the two to believe.
+ * The chooser is only trained when the two components disagree, moving toward whichever one was correct.
+ */
+public class TournamentPredictor extends DirectionPredictor {
+    private final LocalHistoryPredictor localPredictor;
+    private final GsharePredictor globalPredictor;
+    // Counters of 2 or more select the global predictor
+    private final byte[] choosers;
+    private boolean localPrediction;
+    private boolean globalPrediction;
+
+    /**
+     * Create a new tournament predictor.
+     *
+     * @param localPredictor  The local component, which must not be used anywhere else.
+     * @param globalPredictor The global component, which must not be used anywhere else.
+     * @param chooserCount    The number of chooser counters, which must be a power of two.
+     */
+    public TournamentPredictor(LocalHistoryPredictor localPredictor, GsharePredictor globalPredictor, int chooserCount) {
+        super("Tournament");
+        this.localPredictor = localPredictor;
+        this.globalPredictor = globalPredictor;
+        this.choosers = new byte[chooserCount];
+        Arrays.fill(this.choosers, INITIAL_COUNTER);
+    }
+
+    @Override
+    public String getConfiguration() {
+        return this.choosers.length + " choosers over local and gshare";
+    }
+
+    private int getChooserIndex() {
+        return this.globalPredictor.getHistory() & (this.choosers.length - 1);
+    }
+
+    @Override
+    protected boolean predict(int address) {
+        this.localPrediction = this.localPredictor.predict(address);
+        this.globalPrediction = this.globalPredictor.predict(address);
+        return isTaken(this.choosers[this.getChooserIndex()]) ? this.globalPrediction : this.localPrediction;
+    }
+
+    @Override
+    protected void update(int address, boolean taken) {
+        // The chooser must be indexed with the same history as the prediction, before the global predictor updates it
+        if (this.localPrediction != this.globalPrediction) {
+            train(this.choosers, this.getChooserIndex(), this.globalPrediction == taken);
+        }
+        this.localPredictor.update(address, taken);
+        this.globalPredictor.update(address, taken);
+    }
+}
@@ -0,0 +1,153 @@
+package mars.tools.cachesim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Model of a memory hierarchy consisting of split level 1 instruction and data caches, optionally backed by
+ * a unified level 2 cache, which is in turn backed by main memory. Instruction fetches go to the L1I cache
+ * and data accesses go to the L1D cache; misses, writebacks and write-through traffic from either one
+ * flow into the L2 cache if there is one, or directly into main memory otherwise.
+ * <p>
+ * The model is intended to be updated by the simulator thread only, but its statistics may be sampled from any
+ * thread; see {@link CacheLevel#getStatistics()}.
+ */
+public class CacheHierarchy {
+    private final CacheLevel instructionCache;
+    private final CacheLevel dataCache;
+    private final CacheLevel unifiedCache;
+    private final int memoryAccessTime;
+
+    /**
+     * Create a new hierarchy with all caches empty.
+     *
+     * @param instructionConfiguration The configuration of the L1 instruction cache.
+     * @param dataConfiguration        The configuration of the L1 data cache.
+     * @param unifiedConfiguration     The configuration of the unified L2 cache, or <code>null</code> if
+     *                                 the L1 caches should be backed directly by main memory.
+     * @param memoryAccessTime         The number of cycles taken by an access to main memory.
+     */
+    public CacheHierarchy(CacheLevel.Configuration instructionConfiguration, CacheLevel.Configuration dataConfiguration, CacheLevel.Configuration unifiedConfiguration, int memoryAccessTime) {
+        this.unifiedCache = (unifiedConfiguration == null) ? null : new CacheLevel("L2", unifiedConfiguration, null);
+        this.instructionCache = new CacheLevel("L1I", instructionConfiguration, this.unifiedCache);
+        this.dataCache = new CacheLevel("L1D", dataConfiguration, this.unifiedCache);
+        this.memoryAccessTime = memoryAccessTime;
+    }
+
+    /**
+     * Empty all caches and clear their statistics.
+     */
+    public void reset() {
+        for (CacheLevel level : this.getLevels()) {
+            level.reset();
+        }
+    }
+
+    /**
+     * Simulate fetching an instruction.
+     *
+     * @param address The address of the instruction.
+     * @return <code>true</code> if the fetch hit in the L1 instruction cache, or <code>false</code> otherwise.
+     */
+    public boolean fetchInstruction(int address) {
+        return this.instructionCache.access(address, false);
+    }
+
+    /**
+     * Simulate a data read.
+     *
+     * @param address The address read from.
+     * @return <code>true</code> if the read hit in the L1 data cache, or <code>false</code> otherwise.
+     */
+    public boolean readData(int address) {
+        return this.dataCache.access(address, false);
+    }
+
+    /**
+     * Simulate a data write.
+     *
+     * @param address The address written to.
+     * @return <code>true</code> if the write hit in the L1 data cache, or <code>false</code> otherwise.
+     */
+    public boolean writeData(int address) {
+        return this.dataCache.access(address, true);
+    }
+
+    /**
+     * Get the level 1 instruction cache.
+     *
+     * @return The L1I cache.
+     */
+    public CacheLevel getInstructionCache() {
+        return this.instructionCache;
+    }
+
+    /**
+     * Get the level 1 data cache.
+     *
+     * @return The L1D cache.
+     */
+    public CacheLevel getDataCache() {
+        return this.dataCache;
+    }
+
+    /**
+     * Get the unified level 2 cache.
+     *
+     * @return The L2 cache, or <code>null</code> if there is none.
+     */
+    public CacheLevel getUnifiedCache() {
+        return this.unifiedCache;
+    }
+
+    /**
+     * Get all levels of the hierarchy, from the processor outward.
+     *
+     * @return The L1I and L1D caches, followed by the L2 cache if there is one.
+     */
+    public List<CacheLevel> getLevels() {
+        List<CacheLevel> levels = new ArrayList<>(3);
+        levels.add(this.instructionCache);
+        levels.add(this.dataCache);
+        if (this.unifiedCache != null) {
+            levels.add(this.unifiedCache);
+        }
+        return levels;
+    }
+
+    /**
+     * Get the number of cycles taken by an access to main memory.
+     *
+     * @return The memory access time given when this hierarchy was created.
+     */
+    public int getMemoryAccessTime() {
+        return this.memoryAccessTime;
+    }
+
+    /**
+     * Compute the average memory access time as seen from a level of this hierarchy.
+     *
+     * @param level One of the levels of this hierarchy.
+     * @return The average access time in cycles.
+     * @see CacheLevel#getAverageAccessTime(int)
+     */
+    public double getAverageAccessTime(CacheLevel level) {
+        return level.getAverageAccessTime(this.memoryAccessTime);
+    }
+
+    /**
+     * Compute the average memory access time over all instruction fetches and data accesses.
+     *
+     * @return The average access time in cycles, weighted by the number of accesses to each L1 cache.
+     */
+    public double getOverallAverageAccessTime() {
+        long instructionAccessCount = this.instructionCache.getStatistics().accessCount();
+        long dataAccessCount = this.dataCache.getStatistics().accessCount();
+        if (instructionAccessCount + dataAccessCount == 0) {
+            return 0.0;
+        }
+        return (instructionAccessCount * this.getAverageAccessTime(this.instructionCache)
+            + dataAccessCount * this.getAverageAccessTime(this.dataCache))
+            / (instructionAccessCount + dataAccessCount);
+    }
+}
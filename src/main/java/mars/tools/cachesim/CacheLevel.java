@@ -0,0 +1,411 @@
+package mars.tools.cachesim;
+
+import mars.mips.hardware.Memory;
+import mars.tools.CacheSimulator;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Model of a single set-associative cache in a memory hierarchy. The contents of the cache are kept in
+ * primitive arrays indexed by block, and accesses which miss are forwarded to the next level of the hierarchy,
+ * or counted as main memory accesses if this is the last level.
+ * <p>
+ * Only the presence of blocks is modeled, not their contents, since the simulator itself keeps track of the data.
+ * Accesses are never split across blocks; an access is assumed to lie entirely within the block containing
+ * its address.
+ * <p>
+ * A cache level has a single writer: {@link #access(int, boolean)} and {@link #reset()} must only be called by one
+ * thread at a time, normally the simulator thread. Other threads may sample its statistics at any time through
+ * {@link #getStatistics()} without any locking. After each access, the level publishes its access count with
+ * release semantics, so a snapshot always reflects at least every access up to the count it reads.
+ */
+public class CacheLevel {
+    /**
+     * Policy for handling writes which hit in the cache.
+     */
+    public enum WritePolicy {
+        /**
+         * Writes only update the cache, and modified blocks are written to the next level when they are evicted.
+         */
+        WRITE_BACK("Write-back"),
+        /**
+         * Writes update both the cache and the next level immediately.
+         */
+        WRITE_THROUGH("Write-through");
+
+        private final String label;
+
+        WritePolicy(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return this.label;
+        }
+    }
+
+    /**
+     * Organization and timing of a cache level.
+     *
+     * @param blockCount        The total number of blocks. This must be a power of two.
+     * @param blockSizeInWords  The number of words in each block. This must be a power of two.
+     * @param setSizeInBlocks   The number of blocks in each set. This must be a power of two which does not exceed
+     *                          <code>blockCount</code>.
+     * @param replacementPolicy The policy used to choose which block in a full set to evict.
+     * @param writePolicy       The policy used to handle writes which hit.
+     * @param writeAllocate     Whether a write which misses brings its block into the cache. If not, the write
+     *                          is sent directly to the next level.
+     * @param hitTime           The number of cycles taken by an access which hits.
+     */
+    public record Configuration(
+        int blockCount,
+        int blockSizeInWords,
+        int setSizeInBlocks,
+        CacheSimulator.ReplacementPolicy replacementPolicy,
+        WritePolicy writePolicy,
+        boolean writeAllocate,
+        int hitTime
+    ) {}
+
+    /**
+     * Statistics for a cache level, sampled at some point in time.
+     *
+     * @param readCount        The number of reads from the level.
+     * @param writeCount       The number of writes to the level.
+     * @param readMissCount    The number of reads which missed.
+     * @param writeMissCount   The number of writes which missed.
+     * @param writebackCount   The number of modified blocks written back to the next level upon eviction,
+     *                         which is always 0 for a write-through cache.
+     * @param memoryReadCount  The number of block reads from main memory, which is 0 unless this is the last level.
+     * @param memoryWriteCount The number of writes to main memory, including writebacks, which is 0 unless this is
+     *                         the last level.
+     */
+    public record Statistics(
+        long readCount,
+        long writeCount,
+        long readMissCount,
+        long writeMissCount,
+        long writebackCount,
+        long memoryReadCount,
+        long memoryWriteCount
+    ) {
+        /**
+         * Get the number of accesses, including those forwarded from the previous level.
+         *
+         * @return The number of reads plus the number of writes.
+         */
+        public long accessCount() {
+            return this.readCount + this.writeCount;
+        }
+
+        /**
+         * Get the number of accesses which missed.
+         *
+         * @return The number of read misses plus the number of write misses.
+         */
+        public long missCount() {
+            return this.readMissCount + this.writeMissCount;
+        }
+
+        /**
+         * Get the number of accesses which hit.
+         *
+         * @return The hit count.
+         */
+        public long hitCount() {
+            return this.accessCount() - this.missCount();
+        }
+
+        /**
+         * Get the fraction of accesses which missed (the local miss rate).
+         *
+         * @return The miss rate, from 0 to 1, or 0 if there have been no accesses.
+         */
+        public double missRate() {
+            return (this.accessCount() == 0) ? 0.0 : this.missCount() / (double) this.accessCount();
+        }
+    }
+
+    private static final VarHandle PUBLISHED_TIME;
+
+    static {
+        try {
+            PUBLISHED_TIME = MethodHandles.lookup().findVarHandle(CacheLevel.class, "publishedTime", long.class);
+        }
+        catch (ReflectiveOperationException exception) {
+            throw new ExceptionInInitializerError(exception);
+        }
+    }
+
+    // Sentinel block number for an empty block; since addresses are shifted right by at least 2 bits to get
+    // block numbers, no real block number is ever negative
+    private static final int INVALID = -1;
+
+    private final String name;
+    private final Configuration configuration;
+    private final CacheLevel nextLevel;
+    private final int blockShift;
+    private final int setMask;
+    private final int setSize;
+    private final Random random;
+    // Per block: the block number held, the time it was last used, and whether it has been modified
+    private final int[] blockNumbers;
+    private final long[] lastUsedTimes;
+    private final boolean[] dirty;
+    private long time;
+    @SuppressWarnings("unused") // Accessed through PUBLISHED_TIME
+    private long publishedTime;
+    private int lastBlockIndex;
+
+    private long readCount;
+    private long writeCount;
+    private long readMissCount;
+    private long writeMissCount;
+    private long writebackCount;
+    private long memoryReadCount;
+    private long memoryWriteCount;
+
+    /**
+     * Create a new, empty cache level.
+     *
+     * @param name          The name of this level, for display purposes.
+     * @param configuration The organization and timing of this level.
+     * @param nextLevel     The level which misses and writes are forwarded to, or <code>null</code> if this level
+     *                      is backed directly by main memory.
+     */
+    public CacheLevel(String name, Configuration configuration, CacheLevel nextLevel) {
+        this.name = name;
+        this.configuration = configuration;
+        this.nextLevel = nextLevel;
+        this.blockShift = Integer.numberOfTrailingZeros(Memory.BYTES_PER_WORD * configuration.blockSizeInWords());
+        this.setSize = Math.min(configuration.setSizeInBlocks(), configuration.blockCount());
+        this.setMask = configuration.blockCount() / this.setSize - 1;
+        this.random = new Random(0);
+        this.blockNumbers = new int[configuration.blockCount()];
+        this.lastUsedTimes = new long[configuration.blockCount()];
+        this.dirty = new boolean[configuration.blockCount()];
+        this.reset();
+    }
+
+    /**
+     * Empty this level and clear its statistics. Other levels are not affected.
+     */
+    public void reset() {
+        Arrays.fill(this.blockNumbers, INVALID);
+        Arrays.fill(this.lastUsedTimes, 0);
+        Arrays.fill(this.dirty, false);
+        this.random.setSeed(0);
+        this.time = 0;
+        this.lastBlockIndex = -1;
+        this.readCount = 0;
+        this.writeCount = 0;
+        this.readMissCount = 0;
+        this.writeMissCount = 0;
+        this.writebackCount = 0;
+        this.memoryReadCount = 0;
+        this.memoryWriteCount = 0;
+        PUBLISHED_TIME.setRelease(this, 0L);
+    }
+
+    /**
+     * Simulate an access to this level, forwarding any resulting traffic to the next level.
+     *
+     * @param address The byte address accessed.
+     * @param write   <code>true</code> if the access is a write, or <code>false</code> if it is a read.
+     * @return <code>true</code> if the access hit, or <code>false</code> if it missed.
+     */
+    public boolean access(int address, boolean write) {
+        long time = ++this.time;
+        boolean hit = this.simulateAccess(address, write, time);
+        // Make the effects of this access visible to threads sampling the statistics
+        PUBLISHED_TIME.setRelease(this, time);
+        return hit;
+    }
+
+    private boolean simulateAccess(int address, boolean write, long time) {
+        int blockNumber = address >>> this.blockShift;
+        int firstBlock = (blockNumber & this.setMask) * this.setSize;
+        int endBlock = firstBlock + this.setSize;
+        if (write) {
+            this.writeCount++;
+        }
+        else {
+            this.readCount++;
+        }
+
+        for (int block = firstBlock; block < endBlock; block++) {
+            if (this.blockNumbers[block] == blockNumber) {
+                this.lastUsedTimes[block] = time;
+                this.lastBlockIndex = block;
+                if (write) {
+                    this.write(block, address);
+                }
+                return true;
+            }
+        }
+
+        if (write) {
+            this.writeMissCount++;
+            if (!this.configuration.writeAllocate()) {
+                this.lastBlockIndex = -1;
+                this.forwardWrite(address);
+                return false;
+            }
+        }
+        else {
+            this.readMissCount++;
+        }
+
+        int block = this.selectBlockToReplace(firstBlock, endBlock);
+        if (this.blockNumbers[block] != INVALID && this.dirty[block]) {
+            this.writebackCount++;
+            this.forwardBlock(this.blockNumbers[block], true);
+        }
+        this.forwardBlock(blockNumber, false);
+        this.blockNumbers[block] = blockNumber;
+        this.lastUsedTimes[block] = time;
+        this.dirty[block] = false;
+        this.lastBlockIndex = block;
+        if (write) {
+            this.write(block, address);
+        }
+        return false;
+    }
+
+    private void write(int block, int address) {
+        if (this.configuration.writePolicy() == WritePolicy.WRITE_BACK) {
+            this.dirty[block] = true;
+        }
+        else {
+            this.forwardWrite(address);
+        }
+    }
+
+    /**
+     * Choose a block in the range to hold a new block, preferring empty blocks.
+     */
+    private int selectBlockToReplace(int firstBlock, int endBlock) {
+        int selectedBlock = firstBlock;
+        for (int block = firstBlock; block < endBlock; block++) {
+            if (this.blockNumbers[block] == INVALID) {
+                return block;
+            }
+            if (this.lastUsedTimes[block] < this.lastUsedTimes[selectedBlock]) {
+                selectedBlock = block;
+            }
+        }
+        if (this.configuration.replacementPolicy() == CacheSimulator.ReplacementPolicy.RANDOM) {
+            selectedBlock = firstBlock + this.random.nextInt(endBlock - firstBlock);
+        }
+        return selectedBlock;
+    }
+
+    /**
+     * Send a single write to the next level.
+     */
+    private void forwardWrite(int address) {
+        if (this.nextLevel != null) {
+            this.nextLevel.access(address, true);
+        }
+        else {
+            this.memoryWriteCount++;
+        }
+    }
+
+    /**
+     * Read or write a whole block from or to the next level, which takes more than one access
+     * if the next level has smaller blocks.
+     */
+    private void forwardBlock(int blockNumber, boolean write) {
+        int address = blockNumber << this.blockShift;
+        if (this.nextLevel != null) {
+            int accessCount = Math.max(1, 1 << (this.blockShift - Math.min(this.blockShift, this.nextLevel.blockShift)));
+            for (int index = 0; index < accessCount; index++) {
+                this.nextLevel.access(address + (index << this.nextLevel.blockShift), write);
+            }
+        }
+        else if (write) {
+            this.memoryWriteCount++;
+        }
+        else {
+            this.memoryReadCount++;
+        }
+    }
+
+    /**
+     * Get the name of this level.
+     *
+     * @return The name given when this level was created.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Get the organization and timing of this level.
+     *
+     * @return The configuration given when this level was created.
+     */
+    public Configuration getConfiguration() {
+        return this.configuration;
+    }
+
+    /**
+     * Get the level which misses and writes are forwarded to.
+     *
+     * @return The next level, or <code>null</code> if this level is backed directly by main memory.
+     */
+    public CacheLevel getNextLevel() {
+        return this.nextLevel;
+    }
+
+    /**
+     * Get the index of the block used by the most recent access, for the purpose of animating accesses.
+     * This must only be called by the thread accessing this level.
+     *
+     * @return The block index, from 0 to <code>blockCount - 1</code>, or -1 if the most recent access did not
+     *     use a block (i.e. a write miss without write-allocate), or if there have been no accesses.
+     */
+    public int getLastBlockIndex() {
+        return this.lastBlockIndex;
+    }
+
+    /**
+     * Sample the statistics for this level. This may be called from any thread, even while another thread is
+     * accessing this level.
+     *
+     * @return A snapshot of the statistics, reflecting at least every access which had completed when it was taken.
+     */
+    public Statistics getStatistics() {
+        // Pairs with the release in access(), so every counter is at least as recent as the published time
+        PUBLISHED_TIME.getAcquire(this);
+        return new Statistics(
+            this.readCount,
+            this.writeCount,
+            this.readMissCount,
+            this.writeMissCount,
+            this.writebackCount,
+            this.memoryReadCount,
+            this.memoryWriteCount
+        );
+    }
+
+    /**
+     * Compute the average memory access time (AMAT) as seen from this level, which is the hit time plus
+     * the miss rate times the average access time of the next level. Writes forwarded by write-through
+     * or writebacks are assumed to be buffered, so they do not add to the access time.
+     *
+     * @param memoryAccessTime The number of cycles taken by an access to main memory.
+     * @return The average access time in cycles.
+     */
+    public double getAverageAccessTime(int memoryAccessTime) {
+        double missPenalty = (this.nextLevel != null)
+            ? this.nextLevel.getAverageAccessTime(memoryAccessTime)
+            : memoryAccessTime;
+        return this.configuration.hitTime() + this.getStatistics().missRate() * missPenalty;
+    }
+}
@@ -0,0 +1,269 @@
+package mars.tools.cachesim;
+
+import mars.mips.hardware.Memory;
+import mars.util.IntLongMap;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Profiles a stream of memory accesses for every LRU cache configuration at once using Mattson's stack algorithm.
+ * <p>
+ * For each combination of block size and number of sets, every set keeps an LRU stack of the blocks mapped to it,
+ * most recently used first, and each access records the depth at which its block was found in a histogram of
+ * stack distances. Since an LRU cache with <var>A</var> blocks per set holds exactly the top <var>A</var> entries
+ * of each stack, an access hits in that cache if and only if its stack distance is less than <var>A</var>.
+ * Thus the miss count for every associativity can be read off the histogram after the fact, and the accesses
+ * themselves only pay for updating the stacks.
+ * <p>
+ * Stacks are only kept as deep as the largest associativity of interest, so the blocks pushed off the bottom
+ * are forgotten, just as they would be evicted from the largest cache. To avoid searching a stack for a block
+ * which is not in it, the time of the most recent access to each block is tracked, along with the most recent access
+ * time of the last block to fall off the bottom of each stack; a block is in the stack exactly when it was accessed
+ * more recently than that.
+ * <p>
+ * Accesses must all be profiled by a single thread, but results may be sampled from any other thread while
+ * accesses are being profiled. No locks are taken; instead of resetting a profiler which another thread is using,
+ * replace it with a new one.
+ */
+public class StackDistanceProfiler {
+    /**
+     * Miss count for a single cache configuration, as read off the stack distance histograms.
+     *
+     * @param blockSizeInWords The number of words in each block.
+     * @param setCount         The number of sets.
+     * @param associativity    The number of blocks in each set.
+     * @param accessCount      The number of accesses profiled.
+     * @param missCount        The number of those accesses which would miss in this configuration.
+     */
+    public record SweepResult(int blockSizeInWords, int setCount, int associativity, long accessCount, long missCount) {
+        /**
+         * Get the total number of blocks in the cache.
+         *
+         * @return The number of sets times the associativity.
+         */
+        public int blockCount() {
+            return this.setCount * this.associativity;
+        }
+
+        /**
+         * Get the capacity of the cache.
+         *
+         * @return The total size of the blocks in bytes.
+         */
+        public long cacheSizeInBytes() {
+            return (long) this.blockCount() * this.blockSizeInWords * Memory.BYTES_PER_WORD;
+        }
+
+        /**
+         * Get the fraction of accesses which miss.
+         *
+         * @return The miss rate, from 0 to 1, or 0 if nothing has been accessed.
+         */
+        public double missRate() {
+            return (this.accessCount == 0) ? 0.0 : this.missCount / (double) this.accessCount;
+        }
+    }
+
+    private static final VarHandle PUBLISHED_ACCESS_COUNT;
+
+    static {
+        try {
+            PUBLISHED_ACCESS_COUNT = MethodHandles.lookup().findVarHandle(StackDistanceProfiler.class, "publishedAccessCount", long.class);
+        }
+        catch (ReflectiveOperationException exception) {
+            throw new ExceptionInInitializerError(exception);
+        }
+    }
+
+    private final int[] blockSizes;
+    private final int[] setCounts;
+    private final int maxBlockCount;
+    // Per block size: the time of the most recent access to each block number
+    private final IntLongMap[] lastAccessTimes;
+    // Per configuration (block size index * setCounts.length + set count index):
+    // ring buffers holding each set's stack, with the most recently used block at stackHeads[set]
+    private final int[][] stacks;
+    private final int[][] stackHeads;
+    private final int[][] stackSizes;
+    // Access time of the block most recently pushed off the bottom of each set's stack, or -1 if there is none
+    private final long[][] evictionTimes;
+    // Number of accesses found at each stack distance; accesses not found at all are not counted
+    private final long[][] histograms;
+    private long accessCount;
+    @SuppressWarnings("unused") // Accessed through PUBLISHED_ACCESS_COUNT
+    private long publishedAccessCount;
+
+    /**
+     * Create a new profiler covering the given cache configurations.
+     *
+     * @param blockSizes    The block sizes to profile, in words. Each must be a power of two.
+     * @param setCounts     The numbers of sets to profile. Each must be a power of two.
+     * @param maxBlockCount The largest total number of blocks of interest, which determines the largest associativity
+     *                      profiled for each number of sets. This must be a power of two.
+     */
+    public StackDistanceProfiler(int[] blockSizes, int[] setCounts, int maxBlockCount) {
+        this.blockSizes = blockSizes.clone();
+        this.setCounts = Arrays.stream(setCounts).filter(setCount -> setCount <= maxBlockCount).toArray();
+        this.maxBlockCount = maxBlockCount;
+        this.lastAccessTimes = new IntLongMap[this.blockSizes.length];
+        int configurationCount = this.blockSizes.length * this.setCounts.length;
+        this.stacks = new int[configurationCount][];
+        this.stackHeads = new int[configurationCount][];
+        this.stackSizes = new int[configurationCount][];
+        this.evictionTimes = new long[configurationCount][];
+        this.histograms = new long[configurationCount][];
+        for (int blockSizeIndex = 0; blockSizeIndex < this.blockSizes.length; blockSizeIndex++) {
+            this.lastAccessTimes[blockSizeIndex] = new IntLongMap();
+            for (int setCountIndex = 0; setCountIndex < this.setCounts.length; setCountIndex++) {
+                int configuration = blockSizeIndex * this.setCounts.length + setCountIndex;
+                int setCount = this.setCounts[setCountIndex];
+                int depth = this.getMaxAssociativity(setCount);
+                this.stacks[configuration] = new int[setCount * depth];
+                this.stackHeads[configuration] = new int[setCount];
+                this.stackSizes[configuration] = new int[setCount];
+                this.evictionTimes[configuration] = new long[setCount];
+                this.histograms[configuration] = new long[depth];
+            }
+        }
+        this.reset();
+    }
+
+    /**
+     * Get the largest associativity profiled for a given number of sets.
+     *
+     * @param setCount The number of sets.
+     * @return The maximum total number of blocks divided by the number of sets.
+     */
+    public int getMaxAssociativity(int setCount) {
+        return this.maxBlockCount / setCount;
+    }
+
+    /**
+     * Forget all accesses profiled so far. This must not be called while another thread is profiling accesses.
+     */
+    public void reset() {
+        for (IntLongMap lastAccessTimes : this.lastAccessTimes) {
+            lastAccessTimes.clear();
+        }
+        for (int configuration = 0; configuration < this.stacks.length; configuration++) {
+            Arrays.fill(this.stackHeads[configuration], 0);
+            Arrays.fill(this.stackSizes[configuration], 0);
+            Arrays.fill(this.evictionTimes[configuration], -1);
+            Arrays.fill(this.histograms[configuration], 0);
+        }
+        this.accessCount = 0;
+        PUBLISHED_ACCESS_COUNT.setRelease(this, 0L);
+    }
+
+    /**
+     * Get the number of accesses profiled since the last reset. This may be called from any thread, even while
+     * another thread is profiling accesses.
+     *
+     * @return The access count, counting at least every access which had completed when it was called.
+     */
+    public long getAccessCount() {
+        return (long) PUBLISHED_ACCESS_COUNT.getAcquire(this);
+    }
+
+    /**
+     * Profile an access to memory in every cache configuration.
+     *
+     * @param address The byte address accessed.
+     */
+    public void access(int address) {
+        long time = this.accessCount++;
+        int wordNumber = address >>> 2;
+        for (int blockSizeIndex = 0; blockSizeIndex < this.blockSizes.length; blockSizeIndex++) {
+            int blockNumber = wordNumber >>> Integer.numberOfTrailingZeros(this.blockSizes[blockSizeIndex]);
+            IntLongMap lastAccessTimes = this.lastAccessTimes[blockSizeIndex];
+            long lastAccessTime = lastAccessTimes.get(blockNumber, -1);
+            for (int setCountIndex = 0; setCountIndex < this.setCounts.length; setCountIndex++) {
+                int configuration = blockSizeIndex * this.setCounts.length + setCountIndex;
+                int set = blockNumber & (this.setCounts[setCountIndex] - 1);
+                boolean inStack = lastAccessTime >= 0 && lastAccessTime > this.evictionTimes[configuration][set];
+                this.updateStack(configuration, set, blockNumber, inStack, lastAccessTimes);
+            }
+            lastAccessTimes.put(blockNumber, time);
+        }
+        // Make the effects of this access visible to threads sampling the results
+        PUBLISHED_ACCESS_COUNT.setRelease(this, this.accessCount);
+    }
+
+    /**
+     * Move a block to the top of a set's stack, recording its stack distance if it was already present.
+     */
+    private void updateStack(int configuration, int set, int blockNumber, boolean inStack, IntLongMap lastAccessTimes) {
+        int[] stack = this.stacks[configuration];
+        int depth = this.histograms[configuration].length;
+        int mask = depth - 1;
+        int base = set * depth;
+        int head = this.stackHeads[configuration][set];
+        if (inStack) {
+            // Find the block, shifting the blocks above it down one place as we go
+            int previous = blockNumber;
+            int distance = 0;
+            while (true) {
+                int slot = base + ((head + distance) & mask);
+                int current = stack[slot];
+                stack[slot] = previous;
+                if (current == blockNumber) {
+                    break;
+                }
+                previous = current;
+                distance++;
+            }
+            this.histograms[configuration][distance]++;
+        }
+        else {
+            // Push the block onto the top, which overwrites the bottom of the ring buffer if the stack is full
+            head = (head - 1) & mask;
+            int slot = base + head;
+            if (this.stackSizes[configuration][set] == depth) {
+                this.evictionTimes[configuration][set] = lastAccessTimes.get(stack[slot], -1);
+            }
+            else {
+                this.stackSizes[configuration][set]++;
+            }
+            stack[slot] = blockNumber;
+            this.stackHeads[configuration][set] = head;
+        }
+    }
+
+    /**
+     * Compute the miss counts for every profiled configuration whose associativity is a power of two.
+     * This does not depend on how many accesses there have been, so it can be called as often or as rarely as desired.
+     * This may be called from any thread, even while another thread is profiling accesses.
+     *
+     * @return The results, ordered by block size, then number of sets, then associativity.
+     */
+    public List<SweepResult> getSweepResults() {
+        // Pairs with the release in access(), so every histogram is at least as recent as the access count
+        long accessCount = this.getAccessCount();
+        List<SweepResult> results = new ArrayList<>();
+        for (int blockSizeIndex = 0; blockSizeIndex < this.blockSizes.length; blockSizeIndex++) {
+            for (int setCountIndex = 0; setCountIndex < this.setCounts.length; setCountIndex++) {
+                long[] histogram = this.histograms[blockSizeIndex * this.setCounts.length + setCountIndex];
+                long hitCount = 0;
+                int distance = 0;
+                for (int associativity = 1; associativity <= histogram.length; associativity *= 2) {
+                    while (distance < associativity) {
+                        hitCount += histogram[distance++];
+                    }
+                    results.add(new SweepResult(
+                        this.blockSizes[blockSizeIndex],
+                        this.setCounts[setCountIndex],
+                        associativity,
+                        accessCount,
+                        // Accesses which completed after the count was sampled may already be in the histogram
+                        Math.max(0, accessCount - hitCount)
+                    ));
+                }
+            }
+        }
+        return results;
+    }
+}
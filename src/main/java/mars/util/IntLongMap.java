@@ -0,0 +1,121 @@
+package mars.util;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from <code>int</code> keys to <code>long</code> values using open addressing with linear probing.
+ * Unlike a <code>Map&lt;Integer, Long&gt;</code>, no objects are allocated per entry, which matters when
+ * mapping hundreds of thousands of addresses. Entries cannot be removed individually.
+ */
+public class IntLongMap {
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private long[] values;
+    private boolean[] occupied;
+    private int size;
+
+    /**
+     * Create a new empty map.
+     */
+    public IntLongMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Create a new empty map which can hold a given number of entries without growing.
+     *
+     * @param expectedSize The number of entries expected to be added.
+     */
+    public IntLongMap(int expectedSize) {
+        // Keep the load factor at or below 1/2 so probe sequences stay short
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, expectedSize) * 2 - 1) << 1;
+        this.keys = new int[capacity];
+        this.values = new long[capacity];
+        this.occupied = new boolean[capacity];
+        this.size = 0;
+    }
+
+    /**
+     * Get the number of entries in this map.
+     *
+     * @return The number of keys which have been added.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Get the value associated with a key.
+     *
+     * @param key          The key to look up.
+     * @param defaultValue The value to return if the key is not present.
+     * @return The value associated with the key, or <code>defaultValue</code> if there is none.
+     */
+    public long get(int key, long defaultValue) {
+        int mask = this.keys.length - 1;
+        for (int slot = hash(key) & mask; this.occupied[slot]; slot = (slot + 1) & mask) {
+            if (this.keys[slot] == key) {
+                return this.values[slot];
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Associate a value with a key, replacing any value previously associated with the key.
+     *
+     * @param key   The key.
+     * @param value The value to associate with the key.
+     */
+    public void put(int key, long value) {
+        if ((this.size + 1) * 2 > this.keys.length) {
+            this.grow();
+        }
+        int mask = this.keys.length - 1;
+        int slot = hash(key) & mask;
+        while (this.occupied[slot]) {
+            if (this.keys[slot] == key) {
+                this.values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        this.occupied[slot] = true;
+        this.size++;
+    }
+
+    /**
+     * Remove all entries from this map.
+     */
+    public void clear() {
+        Arrays.fill(this.occupied, false);
+        this.size = 0;
+    }
+
+    private void grow() {
+        int[] oldKeys = this.keys;
+        long[] oldValues = this.values;
+        boolean[] oldOccupied = this.occupied;
+        this.keys = new int[oldKeys.length * 2];
+        this.values = new long[oldKeys.length * 2];
+        this.occupied = new boolean[oldKeys.length * 2];
+        this.size = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldOccupied[slot]) {
+                this.put(oldKeys[slot], oldValues[slot]);
+            }
+        }
+    }
+
+    /**
+     * Spread the bits of a key so that word-aligned addresses, whose low bits are all zero,
+     * do not all collide.
+     */
+    private static int hash(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,240 @@
+package mars.util;
+
+import mars.mips.dump.SparseDumpFormat;
+import mars.mips.hardware.AddressErrorException;
+import mars.mips.hardware.Endianness;
+import mars.mips.hardware.Memory;
+import mars.simulator.ExceptionCause;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Loads the contents of a file into memory before the program runs, which is the reverse of a memory dump.
+ * This is intended for giving programs large precomputed tables or test inputs without encoding them as
+ * <code>.word</code> directives. Files are read in large chunks and written with
+ * {@link Memory#loadBytes(int, ByteBuffer, int, int, boolean)}, so no back-steps are recorded.
+ */
+public class MemoryLoader {
+    private static final int CHUNK_SIZE = 64 * Memory.BYTES_PER_PAGE;
+
+    /**
+     * The file formats which can be loaded, each matching the dump format of the same name.
+     */
+    public enum Format {
+        /**
+         * A stream of words, each least significant byte first, as written by the <code>Binary</code> dump format.
+         */
+        BINARY("Binary", "Raw binary words"),
+        /**
+         * One word per line in hexadecimal, as written by the <code>HexText</code> dump format.
+         */
+        HEX_TEXT("HexText", "Hexadecimal text, one word per line"),
+        /**
+         * Allocated blocks with their addresses, as written by the <code>Sparse</code> dump format.
+         * The blocks are loaded at their own addresses.
+         */
+        SPARSE("Sparse", "Sparse binary dump");
+
+        private final String commandDescriptor;
+        private final String description;
+
+        Format(String commandDescriptor, String description) {
+            this.commandDescriptor = commandDescriptor;
+            this.description = description;
+        }
+
+        /**
+         * Get the name of this format as used by the command line, which matches the corresponding dump format.
+         *
+         * @return One-word name of the format.
+         */
+        public String getCommandDescriptor() {
+            return this.commandDescriptor;
+        }
+
+        /**
+         * Determine whether files in this format contain their own addresses.
+         *
+         * @return <code>true</code> if no load address needs to be given, or <code>false</code> otherwise.
+         */
+        public boolean hasAddresses() {
+            return this == SPARSE;
+        }
+
+        @Override
+        public String toString() {
+            return this.description;
+        }
+
+        /**
+         * Find the format with a given command descriptor, ignoring case.
+         *
+         * @param commandDescriptor The one-word name of the format.
+         * @return The format, or null if there is none with the given name.
+         */
+        public static Format fromCommandDescriptor(String commandDescriptor) {
+            for (Format format : values()) {
+                if (format.commandDescriptor.equalsIgnoreCase(commandDescriptor)) {
+                    return format;
+                }
+            }
+            return null;
+        }
+    }
+
+    // Prevent instances
+    private MemoryLoader() {}
+
+    /**
+     * Load a file into memory.
+     *
+     * @param file    The file to load.
+     * @param format  The format of the file.
+     * @param address The word-aligned address to load the file at, which is ignored if the format
+     *                {@link Format#hasAddresses() has its own addresses}.
+     * @return The number of bytes loaded.
+     * @throws IOException           Thrown if the file could not be read or is not in the given format.
+     * @throws AddressErrorException Thrown if the address is not word-aligned, or the contents of the file
+     *                               do not fit in writable memory.
+     */
+    public static long load(Path file, Format format, int address) throws IOException, AddressErrorException {
+        if (!format.hasAddresses() && !Memory.isWordAligned(address)) {
+            throw new AddressErrorException("address not aligned on word boundary", ExceptionCause.ADDRESS_STORE, address);
+        }
+        return switch (format) {
+            case BINARY -> loadBinary(file, address);
+            case HEX_TEXT -> loadHexText(file, address);
+            case SPARSE -> loadSparse(file);
+        };
+    }
+
+    private static long loadBinary(Path file, int address) throws IOException, AddressErrorException {
+        Memory memory = Memory.getInstance();
+        boolean isBigEndian = memory.getEndianness() == Endianness.BIG_ENDIAN;
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        long total = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (true) {
+                buffer.clear();
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // Fill the whole chunk so words are never split between chunks
+                }
+                int length = buffer.position();
+                if (length == 0) {
+                    break;
+                }
+                if (isBigEndian) {
+                    // Words in the file are least significant byte first, so reverse each one,
+                    // padding a partial word at the end of the file with zeros
+                    while (buffer.position() % Memory.BYTES_PER_WORD != 0) {
+                        buffer.put((byte) 0);
+                    }
+                    length = buffer.position();
+                    for (int index = 0; index < length; index += Memory.BYTES_PER_WORD) {
+                        buffer.putInt(index, Integer.reverseBytes(buffer.getInt(index)));
+                    }
+                }
+                memory.loadBytes(address + (int) total, buffer, 0, length, true);
+                total += length;
+                if (buffer.hasRemaining()) {
+                    break;
+                }
+            }
+        }
+        return total;
+    }
+
+    private static long loadHexText(Path file, int address) throws IOException, AddressErrorException {
+        Memory memory = Memory.getInstance();
+        ByteOrder order = (memory.getEndianness() == Endianness.BIG_ENDIAN) ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE).order(order);
+        long total = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.strip();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (line.startsWith("0x") || line.startsWith("0X")) {
+                    line = line.substring(2);
+                }
+                try {
+                    buffer.putInt(Integer.parseUnsignedInt(line, 16));
+                }
+                catch (NumberFormatException exception) {
+                    throw new IOException("invalid hexadecimal word on line " + lineNumber + ": " + line);
+                }
+                if (!buffer.hasRemaining()) {
+                    memory.loadBytes(address + (int) total, buffer, 0, buffer.position(), true);
+                    total += buffer.position();
+                    buffer.clear();
+                }
+            }
+        }
+        memory.loadBytes(address + (int) total, buffer, 0, buffer.position(), true);
+        return total + buffer.position();
+    }
+
+    private static long loadSparse(Path file) throws IOException, AddressErrorException {
+        Memory memory = Memory.getInstance();
+        ByteBuffer header = ByteBuffer.allocate(8);
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        long total = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (!readFully(channel, header) || header.getInt(0) != SparseDumpFormat.MAGIC) {
+                throw new IOException("not a sparse memory dump");
+            }
+            if (header.getInt(4) != SparseDumpFormat.VERSION) {
+                throw new IOException("unsupported sparse memory dump version " + header.getInt(4));
+            }
+            while (readFully(channel, header.clear())) {
+                int address = header.getInt(0);
+                long remaining = Integer.toUnsignedLong(header.getInt(4));
+                while (remaining > 0) {
+                    buffer.clear().limit((int) Math.min(remaining, CHUNK_SIZE));
+                    if (!readFully(channel, buffer)) {
+                        throw new EOFException("sparse memory dump ends partway through a block");
+                    }
+                    memory.loadBytes(address, buffer, 0, buffer.limit(), true);
+                    address += buffer.limit();
+                    remaining -= buffer.limit();
+                    total += buffer.limit();
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Fill the remainder of a buffer from a channel.
+     *
+     * @return <code>true</code> if the buffer was filled, or <code>false</code> if the channel was already
+     *         at the end of the file.
+     * @throws EOFException Thrown if the file ends after only part of the buffer was filled.
+     */
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        boolean isStart = true;
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (isStart && buffer.position() == 0) {
+                    return false;
+                }
+                throw new EOFException("unexpected end of file");
+            }
+            isStart = false;
+        }
+        return true;
+    }
+}
@@ -1,324 +1,332 @@
 package mars.util;
 
 import java.util.*;
-
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable map from strings to values, stored as a trie packed into flat arrays so that lookups, including
+ * prefix searches, never allocate or box characters.
+ * <p>
+ * The entries are kept in an array sorted by key. Since the nodes of a trie are laid out in the same order as the keys
+ * they lead to, the entries whose keys start with a given prefix always form a contiguous range of that array, which
+ * each node records. The children of each node are stored together, sorted by character, and found by binary search.
+ * Thus, finding every entry with a given prefix only takes a walk down the trie, after which the matches can be read
+ * off lazily, in sorted order.
+ * <p>
+ * The trie can optionally ignore case, in which case keys are converted to lowercase when the trie is built,
+ * and each character of a key or prefix being looked up is converted to lowercase as it is compared.
+ *
+ * @param <V> The type of the values.
+ */
 public class StringTrie<V> extends AbstractMap<String, V> {
-    private final String key;
-    private V terminalValue;
-    private final Map<Character, StringTrie<V>> children;
-
-    public StringTrie() {
-        this("");
-    }
+    private final boolean ignoreCase;
+    // Entries, sorted by key
+    private final String[] keys;
+    private final Object[] values;
+    // Node 0 is the root. Entries nodeFirstEntry[n] through nodeEndEntry[n] - 1 have the prefix leading to node n,
+    // and the children of node n are reached through edges nodeFirstEdge[n] through nodeEndEdge[n] - 1
+    private final int[] nodeFirstEntry;
+    private final int[] nodeEndEntry;
+    private final int[] nodeFirstEdge;
+    private final int[] nodeEndEdge;
+    private final char[] edgeCharacters;
+    private final int[] edgeNodes;
+    private int nodeCount;
+    private int edgeCount;
 
-    public StringTrie(String key) {
-        this.key = key;
-        this.terminalValue = null;
-        this.children = new HashMap<>();
+    /**
+     * Build a trie containing the given entries, distinguishing keys which differ only in case.
+     *
+     * @param entries The entries to put in the trie. Neither keys nor values may be null.
+     */
+    public StringTrie(Map<String, ? extends V> entries) {
+        this(entries, false);
     }
 
-    public String getKey() {
-        return this.key;
+    /**
+     * Build a trie containing the given entries.
+     *
+     * @param entries    The entries to put in the trie. Neither keys nor values may be null.
+     * @param ignoreCase Whether lookups should ignore case. If true, keys are converted to lowercase,
+     *                   and where two keys only differ in case, only one of their entries is kept.
+     */
+    public StringTrie(Map<String, ? extends V> entries, boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+
+        TreeMap<String, V> sortedEntries = new TreeMap<>();
+        int totalKeyLength = 0;
+        for (Entry<String, ? extends V> entry : entries.entrySet()) {
+            String key = ignoreCase ? toLowerCase(entry.getKey()) : entry.getKey();
+            sortedEntries.put(key, Objects.requireNonNull(entry.getValue()));
+            totalKeyLength += key.length();
+        }
+        this.keys = sortedEntries.keySet().toArray(new String[0]);
+        this.values = sortedEntries.values().toArray();
+
+        // Every node other than the root is reached by one edge, and there is at most one node per key character
+        int maxNodeCount = totalKeyLength + 1;
+        this.nodeFirstEntry = new int[maxNodeCount];
+        this.nodeEndEntry = new int[maxNodeCount];
+        this.nodeFirstEdge = new int[maxNodeCount];
+        this.nodeEndEdge = new int[maxNodeCount];
+        this.edgeCharacters = new char[maxNodeCount];
+        this.edgeNodes = new int[maxNodeCount];
+        this.nodeCount = 1;
+        this.edgeCount = 0;
+        this.buildNode(0, 0, this.keys.length, 0);
     }
 
-    public V getTerminalValue() {
-        return this.terminalValue;
-    }
+    /**
+     * Fill in a node covering the given range of entries, along with all of its descendants.
+     */
+    private void buildNode(int node, int firstEntry, int endEntry, int depth) {
+        this.nodeFirstEntry[node] = firstEntry;
+        this.nodeEndEntry[node] = endEntry;
+
+        // Since entries are sorted, an entry whose key ends at this node comes first
+        int childFirstEntry = firstEntry;
+        if (childFirstEntry < endEntry && this.keys[childFirstEntry].length() == depth) {
+            childFirstEntry++;
+        }
 
-    public void setTerminalValue(V value) {
-        this.terminalValue = value;
+        // Reserve a contiguous run of edges for the children before building any of them
+        int firstEdge = this.edgeCount;
+        for (int entry = childFirstEntry; entry < endEntry; entry++) {
+            if (entry == childFirstEntry || this.keys[entry].charAt(depth) != this.keys[entry - 1].charAt(depth)) {
+                this.edgeCharacters[this.edgeCount] = this.keys[entry].charAt(depth);
+                this.edgeNodes[this.edgeCount] = this.nodeCount++;
+                this.edgeCount++;
+            }
+        }
+        int endEdge = this.edgeCount;
+        this.nodeFirstEdge[node] = firstEdge;
+        this.nodeEndEdge[node] = endEdge;
+
+        int entry = childFirstEntry;
+        for (int edge = firstEdge; edge < endEdge; edge++) {
+            int childEndEntry = entry + 1;
+            while (childEndEntry < endEntry && this.keys[childEndEntry].charAt(depth) == this.edgeCharacters[edge]) {
+                childEndEntry++;
+            }
+            this.buildNode(this.edgeNodes[edge], entry, childEndEntry, depth + 1);
+            entry = childEndEntry;
+        }
     }
 
-    public StringTrie<V> getSubTrie(String key) {
-        Objects.requireNonNull(key);
-
-        StringTrie<V> current = this;
-        for (int index = 0; index < key.length(); index++) {
-            String currentKey = current.key;
-            current = current.children.computeIfAbsent(key.charAt(index), character -> new StringTrie<>(currentKey + character));
+    /**
+     * Find the node reached by following the characters of a key or prefix from the root.
+     *
+     * @return The node, or -1 if no key starts with the given characters.
+     */
+    private int findNode(CharSequence prefix) {
+        int node = 0;
+        for (int index = 0; index < prefix.length(); index++) {
+            char character = this.ignoreCase ? Character.toLowerCase(prefix.charAt(index)) : prefix.charAt(index);
+            int low = this.nodeFirstEdge[node];
+            int high = this.nodeEndEdge[node] - 1;
+            node = -1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char edgeCharacter = this.edgeCharacters[middle];
+                if (edgeCharacter < character) {
+                    low = middle + 1;
+                }
+                else if (edgeCharacter > character) {
+                    high = middle - 1;
+                }
+                else {
+                    node = this.edgeNodes[middle];
+                    break;
+                }
+            }
+            if (node < 0) {
+                return -1;
+            }
         }
-
-        return current;
+        return node;
     }
 
-    public StringTrie<V> getSubTrieIfPresent(String key) {
-        Objects.requireNonNull(key);
-
-        StringTrie<V> current = this;
-        for (int index = 0; current != null && index < key.length(); index++) {
-            current = current.children.get(key.charAt(index));
+    private static String toLowerCase(String key) {
+        char[] characters = key.toCharArray();
+        for (int index = 0; index < characters.length; index++) {
+            characters[index] = Character.toLowerCase(characters[index]);
         }
+        return new String(characters);
+    }
 
-        return current;
+    /**
+     * Determine whether this trie ignores case when looking up keys.
+     *
+     * @return True if lookups ignore case, or false otherwise.
+     */
+    public boolean ignoresCase() {
+        return this.ignoreCase;
     }
 
     /**
-     * Returns {@code true} if this map contains a mapping for the specified key. More formally, returns {@code true}
-     * if and only if this map contains a mapping for a key {@code k} such that {@code Objects.equals(key, k)}. (There
-     * can be at most one such mapping.)
+     * Get the key of an entry, in sorted order.
      *
-     * @param key key whose presence in this map is to be tested
-     * @return {@code true} if this map contains a mapping for the specified key
-     * @throws ClassCastException   if the key is of an inappropriate type for this map
-     * @throws NullPointerException if the specified key is null
+     * @param index The index of the entry, from 0 to <code>size() - 1</code>.
+     * @return The key of the entry.
      */
-    @Override
-    public boolean containsKey(Object key) {
-        return this.get(key) != null;
+    public String getKey(int index) {
+        return this.keys[index];
     }
 
     /**
-     * Returns {@code true} if this map maps one or more keys to the specified value.  More formally, returns
-     * {@code true} if and only if this map contains at least one mapping to a value {@code v} such that
-     * {@code Objects.equals(value, v)}.  This operation will probably require time linear in the map size.
+     * Get the value of an entry, in order of the keys.
      *
-     * @param value value whose presence in this map is to be tested
-     * @return {@code true} if this map maps one or more keys to the specified value
-     * @throws ClassCastException   if the value is of an inappropriate type for this map
-     * @throws NullPointerException if the specified value is null
+     * @param index The index of the entry, from 0 to <code>size() - 1</code>.
+     * @return The value of the entry.
      */
-    @Override
-    public boolean containsValue(Object value) {
-        Objects.requireNonNull(value);
+    @SuppressWarnings("unchecked")
+    public V getValue(int index) {
+        return (V) this.values[index];
+    }
 
-        if (value.equals(this.terminalValue)) {
-            return true;
+    /**
+     * Get the value whose key matches a sequence of characters, without converting it to a string.
+     *
+     * @param key The key to look up.
+     * @return The value associated with the key, or <code>null</code> if there is none.
+     */
+    public V get(CharSequence key) {
+        int node = this.findNode(key);
+        if (node < 0) {
+            return null;
         }
-
-        for (StringTrie<V> child : this.children.values()) {
-            if (child.containsValue(value)) {
-                return true;
-            }
+        int entry = this.nodeFirstEntry[node];
+        if (entry < this.nodeEndEntry[node] && this.keys[entry].length() == key.length()) {
+            return this.getValue(entry);
         }
-
-        return false;
+        return null;
     }
 
     /**
-     * Returns the value to which the specified key is mapped, or {@code null} if this map contains no mapping for the
-     * key.
-     * <p>
-     * More formally, if this map contains a mapping from a key
-     * {@code k} to a value {@code v} such that {@code Objects.equals(key, k)}, then this method returns {@code v};
-     * otherwise it returns {@code null}.  (There can be at most one such mapping.)
-     * <p>
-     * If this map permits null values, then a return value of
-     * {@code null} does not <i>necessarily</i> indicate that the map contains no mapping for the key; it's also
-     * possible that the map explicitly maps the key to {@code null}. The {@link #containsKey containsKey} operation
-     * may be used to distinguish these two cases.
+     * Get the values whose keys start with a given prefix, in order of the keys. The returned list is a view of
+     * the trie, so matches are only retrieved as they are accessed.
      *
-     * @param key the key whose associated value is to be returned
-     * @return the value to which the specified key is mapped, or {@code null} if this map contains no mapping for the
-     *     key
-     * @throws ClassCastException   if the key is of an inappropriate type for this map
-     * @throws NullPointerException if the specified key is null
+     * @param prefix The prefix to match. An empty prefix matches every key.
+     * @return An unmodifiable list of the matching values, which may be empty.
      */
-    @Override
-    public V get(Object key) {
-        Objects.requireNonNull(key);
-
-        StringTrie<V> subTrie = this.getSubTrieIfPresent((String) key);
-        if (subTrie == null) {
-            return null;
+    public List<V> valuesWithPrefix(CharSequence prefix) {
+        int node = this.findNode(prefix);
+        if (node < 0) {
+            return List.of();
         }
-
-        return subTrie.terminalValue;
+        return new EntryList<>(this.nodeFirstEntry[node], this.nodeEndEntry[node]) {
+            @Override
+            public V get(int index) {
+                return StringTrie.this.getValue(this.getEntry(index));
+            }
+        };
     }
 
     /**
-     * Associates the specified value with the specified key in this map (optional operation).  If the map previously
-     * contained a mapping for the key, the old value is replaced by the specified value.  (A map {@code m} is said to
-     * contain a mapping for a key {@code k} if and only if {@link #containsKey(Object) m.containsKey(k)} would return
-     * {@code true}.)
+     * Get the keys which start with a given prefix, in sorted order. The returned list is a view of the trie,
+     * so matches are only retrieved as they are accessed.
      *
-     * @param key   key with which the specified value is to be associated
-     * @param value value to be associated with the specified key
-     * @return the previous value associated with {@code key}, or {@code null} if there was no mapping for {@code key}.
-     * @throws NullPointerException if the specified key or value is null
+     * @param prefix The prefix to match. An empty prefix matches every key.
+     * @return An unmodifiable list of the matching keys, which may be empty.
      */
-    @Override
-    public V put(String key, V value) {
-        Objects.requireNonNull(key);
-        Objects.requireNonNull(value);
-
-        StringTrie<V> subTrie = this.getSubTrie(key);
-
-        V previousValue = subTrie.terminalValue;
-        subTrie.terminalValue = value;
-
-        return previousValue;
+    public List<String> keysWithPrefix(CharSequence prefix) {
+        int node = this.findNode(prefix);
+        if (node < 0) {
+            return List.of();
+        }
+        return new EntryList<>(this.nodeFirstEntry[node], this.nodeEndEntry[node]) {
+            @Override
+            public String get(int index) {
+                return StringTrie.this.getKey(this.getEntry(index));
+            }
+        };
     }
 
     /**
-     * Removes the mapping for a key from this map if it is present (optional operation). More formally, if this map
-     * contains a mapping from key {@code k} to value {@code v} such that {@code Objects.equals(key, k)}, that mapping
-     * is removed. (The map can contain at most one such mapping.)
-     * <p>
-     * Returns the value to which this map previously associated the key, or {@code null} if the map contained no
-     * mapping for the key.
-     * <p>
-     * The map will not contain a mapping for the specified key once the call returns.
+     * Perform an action for each entry whose key starts with a given prefix, in order of the keys.
      *
-     * @param key key whose mapping is to be removed from the map
-     * @return the previous value associated with {@code key}, or {@code null} if there was no mapping for {@code key}.
-     * @throws ClassCastException            if the key is of an inappropriate type for this map
-     * @throws NullPointerException          if the specified key is null
+     * @param prefix The prefix to match. An empty prefix matches every key.
+     * @param action The action to perform on the key and value of each matching entry.
      */
-    @Override
-    public V remove(Object key) {
-        Objects.requireNonNull(key);
-
-        StringTrie<V> subTrie = this.getSubTrieIfPresent((String) key);
-        if (subTrie == null) {
-            return null;
+    public void forEachWithPrefix(CharSequence prefix, BiConsumer<? super String, ? super V> action) {
+        int node = this.findNode(prefix);
+        if (node < 0) {
+            return;
+        }
+        for (int entry = this.nodeFirstEntry[node]; entry < this.nodeEndEntry[node]; entry++) {
+            action.accept(this.getKey(entry), this.getValue(entry));
         }
+    }
 
-        V previousValue = subTrie.terminalValue;
-        subTrie.terminalValue = null;
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return this.keys.length;
+    }
 
-        return previousValue;
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        return this.get(key) != null;
     }
 
     /**
-     * Removes all of the mappings from this map (optional operation). The map will be empty after this call returns.
+     * {@inheritDoc}
      */
     @Override
-    public void clear() {
-        this.children.clear();
-        this.terminalValue = null;
+    public V get(Object key) {
+        return (key instanceof CharSequence sequence) ? this.get(sequence) : null;
     }
 
     /**
-     * Returns a {@link Set} view of the mappings contained in this map. The set is backed by the map, so changes to the
-     * map are reflected in the set, and vice-versa.  If the map is modified while an iteration over the set is in
-     * progress (except through the iterator's own {@code remove} operation, or through the {@code setValue} operation
-     * on a map entry returned by the iterator) the results of the iteration are undefined.  The set supports element
-     * removal, which removes the corresponding mapping from the map, via the {@code Iterator.remove},
-     * {@code Set.remove}, {@code removeAll}, {@code retainAll} and {@code clear} operations.  It does not support the
-     * {@code add} or {@code addAll} operations.
+     * Returns an unmodifiable {@link Set} view of the entries in this trie, in order of the keys.
      *
-     * @return a set view of the mappings contained in this map
+     * @return A set view of the entries in this trie.
      */
     @Override
     public Set<Entry<String, V>> entrySet() {
-        return new EntrySet();
-    }
-
-    private class EntrySet extends AbstractSet<Entry<String, V>> {
-        /**
-         * Returns an iterator over the elements contained in this collection.
-         *
-         * @return an iterator over the elements contained in this collection
-         */
-        @Override
-        public Iterator<Entry<String, V>> iterator() {
-            return new EntryIterator<>(StringTrie.this, "");
-        }
-
-        @Override
-        public int size() {
-            // Eh, just iterate over the elements
-            int size = 0;
-            for (Entry<String, V> ignored : this) {
-                size++;
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, V>> iterator() {
+                return new EntryList<Entry<String, V>>(0, StringTrie.this.keys.length) {
+                    @Override
+                    public Entry<String, V> get(int index) {
+                        return Map.entry(StringTrie.this.getKey(index), StringTrie.this.getValue(index));
+                    }
+                }.iterator();
             }
-            return size;
-        }
-    }
-
-    private static class EntryIterator<V> implements Iterator<Entry<String, V>> {
-        private final StringTrie<V> trie;
-        private final String relativeKey;
-        private Iterator<Entry<Character, StringTrie<V>>> children;
-        private EntryIterator<V> currentChild;
-        private Entry<String, V> nextEntry;
-        private boolean canRemove;
-
-        public EntryIterator(StringTrie<V> trie, String relativeKey) {
-            this.trie = trie;
-            this.relativeKey = relativeKey;
-            this.children = null;
-            this.currentChild = null;
-            this.nextEntry = this.findNext();
-            this.canRemove = false;
-        }
 
-        /**
-         * Returns {@code true} if the iteration has more elements. (In other words, returns {@code true} if
-         * {@link #next} would return an element rather than throwing an exception.)
-         *
-         * @return {@code true} if the iteration has more elements
-         */
-        @Override
-        public boolean hasNext() {
-            return this.nextEntry != null;
-        }
-
-        /**
-         * Returns the next element in the iteration.
-         *
-         * @return the next element in the iteration
-         * @throws NoSuchElementException if the iteration has no more elements
-         */
-        @Override
-        public Entry<String, V> next() {
-            if (this.nextEntry == null) {
-                throw new NoSuchElementException();
+            @Override
+            public int size() {
+                return StringTrie.this.keys.length;
             }
+        };
+    }
 
-            // If no child has started iteration at this point, the entry corresponding to this.trie is being returned,
-            // and thus can be removed following this call
-            this.canRemove = this.currentChild == null;
-
-            Entry<String, V> next = this.nextEntry;
-            this.nextEntry = this.findNext();
+    /**
+     * An unmodifiable list view of a range of entries.
+     */
+    private abstract static class EntryList<E> extends AbstractList<E> implements RandomAccess {
+        private final int firstEntry;
+        private final int endEntry;
 
-            return next;
+        public EntryList(int firstEntry, int endEntry) {
+            this.firstEntry = firstEntry;
+            this.endEntry = endEntry;
         }
 
-        private Entry<String, V> findNext() {
-            if (this.children == null) {
-                this.children = this.trie.children.entrySet().iterator();
-
-                if (this.trie.terminalValue != null) {
-                    return Map.entry(this.relativeKey, this.trie.terminalValue);
-                }
-            }
-
-            while (this.currentChild == null || !this.currentChild.hasNext()) {
-                if (!this.children.hasNext()) {
-                    return null;
-                }
-                Entry<Character, StringTrie<V>> childEntry = this.children.next();
-                this.currentChild = new EntryIterator<>(childEntry.getValue(), this.relativeKey + childEntry.getKey());
-            }
-
-            return this.currentChild.next();
+        protected int getEntry(int index) {
+            Objects.checkIndex(index, this.size());
+            return this.firstEntry + index;
         }
 
-        /**
-         * Removes from the underlying collection the last element returned by this iterator (optional operation).  This
-         * method can be called only once per call to {@link #next}.
-         * <p>
-         * The behavior of an iterator is unspecified if the underlying collection is modified while the iteration is in
-         * progress in any way other than by calling this method, unless an overriding class has specified a concurrent
-         * modification policy.
-         * <p>
-         * The behavior of an iterator is unspecified if this method is called after a call to the
-         * {@link #forEachRemaining forEachRemaining} method.
-         *
-         * @throws IllegalStateException if the {@code next} method has not yet been called, or the
-         *                               {@code remove} method has already been called after the last call to
-         *                               the {@code next} method
-         */
         @Override
-        public void remove() {
-            if (!this.canRemove) {
-                throw new IllegalStateException();
-            }
-
-            this.trie.terminalValue = null;
-            this.canRemove = false;
+        public int size() {
+            return this.endEntry - this.firstEntry;
         }
     }
 }
@@ -5,13 +5,16 @@ import mars.assembler.log.LogMessage;
 import mars.simulator.*;
 
 import javax.swing.*;
-import javax.swing.text.*;
-import java.awt.event.MouseAdapter;
-import java.awt.event.MouseEvent;
+import java.awt.*;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.StringSelection;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.awt.event.*;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /*
 Copyright (c) 2003-2010,  Pete Sanderson and Kenneth Vollmar
@@ -43,73 +46,155 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 
 /**
  * Special text area used by {@link MessagesPane} to imitate console input/output. Output written using
- * {@link #writeOutput(String)} is buffered to reduce the load on the GUI and prevent rapid-fire writes from clogging
- * the event queue, which would be the case if {@link #append(String)} was used instead. User input is not
- * entirely accurate to the behavior of a real console, as it prevents the user from entering any input while no
- * system calls are requesting it, and limits the user from exceeding character limits while typing. These differences
- * should be beneficial in the majority of cases, though.
+ * {@link #writeOutput(String)} is appended to a {@link ConsoleTextStore} from whichever thread writes it, and the
+ * display is refreshed at most once per pass through the event queue, so rapid-fire writes cannot clog the GUI.
+ * Rather than copying output into a Swing document, this component paints only the lines which are visible
+ * directly from the store, so the cost of displaying output does not depend on how much output has been retained.
+ * The amount of output retained is limited by the console retention setting, in bytes.
+ * <p>
+ * User input is not entirely accurate to the behavior of a real console, as it prevents the user from entering any
+ * input while no system calls are requesting it, and limits the user from exceeding character limits while typing.
+ * These differences should be beneficial in the majority of cases, though.
  * <p>
  * The user input code was originally written by Ricardo Fernández Pascual (rfernandez@ditec.um.es) in December 2009.
  */
-public class ConsoleTextArea extends JTextArea {
-    // These constants are designed to keep the contents of the console from becoming overwhelmingly large
-    // (which slows things down over time and can hog and/or exhaust memory)
-    public static final int MAXIMUM_LINE_COUNT = 1000;
-    public static final int TRIM_LINES_EXTRA_COUNT = MAXIMUM_LINE_COUNT / 20; // trim 5% extra
-    public static final int MAXIMUM_CHARACTER_COUNT = MAXIMUM_LINE_COUNT * 500; // Average 500 characters per line
-    public static final int TRIM_CHARACTERS_EXTRA_COUNT = MAXIMUM_CHARACTER_COUNT / 10; // trim 10% extra
-
-    private final StringBuffer outputBuffer;
-    private int outputBufferLineCount;
-    private boolean outputBufferTrimmed;
+public class ConsoleTextArea extends JComponent implements Scrollable {
+    private static final int PADDING = 3;
+    private static final int TAB_SIZE = ConsoleTextStore.TAB_SIZE;
+
+    private final ConsoleTextStore store;
+    private final AtomicBoolean flushPending;
     private final List<TextRange<LogMessage>> outputMessages;
     private final ArrayBlockingQueue<String> inputResultQueue;
-    private int inputStartPosition;
+    private final StringBuilder inputText;
+    private int inputCaretPosition;
     private int inputMaxLength;
+    private boolean isInputActive;
+    private boolean isEditable;
+    // Snapshot of the store taken by the last flush, which determines what is laid out and painted
+    private long displayFirstLine;
+    private int displayLineCount;
+    private int displayColumnCount;
+    // Selection offsets refer to the store, with offsets past the end of the store referring to the input text
+    private long selectionAnchor;
+    private long selectionDot;
+    private String lastSearchQuery;
+    private Color selectionBackground;
+    private Color caretForeground;
 
     /**
      * Create a new <code>ConsoleTextArea</code>.
      */
     public ConsoleTextArea() {
         super();
-        this.outputBuffer = new StringBuffer();
-        this.outputBufferLineCount = 0;
-        this.outputBufferTrimmed = false;
+        this.store = new ConsoleTextStore(Application.getSettings().consoleMaxBytes.get());
+        this.flushPending = new AtomicBoolean(false);
         this.outputMessages = new ArrayList<>();
         this.inputResultQueue = new ArrayBlockingQueue<>(1);
+        this.inputText = new StringBuilder();
         // These values don't really matter because they will be reinitialized when input begins
-        this.inputStartPosition = 0;
+        this.inputCaretPosition = 0;
         this.inputMaxLength = 0;
+        this.isInputActive = false;
+        this.isEditable = false;
+        this.displayFirstLine = 0;
+        this.displayLineCount = 1;
+        this.displayColumnCount = 0;
+        this.selectionAnchor = -1;
+        this.selectionDot = -1;
+        this.lastSearchQuery = "";
+
+        this.setOpaque(true);
+        this.setFocusable(true);
+        this.setCursor(Cursor.getPredefinedCursor(Cursor.TEXT_CURSOR));
+        this.updateUI();
+
+        MouseAdapter mouseHandler = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent event) {
+                ConsoleTextArea.this.requestFocusInWindow();
+                if (!SwingUtilities.isLeftMouseButton(event)) {
+                    return;
+                }
+                long offset = ConsoleTextArea.this.getOffsetAtPoint(event.getPoint());
+                if (!event.isShiftDown() || ConsoleTextArea.this.selectionAnchor < 0) {
+                    ConsoleTextArea.this.selectionAnchor = offset;
+                }
+                ConsoleTextArea.this.selectionDot = offset;
+                ConsoleTextArea.this.repaint();
+            }
 
-        this.setEditable(false);
-        this.setBackground(UIManager.getColor("Venus.ConsoleTextArea.background"));
-        this.setFont(Application.getSettings().consoleFont.get());
+            @Override
+            public void mouseDragged(MouseEvent event) {
+                if (!SwingUtilities.isLeftMouseButton(event) || ConsoleTextArea.this.selectionAnchor < 0) {
+                    return;
+                }
+                ConsoleTextArea.this.selectionDot = ConsoleTextArea.this.getOffsetAtPoint(event.getPoint());
+                ConsoleTextArea.this.scrollRectToVisible(new Rectangle(event.getX(), event.getY(), 1, 1));
+                ConsoleTextArea.this.repaint();
+            }
 
-        this.addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent event) {
-                if (ConsoleTextArea.this.outputMessages.isEmpty()) {
+                if (event.getClickCount() != 1 || ConsoleTextArea.this.selectionAnchor != ConsoleTextArea.this.selectionDot) {
                     return;
                 }
-                int offset = ConsoleTextArea.this.viewToModel2D(event.getPoint());
-                if (offset < 0) {
+                LogMessage message = ConsoleTextArea.this.getMessageAtOffset(ConsoleTextArea.this.getOffsetAtPoint(event.getPoint()));
+                if (message != null) {
+                    ConsoleTextArea.this.clickMessage(message);
+                }
+            }
+        };
+        this.addMouseListener(mouseHandler);
+        this.addMouseMotionListener(mouseHandler);
+
+        this.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyTyped(KeyEvent event) {
+                char character = event.getKeyChar();
+                if (event.isControlDown() || event.isMetaDown() || character == KeyEvent.CHAR_UNDEFINED || Character.isISOControl(character)) {
                     return;
                 }
-                // Perform a linear search in reverse chronological order
-                for (int index = ConsoleTextArea.this.outputMessages.size() - 1; index >= 0; index--) {
-                    TextRange<LogMessage> textRange = ConsoleTextArea.this.outputMessages.get(index);
-                    if (textRange.start <= offset) {
-                        if (offset - textRange.start < textRange.length) {
-                            // User clicked within the text range
-                            ConsoleTextArea.this.clickMessage(textRange.value);
-                        }
-                        // At least for now, we'll just assume text ranges don't overlap, so every range we check after
-                        // this point will end before the clicked offset. Thus, we can stop searching here regardless
-                        break;
-                    }
+                ConsoleTextArea.this.insertInput(String.valueOf(character));
+                event.consume();
+            }
+
+            @Override
+            public void keyPressed(KeyEvent event) {
+                if (ConsoleTextArea.this.isInputActive && ConsoleTextArea.this.isEditable && ConsoleTextArea.this.handleInputKey(event.getKeyCode())) {
+                    event.consume();
                 }
             }
         });
+
+        this.addFocusListener(new FocusListener() {
+            @Override
+            public void focusGained(FocusEvent event) {
+                ConsoleTextArea.this.repaint();
+            }
+
+            @Override
+            public void focusLost(FocusEvent event) {
+                ConsoleTextArea.this.repaint();
+            }
+        });
+
+        int shortcutMask = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+        this.addKeyAction(KeyStroke.getKeyStroke(KeyEvent.VK_C, shortcutMask), "copy", this::copySelection);
+        this.addKeyAction(KeyStroke.getKeyStroke(KeyEvent.VK_A, shortcutMask), "select-all", this::selectAll);
+        this.addKeyAction(KeyStroke.getKeyStroke(KeyEvent.VK_V, shortcutMask), "paste", this::pasteInput);
+        this.addKeyAction(KeyStroke.getKeyStroke(KeyEvent.VK_F, shortcutMask), "find", this::find);
+        this.addKeyAction(KeyStroke.getKeyStroke(KeyEvent.VK_F3, 0), "find-next", this::findNext);
+    }
+
+    private void addKeyAction(KeyStroke keyStroke, String name, Runnable action) {
+        this.getInputMap(WHEN_FOCUSED).put(keyStroke, name);
+        this.getActionMap().put(name, new AbstractAction(name) {
+            @Override
+            public void actionPerformed(ActionEvent event) {
+                action.run();
+            }
+        });
     }
 
     /**
@@ -118,13 +203,13 @@ public class ConsoleTextArea extends JTextArea {
      * <b>This method must be called from the GUI thread.</b>
      */
     public void clear() {
-        synchronized (this.outputBuffer) {
-            this.outputBuffer.setLength(0);
-            this.outputBufferLineCount = 0;
-            this.outputBufferTrimmed = false;
+        this.store.clear();
+        synchronized (this.outputMessages) {
+            this.outputMessages.clear();
         }
-        this.outputMessages.clear();
-        this.setText("");
+        this.selectionAnchor = -1;
+        this.selectionDot = -1;
+        this.flushOutput();
     }
 
     /**
@@ -147,201 +232,113 @@ public class ConsoleTextArea extends JTextArea {
      *
      * @param text String to append to the console output.
      */
-    /*
-     * The work of this method is done by "invokeLater" because
-     * its JTextArea is maintained by the main event thread
-     * but also used, via this method, by the execution thread for
-     * "print" syscalls. "invokeLater" schedules the code to be
-     * run under the event-processing thread no matter what.
-     * DPS 23 Aug 2005
-     */
     public void writeOutput(String text) {
         this.writeOutput(text, null);
     }
 
     private void writeOutput(String text, LogMessage message) {
-        // Buffering the output allows one flush to handle several writes, meaning the event queue
+        // Appending to the store allows one flush to handle several writes, meaning the event queue
         // doesn't fill up with console text area updates and effectively block the GUI thread.
         // (This is what happened previously in case of e.g. infinite print loops.)
-        // Sean Clarke 04/2024
-
-        boolean isFirstWriteSinceFlush;
-        synchronized (this.outputBuffer) {
-            isFirstWriteSinceFlush = this.outputBuffer.isEmpty();
-
-            // Do crude trimming by character count if needed to prevent the buffer from becoming larger than necessary
-            int projectedLength = this.outputBuffer.length() + text.length();
-            if (projectedLength > MAXIMUM_CHARACTER_COUNT) {
-                if (text.length() >= MAXIMUM_CHARACTER_COUNT) {
-                    // The new text is so large that it will completely replace the buffer
-                    this.outputBuffer.setLength(0);
-                    this.outputBufferLineCount = 0;
-                    // Trim the new text to the maximum size
-                    text = text.substring(text.length() - MAXIMUM_CHARACTER_COUNT);
-                }
-                else {
-                    // The new text does not completely replace the buffer (this case is much more likely)
-                    int endOfTrim = projectedLength - MAXIMUM_CHARACTER_COUNT;
-                    // Adjust the number of lines in the buffer
-                    for (int index = 0; index < endOfTrim; index++) {
-                        if (this.outputBuffer.charAt(index) == '\n') {
-                            this.outputBufferLineCount--;
-                        }
-                    }
-                    // Trim the buffer
-                    this.outputBuffer.delete(0, endOfTrim);
-
-                    if (!this.outputMessages.isEmpty()) {
-                        // Adjust the output text range start positions
-                        int characterCount = endOfTrim;
-                        if (!this.outputBufferTrimmed) {
-                            // This is the first time the output buffer has been trimmed since a flush
-                            characterCount += this.getDocument().getLength();
-                        }
-                        this.shiftTextRanges(characterCount);
-                    }
-                }
-
-                // Flag that the output buffer has been trimmed so that when the buffer flushes, we know the buffer
-                // content effectively extends beyond its actual size (and thus fully replaces current content)
-                this.outputBufferTrimmed = true;
-            }
-
-            // Count the number of additional lines the text added to the output buffer
-            for (int index = 0; index < text.length(); index++) {
-                if (text.charAt(index) == '\n') {
-                    this.outputBufferLineCount++;
-                }
-            }
+        long offset = this.store.append(text);
 
-            // If this is a message, create a new text range for it
-            if (message != null) {
-                this.outputMessages.add(new TextRange<>(
-                    (this.outputBufferTrimmed)
-                        ? this.outputBuffer.length()
-                        : this.getDocument().getLength() + this.outputBuffer.length(),
-                    text.length(),
-                    message
-                ));
+        // If this is a message, create a new text range for it. Offsets in the store never change,
+        // so the range remains valid until the store discards the text.
+        if (message != null) {
+            synchronized (this.outputMessages) {
+                this.outputMessages.add(new TextRange<>(offset, text.length(), message));
             }
-
-            // Add the text to the output buffer
-            this.outputBuffer.append(text);
         }
 
-        if (isFirstWriteSinceFlush) {
-            // The output buffer was empty, meaning this text was the first text written
-            // since the last flush completed. Now, another flush is needed, which must happen on the GUI thread.
+        if (!this.flushPending.getAndSet(true)) {
+            // No flush is pending, meaning this text was the first text written since the last flush began.
+            // Now, another flush is needed, which must happen on the GUI thread.
             SwingUtilities.invokeLater(this::flushOutput);
         }
     }
 
     /**
-     * Flush the output buffer to the GUI text area,
-     * trimming the content to have at most {@link #MAXIMUM_LINE_COUNT} lines if necessary.
+     * Update the display to include all output written so far, scrolling to the end of the output
+     * if the view was already there.
      * <p>
      * <b>This method must be called from the GUI thread.</b>
      */
     public void flushOutput() {
-        synchronized (this.outputBuffer) {
-            // Trim output if needed to save memory. If the number of lines exceeds the maximum, trim off the excess
-            // old lines, plus some extra lines so we only have to do this occasionally. To account for the potential
-            // of absurdly long lines, trim using the same approach for characters if needed. Trimming will limit the
-            // amount of history kept, but the maximum counts should be set reasonably high.
-            int characterCountToTrim = 0;
-
-            int currentLineCount = (this.outputBufferTrimmed) ? 0 : this.getLineCount();
-            int currentLength = (this.outputBufferTrimmed) ? 0 : this.getDocument().getLength();
-
-            // First, trim lines if needed
-            int projectedLineCount = currentLineCount + this.outputBufferLineCount;
-            if (projectedLineCount > MAXIMUM_LINE_COUNT) {
-                try {
-                    int lastLineToTrim = projectedLineCount - MAXIMUM_LINE_COUNT + TRIM_LINES_EXTRA_COUNT;
-                    if (lastLineToTrim >= currentLineCount) {
-                        // The output buffer is so large that none of the current content will be retained,
-                        // and not all of the output buffer can be added (happens in case of a lot of output at once)
-                        lastLineToTrim -= currentLineCount;
-                        for (int index = 0; lastLineToTrim > 0; index++) {
-                            if (this.outputBuffer.charAt(index) == '\n') {
-                                lastLineToTrim--;
-                                if (lastLineToTrim == 0) {
-                                    characterCountToTrim = currentLength + index + 1;
-                                }
-                            }
-                        }
-                    }
-                    else {
-                        // At least some (probably most) of the current content will be retained
-                        characterCountToTrim = this.getLineEndOffset(lastLineToTrim);
-                    }
-                }
-                catch (BadLocationException exception) {
-                    throw new IllegalStateException("bad trim constants", exception);
-                }
-
+        this.flushPending.set(false);
+        this.store.setMaxBytes(Application.getSettings().consoleMaxBytes.get());
+
+        JViewport viewport = (this.getParent() instanceof JViewport parent) ? parent : null;
+        int lineHeight = this.getLineHeight();
+        boolean wasAtEnd = viewport == null
+            || viewport.getViewPosition().y + viewport.getExtentSize().height >= this.getHeight() - lineHeight;
+
+        long trimmedLineCount;
+        synchronized (this.store) {
+            trimmedLineCount = this.store.getFirstLineNumber() - this.displayFirstLine;
+            this.displayFirstLine = this.store.getFirstLineNumber();
+            this.displayLineCount = this.store.getLineCount();
+            this.displayColumnCount = this.store.getMaxLineColumns();
+        }
+        this.discardTrimmedMessages();
+
+        if (viewport != null) {
+            // Lay out the scroll pane right away so the view can be positioned within the new size
+            this.invalidate();
+            ((viewport.getParent() != null) ? viewport.getParent() : viewport).validate();
+            Point position = viewport.getViewPosition();
+            if (wasAtEnd) {
+                // Follow the output as it is written
+                position.y = Math.max(0, this.getHeight() - viewport.getExtentSize().height);
             }
-
-            // Then, trim characters if trimming lines wasn't enough to reduce output
-            int projectedLength = currentLength + this.outputBuffer.length() - characterCountToTrim;
-            if (projectedLength > MAXIMUM_CHARACTER_COUNT) {
-                characterCountToTrim += projectedLength - MAXIMUM_CHARACTER_COUNT + TRIM_CHARACTERS_EXTRA_COUNT;
+            else if (trimmedLineCount > 0) {
+                // Keep the same lines in view, even though they have moved up
+                position.y = (int) Math.max(0, position.y - trimmedLineCount * lineHeight);
             }
+            viewport.setViewPosition(position);
+        }
+        else {
+            this.revalidate();
+        }
+        this.repaint();
+    }
 
-            if (characterCountToTrim > 0) {
-                // Line and/or character limit has been exceeded, so actual trimming must be done
-                if (this.outputBufferTrimmed || characterCountToTrim >= currentLength) {
-                    // Rather than trim the buffer, clear the document, and append the new content, we can just replace
-                    // the current document text with a substring of the buffer
-                    this.setText(this.outputBuffer.substring(characterCountToTrim - currentLength));
-                }
-                else {
-                    // Trim the existing content
-                    try {
-                        this.getDocument().remove(0, characterCountToTrim);
-                    }
-                    catch (BadLocationException exception) {
-                        throw new IllegalStateException("invalid trim length", exception);
-                    }
-
-                    // Append the new content
-                    this.append(this.outputBuffer.toString());
+    private void discardTrimmedMessages() {
+        long startOffset = this.store.getStartOffset();
+        synchronized (this.outputMessages) {
+            int count = 0;
+            while (count < this.outputMessages.size()) {
+                TextRange<LogMessage> textRange = this.outputMessages.get(count);
+                if (textRange.start() + textRange.length() > startOffset) {
+                    break;
                 }
-
-                // Adjust the output text range start positions if needed
-                this.shiftTextRanges(characterCountToTrim);
-            }
-            else {
-                // No trimming to be done, so just append the new content
-                this.append(this.outputBuffer.toString());
+                count++;
             }
-
-            // Flush the output buffer
-            this.outputBuffer.setLength(0);
-            this.outputBufferLineCount = 0;
-            this.outputBufferTrimmed = false;
-
-            // Place the caret after the flushed output
-            this.setCaretPosition(this.getDocument().getLength());
+            this.outputMessages.subList(0, count).clear();
         }
     }
 
-    private void shiftTextRanges(int characterCount) {
-        Iterator<TextRange<LogMessage>> textRanges = this.outputMessages.iterator();
-        while (textRanges.hasNext()) {
-            TextRange<LogMessage> textRange = textRanges.next();
-            textRange.start -= characterCount;
-            if (textRange.start < 0) {
-                if (textRange.start + textRange.length <= 0) {
-                    // The range is now fully trimmed out
-                    textRanges.remove();
+    private LogMessage getMessageAtOffset(long offset) {
+        synchronized (this.outputMessages) {
+            // Text ranges are in order of offset and don't overlap, so the only candidate is the last one
+            // starting at or before the offset
+            int low = 0;
+            int high = this.outputMessages.size() - 1;
+            TextRange<LogMessage> candidate = null;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                TextRange<LogMessage> textRange = this.outputMessages.get(middle);
+                if (textRange.start() <= offset) {
+                    candidate = textRange;
+                    low = middle + 1;
                 }
                 else {
-                    // The range extends after the trim, so cut off the trimmed part of it
-                    textRange.length += textRange.start;
-                    textRange.start = 0;
+                    high = middle - 1;
                 }
             }
+            if (candidate != null && offset - candidate.start() < candidate.length()) {
+                return candidate.value();
+            }
+            return null;
         }
     }
 
@@ -370,9 +367,10 @@ public class ConsoleTextArea extends JTextArea {
         catch (InterruptedException exception) {
             // Delete the partial input, as we don't have a good way to save it
             SwingUtilities.invokeLater(() -> {
-                if (this.inputStartPosition <= this.getDocument().getLength()) {
-                    this.replaceRange("", this.inputStartPosition, this.getDocument().getLength());
-                }
+                this.inputText.setLength(0);
+                this.inputCaretPosition = 0;
+                this.revalidate();
+                this.repaint();
             });
             throw exception;
         }
@@ -388,76 +386,330 @@ public class ConsoleTextArea extends JTextArea {
     public void updateUI() {
         super.updateUI();
         this.setBackground(UIManager.getColor("Venus.ConsoleTextArea.background"));
+        this.setForeground(UIManager.getColor("TextArea.foreground"));
+        this.selectionBackground = UIManager.getColor("TextArea.selectionBackground");
+        this.caretForeground = UIManager.getColor("TextArea.caretForeground");
         this.setFont(Application.getSettings().consoleFont.get());
     }
 
-    private final DocumentFilter documentFilter = new DocumentFilter() {
-        @Override
-        public void replace(FilterBypass bypass, int offset, int length, String text, AttributeSet attributes) throws BadLocationException {
-            // Aliases for brevity
-            int startPosition = ConsoleTextArea.this.inputStartPosition;
-            int maxLength = ConsoleTextArea.this.inputMaxLength;
-
-            // Prevent any edits before the initial position
-            if (offset < startPosition) {
-                ConsoleTextArea.this.getToolkit().beep();
-                return;
-            }
+    private int getLineHeight() {
+        return this.getFontMetrics(this.getFont()).getHeight();
+    }
+
+    private int getColumnWidth() {
+        // The console font is expected to be monospaced
+        return Math.max(1, this.getFontMetrics(this.getFont()).charWidth('m'));
+    }
+
+    private int getRowY(int row) {
+        return PADDING + row * this.getLineHeight();
+    }
+
+    private int getRowAtY(int y) {
+        int row = (y - PADDING) / this.getLineHeight();
+        return Math.max(0, Math.min(row, this.displayLineCount - 1));
+    }
+
+    private boolean isInputRow(int row) {
+        return this.isInputActive && row == this.displayLineCount - 1;
+    }
 
-            // If there are any newlines, act like the first one ended the input by stripping it
-            // and everything past it off. I don't know if this is the best way to handle characters
-            // after a newline, but I can't think of a better way.
-            int newlineIndex = text.indexOf('\n');
-            if (newlineIndex >= 0) {
-                text = text.substring(0, newlineIndex);
+    /**
+     * Get the text displayed in a row, which includes the input text for the last row while input is active.
+     */
+    private String getRowText(int row) {
+        String line = this.store.getLine(this.displayFirstLine + row);
+        return (this.isInputRow(row)) ? line + this.inputText : line;
+    }
+
+    private long getRowStartOffset(int row) {
+        return this.store.getLineStartOffset(this.displayFirstLine + row);
+    }
+
+    private long getInputStartOffset() {
+        return this.store.getEndOffset();
+    }
+
+    private long getOffsetAtPoint(Point point) {
+        int row = this.getRowAtY(point.y);
+        String text = this.getRowText(row);
+        float column = (point.x - PADDING) / (float) this.getColumnWidth();
+        return this.getRowStartOffset(row) + getIndexForColumn(text, column);
+    }
+
+    @Override
+    protected void paintComponent(Graphics graphics) {
+        Rectangle clip = graphics.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, this.getWidth(), this.getHeight());
+        }
+        graphics.setColor(this.getBackground());
+        graphics.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        graphics.setFont(this.getFont());
+        FontMetrics metrics = graphics.getFontMetrics();
+        int lineHeight = metrics.getHeight();
+        int columnWidth = this.getColumnWidth();
+        int firstRow = this.getRowAtY(clip.y);
+        int lastRow = this.getRowAtY(clip.y + clip.height);
+        int firstColumn = Math.max(0, (clip.x - PADDING) / columnWidth);
+        int lastColumn = (clip.x + clip.width - PADDING) / columnWidth + 1;
+        long selectionStart = Math.min(this.selectionAnchor, this.selectionDot);
+        long selectionEnd = Math.max(this.selectionAnchor, this.selectionDot);
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            String text = this.getRowText(row);
+            int y = this.getRowY(row);
+
+            // Paint the part of the selection within this row, including the newline if it is selected
+            long rowStart = this.getRowStartOffset(row);
+            long rowEnd = rowStart + text.length();
+            if (selectionStart >= 0 && selectionStart < selectionEnd && selectionStart <= rowEnd && selectionEnd > rowStart) {
+                int startColumn = getColumnForIndex(text, (int) (Math.max(selectionStart, rowStart) - rowStart));
+                int endColumn = getColumnForIndex(text, (int) (Math.min(selectionEnd, rowEnd) - rowStart));
+                if (selectionEnd > rowEnd) {
+                    endColumn++;
+                }
+                graphics.setColor(this.selectionBackground);
+                graphics.fillRect(PADDING + startColumn * columnWidth, y, (endColumn - startColumn) * columnWidth, lineHeight);
             }
 
-            // If the character limit would be exceeded, strip the excess off and beep to let the user know
-            if (maxLength >= 0 && (bypass.getDocument().getLength() - length) + text.length() > startPosition + maxLength) {
-                int trimmedLength = Math.max(0, startPosition + maxLength - (bypass.getDocument().getLength() - length));
-                text = text.substring(0, trimmedLength);
-                ConsoleTextArea.this.getToolkit().beep();
+            // Only draw the columns which are visible, since lines may be extremely long
+            String expandedText = expandTabs(text);
+            if (firstColumn < expandedText.length()) {
+                graphics.setColor(this.getForeground());
+                graphics.drawString(expandedText.substring(firstColumn, Math.min(expandedText.length(), lastColumn)), PADDING + firstColumn * columnWidth, y + metrics.getAscent());
             }
+        }
 
-            bypass.replace(offset, length, text, attributes);
+        if (this.isInputActive && this.isEditable && this.isFocusOwner()) {
+            int row = this.displayLineCount - 1;
+            String text = this.getRowText(row);
+            int column = getColumnForIndex(text, text.length() - this.inputText.length() + this.inputCaretPosition);
+            graphics.setColor(this.caretForeground);
+            graphics.fillRect(PADDING + column * columnWidth, this.getRowY(row), 1, lineHeight);
+        }
+    }
 
-            // If there was a newline, submit the input
-            if (newlineIndex >= 0) {
-                ConsoleTextArea.this.submitInput();
-            }
+    @Override
+    public Dimension getPreferredSize() {
+        if (this.isPreferredSizeSet()) {
+            return super.getPreferredSize();
         }
+        int columnCount = this.displayColumnCount;
+        if (this.isInputActive) {
+            String text = this.getRowText(this.displayLineCount - 1);
+            columnCount = Math.max(columnCount, getColumnForIndex(text, text.length()));
+        }
+        // Leave room for the caret at the end of the longest line
+        long width = 2L * PADDING + (columnCount + 1L) * this.getColumnWidth();
+        long height = 2L * PADDING + (long) this.displayLineCount * this.getLineHeight();
+        return new Dimension((int) Math.min(width, Integer.MAX_VALUE), (int) Math.min(height, Integer.MAX_VALUE));
+    }
 
-        @Override
-        public void remove(FilterBypass bypass, int offset, int length) throws BadLocationException {
-            // Prevent any edits before the initial position
-            if (offset < ConsoleTextArea.this.inputStartPosition) {
-                ConsoleTextArea.this.getToolkit().beep();
-                return;
-            }
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return this.getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return (orientation == SwingConstants.VERTICAL) ? this.getLineHeight() : this.getColumnWidth();
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return (orientation == SwingConstants.VERTICAL) ? visibleRect.height : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return this.getParent() instanceof JViewport viewport && viewport.getWidth() > this.getPreferredSize().width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return this.getParent() instanceof JViewport viewport && viewport.getHeight() > this.getPreferredSize().height;
+    }
 
-            bypass.remove(offset, length);
+    /**
+     * Scroll the view so the character at an offset is visible.
+     */
+    private void scrollToOffset(long offset) {
+        int row;
+        if (offset >= this.getInputStartOffset() && this.isInputActive) {
+            row = this.displayLineCount - 1;
         }
-    };
+        else {
+            row = (int) Math.max(0, Math.min(this.store.getLineOfOffset(offset) - this.displayFirstLine, this.displayLineCount - 1));
+        }
+        String text = this.getRowText(row);
+        int index = (int) Math.max(0, Math.min(offset - this.getRowStartOffset(row), text.length()));
+        int columnWidth = this.getColumnWidth();
+        this.scrollRectToVisible(new Rectangle(PADDING + getColumnForIndex(text, index) * columnWidth, this.getRowY(row), columnWidth, this.getLineHeight()));
+    }
 
-    private final NavigationFilter navigationFilter = new NavigationFilter() {
-        @Override
-        public void moveDot(FilterBypass bypass, int dot, Position.Bias bias) {
-            // Prevent placement of the caret before the initial position
-            if (dot < ConsoleTextArea.this.inputStartPosition) {
-                dot = Math.min(ConsoleTextArea.this.inputStartPosition, ConsoleTextArea.this.getDocument().getLength());
+    private String getSelectedText() {
+        long selectionStart = Math.min(this.selectionAnchor, this.selectionDot);
+        long selectionEnd = Math.max(this.selectionAnchor, this.selectionDot);
+        if (selectionStart < 0 || selectionStart == selectionEnd) {
+            return "";
+        }
+        String text = this.store.getText(selectionStart, selectionEnd);
+        long inputStart = this.getInputStartOffset();
+        if (this.isInputActive && selectionEnd > inputStart) {
+            int start = (int) Math.max(0, selectionStart - inputStart);
+            int end = (int) Math.min(this.inputText.length(), selectionEnd - inputStart);
+            if (start < end) {
+                text += this.inputText.substring(start, end);
             }
-            bypass.moveDot(dot, bias);
         }
+        return text;
+    }
 
-        @Override
-        public void setDot(FilterBypass bypass, int dot, Position.Bias bias) {
-            // Prevent placement of the caret before the initial position
-            if (dot < ConsoleTextArea.this.inputStartPosition) {
-                dot = Math.min(ConsoleTextArea.this.inputStartPosition, ConsoleTextArea.this.getDocument().getLength());
+    private void copySelection() {
+        String text = this.getSelectedText();
+        if (!text.isEmpty()) {
+            Toolkit.getDefaultToolkit().getSystemClipboard().setContents(new StringSelection(text), null);
+        }
+    }
+
+    private void selectAll() {
+        this.selectionAnchor = this.store.getStartOffset();
+        this.selectionDot = this.getInputStartOffset() + ((this.isInputActive) ? this.inputText.length() : 0);
+        this.repaint();
+    }
+
+    /**
+     * Ask the user for text to search for, then select its next occurrence in the output.
+     */
+    private void find() {
+        String query = JOptionPane.showInputDialog(this, "Find in output:", this.lastSearchQuery);
+        if (query == null || query.isEmpty()) {
+            return;
+        }
+        this.lastSearchQuery = query;
+        this.findNext();
+    }
+
+    /**
+     * Select the next occurrence of the last text searched for, ignoring case and wrapping around
+     * to the start of the output if needed.
+     */
+    private void findNext() {
+        if (this.lastSearchQuery.isEmpty()) {
+            this.find();
+            return;
+        }
+        long fromOffset = (this.selectionAnchor >= 0) ? Math.max(this.selectionAnchor, this.selectionDot) : this.store.getStartOffset();
+        long offset = this.store.indexOf(this.lastSearchQuery, fromOffset, true);
+        if (offset < 0) {
+            offset = this.store.indexOf(this.lastSearchQuery, this.store.getStartOffset(), true);
+        }
+        if (offset < 0) {
+            this.getToolkit().beep();
+            return;
+        }
+        this.selectionAnchor = offset;
+        this.selectionDot = offset + this.lastSearchQuery.length();
+        this.scrollToOffset(this.selectionDot);
+        this.scrollToOffset(offset);
+        this.repaint();
+    }
+
+    private void pasteInput() {
+        if (!this.isInputActive || !this.isEditable) {
+            this.getToolkit().beep();
+            return;
+        }
+        try {
+            this.insertInput((String) Toolkit.getDefaultToolkit().getSystemClipboard().getData(DataFlavor.stringFlavor));
+        }
+        catch (UnsupportedFlavorException | IOException exception) {
+            this.getToolkit().beep();
+        }
+    }
+
+    /**
+     * Insert text into the input at the caret position.
+     */
+    private void insertInput(String text) {
+        if (!this.isInputActive || !this.isEditable) {
+            return;
+        }
+
+        // If there are any newlines, act like the first one ended the input by stripping it
+        // and everything past it off. I don't know if this is the best way to handle characters
+        // after a newline, but I can't think of a better way.
+        int newlineIndex = text.indexOf('\n');
+        if (newlineIndex >= 0) {
+            text = text.substring(0, newlineIndex);
+        }
+        text = text.replace("\r", "");
+
+        // If the character limit would be exceeded, strip the excess off and beep to let the user know
+        if (this.inputMaxLength >= 0 && this.inputText.length() + text.length() > this.inputMaxLength) {
+            text = text.substring(0, Math.max(0, this.inputMaxLength - this.inputText.length()));
+            this.getToolkit().beep();
+        }
+
+        this.inputText.insert(this.inputCaretPosition, text);
+        this.inputCaretPosition += text.length();
+
+        // If there was a newline, submit the input
+        if (newlineIndex >= 0) {
+            this.submitInput();
+        }
+        else {
+            this.inputChanged();
+        }
+    }
+
+    /**
+     * Handle a key which edits the input or moves the caret.
+     *
+     * @return <code>true</code> if the key was handled, or <code>false</code> otherwise.
+     */
+    private boolean handleInputKey(int keyCode) {
+        switch (keyCode) {
+            case KeyEvent.VK_ENTER -> {
+                this.submitInput();
+                return true;
+            }
+            case KeyEvent.VK_BACK_SPACE -> {
+                if (this.inputCaretPosition > 0) {
+                    this.inputText.deleteCharAt(--this.inputCaretPosition);
+                }
+                else {
+                    // Prevent any edits before the initial position
+                    this.getToolkit().beep();
+                }
+            }
+            case KeyEvent.VK_DELETE -> {
+                if (this.inputCaretPosition < this.inputText.length()) {
+                    this.inputText.deleteCharAt(this.inputCaretPosition);
+                }
+                else {
+                    this.getToolkit().beep();
+                }
+            }
+            case KeyEvent.VK_LEFT -> this.inputCaretPosition = Math.max(0, this.inputCaretPosition - 1);
+            case KeyEvent.VK_RIGHT -> this.inputCaretPosition = Math.min(this.inputText.length(), this.inputCaretPosition + 1);
+            case KeyEvent.VK_HOME -> this.inputCaretPosition = 0;
+            case KeyEvent.VK_END -> this.inputCaretPosition = this.inputText.length();
+            default -> {
+                return false;
             }
-            bypass.setDot(dot, bias);
         }
-    };
+        this.inputChanged();
+        return true;
+    }
+
+    private void inputChanged() {
+        this.revalidate();
+        this.scrollToOffset(this.getInputStartOffset() + this.inputCaretPosition);
+        this.repaint();
+    }
 
     private final SimulatorListener simulatorListener = new SimulatorListener() {
         /**
@@ -467,7 +719,8 @@ public class ConsoleTextArea extends JTextArea {
          */
         @Override
         public void simulatorStarted(SimulatorStartEvent event) {
-            ConsoleTextArea.this.setEditable(true);
+            ConsoleTextArea.this.isEditable = true;
+            ConsoleTextArea.this.repaint();
         }
 
         /**
@@ -477,7 +730,8 @@ public class ConsoleTextArea extends JTextArea {
          */
         @Override
         public void simulatorPaused(SimulatorPauseEvent event) {
-            ConsoleTextArea.this.setEditable(false);
+            ConsoleTextArea.this.isEditable = false;
+            ConsoleTextArea.this.repaint();
         }
 
         /**
@@ -492,51 +746,82 @@ public class ConsoleTextArea extends JTextArea {
     };
 
     private void beginInput() {
-        this.setEditable(true);
+        // Make sure any prompt written before the input is displayed, so the input follows it
+        this.flushOutput();
+        this.inputText.setLength(0);
+        this.inputCaretPosition = 0;
+        this.isInputActive = true;
+        this.isEditable = true;
         this.requestFocusInWindow();
-        this.setCaretPosition(this.getDocument().getLength());
-        this.inputStartPosition = this.getCaretPosition();
-        this.setNavigationFilter(this.navigationFilter);
-        ((AbstractDocument) this.getDocument()).setDocumentFilter(this.documentFilter);
         Simulator.getInstance().addGUIListener(this.simulatorListener);
+        this.inputChanged();
     }
 
     private void submitInput() {
-        this.endInput();
-        try {
-            int position = Math.min(this.inputStartPosition, this.getDocument().getLength());
-            int length = Math.min(this.getDocument().getLength() - position, this.inputMaxLength >= 0
-                ? this.inputMaxLength
-                : Integer.MAX_VALUE);
-            this.inputResultQueue.offer(this.getText(position, length));
-        }
-        catch (BadLocationException exception) {
-            // This should not happen, but if it somehow does, default to an empty string
-            System.err.println(this.getClass().getSimpleName() + ": failed to retrieve user input from text area:");
-            exception.printStackTrace(System.err);
-            this.inputResultQueue.offer("");
+        if (!this.isInputActive) {
+            return;
         }
-        // Append a newline to account for the newline stripped before submission
-        SwingUtilities.invokeLater(() -> this.append("\n"));
+        String input = this.inputText.toString();
+        this.endInput();
+        this.inputText.setLength(0);
+        this.inputCaretPosition = 0;
+        this.inputResultQueue.offer(input);
+        // The input becomes part of the output, along with the newline stripped before submission
+        this.writeOutput(input + "\n");
     }
 
     private void endInput() {
-        this.setEditable(false);
-        this.setNavigationFilter(null);
-        ((AbstractDocument) this.getDocument()).setDocumentFilter(null);
-        this.setCaretPosition(this.getDocument().getLength());
+        this.isEditable = false;
+        this.isInputActive = false;
         Simulator.getInstance().removeGUIListener(this.simulatorListener);
+        this.repaint();
     }
 
-    private static class TextRange<T> {
-        public int start;
-        public int length;
-        public T value;
+    /**
+     * Expand tabs into spaces, with tab stops every {@link #TAB_SIZE} columns.
+     */
+    private static String expandTabs(String text) {
+        if (text.indexOf('\t') < 0) {
+            return text;
+        }
+        StringBuilder expandedText = new StringBuilder(text.length() + TAB_SIZE);
+        for (int index = 0; index < text.length(); index++) {
+            char character = text.charAt(index);
+            if (character == '\t') {
+                do {
+                    expandedText.append(' ');
+                }
+                while (expandedText.length() % TAB_SIZE != 0);
+            }
+            else {
+                expandedText.append(character);
+            }
+        }
+        return expandedText.toString();
+    }
 
-        public TextRange(int start, int length, T value) {
-            this.start = start;
-            this.length = length;
-            this.value = value;
+    private static int getColumnForIndex(String text, int index) {
+        int column = 0;
+        for (int position = 0; position < Math.min(index, text.length()); position++) {
+            column = (text.charAt(position) == '\t') ? (column / TAB_SIZE + 1) * TAB_SIZE : column + 1;
         }
+        return column;
     }
+
+    /**
+     * Find the index of the character boundary nearest to a column position.
+     */
+    private static int getIndexForColumn(String text, float column) {
+        int currentColumn = 0;
+        for (int index = 0; index < text.length(); index++) {
+            int nextColumn = (text.charAt(index) == '\t') ? (currentColumn / TAB_SIZE + 1) * TAB_SIZE : currentColumn + 1;
+            if (column < (currentColumn + nextColumn) / 2.0f) {
+                return index;
+            }
+            currentColumn = nextColumn;
+        }
+        return text.length();
+    }
+
+    private record TextRange<T>(long start, int length, T value) {}
 }
@@ -0,0 +1,319 @@
+package mars.venus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only text storage for {@link ConsoleTextArea}. Text is kept in fixed-size chunks of characters along with
+ * an index of line start offsets, so appending never copies existing text, and once the text retained exceeds a
+ * size limit, the oldest text is discarded a whole chunk at a time.
+ * <p>
+ * Offsets and line numbers are absolute: they always refer to the same character or line, even after older text has
+ * been discarded, so offsets held elsewhere never need to be adjusted. Text which has been discarded reads as empty.
+ * <p>
+ * All methods are synchronized, so text may be appended from any thread while the GUI thread reads it.
+ */
+public class ConsoleTextStore {
+    /**
+     * Number of characters in each chunk of text.
+     */
+    public static final int CHUNK_SIZE = 8192;
+    /**
+     * Tab stops are placed every <code>TAB_SIZE</code> columns when measuring line lengths.
+     */
+    public static final int TAB_SIZE = 8;
+
+    private final List<char[]> chunks;
+    private long startOffset; // Offset of the first character of chunk 0
+    private long endOffset;
+    private long maxCharacters;
+    // Line start offsets for retained lines are kept in lineStarts[firstLineIndex] through lineStarts[endLineIndex - 1]
+    private long[] lineStarts;
+    private int firstLineIndex;
+    private int endLineIndex;
+    private long firstLineNumber;
+    private int currentLineColumns;
+    private int maxLineColumns;
+
+    /**
+     * Create a new empty store.
+     *
+     * @param maxBytes The approximate maximum number of bytes of text to retain; see {@link #setMaxBytes(long)}.
+     */
+    public ConsoleTextStore(long maxBytes) {
+        this.chunks = new ArrayList<>();
+        this.lineStarts = new long[1024];
+        this.setMaxBytes(maxBytes);
+        this.clear();
+    }
+
+    /**
+     * Set the approximate maximum number of bytes of text to retain. Each character occupies two bytes.
+     * At least one chunk of text is always retained, and the limit is only enforced as text is appended.
+     *
+     * @param maxBytes The maximum number of bytes to retain.
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxCharacters = Math.max(CHUNK_SIZE, maxBytes / Character.BYTES);
+    }
+
+    /**
+     * Discard all text. Offsets continue from where they left off.
+     */
+    public synchronized void clear() {
+        this.chunks.clear();
+        this.startOffset = this.endOffset;
+        this.firstLineNumber += this.endLineIndex - this.firstLineIndex;
+        this.lineStarts[0] = this.endOffset;
+        this.firstLineIndex = 0;
+        this.endLineIndex = 1;
+        this.currentLineColumns = 0;
+        this.maxLineColumns = 0;
+    }
+
+    /**
+     * Append text to the end of the store, discarding the oldest text if the size limit is exceeded.
+     *
+     * @param text The text to append.
+     * @return The offset of the first character appended.
+     */
+    public synchronized long append(String text) {
+        long appendOffset = this.endOffset;
+        int textIndex = 0;
+        while (textIndex < text.length()) {
+            int chunkPosition = (int) ((this.endOffset - this.startOffset) % CHUNK_SIZE);
+            if (chunkPosition == 0 && this.endOffset - this.startOffset == (long) this.chunks.size() * CHUNK_SIZE) {
+                this.chunks.add(new char[CHUNK_SIZE]);
+            }
+            char[] chunk = this.chunks.get(this.chunks.size() - 1);
+            int count = Math.min(CHUNK_SIZE - chunkPosition, text.length() - textIndex);
+            text.getChars(textIndex, textIndex + count, chunk, chunkPosition);
+            // Index the new lines and measure their lengths
+            for (int index = chunkPosition; index < chunkPosition + count; index++) {
+                char character = chunk[index];
+                if (character == '\n') {
+                    this.maxLineColumns = Math.max(this.maxLineColumns, this.currentLineColumns);
+                    this.currentLineColumns = 0;
+                    this.addLineStart(this.endOffset + (index - chunkPosition) + 1);
+                }
+                else if (character == '\t') {
+                    this.currentLineColumns = (this.currentLineColumns / TAB_SIZE + 1) * TAB_SIZE;
+                }
+                else if (this.currentLineColumns < Integer.MAX_VALUE) {
+                    this.currentLineColumns++;
+                }
+            }
+            this.endOffset += count;
+            textIndex += count;
+        }
+        this.maxLineColumns = Math.max(this.maxLineColumns, this.currentLineColumns);
+        this.trim();
+        return appendOffset;
+    }
+
+    private void addLineStart(long offset) {
+        if (this.endLineIndex == this.lineStarts.length) {
+            int lineCount = this.endLineIndex - this.firstLineIndex;
+            long[] lineStarts = (lineCount * 2 > this.lineStarts.length) ? new long[this.lineStarts.length * 2] : this.lineStarts;
+            System.arraycopy(this.lineStarts, this.firstLineIndex, lineStarts, 0, lineCount);
+            this.lineStarts = lineStarts;
+            this.firstLineIndex = 0;
+            this.endLineIndex = lineCount;
+        }
+        this.lineStarts[this.endLineIndex++] = offset;
+    }
+
+    /**
+     * Discard whole chunks from the start until the size limit is satisfied.
+     */
+    private void trim() {
+        int chunkCount = 0;
+        while (chunkCount < this.chunks.size() - 1 && this.endOffset - this.startOffset - (long) chunkCount * CHUNK_SIZE > this.maxCharacters) {
+            chunkCount++;
+        }
+        if (chunkCount == 0) {
+            return;
+        }
+        this.chunks.subList(0, chunkCount).clear();
+        this.startOffset += (long) chunkCount * CHUNK_SIZE;
+
+        // The first retained line is the one containing the new start offset, which may now be a partial line
+        int line = this.findLineIndex(this.startOffset);
+        this.firstLineNumber += line - this.firstLineIndex;
+        this.firstLineIndex = line;
+        this.lineStarts[line] = this.startOffset;
+    }
+
+    /**
+     * Find the index into <code>lineStarts</code> of the line containing an offset, which must be retained.
+     */
+    private int findLineIndex(long offset) {
+        int low = this.firstLineIndex;
+        int high = this.endLineIndex - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (this.lineStarts[middle] <= offset) {
+                low = middle;
+            }
+            else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Get the offset of the first character retained.
+     *
+     * @return The start offset.
+     */
+    public synchronized long getStartOffset() {
+        return this.startOffset;
+    }
+
+    /**
+     * Get the offset just past the last character appended.
+     *
+     * @return The end offset.
+     */
+    public synchronized long getEndOffset() {
+        return this.endOffset;
+    }
+
+    /**
+     * Get the number of the first line retained. Lines are numbered from 0 since the store was created.
+     *
+     * @return The first line number.
+     */
+    public synchronized long getFirstLineNumber() {
+        return this.firstLineNumber;
+    }
+
+    /**
+     * Get the number of lines retained, including the last line, which is empty if the text ends with a newline.
+     *
+     * @return The number of lines, which is always at least 1.
+     */
+    public synchronized int getLineCount() {
+        return this.endLineIndex - this.firstLineIndex;
+    }
+
+    /**
+     * Get the length in columns of the longest line appended since the store was last cleared,
+     * with tab stops every {@link #TAB_SIZE} columns.
+     *
+     * @return The maximum line length in columns.
+     */
+    public synchronized int getMaxLineColumns() {
+        return this.maxLineColumns;
+    }
+
+    /**
+     * Get the number of the line containing a given offset.
+     *
+     * @param offset The offset, which is clamped to the retained text.
+     * @return The line number.
+     */
+    public synchronized long getLineOfOffset(long offset) {
+        offset = Math.max(this.startOffset, Math.min(offset, this.endOffset));
+        return this.firstLineNumber + (this.findLineIndex(offset) - this.firstLineIndex);
+    }
+
+    /**
+     * Get the offset of the start of a line.
+     *
+     * @param lineNumber The line number, which is clamped to the retained lines.
+     * @return The offset of the first character in the line.
+     */
+    public synchronized long getLineStartOffset(long lineNumber) {
+        return this.lineStarts[this.getLineIndex(lineNumber)];
+    }
+
+    /**
+     * Get the offset of the end of a line, not including the newline.
+     *
+     * @param lineNumber The line number, which is clamped to the retained lines.
+     * @return The offset just past the last character in the line.
+     */
+    public synchronized long getLineEndOffset(long lineNumber) {
+        int index = this.getLineIndex(lineNumber);
+        return (index + 1 < this.endLineIndex) ? this.lineStarts[index + 1] - 1 : this.endOffset;
+    }
+
+    private int getLineIndex(long lineNumber) {
+        long line = Math.max(0, Math.min(lineNumber - this.firstLineNumber, this.endLineIndex - this.firstLineIndex - 1));
+        return this.firstLineIndex + (int) line;
+    }
+
+    /**
+     * Get the text of a line, not including the newline.
+     *
+     * @param lineNumber The line number.
+     * @return The line, or an empty string if the line is not retained.
+     */
+    public synchronized String getLine(long lineNumber) {
+        if (lineNumber < this.firstLineNumber || lineNumber - this.firstLineNumber >= this.getLineCount()) {
+            return "";
+        }
+        return this.getText(this.getLineStartOffset(lineNumber), this.getLineEndOffset(lineNumber));
+    }
+
+    /**
+     * Get the text in a range of offsets. Any part of the range which is not retained is ignored.
+     *
+     * @param start The offset of the first character.
+     * @param end   The offset just past the last character.
+     * @return The text in the range.
+     */
+    public synchronized String getText(long start, long end) {
+        start = Math.max(start, this.startOffset);
+        end = Math.min(end, this.endOffset);
+        if (start >= end) {
+            return "";
+        }
+        StringBuilder text = new StringBuilder((int) Math.min(end - start, Integer.MAX_VALUE - 8));
+        long offset = start;
+        while (offset < end && text.length() < Integer.MAX_VALUE - 8 - CHUNK_SIZE) {
+            int chunkIndex = (int) ((offset - this.startOffset) / CHUNK_SIZE);
+            int chunkPosition = (int) ((offset - this.startOffset) % CHUNK_SIZE);
+            int count = (int) Math.min(CHUNK_SIZE - chunkPosition, end - offset);
+            text.append(this.chunks.get(chunkIndex), chunkPosition, count);
+            offset += count;
+        }
+        return text.toString();
+    }
+
+    private char charAt(long offset) {
+        return this.chunks.get((int) ((offset - this.startOffset) / CHUNK_SIZE))[(int) ((offset - this.startOffset) % CHUNK_SIZE)];
+    }
+
+    /**
+     * Search for the next occurrence of a string, without any intermediate copies of the text.
+     *
+     * @param query      The string to search for, which must not be empty.
+     * @param fromOffset The offset to begin searching at.
+     * @param ignoreCase Whether to ignore differences in case when comparing characters.
+     * @return The offset of the first occurrence at or after <code>fromOffset</code>, or -1 if there is none.
+     */
+    public synchronized long indexOf(String query, long fromOffset, boolean ignoreCase) {
+        long lastOffset = this.endOffset - query.length();
+        char first = query.charAt(0);
+        for (long offset = Math.max(fromOffset, this.startOffset); offset <= lastOffset; offset++) {
+            if (!charEquals(this.charAt(offset), first, ignoreCase)) {
+                continue;
+            }
+            int index = 1;
+            while (index < query.length() && charEquals(this.charAt(offset + index), query.charAt(index), ignoreCase)) {
+                index++;
+            }
+            if (index == query.length()) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean charEquals(char a, char b, boolean ignoreCase) {
+        return a == b || (ignoreCase && Character.toLowerCase(a) == Character.toLowerCase(b));
+    }
+}
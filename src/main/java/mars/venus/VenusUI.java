@@ -107,6 +107,7 @@ public class VenusUI extends JFrame implements SimulatorListener {
     private FileSaveAsAction fileSaveAsAction;
     private FileSaveAllAction fileSaveAllAction;
     private FileDumpMemoryAction fileDumpMemoryAction;
+    private FileLoadMemoryAction fileLoadMemoryAction;
     private FilePrintAction filePrintAction;
     private FileExitAction fileExitAction;
 
@@ -327,6 +328,7 @@ public class VenusUI extends JFrame implements SimulatorListener {
         this.actions.add(this.fileSaveAsAction = new FileSaveAsAction(this, KeyEvent.VK_A, KeyStroke.getKeyStroke(KeyEvent.VK_S, menuShortcutMask | KeyEvent.SHIFT_DOWN_MASK)));
         this.actions.add(this.fileSaveAllAction = new FileSaveAllAction(this, KeyEvent.VK_V, null));
         this.actions.add(this.fileDumpMemoryAction = new FileDumpMemoryAction(this, KeyEvent.VK_D, KeyStroke.getKeyStroke(KeyEvent.VK_D, menuShortcutMask)));
+        this.actions.add(this.fileLoadMemoryAction = new FileLoadMemoryAction(this, KeyEvent.VK_M, null));
         this.actions.add(this.filePrintAction = new FilePrintAction(this, KeyEvent.VK_P, KeyStroke.getKeyStroke(KeyEvent.VK_P, menuShortcutMask)));
         this.actions.add(this.fileExitAction = new FileExitAction(this, KeyEvent.VK_X, null));
 
@@ -385,6 +387,7 @@ public class VenusUI extends JFrame implements SimulatorListener {
         fileMenu.add(this.createMenuItem(this.fileSaveAllAction));
         fileMenu.addSeparator();
         fileMenu.add(this.createMenuItem(this.fileDumpMemoryAction));
+        fileMenu.add(this.createMenuItem(this.fileLoadMemoryAction));
         fileMenu.add(this.createMenuItem(this.filePrintAction));
         fileMenu.addSeparator();
         fileMenu.add(this.createMenuItem(this.fileExitAction));
@@ -19,6 +19,7 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 
 /*
 Copyright (c) 2003-2008,  Pete Sanderson and Kenneth Vollmar
@@ -108,16 +109,19 @@ public class FileDumpMemoryAction extends VenusAction {
         int[] limitAddresses = MemoryDump.getLimitAddresses();
         int[] highAddresses = new int[segmentNames.length];
 
-        // These three are allocated and filled by buildDialogPanel() and used by action listeners.
-        String[] segmentLabels = new String[segmentNames.length];
+        // These are allocated and filled by buildDialogPanel() and used by action listeners.
+        String[] actualSegmentNames = new String[segmentNames.length];
         int[] actualBaseAddresses = new int[segmentNames.length];
         int[] actualHighAddresses = new int[segmentNames.length];
+        int[] actualLimitAddresses = new int[segmentNames.length];
 
         // Calculate the actual highest address to be dumped.  For text segment, this depends on the
         // program length (number of machine code instructions).  For data segment, this depends on
         // how many MARS 4K word blocks have been referenced during assembly and/or execution.
+        // Formats which cannot leave out unallocated memory stop at the first unallocated word instead,
+        // so the labels are generated again whenever the format changes.
         // Then generate label from concatenation of segmentNames[segment], baseAddresses[segment]
-        // and highAddresses[segment].  This lets user know exactly what range will be dumped.  Initially not
+        // and the high address for the format.  This lets user know exactly what range will be dumped.  Initially not
         // editable but maybe add this later.
         // If there is nothing to dump (e.g. address of first null == base address), then
         // the segment will not be listed.
@@ -125,16 +129,17 @@ public class FileDumpMemoryAction extends VenusAction {
 
         for (int segment = 0; segment < segmentNames.length; segment++) {
             try {
-                highAddresses[segment] = Memory.getInstance().getAddressOfFirstNullWord(baseAddresses[segment], limitAddresses[segment]) - Memory.BYTES_PER_WORD;
+                highAddresses[segment] = Memory.getInstance().getAddressOfLastAllocatedWord(baseAddresses[segment], limitAddresses[segment]);
             }
             catch (AddressErrorException exception) {
                 // Exception will not happen since the Memory base and limit addresses are on word boundaries!
                 highAddresses[segment] = baseAddresses[segment] - Memory.BYTES_PER_WORD;
             }
             if (highAddresses[segment] >= baseAddresses[segment]) {
+                actualSegmentNames[segmentCount] = segmentNames[segment];
                 actualBaseAddresses[segmentCount] = baseAddresses[segment];
                 actualHighAddresses[segmentCount] = highAddresses[segment];
-                segmentLabels[segmentCount] = segmentNames[segment] + " (" + Binary.intToHexString(baseAddresses[segment]) + " - " + Binary.intToHexString(highAddresses[segment]) + ")";
+                actualLimitAddresses[segmentCount] = limitAddresses[segment];
                 segmentCount++;
             }
         }
@@ -151,15 +156,10 @@ public class FileDumpMemoryAction extends VenusAction {
         }
 
         // This is needed to assure no null array elements in ComboBox list.
-        if (segmentCount < segmentLabels.length) {
-            String[] trimmedArray = new String[segmentCount];
-            System.arraycopy(segmentLabels, 0, trimmedArray, 0, segmentCount);
-            segmentLabels = trimmedArray;
-        }
+        String[] dumpableSegmentNames = Arrays.copyOf(actualSegmentNames, segmentCount);
 
-        // Create segment selector.  First element selected by default.
-        this.segmentSelector = new JComboBox<>(segmentLabels);
-        this.segmentSelector.setSelectedIndex(0);
+        // Create segment selector.  The labels are filled in once the format selector exists.
+        this.segmentSelector = new JComboBox<>();
         JPanel segmentPanel = new JPanel(new BorderLayout());
         segmentPanel.add(new JLabel("Memory Segment"), BorderLayout.NORTH);
         segmentPanel.add(this.segmentSelector);
@@ -175,13 +175,40 @@ public class FileDumpMemoryAction extends VenusAction {
         formatPanel.add(this.dumpFormatSelector);
         contents.add(formatPanel, BorderLayout.EAST);
 
+        // Formats which write every word cannot represent unallocated memory, so point out where they stop
+        JLabel truncationNote = new JLabel("This format stops at the first unallocated word of the segment.");
+        contents.add(truncationNote, BorderLayout.NORTH);
+
+        // Keep the segment labels in line with the range the selected format will actually dump
+        Runnable updateSegmentLabels = () -> {
+            DumpFormat format = (DumpFormat) this.dumpFormatSelector.getSelectedItem();
+            int selectedIndex = this.segmentSelector.getSelectedIndex();
+            DefaultComboBoxModel<String> model = new DefaultComboBoxModel<>();
+            for (int segment = 0; segment < dumpableSegmentNames.length; segment++) {
+                int highAddress = getSegmentHighAddress(format, actualBaseAddresses[segment], actualHighAddresses[segment], actualLimitAddresses[segment]);
+                model.addElement(dumpableSegmentNames[segment] + " (" + Binary.intToHexString(actualBaseAddresses[segment]) + " - "
+                    + ((highAddress < actualBaseAddresses[segment]) ? "nothing to dump" : Binary.intToHexString(highAddress)) + ")");
+            }
+            this.segmentSelector.setModel(model);
+            this.segmentSelector.setSelectedIndex(Math.max(selectedIndex, 0));
+            truncationNote.setVisible(format != null && !format.isSparse());
+        };
+        this.dumpFormatSelector.addActionListener(event -> updateSegmentLabels.run());
+        updateSegmentLabels.run();
+
         // Bottom row - the control buttons for Next and Cancel
         Box controlPanel = Box.createHorizontalBox();
         JButton nextButton = new JButton("Next");
         nextButton.addActionListener(event -> {
-            int firstAddress = actualBaseAddresses[this.segmentSelector.getSelectedIndex()];
-            int lastAddress = actualHighAddresses[this.segmentSelector.getSelectedIndex()];
-            if (performDump(firstAddress, lastAddress, (DumpFormat) this.dumpFormatSelector.getSelectedItem())) {
+            DumpFormat format = (DumpFormat) this.dumpFormatSelector.getSelectedItem();
+            int segment = this.segmentSelector.getSelectedIndex();
+            int firstAddress = actualBaseAddresses[segment];
+            int lastAddress = getSegmentHighAddress(format, firstAddress, actualHighAddresses[segment], actualLimitAddresses[segment]);
+            if (lastAddress < firstAddress) {
+                JOptionPane.showMessageDialog(this.gui, "The start of this segment has not been written to, so there is nothing to dump in this format.", TITLE, JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+            if (performDump(firstAddress, lastAddress, format)) {
                 this.closeDialog();
             }
         });
@@ -195,6 +222,23 @@ public class FileDumpMemoryAction extends VenusAction {
         contents.add(controlPanel, BorderLayout.SOUTH);
     }
 
+    /**
+     * Get the last address a format will dump for a segment, which for formats that cannot leave out
+     * unallocated memory is the word before the first unallocated word.
+     */
+    private static int getSegmentHighAddress(DumpFormat format, int baseAddress, int highAddress, int limitAddress) {
+        if (format == null || format.isSparse()) {
+            return highAddress;
+        }
+        try {
+            return format.getSegmentHighAddress(baseAddress, limitAddress);
+        }
+        catch (AddressErrorException exception) {
+            // Will not happen since the Memory base addresses are on word boundaries
+            return highAddress;
+        }
+    }
+
     /**
      * User has clicked "Next" button, so launch a file chooser then get
      * segment (memory range) and format selections and save to the file.
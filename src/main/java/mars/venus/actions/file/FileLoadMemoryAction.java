@@ -0,0 +1,91 @@
+package mars.venus.actions.file;
+
+import mars.mips.hardware.AddressErrorException;
+import mars.util.Binary;
+import mars.util.MemoryDump;
+import mars.util.MemoryLoader;
+import mars.venus.actions.VenusAction;
+import mars.venus.VenusUI;
+import mars.venus.execute.ProgramStatus;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Action for the File -> Load Memory menu item. Preloads memory from a file in one of the
+ * {@link MemoryLoader.Format formats} written by the matching dump formats, without recording back-steps.
+ */
+public class FileLoadMemoryAction extends VenusAction {
+    private static final String TITLE = "Load Memory From File";
+
+    public FileLoadMemoryAction(VenusUI gui, Integer mnemonic, KeyStroke accel) {
+        super(gui, "Load Memory...", VenusUI.getSVGActionIcon("open.svg"), "Preload memory from a binary, hex or sparse file", mnemonic, accel);
+    }
+
+    /**
+     * Ask for a format and address, then a file, and load the file into memory.
+     */
+    @Override
+    public void actionPerformed(ActionEvent event) {
+        JComboBox<MemoryLoader.Format> formatSelector = new JComboBox<>(MemoryLoader.Format.values());
+        JTextField addressField = new JTextField(Binary.intToHexString(MemoryDump.getBaseAddresses()[1]), 12);
+        formatSelector.addActionListener(formatEvent -> {
+            MemoryLoader.Format format = (MemoryLoader.Format) formatSelector.getSelectedItem();
+            addressField.setEnabled(format != null && !format.hasAddresses());
+        });
+
+        JPanel contents = new JPanel(new GridLayout(0, 1, 0, 4));
+        contents.add(new JLabel("Load Format"));
+        contents.add(formatSelector);
+        contents.add(new JLabel("Starting Address"));
+        contents.add(addressField);
+        int decision = JOptionPane.showConfirmDialog(this.gui, contents, TITLE, JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (decision != JOptionPane.OK_OPTION) {
+            return;
+        }
+
+        MemoryLoader.Format format = (MemoryLoader.Format) formatSelector.getSelectedItem();
+        if (format == null) {
+            return;
+        }
+        int address = 0;
+        if (!format.hasAddresses()) {
+            try {
+                address = Binary.decodeInteger(addressField.getText().strip());
+            }
+            catch (NumberFormatException exception) {
+                JOptionPane.showMessageDialog(this.gui, "\"" + addressField.getText() + "\" is not a valid address.", TITLE, JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+        }
+
+        JFileChooser openDialog = new JFileChooser(this.gui.getEditor().getCurrentSaveDirectory());
+        openDialog.setDialogTitle(TITLE);
+        if (openDialog.showOpenDialog(this.gui) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = openDialog.getSelectedFile();
+
+        try {
+            long length = MemoryLoader.load(file.toPath(), format, address);
+            this.gui.getMessagesPane().getMessages().writeOutput(this.getName() + ": loaded " + length + " bytes from " + file.getName() + ".\n");
+        }
+        catch (AddressErrorException exception) {
+            JOptionPane.showMessageDialog(this.gui, "Could not write address " + Binary.intToHexString(exception.getAddress()) + ": " + exception.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+        catch (IOException exception) {
+            JOptionPane.showMessageDialog(this.gui, exception.toString(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+        // Show whatever was loaded, even if the file could not be loaded completely
+        this.gui.getMainPane().getExecuteTab().getDataSegmentWindow().updateValues();
+    }
+
+    @Override
+    public void update() {
+        ProgramStatus status = this.gui.getProgramStatus();
+        this.setEnabled(status != ProgramStatus.NOT_ASSEMBLED && status != ProgramStatus.RUNNING);
+    }
+}
@@ -0,0 +1,141 @@
+package mars.venus.editor;
+
+import mars.assembler.log.AssemblerLog;
+import mars.assembler.log.LogLevel;
+import mars.assembler.log.LogMessage;
+import mars.assembler.syntax.SyntaxParser;
+import mars.assembler.token.Preprocessor;
+import mars.assembler.token.SourceLine;
+import mars.assembler.token.Tokenizer;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks the source code in a {@link FileEditorTab} for errors in the background while it is being edited.
+ * Once the source code has not been edited for {@link #DEBOUNCE_DELAY} milliseconds, it is tokenized and parsed
+ * on a worker thread, and the resulting errors and warnings are shown in the tab. If the source code is edited again
+ * while a check is in progress, that check is cancelled, and its results are never shown.
+ * <p>
+ * Only the tokenizer and syntax parser are run, using an {@link AssemblerLog} of their own, so a check never touches
+ * {@link mars.mips.hardware.Memory} or the assembler used by the simulator. As a result, errors which can only be
+ * detected by assembling the program, such as undefined symbols or invalid operands, are not reported until the
+ * program is actually assembled.
+ */
+public class BackgroundAssemblyChecker {
+    /**
+     * Time in milliseconds to wait after the last edit before checking the source code.
+     */
+    public static final int DEBOUNCE_DELAY = 500;
+
+    // Checks are run one at a time on a single shared thread, so a cancelled check never competes with its replacement
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Background assembly checker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final FileEditorTab editorTab;
+    private final Timer debounceTimer;
+    private Future<?> currentCheck;
+    private int checkCount;
+
+    /**
+     * Create a new checker. This should be created and used from the event dispatch thread.
+     *
+     * @param editorTab The tab whose source code is checked, and where the results are shown.
+     */
+    public BackgroundAssemblyChecker(FileEditorTab editorTab) {
+        this.editorTab = editorTab;
+        this.debounceTimer = new Timer(DEBOUNCE_DELAY, event -> this.startCheck());
+        this.debounceTimer.setRepeats(false);
+        this.currentCheck = null;
+        this.checkCount = 0;
+    }
+
+    /**
+     * Notify the checker that the source code has changed. Any check in progress is cancelled, and a new check
+     * is scheduled to begin after the debounce delay, unless the source code changes again before then.
+     * The source code itself is only retrieved once the check begins.
+     */
+    public void sourceChanged() {
+        this.cancel();
+        this.debounceTimer.restart();
+    }
+
+    /**
+     * Cancel any check which is scheduled or in progress.
+     */
+    public void cancel() {
+        this.debounceTimer.stop();
+        // Invalidate the results of any check already running, even if it finishes before noticing the interrupt
+        this.checkCount++;
+        if (this.currentCheck != null) {
+            this.currentCheck.cancel(true);
+            this.currentCheck = null;
+        }
+    }
+
+    private void startCheck() {
+        // Files which have not been saved yet are checked as if they were in the working directory
+        String filename = (this.editorTab.getFile() != null) ? this.editorTab.getFile().getPath() : "untitled.asm";
+        String source = this.editorTab.getSource();
+        int checkNumber = ++this.checkCount;
+        this.currentCheck = EXECUTOR.submit(() -> {
+            List<LogMessage> messages = check(filename, source);
+            if (messages != null) {
+                SwingUtilities.invokeLater(() -> {
+                    if (this.checkCount == checkNumber) {
+                        this.currentCheck = null;
+                        this.editorTab.showAssemblerMessages(messages);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Tokenize and parse source code, stopping early if the current thread is interrupted.
+     *
+     * @param filename The name of the file containing the source code.
+     * @param source   The source code to check.
+     * @return The warnings and errors which refer to a line of the source code, or <code>null</code>
+     *     if the check was interrupted.
+     */
+    public static List<LogMessage> check(String filename, String source) {
+        AssemblerLog log = new AssemblerLog();
+        Preprocessor preprocessor = new Preprocessor(filename);
+        List<SourceLine> sourceLines = new ArrayList<>();
+
+        // This mirrors Tokenizer.tokenizeLines(), but checks for cancellation after each line
+        int lineIndex = 0;
+        for (String line : (Iterable<String>) source.lines()::iterator) {
+            if (Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+            SourceLine sourceLine = Tokenizer.tokenizeLine(filename, line, lineIndex++, log, preprocessor);
+            preprocessor.processLine(sourceLines, sourceLine, log);
+        }
+        preprocessor.processEndOfFile(filename, log);
+
+        SyntaxParser parser = new SyntaxParser(sourceLines.iterator(), log);
+        while (parser.parseNextSyntax() != null) {
+            if (Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+        }
+
+        List<LogMessage> messages = new ArrayList<>();
+        for (LogMessage message : log.getMessages()) {
+            if (message.getLevel() != LogLevel.INFO && message.getLocation() != null
+                && filename.equals(message.getLocation().getFilename()) && message.getLocation().getLineIndex() >= 0) {
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+}
@@ -301,7 +301,9 @@ public class EditTab extends DynamicTabbedPane {
      */
     @Override
     public void removeTabAt(int index) {
-        if (this.resolveUnsavedChanges((FileEditorTab) this.getComponentAt(index))) {
+        FileEditorTab tab = (FileEditorTab) this.getComponentAt(index);
+        if (this.resolveUnsavedChanges(tab)) {
+            tab.cancelAssemblyCheck();
             super.removeTabAt(index);
             this.gui.saveWorkspaceState();
         }
@@ -357,6 +359,7 @@ public class EditTab extends DynamicTabbedPane {
         // Manually close all files to avoid the override version of removeTabAt()
         this.setSelectedIndex(-1);
         for (int index = this.getTabCount() - 1; index >= 0; index--) {
+            ((FileEditorTab) this.getComponentAt(index)).cancelAssemblyCheck();
             super.removeTabAt(index);
         }
 
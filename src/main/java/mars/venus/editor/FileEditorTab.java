@@ -1,6 +1,7 @@
 package mars.venus.editor;
 
 import mars.Application;
+import mars.assembler.log.LogMessage;
 import mars.venus.VenusUI;
 import mars.venus.editor.jeditsyntax.JEditBasedTextArea;
 
@@ -14,6 +15,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.List;
 
 /*
 Copyright (c) 2003-2011,  Pete Sanderson and Kenneth Vollmar
@@ -56,6 +58,7 @@ public class FileEditorTab extends JPanel {
     private final MARSTextEditingArea textEditingArea;
     private final JLabel caretPositionLabel;
     private final JLabel lineNumbers;
+    private final BackgroundAssemblyChecker assemblyChecker;
 
     private FileStatus fileStatus;
     private File file;
@@ -69,6 +72,7 @@ public class FileEditorTab extends JPanel {
         this.lineNumbers = new JLabel();
         this.fileStatus = FileStatus.NO_FILE;
         this.file = null;
+        this.assemblyChecker = new BackgroundAssemblyChecker(this);
 
         this.textEditingArea = new JEditBasedTextArea(this, this.gui.getSettings(), this.lineNumbers);
         // Text editing area is responsible for its own scrolling
@@ -162,6 +166,25 @@ public class FileEditorTab extends JPanel {
         if (Application.getSettings().displayEditorLineNumbers.get()) {
             this.lineNumbers.setText(getLineNumbersList(this.textEditingArea.getDocument()));
         }
+
+        this.assemblyChecker.sourceChanged();
+    }
+
+    /**
+     * Underline the source code referenced by errors and warnings from the assembler, replacing any which were
+     * previously shown.
+     *
+     * @param messages The messages to show. Only those referring to a line in this file should be included.
+     */
+    public void showAssemblerMessages(List<LogMessage> messages) {
+        this.textEditingArea.showAssemblerMessages(messages);
+    }
+
+    /**
+     * Stop checking the source code for errors in the background, e.g. because this tab is being closed.
+     */
+    public void cancelAssemblyCheck() {
+        this.assemblyChecker.cancel();
     }
 
     /**
@@ -1,10 +1,12 @@
 package mars.venus.editor;
 
+import mars.assembler.log.LogMessage;
 import mars.settings.Settings;
 
 import javax.swing.text.Document;
 import javax.swing.undo.UndoManager;
 import java.awt.*;
+import java.util.List;
 
 /*
 Copyright (c) 2003-2010,  Pete Sanderson and Kenneth Vollmar
@@ -124,5 +126,7 @@ public interface MARSTextEditingArea {
 
     void updateSyntaxStyles();
 
+    void showAssemblerMessages(List<LogMessage> messages);
+
     Component getOuterComponent();
 }
\ No newline at end of file
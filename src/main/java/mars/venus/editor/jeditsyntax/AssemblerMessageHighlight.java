@@ -0,0 +1,164 @@
+package mars.venus.editor.jeditsyntax;
+
+import mars.assembler.log.LogLevel;
+import mars.assembler.log.LogMessage;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Highlight which underlines the source code referenced by assembler errors and warnings with a wavy line,
+ * and shows the corresponding messages as a tool tip when the mouse is over an underlined region.
+ */
+public class AssemblerMessageHighlight implements TextAreaPainter.Highlight {
+    private static final int WAVE_PERIOD = 4;
+    private static final int WAVE_HEIGHT = 2;
+
+    private JEditTextArea textArea;
+    private TextAreaPainter.Highlight next;
+    private Map<Integer, List<LogMessage>> lineMessages;
+
+    /**
+     * Create a new highlight with no messages.
+     */
+    public AssemblerMessageHighlight() {
+        this.textArea = null;
+        this.next = null;
+        this.lineMessages = Map.of();
+    }
+
+    @Override
+    public void init(JEditTextArea textArea, TextAreaPainter.Highlight next) {
+        this.textArea = textArea;
+        this.next = next;
+    }
+
+    /**
+     * Replace the messages being shown. Messages without a line number are ignored, as are informational messages.
+     *
+     * @param messages The new messages to show.
+     */
+    public void setMessages(List<LogMessage> messages) {
+        Map<Integer, List<LogMessage>> lineMessages = new HashMap<>();
+        for (LogMessage message : messages) {
+            if (message.getLevel() != LogLevel.INFO && message.getLocation() != null && message.getLocation().getLineIndex() >= 0) {
+                lineMessages.computeIfAbsent(message.getLocation().getLineIndex(), line -> new ArrayList<>()).add(message);
+            }
+        }
+        this.lineMessages = lineMessages;
+        if (this.textArea != null) {
+            this.textArea.getPainter().repaint();
+        }
+    }
+
+    @Override
+    public void paintHighlight(Graphics gfx, int line, float y) {
+        List<LogMessage> messages = this.lineMessages.get(line);
+        if (messages != null && line < this.textArea.getLineCount()) {
+            FontMetrics fontMetrics = this.textArea.getPainter().getFontMetrics();
+            // Text is drawn with its baseline one line height below y, so the wave goes in the descent below that
+            int waveTop = Math.round(y) + fontMetrics.getHeight() + Math.max(1, fontMetrics.getDescent() - WAVE_HEIGHT);
+            Color errorColor = Objects.requireNonNullElse(UIManager.getColor("Venus.Editor.errorUnderline"), Color.RED);
+            Color warningColor = Objects.requireNonNullElse(UIManager.getColor("Venus.Editor.warningUnderline"), Color.ORANGE);
+            // Paint warnings first so errors covering the same text are drawn on top
+            for (LogLevel level : new LogLevel[] { LogLevel.WARNING, LogLevel.ERROR }) {
+                gfx.setColor((level == LogLevel.ERROR) ? errorColor : warningColor);
+                for (LogMessage message : messages) {
+                    if (message.getLevel() == level) {
+                        int[] bounds = this.getUnderlineBounds(line, message);
+                        paintWave(gfx, bounds[0], bounds[1], waveTop);
+                    }
+                }
+            }
+        }
+
+        if (this.next != null) {
+            this.next.paintHighlight(gfx, line, y);
+        }
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent event) {
+        int line = this.textArea.yToLine(event.getY());
+        List<LogMessage> messages = this.lineMessages.get(line);
+        if (messages != null) {
+            StringBuilder text = new StringBuilder();
+            for (LogMessage message : messages) {
+                int[] bounds = this.getUnderlineBounds(line, message);
+                if (bounds[0] <= event.getX() && event.getX() <= bounds[1]) {
+                    text.append((text.isEmpty()) ? "<html>" : "<br>")
+                        .append("<b>").append(message.getLevel().getDisplayName()).append(":</b> ")
+                        .append(escapeHTML(message.getContent()));
+                }
+            }
+            if (!text.isEmpty()) {
+                return text.append("</html>").toString();
+            }
+        }
+
+        if (this.next != null) {
+            return this.next.getToolTipText(event);
+        }
+        else if (this.textArea.getTokenMarker() == null) {
+            return null;
+        }
+        else {
+            return this.textArea.getSyntaxSensitiveToolTipText(event.getX(), event.getY());
+        }
+    }
+
+    /**
+     * Determine the horizontal extent of the underline for a message. If the message refers to a column,
+     * the text from that column up to the next whitespace is underlined; otherwise, the whole line is underlined,
+     * excluding leading and trailing whitespace.
+     *
+     * @return The left and right x-coordinates of the underline.
+     */
+    private int[] getUnderlineBounds(int line, LogMessage message) {
+        String text = this.textArea.getLineText(line);
+        int start;
+        int end;
+        int column = message.getLocation().getColumnIndex();
+        if (column >= 0) {
+            start = Math.min(column, text.length());
+            end = start;
+            while (end < text.length() && !Character.isWhitespace(text.charAt(end))) {
+                end++;
+            }
+        }
+        else {
+            start = 0;
+            while (start < text.length() && Character.isWhitespace(text.charAt(start))) {
+                start++;
+            }
+            end = text.length();
+            while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+                end--;
+            }
+        }
+
+        int x1 = this.textArea._offsetToX(line, start);
+        int x2 = this.textArea._offsetToX(line, end);
+        // Make sure there is always something visible, e.g. for an error at the end of a line
+        return new int[] { x1, Math.max(x2, x1 + 2 * WAVE_PERIOD) };
+    }
+
+    private static void paintWave(Graphics gfx, int x1, int x2, int top) {
+        for (int x = x1; x < x2; x += WAVE_PERIOD) {
+            int middle = Math.min(x + WAVE_PERIOD / 2, x2);
+            int right = Math.min(x + WAVE_PERIOD, x2);
+            gfx.drawLine(x, top + WAVE_HEIGHT, middle, top);
+            gfx.drawLine(middle, top, right, top + WAVE_HEIGHT);
+        }
+    }
+
+    private static String escapeHTML(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
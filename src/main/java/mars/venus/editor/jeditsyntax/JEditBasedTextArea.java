@@ -1,5 +1,6 @@
 package mars.venus.editor.jeditsyntax;
 
+import mars.assembler.log.LogMessage;
 import mars.settings.Settings;
 import mars.venus.editor.FileEditorTab;
 import mars.venus.editor.MARSTextEditingArea;
@@ -12,6 +13,7 @@ import javax.swing.undo.CannotUndoException;
 import javax.swing.undo.CompoundEdit;
 import javax.swing.undo.UndoManager;
 import java.awt.*;
+import java.util.List;
 
 /**
  * Adaptor subclass for {@link JEditTextArea}.
@@ -27,6 +29,7 @@ public class JEditBasedTextArea extends JEditTextArea implements MARSTextEditing
     private final FileEditorTab fileEditorTab;
     private final Settings settings;
     private final UndoManager undoManager;
+    private final AssemblerMessageHighlight assemblerMessageHighlight;
     private boolean isCompoundEdit;
     private CompoundEdit compoundEdit;
 
@@ -53,6 +56,9 @@ public class JEditBasedTextArea extends JEditTextArea implements MARSTextEditing
         this.setFont(this.settings.editorFont.get());
         this.setTokenMarker(new MIPSTokenMarker());
 
+        this.assemblerMessageHighlight = new AssemblerMessageHighlight();
+        this.getPainter().addCustomHighlight(this.assemblerMessageHighlight);
+
         // Enable smart Home/End key functionality
         this.putClientProperty(InputHandler.SMART_HOME_END_PROPERTY, true);
 
@@ -119,6 +125,16 @@ public class JEditBasedTextArea extends JEditTextArea implements MARSTextEditing
         this.painter.setStyles(SyntaxUtilities.getCurrentSyntaxStyles(this.settings));
     }
 
+    /**
+     * Underline the source code referenced by the given assembler messages, replacing any previously shown.
+     *
+     * @param messages The errors and warnings to show.
+     */
+    @Override
+    public void showAssemblerMessages(List<LogMessage> messages) {
+        this.assemblerMessageHighlight.setMessages(messages);
+    }
+
     @Override
     public Component getOuterComponent() {
         return this;
@@ -94,6 +94,7 @@ public class JEditTextArea extends JComponent {
         // Initialize some misc. stuff
         painter = new TextAreaPainter(this, defaults);
         documentHandler = new DocumentHandler();
+        tokenizeTimer = new Timer(TOKENIZE_INTERVAL, event -> tokenizeDirtyLines());
         listenerList = new EventListenerList();
         caretEvent = new MutableCaretEvent();
         lineSegment = new Segment();
@@ -506,7 +507,7 @@ public class JEditTextArea extends JComponent {
             }
             else {
                 painter.currentLineIndex = line;
-                tokens = painter.currentLineTokens = tokenMarker.markTokens(lineSegment, line);
+                tokens = painter.currentLineTokens = tokenMarker.getTokens(lineSegment, line);
             }
 
             Font defaultFont = painter.getFont();
@@ -595,7 +596,7 @@ public class JEditTextArea extends JComponent {
             }
             else {
                 painter.currentLineIndex = line;
-                tokens = painter.currentLineTokens = tokenMarker.markTokens(lineSegment, line);
+                tokens = painter.currentLineTokens = tokenMarker.getTokens(lineSegment, line);
             }
 
             int offset = 0;
@@ -685,6 +686,7 @@ public class JEditTextArea extends JComponent {
         select(0, 0);
         updateScrollBars();
         painter.repaint();
+        tokenizeTimer.restart();
     }
 
     /**
@@ -703,6 +705,8 @@ public class JEditTextArea extends JComponent {
      */
     public final void setTokenMarker(TokenMarker tokenMarker) {
         document.setTokenMarker(tokenMarker);
+        painter.repaint();
+        tokenizeTimer.restart();
     }
 
     /**
@@ -1471,6 +1475,12 @@ public class JEditTextArea extends JComponent {
     protected static JEditTextArea focusedComponent;
     protected static Timer caretTimer;
 
+    // Dirty lines are tokenized in slices of at most TOKENIZE_TIME_SLICE nanoseconds, every TOKENIZE_INTERVAL milliseconds
+    protected static final int TOKENIZE_INTERVAL = 10;
+    protected static final long TOKENIZE_TIME_SLICE = 5_000_000L;
+
+    protected Timer tokenizeTimer;
+
     protected TextAreaPainter painter;
 
     protected JPopupMenu popup;
@@ -1547,9 +1557,38 @@ public class JEditTextArea extends JComponent {
         bracketLine = bracketPosition = -1;
     }
 
+    /**
+     * Tokenizes the next slice of dirty lines in the document, then repaints any of them which are visible.
+     * This is called periodically by a timer which stops once there are no dirty lines left, so that large
+     * documents are tokenized in the background without holding up painting or typing.
+     */
+    protected void tokenizeDirtyLines() {
+        TokenMarker tokenMarker = getTokenMarker();
+        if (tokenMarker == null) {
+            tokenizeTimer.stop();
+            return;
+        }
+
+        int startLine = tokenMarker.getFirstDirtyLine();
+        if (!document.tokenizeDirtyLines(TOKENIZE_TIME_SLICE)) {
+            tokenizeTimer.stop();
+        }
+        int endLine = tokenMarker.getFirstDirtyLine();
+
+        int firstRepaintLine = Math.max(startLine, firstLine);
+        int lastRepaintLine = Math.min(endLine - 1, firstLine + visibleLines);
+        if (firstRepaintLine <= lastRepaintLine) {
+            painter.invalidateLineRange(firstRepaintLine, lastRepaintLine);
+        }
+    }
+
     protected void documentChanged(DocumentEvent event) {
         DocumentEvent.ElementChange ch = event.getChange(document.getDefaultRootElement());
 
+        if (!tokenizeTimer.isRunning()) {
+            tokenizeTimer.start();
+        }
+
         int count;
         if (ch == null) {
             count = 0;
@@ -2105,7 +2144,7 @@ public class JEditTextArea extends JComponent {
         if (tokenMarker != null) {
             Segment lineSegment = new Segment();
             this.getLineText(line, lineSegment); // fill segment with info from this line
-            Token tokens = tokenMarker.markTokens(lineSegment, line);
+            Token tokens = tokenMarker.getTokens(lineSegment, line);
             Token tokenList = tokens;
             int tokenOffset = 0;
             Token tokenAtOffset = null;
@@ -39,6 +39,9 @@ public class SyntaxDocument extends PlainDocument {
      * Sets the token marker that is to be used to split lines of
      * this document up into tokens. May throw an exception if
      * this is not supported for this type of document.
+     * <p>
+     * The lines are not tokenized immediately; every line starts out
+     * dirty, to be tokenized by {@link #tokenizeDirtyLines(long)}.
      *
      * @param marker The new token marker
      */
@@ -48,7 +51,6 @@ public class SyntaxDocument extends PlainDocument {
 			return;
 		}
         tokenMarker.insertLines(0, getDefaultRootElement().getElementCount());
-        tokenizeLines();
     }
 
     /**
@@ -91,6 +93,50 @@ public class SyntaxDocument extends PlainDocument {
         }
     }
 
+    /**
+     * Tokenizes dirty lines in order, starting from the first, until
+     * either none remain or the time limit has elapsed. Since each line
+     * is tokenized after the line before it, the state carried over from
+     * the previous line is always up to date, and a change in that state
+     * only dirties the next line, so an edit causes no more work than the
+     * lines it actually affects. This is meant to be called repeatedly
+     * while the user is idle, rather than tokenizing a large document
+     * all at once.
+     *
+     * @param timeLimit The maximum time to spend, in nanoseconds. At least
+     *                  one line is tokenized regardless.
+     * @return True if dirty lines remain, or false otherwise.
+     */
+    public boolean tokenizeDirtyLines(long timeLimit) {
+        if (tokenMarker == null) {
+            return false;
+        }
+
+        Segment lineSegment = new Segment();
+        Element map = getDefaultRootElement();
+        long startTime = System.nanoTime();
+
+        try {
+            int index = tokenMarker.getFirstDirtyLine();
+            while (index < tokenMarker.getLineCount()) {
+                Element lineElement = map.getElement(index);
+                int lineStart = lineElement.getStartOffset();
+                getText(lineStart, lineElement.getEndOffset() - lineStart - 1, lineSegment);
+                tokenMarker.markTokens(lineSegment, index);
+
+                index = tokenMarker.getFirstDirtyLine();
+                if (System.nanoTime() - startTime >= timeLimit) {
+                    break;
+                }
+            }
+            return index < tokenMarker.getLineCount();
+        }
+        catch (BadLocationException bl) {
+            bl.printStackTrace();
+            return false;
+        }
+    }
+
     /**
      * Starts a compound edit that can be undone in one operation.
      * Subclasses that implement undo should override this method;
@@ -125,14 +171,19 @@ public class SyntaxDocument extends PlainDocument {
     /**
      * We overwrite this method to update the token marker
      * state immediately so that any event listeners get a
-     * consistent token marker.
+     * consistent token marker. Only the lines touched by the
+     * edit are marked dirty.
      */
     protected void fireInsertUpdate(DocumentEvent evt) {
         if (tokenMarker != null) {
-            DocumentEvent.ElementChange ch = evt.getChange(getDefaultRootElement());
+            Element map = getDefaultRootElement();
+            DocumentEvent.ElementChange ch = evt.getChange(map);
             if (ch != null) {
                 tokenMarker.insertLines(ch.getIndex() + 1, ch.getChildrenAdded().length - ch.getChildrenRemoved().length);
             }
+            int startLine = map.getElementIndex(evt.getOffset());
+            int endLine = map.getElementIndex(evt.getOffset() + evt.getLength());
+            tokenMarker.invalidateLines(startLine, endLine - startLine + 1);
         }
 
         super.fireInsertUpdate(evt);
@@ -141,14 +192,17 @@ public class SyntaxDocument extends PlainDocument {
     /**
      * We overwrite this method to update the token marker
      * state immediately so that any event listeners get a
-     * consistent token marker.
+     * consistent token marker. Only the line containing the
+     * edit is marked dirty.
      */
     protected void fireRemoveUpdate(DocumentEvent evt) {
         if (tokenMarker != null) {
-            DocumentEvent.ElementChange ch = evt.getChange(getDefaultRootElement());
+            Element map = getDefaultRootElement();
+            DocumentEvent.ElementChange ch = evt.getChange(map);
             if (ch != null) {
                 tokenMarker.deleteLines(ch.getIndex() + 1, ch.getChildrenRemoved().length - ch.getChildrenAdded().length);
             }
+            tokenMarker.invalidateLines(map.getElementIndex(evt.getOffset()), 1);
         }
 
         super.fireRemoveUpdate(evt);
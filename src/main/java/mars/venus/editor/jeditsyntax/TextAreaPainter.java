@@ -519,6 +519,7 @@ public class TextAreaPainter extends JComponent implements TabExpander {
     }
 
     protected void paintPlainLine(Graphics graphics, int line, Font defaultFont, Color defaultColor, int x, int y) {
+        currentLineTokens = null;
         paintHighlight(graphics, line, y);
         textArea.getLineText(line, currentLine);
 
@@ -536,7 +537,17 @@ public class TextAreaPainter extends JComponent implements TabExpander {
 
     protected void paintSyntaxLine(Graphics graphics, TokenMarker tokenMarker, int line, Font defaultFont, Color defaultColor, int x, int y) {
         textArea.getLineText(currentLineIndex, currentLine);
-        currentLineTokens = tokenMarker.markTokens(currentLine, currentLineIndex);
+        Token tokens = tokenMarker.getCachedTokens(line);
+        if (tokens == null) {
+            // A dirty line can only be tokenized correctly here if the line before it is up to date;
+            // otherwise, it is painted as plain text until the text area tokenizes it in the background
+            if (line > 0 && tokenMarker.getCachedTokens(line - 1) == null) {
+                paintPlainLine(graphics, line, defaultFont, defaultColor, x, y);
+                return;
+            }
+            tokens = tokenMarker.getTokens(currentLine, line);
+        }
+        currentLineTokens = tokens;
 
         paintHighlight(graphics, line, y);
 
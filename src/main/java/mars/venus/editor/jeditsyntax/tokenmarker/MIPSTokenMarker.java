@@ -22,7 +22,7 @@ import mars.venus.editor.jeditsyntax.PopupHelpItem;
 
 import javax.swing.text.Segment;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -395,31 +395,31 @@ public class MIPSTokenMarker extends TokenMarker {
      * of PopupHelpItem objects. If no matches, returns null.
      */
     private ArrayList<PopupHelpItem> getTextFromInstructionMatch(String tokenText, boolean isExact) {
-        List<Instruction> instructionMatches;
+        // Matches are grouped by mnemonic, with all variants of the same mnemonic in one group
+        List<List<Instruction>> instructionMatches;
         if (isExact) {
-            instructionMatches = Application.instructionSet.matchMnemonic(tokenText);
+            instructionMatches = List.of(Application.instructionSet.matchMnemonic(tokenText));
         }
         else {
             instructionMatches = Application.instructionSet.matchMnemonicPrefix(tokenText);
         }
-        if (instructionMatches == null) {
-            return null;
-        }
 
         ArrayList<PopupHelpItem> results = new ArrayList<>();
         int realMatches = 0;
-        Map<String, String> mnemonicDescriptions = new HashMap<>();
-        for (Instruction instruction : instructionMatches) {
-            if (Application.getSettings().extendedAssemblerEnabled.get() || instruction instanceof BasicInstruction) {
-                if (isExact) {
-                    results.add(new PopupHelpItem(tokenText, instruction.getExampleSyntax(), instruction.getTitle() + " : " + instruction.getDescription(), true));
-                }
-                else {
-                    if (!mnemonicDescriptions.containsKey(instruction.getMnemonic())) {
-                        mnemonicDescriptions.put(instruction.getMnemonic(), instruction.getTitle() + " : " + instruction.getDescription());
+        Map<String, String> mnemonicDescriptions = new LinkedHashMap<>(); // Preserves the sorted order of the matches
+        for (List<Instruction> variants : instructionMatches) {
+            for (Instruction instruction : variants) {
+                if (Application.getSettings().extendedAssemblerEnabled.get() || instruction instanceof BasicInstruction) {
+                    if (isExact) {
+                        results.add(new PopupHelpItem(tokenText, instruction.getExampleSyntax(), instruction.getTitle() + " : " + instruction.getDescription(), true));
+                    }
+                    else {
+                        if (!mnemonicDescriptions.containsKey(instruction.getMnemonic())) {
+                            mnemonicDescriptions.put(instruction.getMnemonic(), instruction.getTitle() + " : " + instruction.getDescription());
+                        }
                     }
+                    realMatches++;
                 }
-                realMatches++;
             }
         }
 
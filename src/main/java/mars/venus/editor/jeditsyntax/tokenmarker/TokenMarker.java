@@ -23,6 +23,12 @@ import java.util.ArrayList;
  * line is tokenized. Therefore, the return value of <code>markTokens</code>
  * should only be used for immediate painting. Notably, it cannot be
  * cached.
+ * <p>
+ * A separate copy of the token list for each line is cached in the
+ * {@link #lineInfo} array, and is discarded whenever the line is changed.
+ * Lines without cached tokens are called dirty; they can be tokenized a
+ * few at a time, in order, using {@link #getFirstDirtyLine()}, and the
+ * cached tokens can be retrieved with {@link #getCachedTokens(int)}.
  *
  * @author Slava Pestov
  * @version $Id: TokenMarker.java,v 1.32 1999/12/13 03:40:30 sp Exp $
@@ -57,6 +63,11 @@ public abstract class TokenMarker {
 
         info.token = token;
 
+        // If the state carried into the next line changed, its cached tokens are out of date
+        if (oldToken != token && lineIndex + 1 < length) {
+            invalidateLines(lineIndex + 1, 1);
+        }
+
         /*
          * This is a foul hack. It stops nextLineRequested from being cleared if
          * the same line is marked twice.
@@ -99,9 +110,85 @@ public abstract class TokenMarker {
 
         addToken(0, Token.END);
 
+        info.tokens = copyTokens(firstToken);
+
         return firstToken;
     }
 
+    /**
+     * Returns the token list for a line, using the cached copy if the line
+     * has not changed since it was last tokenized, and tokenizing it
+     * otherwise. Unlike the return value of {@link #markTokens(Segment, int)},
+     * the returned list is never modified and may be kept by the caller.
+     *
+     * @param line      The line
+     * @param lineIndex The index of the line
+     */
+    public Token getTokens(Segment line, int lineIndex) {
+        Token tokens = getCachedTokens(lineIndex);
+        if (tokens == null) {
+            markTokens(line, lineIndex);
+            tokens = lineInfo[lineIndex].tokens;
+        }
+        return tokens;
+    }
+
+    /**
+     * Returns the cached token list for a line, or null if the line
+     * is dirty, i.e. it has changed since it was last tokenized.
+     *
+     * @param lineIndex The index of the line
+     */
+    public Token getCachedTokens(int lineIndex) {
+        if (lineIndex < 0 || lineIndex >= length) {
+            return null;
+        }
+        return lineInfo[lineIndex].tokens;
+    }
+
+    /**
+     * Returns the index of the first dirty line, or the number of lines
+     * if every line has cached tokens.
+     */
+    public int getFirstDirtyLine() {
+        while (firstDirtyLine < length && lineInfo[firstDirtyLine].tokens != null) {
+            firstDirtyLine++;
+        }
+        return firstDirtyLine;
+    }
+
+    /**
+     * Discards the cached tokens for a range of lines, which must be
+     * tokenized again before their cached tokens can be used.
+     *
+     * @param index The first line number
+     * @param lines The number of lines
+     */
+    public void invalidateLines(int index, int lines) {
+        int end = Math.min(index + lines, length);
+        for (int i = Math.max(index, 0); i < end; i++) {
+            lineInfo[i].tokens = null;
+        }
+        if (index < end) {
+            firstDirtyLine = Math.min(firstDirtyLine, Math.max(index, 0));
+        }
+    }
+
+    /**
+     * Makes a copy of a token list up to and including the
+     * {@link Token#END} token.
+     */
+    private static Token copyTokens(Token tokens) {
+        Token first = new Token(tokens.length, tokens.id);
+        Token last = first;
+        while (tokens.id != Token.END) {
+            tokens = tokens.next;
+            last.next = new Token(tokens.length, tokens.id);
+            last = last.next;
+        }
+        return first;
+    }
+
     /**
      * An abstract method that splits a line up into tokens. It
      * should parse the line, and call {@link #addToken(int, byte)} to
@@ -136,7 +223,7 @@ public abstract class TokenMarker {
     /**
      * Informs the token marker that lines have been inserted into
      * the document. This inserts a gap in the {@link #lineInfo}
-     * array.
+     * array, filled with dirty lines.
      *
      * @param index The first line number
      * @param lines The number of lines
@@ -153,12 +240,14 @@ public abstract class TokenMarker {
         for (int i = index + lines - 1; i >= index; i--) {
             lineInfo[i] = new LineInfo();
         }
+        firstDirtyLine = Math.min(firstDirtyLine, index);
     }
 
     /**
      * Informs the token marker that line have been deleted from
      * the document. This removes the lines in question from the
-     * {@link #lineInfo} array.
+     * {@link #lineInfo} array. The line following them is marked dirty,
+     * since the state carried into it may have changed.
      *
      * @param index The first line number
      * @param lines The number of lines
@@ -170,6 +259,8 @@ public abstract class TokenMarker {
         int len = index + lines;
         length -= lines;
         System.arraycopy(lineInfo, len, lineInfo, index, lineInfo.length - len);
+        invalidateLines(index, 1);
+        firstDirtyLine = Math.min(firstDirtyLine, length);
     }
 
     /**
@@ -252,6 +343,11 @@ public abstract class TokenMarker {
      */
     protected boolean nextLineRequested;
 
+    /**
+     * No line before this one is dirty.
+     */
+    protected int firstDirtyLine;
+
     /**
      * Creates a new <code>TokenMarker</code>. This DOES NOT create
      * a {@link #lineInfo} array; an initial call to {@link #insertLines(int, int)}
@@ -343,6 +439,12 @@ public abstract class TokenMarker {
          */
         public byte token;
 
+        /**
+         * A copy of the token list for the line, or null if the line
+         * has changed since it was last tokenized.
+         */
+        public Token tokens;
+
         /**
          * This is for use by the token marker implementations
          * themselves. It can be used to store anything that
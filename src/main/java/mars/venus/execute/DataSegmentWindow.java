@@ -10,14 +10,14 @@ import mars.venus.RepeatButton;
 import mars.venus.VenusUI;
 
 import javax.swing.*;
-import javax.swing.event.TableModelEvent;
 import javax.swing.table.AbstractTableModel;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.JTableHeader;
-import javax.swing.table.TableModel;
 import java.awt.*;
 import java.awt.event.*;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 
 /*
 Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
@@ -49,12 +49,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 
 /**
  * Represents the Data Segment window, which is a type of JInternalFrame.
+ * <p>
+ * The table is virtual: rather than holding a fixed chunk of memory, its model covers a window of up to
+ * {@link #MAX_ROW_COUNT} rows of the address space and formats cells on demand as they are painted,
+ * so only the visible cells are ever read from memory. When scrolling comes close to either end of the window,
+ * the window is moved along with it, so the entire address space can be scrolled through.
  *
  * @author Sanderson and Bumgarner
  */
 public class DataSegmentWindow extends JInternalFrame implements SimulatorListener, Memory.Listener {
     private final VenusUI gui;
-    private Object[][] tableData;
+    private MemoryTableModel tableModel;
     private JTable table;
     private JScrollPane tableScrollPane;
     private final Container contentPane;
@@ -63,15 +68,18 @@ public class DataSegmentWindow extends JInternalFrame implements SimulatorListen
     private JButton prevButton;
 
     public static final int VALUES_PER_ROW = 8;
-    public static final int ROW_COUNT = 16; // with 8 value columns, this shows 512 bytes
     public static final int COLUMN_COUNT = 1 + VALUES_PER_ROW; // 1 for address and 8 for values
     public static final int BYTES_PER_VALUE = Memory.BYTES_PER_WORD;
     public static final int BYTES_PER_ROW = VALUES_PER_ROW * BYTES_PER_VALUE;
-    public static final int MEMORY_CHUNK_SIZE = ROW_COUNT * BYTES_PER_ROW;
-    // PREV_NEXT_CHUNK_SIZE determines how many rows will be scrolled when Prev or Next buttons fire.
-    // MEMORY_CHUNK_SIZE / 2 means scroll half a table up or down.  Easier to view series that flows off the edge.
-    // MEMORY_CHUNK_SIZE means scroll a full table's worth.  Scrolls through memory faster.  DPS 26-Jan-09
-    public static final int PREV_NEXT_CHUNK_SIZE = MEMORY_CHUNK_SIZE / 2;
+    /**
+     * The maximum number of rows in the table model at once, which keeps the height of the table in pixels
+     * well within the range of an <code>int</code>. With 8 value columns, this covers 32 MiB of memory.
+     */
+    public static final int MAX_ROW_COUNT = 1 << 20;
+    // When the first or last visible row comes within this many rows of the end of the window, the window is moved.
+    private static final int WINDOW_MARGIN = MAX_ROW_COUNT / 8;
+    // The maximum number of formatted rows to keep between updates, which is far more than can be visible at once.
+    private static final int ROW_CACHE_LIMIT = 1024;
     public static final int ADDRESS_COLUMN = 0;
     public static final boolean USER_MODE = false;
     public static final boolean KERNEL_MODE = true;
@@ -81,7 +89,8 @@ public class DataSegmentWindow extends JInternalFrame implements SimulatorListen
     private int addressRowFirstAddress;
     private int addressColumn;
 
-    private int firstAddress;
+    private int firstAddress; // address of the first row in the table model
+    private int rowCount; // number of rows in the table model
     private int homeAddress;
     private boolean userOrKernelMode;
 
@@ -250,13 +259,26 @@ public class DataSegmentWindow extends JInternalFrame implements SimulatorListen
         if (rowColumn == null || rowColumn.x < 0 || rowColumn.y < 0) {
             return;
         }
-        this.addressColumn = rowColumn.y;
-        this.addressRowFirstAddress = Binary.decodeInteger(this.table.getValueAt(rowColumn.x, ADDRESS_COLUMN).toString());
-        // Tell the system that table contents have changed.  This will trigger re-rendering
-        // during which cell renderers are obtained.  The cell of interest (identified by
-        // instance variables this.addressRow and this.addressColumn) will get a renderer
+        // Repaint only the previously highlighted cell and the newly highlighted one.  The cell of interest
+        // (identified by this.addressRowFirstAddress and this.addressColumn) will get a renderer
         // with highlight background color and all others get renderer with default background.
-        this.table.tableChanged(new TableModelEvent(this.table.getModel(), 0, this.tableData.length - 1));
+        this.repaintHighlightedCell();
+        this.addressColumn = rowColumn.y;
+        this.addressRowFirstAddress = this.firstAddress + rowColumn.x * BYTES_PER_ROW;
+        this.tableModel.refreshCell(rowColumn.x, this.table.convertColumnIndexToModel(rowColumn.y));
+    }
+
+    /**
+     * Refresh the cell currently highlighted, if it is within the table model.
+     */
+    private void repaintHighlightedCell() {
+        if (this.addressColumn < 0) {
+            return;
+        }
+        int row = this.getRowForAddress(this.addressRowFirstAddress);
+        if (row >= 0) {
+            this.tableModel.refreshCell(row, this.table.convertColumnIndexToModel(this.addressColumn));
+        }
     }
 
     /**
@@ -271,7 +293,17 @@ public class DataSegmentWindow extends JInternalFrame implements SimulatorListen
      * kernel instead of user data segment).
      */
     public Point displayCellForAddress(int address) {
-        // This requires a 5-step process.  Each step is described
+        if (this.table == null) {
+            return null;
+        }
+        // If the cell is already visible, there is no need to move the table at all
+        int visibleRow = this.getRowForAddress(address);
+        if (visibleRow >= this.getFirstVisibleRow() && visibleRow <= this.getLastVisibleRow()) {
+            int column = this.table.convertColumnIndexToView((address - this.firstAddress) % BYTES_PER_ROW / BYTES_PER_VALUE + 1);
+            return new Point(visibleRow, column);
+        }
+
+        // Otherwise, this requires a 5-step process.  Each step is described
         // just above the statements that implement it.
 
         // STEP 1: Determine which data segment contains this address.
@@ -280,50 +312,29 @@ public class DataSegmentWindow extends JInternalFrame implements SimulatorListen
             // It is not a data segment address so good bye!
             return null;
         }
-        // STEP 2:  Set the combo box appropriately.  This will also display the
-        // first chunk of addresses from that segment.
+        // STEP 2:  Set the combo box appropriately.  This will also select the
+        // user or kernel address space and display the start of that segment.
         this.baseAddressSelector.setSelectedIndex(desiredComboBoxIndex);
         ((CustomComboBoxModel) this.baseAddressSelector.getModel()).forceComboBoxUpdate(desiredComboBoxIndex);
         this.baseAddressButtons[desiredComboBoxIndex].getActionListeners()[0].actionPerformed(null);
-        // STEP 3:  Display memory chunk containing this address, which may be
-        // different than the one just displayed.
-        int baseAddress = this.baseAddresses[desiredComboBoxIndex];
-        if (baseAddress == -1) {
-            if (desiredComboBoxIndex == GLOBAL_POINTER_BASE_ADDRESS_INDEX) {
-                baseAddress = Memory.alignToPrevious(Processor.getValue(Processor.GLOBAL_POINTER), BYTES_PER_ROW);
-            }
-            else if (desiredComboBoxIndex == STACK_POINTER_BASE_ADDRESS_INDEX) {
-                baseAddress = Memory.alignToPrevious(Processor.getValue(Processor.STACK_POINTER), BYTES_PER_ROW);
-            }
-            else {
-                // Shouldn't happen since these are the only two
+        // STEP 3:  Move the table model window so it contains this address, if it does not already.
+        int addrRow = this.getRowForAddress(address);
+        if (addrRow < 0) {
+            this.setWindow(address);
+            addrRow = this.getRowForAddress(address);
+            if (addrRow < 0) {
+                // The address is outside the address space being displayed
                 return null;
             }
         }
-        int byteOffset = address - baseAddress;
-        int chunkOffset = byteOffset / MEMORY_CHUNK_SIZE;
-        int byteOffsetIntoChunk = byteOffset % MEMORY_CHUNK_SIZE;
-        // Subtract 1 from chunkOffset because we're gonna call the "next" action
-        // listener to get the correct chunk loaded and displayed, and the first
-        // thing it does is increment firstAddress by MEMORY_CHUNK_SIZE.  Here
-        // we do an offsetting decrement in advance because we don't want the
-        // increment but we want the other actions that method provides.
-        this.firstAddress += chunkOffset * MEMORY_CHUNK_SIZE - PREV_NEXT_CHUNK_SIZE;
-        this.nextButton.getActionListeners()[0].actionPerformed(null);
         // STEP 4:  Find cell containing this address.  Add 1 to column calculation
         // because table column 0 displays address, not memory contents.  The
         // "convertColumnIndexToView()" is not necessary because the columns cannot be
         // reordered, but I included it as a precautionary measure in case that changes.
-        int addrRow = byteOffsetIntoChunk / BYTES_PER_ROW;
-        int addrColumn = byteOffsetIntoChunk % BYTES_PER_ROW / BYTES_PER_VALUE + 1;
+        int addrColumn = (address - this.firstAddress) % BYTES_PER_ROW / BYTES_PER_VALUE + 1;
         addrColumn = this.table.convertColumnIndexToView(addrColumn);
-        Rectangle addressCell = this.table.getCellRect(addrRow, addrColumn, true);
         // STEP 5:  Center the row containing the cell of interest, to the extent possible.
-        double cellHeight = addressCell.getHeight();
-        double viewHeight = this.tableScrollPane.getViewport().getExtentSize().getHeight();
-        int numberOfVisibleRows = (int) (viewHeight / cellHeight);
-        int newViewPositionY = Math.max((int) ((addrRow - (numberOfVisibleRows / 2)) * cellHeight), 0);
-        this.tableScrollPane.getViewport().setViewPosition(new Point(0, newViewPositionY));
+        this.scrollToRow(addrRow, true);
         return new Point(addrRow, addrColumn);
     }
 
@@ -419,30 +430,15 @@ public class DataSegmentWindow extends JInternalFrame implements SimulatorListen
      * Returns the JScrollPane for the Address/Data part of the Data Segment window.
      */
     private JScrollPane generateDataPanel() {
-        int valueBase = this.gui.getMainPane().getExecuteTab().getValueDisplayBase();
         int addressBase = this.gui.getMainPane().getExecuteTab().getAddressDisplayBase();
 
-        this.tableData = new Object[ROW_COUNT][COLUMN_COUNT];
-        int address = this.homeAddress;
-        for (int row = 0; row < ROW_COUNT; row++) {
-            this.tableData[row][ADDRESS_COLUMN] = NumberDisplayBaseChooser.formatUnsignedInteger(address, addressBase);
-            for (int column = 1; column < COLUMN_COUNT; column++) {
-                try {
-                    this.tableData[row][column] = NumberDisplayBaseChooser.formatNumber(Memory.getInstance().fetchWord(address, false), valueBase);
-                }
-                catch (AddressErrorException exception) {
-                    this.tableData[row][column] = NumberDisplayBaseChooser.formatNumber(0, valueBase);
-                }
-                address += BYTES_PER_VALUE;
-            }
-        }
-
         String[] columnNames = new String[COLUMN_COUNT];
         for (int column = 0; column < COLUMN_COUNT; column++) {
             columnNames[column] = getColumnName(column, addressBase);
         }
 
-        this.table = new MemoryTable(new MemoryTableModel(this.tableData, columnNames));
+        this.tableModel = new MemoryTableModel(columnNames);
+        this.table = new MemoryTable(this.tableModel);
         // Addresses are column 0, render right-justified in mono font
         SimpleCellRenderer simpleCellRenderer = new SimpleCellRenderer(SwingConstants.RIGHT);
         this.table.getColumnModel().getColumn(ADDRESS_COLUMN).setPreferredWidth(60);
@@ -454,9 +450,176 @@ public class DataSegmentWindow extends JInternalFrame implements SimulatorListen
             this.table.getColumnModel().getColumn(col).setCellRenderer(addressCellRenderer);
         }
         this.tableScrollPane = new JScrollPane(this.table, ScrollPaneConstants.VERTICAL_SCROLLBAR_AS_NEEDED, ScrollPaneConstants.HORIZONTAL_SCROLLBAR_AS_NEEDED);
+        this.tableScrollPane.getVerticalScrollBar().addAdjustmentListener(event -> {
+            // Wait until the user lets go of the scroll bar before moving the window out from under it
+            if (!event.getValueIsAdjusting()) {
+                this.moveWindowIfNeeded();
+                this.updateNavigationButtons();
+            }
+        });
+
+        this.showAddress(this.homeAddress);
         return this.tableScrollPane;
     }
 
+    /**
+     * Position the table model window around an address, keeping it within the address space being displayed.
+     * The table is not scrolled; see {@link #scrollToRow(int, boolean)}.
+     *
+     * @param address The address which should be near the middle of the window, if possible.
+     */
+    private void setWindow(int address) {
+        MemoryLayout.Range range = this.getAddressSpaceRange();
+        long minAddress = Integer.toUnsignedLong(Memory.alignToPrevious(range.minAddress(), BYTES_PER_ROW));
+        long maxAddress = Integer.toUnsignedLong(range.maxAddress());
+        long totalRowCount = (maxAddress - minAddress) / BYTES_PER_ROW + 1;
+        long rowCount = Math.min(totalRowCount, MAX_ROW_COUNT);
+        long addressRow = (Math.max(Integer.toUnsignedLong(address), minAddress) - minAddress) / BYTES_PER_ROW;
+        long firstRow = Math.max(0, Math.min(addressRow - rowCount / 2, totalRowCount - rowCount));
+
+        int firstAddress = (int) (minAddress + firstRow * BYTES_PER_ROW);
+        if (firstAddress != this.firstAddress || rowCount != this.rowCount) {
+            this.firstAddress = firstAddress;
+            this.rowCount = (int) rowCount;
+            if (this.tableModel != null) {
+                this.tableModel.windowChanged();
+                // Lay out the table right away so it can be scrolled to its new size
+                this.tableScrollPane.validate();
+            }
+        }
+    }
+
+    /**
+     * Get the range of addresses which can be displayed in the current mode.  For user mode, this means no
+     * lower than the user memory base or higher than the user memory boundary.  For kernel mode, this means
+     * no lower than mapped memory base or higher than mapped memory boundary.
+     */
+    private MemoryLayout.Range getAddressSpaceRange() {
+        return (this.userOrKernelMode == USER_MODE)
+            ? Memory.getInstance().getLayout().userRange
+            : Memory.getInstance().getLayout().mappedRange;
+    }
+
+    /**
+     * Get the row of the table model containing an address.
+     *
+     * @return The row index, or -1 if the address is outside the current window.
+     */
+    private int getRowForAddress(int address) {
+        long offset = Integer.toUnsignedLong(address) - Integer.toUnsignedLong(this.firstAddress);
+        if (offset < 0 || offset >= (long) this.rowCount * BYTES_PER_ROW) {
+            return -1;
+        }
+        return (int) (offset / BYTES_PER_ROW);
+    }
+
+    private int getFirstVisibleRow() {
+        if (this.table == null) {
+            return 0;
+        }
+        return this.tableScrollPane.getViewport().getViewPosition().y / this.table.getRowHeight();
+    }
+
+    private int getLastVisibleRow() {
+        if (this.table == null) {
+            return -1;
+        }
+        JViewport viewport = this.tableScrollPane.getViewport();
+        int lastRow = (viewport.getViewPosition().y + viewport.getExtentSize().height - 1) / this.table.getRowHeight();
+        return Math.min(lastRow, this.rowCount - 1);
+    }
+
+    /**
+     * Move the window and scroll the table so the row containing an address is at the top of the view.
+     */
+    private void showAddress(int address) {
+        this.setWindow(address);
+        int row = this.getRowForAddress(address);
+        if (row >= 0) {
+            this.scrollToRow(row, false);
+        }
+        this.updateNavigationButtons();
+    }
+
+    /**
+     * Scroll the table so a row is visible.
+     *
+     * @param row      The row to scroll to.
+     * @param centered Whether to vertically center the row, if possible, rather than placing it at the top.
+     */
+    private void scrollToRow(int row, boolean centered) {
+        JViewport viewport = this.tableScrollPane.getViewport();
+        int rowHeight = this.table.getRowHeight();
+        int viewHeight = viewport.getExtentSize().height;
+        int y = row * rowHeight;
+        if (centered) {
+            y -= (viewHeight - rowHeight) / 2;
+        }
+        y = Math.max(0, Math.min(y, this.rowCount * rowHeight - viewHeight));
+        viewport.setViewPosition(new Point(viewport.getViewPosition().x, y));
+    }
+
+    /**
+     * Scroll the table by a number of rows, moving the window if the new position is outside of it.
+     */
+    private void scrollByRows(int rows) {
+        MemoryLayout.Range range = this.getAddressSpaceRange();
+        long minAddress = Integer.toUnsignedLong(Memory.alignToPrevious(range.minAddress(), BYTES_PER_ROW));
+        long maxAddress = Integer.toUnsignedLong(Memory.alignToPrevious(range.maxAddress(), BYTES_PER_ROW));
+        long targetAddress = Integer.toUnsignedLong(this.firstAddress) + (long) (this.getFirstVisibleRow() + rows) * BYTES_PER_ROW;
+        // Stop at either end of the address space
+        int address = (int) Math.max(minAddress, Math.min(targetAddress, maxAddress));
+        int row = this.getRowForAddress(address);
+        if (row < 0) {
+            this.showAddress(address);
+        }
+        else {
+            this.scrollToRow(row, false);
+            this.updateNavigationButtons();
+        }
+    }
+
+    /**
+     * Get the number of rows the Prev and Next buttons scroll by, which is half of the rows in view.
+     */
+    private int getPrevNextRowCount() {
+        return Math.max(1, (this.getLastVisibleRow() - this.getFirstVisibleRow() + 1) / 2);
+    }
+
+    /**
+     * If the view has come close to either end of the window, move the window so the view is near its middle,
+     * adjusting the scroll position so the same rows remain visible.
+     */
+    private void moveWindowIfNeeded() {
+        int firstVisibleRow = this.getFirstVisibleRow();
+        int lastVisibleRow = this.getLastVisibleRow();
+        if (firstVisibleRow >= WINDOW_MARGIN && lastVisibleRow < this.rowCount - WINDOW_MARGIN) {
+            return;
+        }
+        int firstVisibleAddress = this.firstAddress + firstVisibleRow * BYTES_PER_ROW;
+        int previousFirstAddress = this.firstAddress;
+        this.setWindow(firstVisibleAddress);
+        if (this.firstAddress != previousFirstAddress) {
+            JViewport viewport = this.tableScrollPane.getViewport();
+            int offset = viewport.getViewPosition().y % this.table.getRowHeight();
+            viewport.setViewPosition(new Point(viewport.getViewPosition().x, this.getRowForAddress(firstVisibleAddress) * this.table.getRowHeight() + offset));
+        }
+    }
+
+    /**
+     * Enable the Prev and Next buttons only if there is more memory to view in that direction.
+     */
+    private void updateNavigationButtons() {
+        if (this.table == null || !this.baseAddressSelector.isEnabled()) {
+            return;
+        }
+        MemoryLayout.Range range = this.getAddressSpaceRange();
+        int firstVisibleAddress = this.firstAddress + this.getFirstVisibleRow() * BYTES_PER_ROW;
+        int lastVisibleAddress = this.firstAddress + this.getLastVisibleRow() * BYTES_PER_ROW + BYTES_PER_ROW - 1;
+        this.prevButton.setEnabled(Integer.compareUnsigned(firstVisibleAddress, range.minAddress()) > 0);
+        this.nextButton.setEnabled(Integer.compareUnsigned(lastVisibleAddress, range.maxAddress()) < 0);
+    }
+
     /**
      * Little helper.  Is called when headers set up and each time number base changes.
      */
@@ -487,7 +650,9 @@ public class DataSegmentWindow extends JInternalFrame implements SimulatorListen
      */
     public void clearHighlighting() {
         this.addressHighlighting = false;
-        this.table.tableChanged(new TableModelEvent(this.table.getModel(), 0, this.tableData.length - 1));
+        if (this.table != null) {
+            this.repaintHighlightedCell();
+        }
         // The below addresses situation in which addressRow and addressColum hold their
         // values across assemble operations.  Whereupon at the first step of the next
         // run the last cells from the previous run are highlighted!  This method is called
@@ -501,36 +666,6 @@ public class DataSegmentWindow extends JInternalFrame implements SimulatorListen
         return (this.asciiDisplay) ? NumberDisplayBaseChooser.ASCII : this.gui.getMainPane().getExecuteTab().getValueDisplayBase();
     }
 
-    /**
-     * Update table model with contents of new memory "chunk".  MARS supports megabytes of
-     * data segment space so we only plug a "chunk" at a time into the table.
-     *
-     * @param firstAddress The first address in the memory range to be placed in the model.
-     */
-    public void updateModelForMemoryRange(int firstAddress) {
-        if (this.tablePanel.getComponentCount() == 0) {
-            // Ignore if no content to change
-            return;
-        }
-        int valueBase = getValueDisplayFormat();
-        int addressBase = this.gui.getMainPane().getExecuteTab().getAddressDisplayBase();
-        int address = firstAddress;
-        TableModel dataModel = this.table.getModel();
-        for (int row = 0; row < ROW_COUNT; row++) {
-            ((MemoryTableModel) dataModel).setDisplayAndModelValueAt(NumberDisplayBaseChooser.formatUnsignedInteger(address, addressBase), row, ADDRESS_COLUMN);
-            for (int column = 1; column < COLUMN_COUNT; column++) {
-                try {
-                    ((MemoryTableModel) dataModel).setDisplayAndModelValueAt(NumberDisplayBaseChooser.formatNumber(Memory.getInstance().fetchWord(address, false), valueBase), row, column);
-                }
-                catch (AddressErrorException exception) {
-                    // Display 0 for values outside of the valid address range
-                    ((MemoryTableModel) dataModel).setDisplayAndModelValueAt(NumberDisplayBaseChooser.formatNumber(0, valueBase), row, column);
-                }
-                address += BYTES_PER_VALUE;
-            }
-        }
-    }
-
     /**
      * Redisplay the addresses.  This should only be done when address display base is
      * modified (e.g. between base 16, hex, and base 10, dec).
@@ -541,13 +676,7 @@ public class DataSegmentWindow extends JInternalFrame implements SimulatorListen
             return;
         }
         int addressBase = this.gui.getMainPane().getExecuteTab().getAddressDisplayBase();
-        int address = this.firstAddress;
-        String formattedAddress;
-        for (int row = 0; row < ROW_COUNT; row++) {
-            formattedAddress = NumberDisplayBaseChooser.formatUnsignedInteger(address, addressBase);
-            ((MemoryTableModel) this.table.getModel()).setDisplayAndModelValueAt(formattedAddress, row, 0);
-            address += BYTES_PER_ROW;
-        }
+        this.tableModel.refreshVisibleRows();
         // Column headers include address offsets, so update them too
         for (int column = 1; column < COLUMN_COUNT; column++) {
             this.table.getColumnModel().getColumn(column).setHeaderValue(getColumnName(column, addressBase));
@@ -556,10 +685,15 @@ public class DataSegmentWindow extends JInternalFrame implements SimulatorListen
     }
 
     /**
-     * Update data display to show all values.
+     * Update data display to show all values.  Only the visible rows are actually read from memory,
+     * and rows scrolled into view later are read as they are painted.
      */
     public void updateValues() {
-        this.updateModelForMemoryRange(this.firstAddress);
+        if (this.tablePanel.getComponentCount() == 0) {
+            // Ignore if no content to change
+            return;
+        }
+        this.tableModel.refreshVisibleRows();
     }
 
     @Override
@@ -631,104 +765,79 @@ public class DataSegmentWindow extends JInternalFrame implements SimulatorListen
         this.nextButton.setToolTipText("View next/higher memory range (hold down for rapid fire)");
 
         // Add the action listeners to maintain button state and table contents
-        // Currently there is no memory upper bound so next button always enabled.
         this.baseAddressButtons[GLOBAL_POINTER_BASE_ADDRESS_INDEX].addActionListener(event -> {
             this.userOrKernelMode = USER_MODE;
-            this.firstAddress = Processor.getValue(Processor.GLOBAL_POINTER);
-            // updateModelForMemoryRange requires argument to be multiple of 4,
-            // but for cleaner display we'll make it a multiple of 32 (last nibble is 0).
+            // For cleaner display, show the row containing the address (last nibble is 0).
             // This makes it easier to mentally calculate address from row address + column offset.
-            this.firstAddress = Memory.alignToPrevious(this.firstAddress, BYTES_PER_ROW);
-            this.homeAddress = this.firstAddress;
-            this.updateFirstAddress(this.firstAddress);
-            this.updateModelForMemoryRange(this.firstAddress);
+            this.homeAddress = Memory.alignToPrevious(Processor.getValue(Processor.GLOBAL_POINTER), BYTES_PER_ROW);
+            this.showAddress(this.homeAddress);
         });
         this.baseAddressButtons[STACK_POINTER_BASE_ADDRESS_INDEX].addActionListener(event -> {
             this.userOrKernelMode = USER_MODE;
-            this.firstAddress = Processor.getValue(Processor.STACK_POINTER);
-            // See comment above for baseAddressButtons[GLOBAL_POINTER_BASE_ADDRESS_INDEX]
-            this.firstAddress = Memory.alignToPrevious(this.firstAddress, BYTES_PER_ROW);
             this.homeAddress = Memory.getInstance().getLayout().initialStackPointer;
-            this.updateFirstAddress(this.firstAddress);
-            this.updateModelForMemoryRange(this.firstAddress);
+            // See comment above for baseAddressButtons[GLOBAL_POINTER_BASE_ADDRESS_INDEX]
+            this.showAddress(Memory.alignToPrevious(Processor.getValue(Processor.STACK_POINTER), BYTES_PER_ROW));
         });
         this.baseAddressButtons[HEAP_BASE_ADDRESS_INDEX].addActionListener(event -> {
             this.userOrKernelMode = USER_MODE;
             this.homeAddress = Memory.getInstance().getLayout().dynamicRange.minAddress();
-            this.updateFirstAddress(this.homeAddress);
-            this.updateModelForMemoryRange(this.firstAddress);
+            this.showAddress(this.homeAddress);
         });
         this.baseAddressButtons[EXTERN_BASE_ADDRESS_INDEX].addActionListener(event -> {
             this.userOrKernelMode = USER_MODE;
             this.homeAddress = Memory.getInstance().getLayout().externRange.minAddress();
-            this.updateFirstAddress(this.homeAddress);
-            this.updateModelForMemoryRange(this.firstAddress);
+            this.showAddress(this.homeAddress);
         });
         this.baseAddressButtons[KERNEL_DATA_BASE_ADDRESS_INDEX].addActionListener(event -> {
             this.userOrKernelMode = KERNEL_MODE;
             this.homeAddress = Memory.getInstance().getLayout().kernelDataRange.minAddress();
-            this.updateFirstAddress(this.homeAddress);
-            this.updateModelForMemoryRange(this.firstAddress);
+            this.showAddress(this.homeAddress);
         });
         this.baseAddressButtons[MMIO_BASE_ADDRESS_INDEX].addActionListener(event -> {
             this.userOrKernelMode = KERNEL_MODE;
             this.homeAddress = Memory.getInstance().getLayout().mmioRange.minAddress();
-            this.updateFirstAddress(this.homeAddress);
-            this.updateModelForMemoryRange(this.firstAddress);
+            this.showAddress(this.homeAddress);
         });
         this.baseAddressButtons[TEXT_BASE_ADDRESS_INDEX].addActionListener(event -> {
             this.userOrKernelMode = USER_MODE;
             this.homeAddress = Memory.getInstance().getLayout().textRange.minAddress();
-            this.updateFirstAddress(this.homeAddress);
-            this.updateModelForMemoryRange(this.firstAddress);
+            this.showAddress(this.homeAddress);
         });
-        baseAddressButtons[DATA_BASE_ADDRESS_INDEX].addActionListener(event -> {
+        this.baseAddressButtons[DATA_BASE_ADDRESS_INDEX].addActionListener(event -> {
             this.userOrKernelMode = USER_MODE;
             this.homeAddress = Memory.getInstance().getLayout().staticRange.minAddress();
-            this.updateFirstAddress(this.homeAddress);
-            this.updateModelForMemoryRange(this.firstAddress);
+            this.showAddress(this.homeAddress);
         });
 
         // NOTE: action listeners for prevButton and nextButton are now in their
         // specialized inner classes at the bottom of this listing.  DPS 20 July 2008
     }
 
-    /**
-     * This will assure that user cannot view memory locations outside the data segment
-     * for selected mode.  For user mode, this means no lower than data segment base,
-     * or higher than user memory boundary.  For kernel mode, this means no lower than
-     * kernel data segment base or higher than kernel memory.  It is called by the
-     * above action listeners.
-     * <p>
-     * <code>prevButton</code> and <code>nextButton</code> are also enabled/disabled appropriately.
-     */
-    private void updateFirstAddress(int address) {
-        MemoryLayout.Range range = (this.userOrKernelMode == USER_MODE)
-            ? Memory.getInstance().getLayout().userRange
-            : Memory.getInstance().getLayout().mappedRange;
-
-        this.firstAddress = address;
-        if (this.firstAddress <= range.minAddress()) {
-            this.firstAddress = range.minAddress();
-            this.prevButton.setEnabled(false);
-        }
-        else {
-            this.prevButton.setEnabled(true);
-        }
-        if (this.firstAddress >= range.maxAddress() - MEMORY_CHUNK_SIZE) {
-            this.firstAddress = range.maxAddress() - MEMORY_CHUNK_SIZE + 1;
-            this.nextButton.setEnabled(false);
+    @Override
+    public void memoryWritten(int address, int length, int value, int wordAddress, int wordValue) {
+        if (Simulator.getInstance().isLimitingRunSpeed()) {
+            // Only the written cell needs to be repainted, and this may be called from the simulator thread
+            SwingUtilities.invokeLater(() -> {
+                this.addressHighlighting = true;
+                this.highlightCellForAddress(wordAddress);
+            });
         }
         else {
-            this.nextButton.setEnabled(true);
+            this.addressHighlighting = false;
         }
     }
 
     @Override
-    public void memoryWritten(int address, int length, int value, int wordAddress, int wordValue) {
-        if (Simulator.getInstance().isLimitingRunSpeed()) {
-            this.addressHighlighting = true;
-            this.highlightCellForAddress(wordAddress);
+    public void memoryBlockWritten(int address, int length) {
+        if (length > 0 && Simulator.getInstance().isLimitingRunSpeed()) {
+            // Highlighting every word of a large block would be pointless, so highlight the last word written
+            // and refresh whichever rows of the block are visible
+            int lastWordAddress = Memory.alignToPrevious(address + length - 1, Memory.BYTES_PER_WORD);
+            SwingUtilities.invokeLater(() -> {
+                this.tableModel.refreshVisibleRows();
+                this.addressHighlighting = true;
+                this.highlightCellForAddress(lastWordAddress);
+            });
         }
         else {
             this.addressHighlighting = false;
@@ -774,14 +883,16 @@ public class DataSegmentWindow extends JInternalFrame implements SimulatorListen
     }
 
     /**
-     * Class representing memory data table data.
+     * Class representing memory data table data.  Rather than storing the contents of every row, the model
+     * covers a window of up to {@link #MAX_ROW_COUNT} rows starting at <code>firstAddress</code>, and rows
+     * are only read from memory and formatted when the table asks for them (i.e. when they are painted).
+     * Formatted rows are cached until the next update so repainting does not read memory again.
      */
     private class MemoryTableModel extends AbstractTableModel {
         private final String[] columnNames;
-        private final Object[][] data;
+        private final Map<Integer, String[]> rowCache = new HashMap<>();
 
-        public MemoryTableModel(Object[][] data, String[] columnNames) {
-            this.data = data;
+        public MemoryTableModel(String[] columnNames) {
             this.columnNames = columnNames;
         }
 
@@ -792,7 +903,7 @@ public class DataSegmentWindow extends JInternalFrame implements SimulatorListen
 
         @Override
         public int getRowCount() {
-            return this.data.length;
+            return DataSegmentWindow.this.rowCount;
         }
 
         @Override
@@ -802,7 +913,70 @@ public class DataSegmentWindow extends JInternalFrame implements SimulatorListen
 
         @Override
         public Object getValueAt(int row, int column) {
-            return this.data[row][column];
+            String[] rowValues = this.rowCache.get(row);
+            if (rowValues == null) {
+                if (this.rowCache.size() >= ROW_CACHE_LIMIT) {
+                    // Only the rows near the view are needed, so there is no point keeping track of which is oldest
+                    this.rowCache.clear();
+                }
+                rowValues = this.formatRow(row);
+                this.rowCache.put(row, rowValues);
+            }
+            return rowValues[column];
+        }
+
+        /**
+         * Read a row of the table from memory and format it for display.
+         */
+        private String[] formatRow(int row) {
+            int valueBase = DataSegmentWindow.this.getValueDisplayFormat();
+            int addressBase = DataSegmentWindow.this.gui.getMainPane().getExecuteTab().getAddressDisplayBase();
+            int address = DataSegmentWindow.this.firstAddress + row * BYTES_PER_ROW;
+            String[] rowValues = new String[COLUMN_COUNT];
+            rowValues[ADDRESS_COLUMN] = NumberDisplayBaseChooser.formatUnsignedInteger(address, addressBase);
+            for (int column = 1; column < COLUMN_COUNT; column++) {
+                int value;
+                try {
+                    value = Memory.getInstance().fetchWord(address, false);
+                }
+                catch (AddressErrorException exception) {
+                    // Display 0 for values outside of the valid address range
+                    value = 0;
+                }
+                rowValues[column] = NumberDisplayBaseChooser.formatNumber(value, valueBase);
+                address += BYTES_PER_VALUE;
+            }
+            return rowValues;
+        }
+
+        /**
+         * Discard all formatted rows and repaint the rows currently in view.  Rows out of view
+         * are read again when they are scrolled into view.
+         */
+        public void refreshVisibleRows() {
+            this.rowCache.clear();
+            int firstVisibleRow = DataSegmentWindow.this.getFirstVisibleRow();
+            int lastVisibleRow = DataSegmentWindow.this.getLastVisibleRow();
+            if (firstVisibleRow <= lastVisibleRow) {
+                this.fireTableRowsUpdated(firstVisibleRow, lastVisibleRow);
+            }
+        }
+
+        /**
+         * Discard all formatted rows, since they are cached by row index rather than address, and notify
+         * the table that every row may have changed.  This must be called whenever the window is moved.
+         */
+        public void windowChanged() {
+            this.rowCache.clear();
+            this.fireTableDataChanged();
+        }
+
+        /**
+         * Read a single cell from memory again and repaint it.
+         */
+        public void refreshCell(int row, int column) {
+            this.rowCache.remove(row);
+            this.fireTableCellUpdated(row, column);
         }
 
         /**
@@ -824,7 +998,7 @@ public class DataSegmentWindow extends JInternalFrame implements SimulatorListen
          */
         @Override
         public Class<?> getColumnClass(int column) {
-            return this.getValueAt(0, column).getClass();
+            return String.class;
         }
 
         /**
@@ -845,7 +1019,11 @@ public class DataSegmentWindow extends JInternalFrame implements SimulatorListen
 
             // Update the cell to the proper number format
             int valueBase = DataSegmentWindow.this.gui.getMainPane().getExecuteTab().getValueDisplayBase();
-            this.setDisplayAndModelValueAt(NumberDisplayBaseChooser.formatNumber(intValue, valueBase), row, column);
+            String[] rowValues = this.rowCache.get(row);
+            if (rowValues != null) {
+                rowValues[column] = NumberDisplayBaseChooser.formatNumber(intValue, valueBase);
+            }
+            this.fireTableCellUpdated(row, column);
 
             // Calculate address from row and column
             int address = DataSegmentWindow.this.firstAddress + row * BYTES_PER_ROW + (column - 1) * BYTES_PER_VALUE;
@@ -861,14 +1039,6 @@ public class DataSegmentWindow extends JInternalFrame implements SimulatorListen
                 }
             });
         }
-
-        /**
-         * Update cell contents in table model.  Does not affect MIPS memory.
-         */
-        public void setDisplayAndModelValueAt(Object value, int row, int column) {
-            this.data[row][column] = value;
-            this.fireTableCellUpdated(row, column);
-        }
     }
 
     /**
@@ -988,8 +1158,7 @@ public class DataSegmentWindow extends JInternalFrame implements SimulatorListen
          */
         @Override
         public void actionPerformed(ActionEvent event) {
-            DataSegmentWindow.this.updateFirstAddress(DataSegmentWindow.this.firstAddress - PREV_NEXT_CHUNK_SIZE);
-            DataSegmentWindow.this.updateModelForMemoryRange(DataSegmentWindow.this.firstAddress);
+            DataSegmentWindow.this.scrollByRows(-DataSegmentWindow.this.getPrevNextRowCount());
         }
     }
 
@@ -1014,8 +1183,7 @@ public class DataSegmentWindow extends JInternalFrame implements SimulatorListen
          */
         @Override
         public void actionPerformed(ActionEvent event) {
-            DataSegmentWindow.this.updateFirstAddress(DataSegmentWindow.this.firstAddress + PREV_NEXT_CHUNK_SIZE);
-            DataSegmentWindow.this.updateModelForMemoryRange(DataSegmentWindow.this.firstAddress);
+            DataSegmentWindow.this.scrollByRows(DataSegmentWindow.this.getPrevNextRowCount());
         }
     }
 }
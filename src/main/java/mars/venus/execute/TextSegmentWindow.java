@@ -6,6 +6,7 @@ import mars.assembler.syntax.StatementSyntax;
 import mars.mips.hardware.*;
 import mars.simulator.*;
 import mars.util.Binary;
+import mars.util.IntLongMap;
 import mars.venus.EditorFont;
 import mars.venus.NumberDisplayBaseChooser;
 import mars.venus.VenusUI;
@@ -20,6 +21,7 @@ import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 /*
 Copyright (c) 2003-2007,  Pete Sanderson and Kenneth Vollmar
@@ -73,6 +75,11 @@ public class TextSegmentWindow extends JInternalFrame implements SimulatorListen
      * using the self-modifying code feature.
      */
     private static final String MODIFIED_CODE_MARKER = " ------ ";
+    /**
+     * The maximum number of formatted rows kept by the table model.  This only needs to cover
+     * a few screens' worth of rows, since rows are formatted again cheaply when scrolled back into view.
+     */
+    private static final int ROW_CACHE_CAPACITY = 1024;
 
     private final VenusUI gui;
     private final JPanel programArgumentsPanel; // DPS 17-July-2008
@@ -80,18 +87,20 @@ public class TextSegmentWindow extends JInternalFrame implements SimulatorListen
     private static final int PROGRAM_ARGUMENT_TEXTFIELD_COLUMNS = 40;
     private TextSegmentTable table;
     private JScrollPane tableScroller;
-    private Object[][] data;
     /*
-     * Maintain an int array of code addresses in parallel with ADDRESS_COLUMN,
-     * to speed model-row -> text-address mapping.  Maintain a Hashtable of
-     * (text-address, model-row) pairs to speed text-address -> model-row mapping.
-     * The former is used for breakpoints and changing display base (e.g. base 10
-     * to 16); the latter is used for highlighting.  Both structures will remain
-     * consistent once set up, since address column is not editable.
+     * The table model does not store the contents of its cells.  Instead, it keeps the assembled statements
+     * in address order, one per row, and formats cells from them as they are painted.  Maintain an int array
+     * of code addresses in parallel with the statements to speed model-row -> text-address mapping, and an
+     * IntLongMap of (text-address, model-row) pairs to speed text-address -> model-row mapping.  The former
+     * is used for breakpoints and rendering; the latter is used for highlighting and self-modifying code.
+     * These structures will remain consistent once set up, since the address column is not editable.
      */
+    private BasicStatement[] statements; // Index is table model row, value is original statement
     private int[] rowAddresses; // Index is table model row, value is text address
-    private Hashtable<Integer, Integer> addressRows; // Key is text address, value is table model row
-    private Hashtable<Integer, ModifiedCode> executeMods; // Key is table model row, value is original code, basic, source.
+    private IntLongMap addressRows; // Key is text address, value is table model row
+    private BitSet breakpoints; // Index is table model row, set if a breakpoint is set on that row
+    private Map<Integer, Integer> executeMods; // Key is table model row, value is modified binary code
+    private int maxSourceLineDigits;
     private TextTableModel tableModel;
     private boolean breakpointsEnabled; // Added 31 Dec 2009
     private int fetchAddress;
@@ -122,18 +131,25 @@ public class TextSegmentWindow extends JInternalFrame implements SimulatorListen
      * Should convert the lines of code over to the table rows and columns.
      */
     public void setupTable() {
-        int addressBase = this.gui.getMainPane().getExecuteTab().getAddressDisplayBase();
         this.breakpointsEnabled = true;
-        SortedMap<Integer, BasicStatement> statements = Application.assembler.getAssembledStatements();
-        this.data = new Object[statements.size()][COLUMN_NAMES.length];
-        this.rowAddresses = new int[this.data.length];
-        this.addressRows = new Hashtable<>(this.data.length);
-        this.executeMods = new Hashtable<>(this.data.length);
+        // Only the statements and their addresses are collected here; no cells are formatted until displayed
+        SortedMap<Integer, BasicStatement> statementMap = Application.assembler.getAssembledStatements();
+        this.statements = statementMap.values().toArray(new BasicStatement[0]);
+        this.rowAddresses = new int[this.statements.length];
+        this.addressRows = new IntLongMap(this.statements.length);
+        this.breakpoints = new BitSet(this.statements.length);
+        this.executeMods = new ConcurrentHashMap<>();
+        int row = 0;
+        for (int address : statementMap.keySet()) {
+            this.rowAddresses[row] = address;
+            this.addressRows.put(address, row);
+            row++;
+        }
         // Get highest source line number to determine # of leading spaces so line numbers will vertically align.
         // In multi-file situation, this will not necessarily be the last line b/c statements contains
         // source lines from all files.  DPS 03-Oct-2010
         int maxSourceLineNumber = 0;
-        for (BasicStatement statement : statements.values()) {
+        for (BasicStatement statement : this.statements) {
             if (statement.getSyntax() != null) {
                 int lineNumber = statement.getSyntax().getSourceLine().getLocation().getLineIndex() + 1;
                 if (lineNumber > maxSourceLineNumber) {
@@ -141,36 +157,9 @@ public class TextSegmentWindow extends JInternalFrame implements SimulatorListen
                 }
             }
         }
-        int maxSourceLineDigits = Integer.toUnsignedString(maxSourceLineNumber).length();
-        int leadingSpaces;
-        StatementSyntax currentSyntax = null;
-        int row = 0;
-        for (var entry : statements.entrySet()) {
-            int address = entry.getKey();
-            BasicStatement statement = entry.getValue();
-
-            this.rowAddresses[row] = address;
-            this.addressRows.put(address, row);
-            this.data[row][BREAKPOINT_COLUMN] = false;
-            this.data[row][ADDRESS_COLUMN] = NumberDisplayBaseChooser.formatUnsignedInteger(address, addressBase);
-            this.data[row][CODE_COLUMN] = NumberDisplayBaseChooser.formatNumber(statement.getBinaryEncoding(), 16);
-            this.data[row][BASIC_COLUMN] = statement.toString();
-
-            String sourceString = "";
-            if (statement.getSyntax() != null && statement.getSyntax() != currentSyntax) {
-                currentSyntax = statement.getSyntax();
-                int lineNumber = currentSyntax.getSourceLine().getLocation().getLineIndex() + 1;
-                String lineNumberString = Integer.toUnsignedString(lineNumber);
-                leadingSpaces = maxSourceLineDigits - lineNumberString.length();
-                String linePrefix = " ".repeat(leadingSpaces) + lineNumberString + ": ";
-                String line = EditorFont.substituteSpacesForTabs(currentSyntax.getSourceLine().getContent(), this.gui.getSettings().editorTabSize.get());
-                sourceString = linePrefix + line;
-            }
-            this.data[row][SOURCE_COLUMN] = sourceString;
-            row++;
-        }
+        this.maxSourceLineDigits = Integer.toUnsignedString(maxSourceLineNumber).length();
         this.getContentPane().removeAll();
-        this.tableModel = new TextTableModel(this.data);
+        this.tableModel = new TextTableModel();
         if (this.tableModelListener != null) {
             this.tableModel.addTableModelListener(this.tableModelListener);
             // Initialize listener
@@ -281,11 +270,7 @@ public class TextSegmentWindow extends JInternalFrame implements SimulatorListen
             // No content to change
             return;
         }
-        int addressBase = this.gui.getMainPane().getExecuteTab().getAddressDisplayBase();
-        for (int row = 0; row < this.rowAddresses.length; row++) {
-            String formattedAddress = NumberDisplayBaseChooser.formatUnsignedInteger(this.rowAddresses[row], addressBase);
-            this.table.getModel().setValueAt(formattedAddress, row, ADDRESS_COLUMN);
-        }
+        this.tableModel.refreshAllRows();
     }
 
     /**
@@ -297,82 +282,33 @@ public class TextSegmentWindow extends JInternalFrame implements SimulatorListen
             // No content to change
             return;
         }
-        SortedMap<Integer, BasicStatement> statements = Application.assembler.getAssembledStatements();
-        int row = 0;
-        for (var entry : statements.entrySet()) {
-            BasicStatement statement = entry.getValue();
-            // Loop has been extended to cover self-modifying code.  If code at this memory location has been
-            // modified at runtime, construct a BasicStatement from the current address and binary code
-            // then display its basic code.  DPS 11-July-2013
-            if (this.executeMods.get(row) == null) {
-                // Not modified, so use original logic
-                this.table.getModel().setValueAt(statement.toString(), row, BASIC_COLUMN);
-            }
-            else {
-                try {
-                    statement = Application.instructionSet.getDecoder().decodeStatement(
-                        Binary.decodeInteger(this.table.getModel().getValueAt(row, CODE_COLUMN).toString())
-                    );
-                    this.table.getModel().setValueAt(statement.toString(), row, BASIC_COLUMN);
-                }
-                catch (NumberFormatException exception) {
-                    // Should never happen, but just in case...
-                    this.table.getModel().setValueAt("", row, BASIC_COLUMN);
-                }
-            }
-            row++;
-        }
+        // Basic statements of self-modifying code are decoded from the current binary code when displayed
+        this.tableModel.refreshAllRows();
     }
 
     @Override
     public void memoryWritten(int address, int length, int value, int wordAddress, int wordValue) {
-        // Translate the address into table model row and modify the values in that row accordingly.
-        int row;
-        try {
-            row = this.findRowForAddress(wordAddress);
-        }
-        catch (IndexOutOfBoundsException exception) {
+        // Translate the address into table model row and record the modification for that row.
+        int row = (int) this.addressRows.get(wordAddress, -1);
+        if (row < 0) {
             // Address modified is outside the range of original program, ignore
             return;
         }
 
-        String strValue = Binary.intToHexString(wordValue);
-        String strBasic;
-        String strSource;
-        ModifiedCode modification = this.executeMods.get(row);
-        if (modification == null) {
-            // Not already modified and new code is same as original, so do nothing
-            if (this.tableModel.getValueAt(row, CODE_COLUMN).equals(strValue)) {
+        if (wordValue == this.statements[row].getBinaryEncoding()) {
+            // If restored to original value, display the original basic and source again
+            // (this will be the case upon backstepping)
+            if (this.executeMods.remove(row) == null) {
+                // Not already modified and new code is same as original, so do nothing
                 return;
             }
-            modification = new ModifiedCode(
-                row,
-                this.tableModel.getValueAt(row, CODE_COLUMN),
-                this.tableModel.getValueAt(row, BASIC_COLUMN),
-                this.tableModel.getValueAt(row, SOURCE_COLUMN)
-            );
-            this.executeMods.put(row, modification);
-            // Make a BasicStatement and get basic code to display in BASIC_COLUMN
-            strBasic = Application.instructionSet.getDecoder().decodeStatement(wordValue).toString();
-            strSource = MODIFIED_CODE_MARKER;
         }
         else {
-            // If restored to original value, restore the basic and source
-            // (this will be the case upon backstepping)
-            if (modification.code.equals(strValue)) {
-                strBasic = modification.basic.toString();
-                strSource = modification.source.toString();
-                // Remove from executeMods since we are back to original
-                this.executeMods.remove(row);
-            }
-            else {
-                // Make a BasicStatement and get basic code to display in BASIC_COLUMN
-                strBasic = Application.instructionSet.getDecoder().decodeStatement(wordValue).toString();
-                strSource = MODIFIED_CODE_MARKER;
-            }
+            // The basic code displayed in BASIC_COLUMN is decoded from the new binary code
+            this.executeMods.put(row, wordValue);
         }
 
-        // For the code column, we don't want to do the following:
+        // Note that we don't want to do the following:
         //       tableModel.setValueAt(strValue, row, CODE_COLUMN)
         // because that method will write to memory using Memory.setRawWord() which will
         // trigger notification to observers, which brings us back to here!!!  Infinite
@@ -380,10 +316,8 @@ public class TextSegmentWindow extends JInternalFrame implements SimulatorListen
         // this: (1) change to memory cell causes setValueAt() to be automatically be
         // called.  (2) it updates the memory cell which in turn notifies us which invokes
         // the update() method - the method we're in right now.  All we need to do here is
-        // update the table model then notify the controller/view to update its display.
-        this.tableModel.setDisplayAndModelValueAt(strValue, row, CODE_COLUMN);
-        this.tableModel.setDisplayAndModelValueAt(strBasic, row, BASIC_COLUMN);
-        this.tableModel.setDisplayAndModelValueAt(strSource, row, SOURCE_COLUMN);
+        // notify the controller/view to update its display.
+        SwingUtilities.invokeLater(() -> this.tableModel.refreshRow(row));
 
         // Let's update the value displayed in the DataSegmentWindow too.  But it only observes memory while
         // the MIPS program is running, and even then only in timed or step mode.  There are good reasons
@@ -419,12 +353,11 @@ public class TextSegmentWindow extends JInternalFrame implements SimulatorListen
      */
     public void resetModifiedSourceCode() {
         if (this.executeMods != null && !this.executeMods.isEmpty()) {
-            for (ModifiedCode modifiedCode : this.executeMods.values()) {
-                this.tableModel.setValueAt(modifiedCode.code, modifiedCode.row, CODE_COLUMN);
-                this.tableModel.setValueAt(modifiedCode.basic, modifiedCode.row, BASIC_COLUMN);
-                this.tableModel.setValueAt(modifiedCode.source, modifiedCode.row, SOURCE_COLUMN);
-            }
+            List<Integer> modifiedRows = List.copyOf(this.executeMods.keySet());
             this.executeMods.clear();
+            for (int row : modifiedRows) {
+                this.tableModel.refreshRow(row);
+            }
         }
     }
 
@@ -434,15 +367,7 @@ public class TextSegmentWindow extends JInternalFrame implements SimulatorListen
      * @return number of current breakpoints
      */
     public int getBreakpointCount() {
-        int breakpointCount = 0;
-        if (this.data != null) {
-            for (Object[] rowData : this.data) {
-                if (rowData[BREAKPOINT_COLUMN] == Boolean.TRUE) {
-                    breakpointCount++;
-                }
-            }
-        }
-        return breakpointCount;
+        return (this.breakpoints == null) ? 0 : this.breakpoints.cardinality();
     }
 
     /**
@@ -459,10 +384,8 @@ public class TextSegmentWindow extends JInternalFrame implements SimulatorListen
         }
         int[] breakpoints = new int[breakpointCount];
         breakpointCount = 0;
-        for (int row = 0; row < this.data.length; row++) {
-            if (this.data[row][BREAKPOINT_COLUMN] == Boolean.TRUE) {
-                breakpoints[breakpointCount++] = this.rowAddresses[row];
-            }
+        for (int row = this.breakpoints.nextSetBit(0); row >= 0; row = this.breakpoints.nextSetBit(row + 1)) {
+            breakpoints[breakpointCount++] = this.rowAddresses[row];
         }
         Arrays.sort(breakpoints);
         return breakpoints;
@@ -473,11 +396,9 @@ public class TextSegmentWindow extends JInternalFrame implements SimulatorListen
      * updates the display of the breakpoint column.
      */
     public void clearAllBreakpoints() {
-        for (int row = 0; row < this.tableModel.getRowCount(); row++) {
-            if (this.data[row][BREAKPOINT_COLUMN] == Boolean.TRUE) {
-                // Must use this method to assure display updated and listener notified
-                this.tableModel.setValueAt(Boolean.FALSE, row, BREAKPOINT_COLUMN);
-            }
+        for (int row = this.breakpoints.nextSetBit(0); row >= 0; row = this.breakpoints.nextSetBit(row + 1)) {
+            // Must use this method to assure display updated and listener notified
+            this.tableModel.setValueAt(Boolean.FALSE, row, BREAKPOINT_COLUMN);
         }
         // Handles an obscure situation: if you click to set some breakpoints then "immediately" clear them
         // all using the shortcut (CTRL-K), the last checkmark set is not removed even though the breakpoint
@@ -646,8 +567,8 @@ public class TextSegmentWindow extends JInternalFrame implements SimulatorListen
      * @throws IndexOutOfBoundsException Thrown if the address does not correspond to any row in the table.
      */
     public int findRowForAddress(int address) throws IndexOutOfBoundsException {
-        Integer row = this.addressRows.get(address);
-        if (row != null) {
+        int row = (int) this.addressRows.get(address, -1);
+        if (row >= 0) {
             return row;
         }
         else {
@@ -667,14 +588,17 @@ public class TextSegmentWindow extends JInternalFrame implements SimulatorListen
     }
 
     /**
-     * Inner class to implement the Table model for this JTable.
+     * Inner class to implement the Table model for this JTable.  Cells are formatted from the assembled
+     * statements on demand, and the most recently used rows are cached so repainting does not format them again.
+     * Only rows modified by self-modifying code have any state beyond the original statement.
      */
     private class TextTableModel extends AbstractTableModel {
-        private final Object[][] data;
-
-        public TextTableModel(Object[][] data) {
-            this.data = data;
-        }
+        private final Map<Integer, String[]> rowCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String[]> eldest) {
+                return this.size() > ROW_CACHE_CAPACITY;
+            }
+        };
 
         @Override
         public int getColumnCount() {
@@ -683,7 +607,7 @@ public class TextSegmentWindow extends JInternalFrame implements SimulatorListen
 
         @Override
         public int getRowCount() {
-            return this.data.length;
+            return TextSegmentWindow.this.statements.length;
         }
 
         @Override
@@ -693,7 +617,83 @@ public class TextSegmentWindow extends JInternalFrame implements SimulatorListen
 
         @Override
         public Object getValueAt(int row, int column) {
-            return this.data[row][column];
+            if (column == BREAKPOINT_COLUMN) {
+                return TextSegmentWindow.this.breakpoints.get(row);
+            }
+            String[] rowValues = this.rowCache.get(row);
+            if (rowValues == null) {
+                rowValues = this.formatRow(row);
+                this.rowCache.put(row, rowValues);
+            }
+            return rowValues[column];
+        }
+
+        /**
+         * Format the contents of a row for display.  If the code at this memory location has been
+         * modified at runtime, the basic code is decoded from the current binary code instead of
+         * using the original statement.  DPS 11-July-2013
+         */
+        private String[] formatRow(int row) {
+            int addressBase = TextSegmentWindow.this.gui.getMainPane().getExecuteTab().getAddressDisplayBase();
+            String[] rowValues = new String[COLUMN_NAMES.length];
+            rowValues[ADDRESS_COLUMN] = NumberDisplayBaseChooser.formatUnsignedInteger(TextSegmentWindow.this.rowAddresses[row], addressBase);
+            Integer modifiedCode = TextSegmentWindow.this.executeMods.get(row);
+            if (modifiedCode == null) {
+                BasicStatement statement = TextSegmentWindow.this.statements[row];
+                rowValues[CODE_COLUMN] = NumberDisplayBaseChooser.formatNumber(statement.getBinaryEncoding(), 16);
+                rowValues[BASIC_COLUMN] = statement.toString();
+                rowValues[SOURCE_COLUMN] = this.formatSource(row);
+            }
+            else {
+                rowValues[CODE_COLUMN] = Binary.intToHexString(modifiedCode);
+                rowValues[BASIC_COLUMN] = Application.instructionSet.getDecoder().decodeStatement(modifiedCode).toString();
+                rowValues[SOURCE_COLUMN] = MODIFIED_CODE_MARKER;
+            }
+            return rowValues;
+        }
+
+        /**
+         * Format the source line for a row.  Only the first of the statements generated from a source line
+         * displays the line; the rest of them display nothing in the Source column.
+         */
+        private String formatSource(int row) {
+            StatementSyntax syntax = TextSegmentWindow.this.statements[row].getSyntax();
+            if (syntax == null) {
+                return "";
+            }
+            for (int previousRow = row - 1; previousRow >= 0; previousRow--) {
+                StatementSyntax previousSyntax = TextSegmentWindow.this.statements[previousRow].getSyntax();
+                if (previousSyntax != null) {
+                    if (previousSyntax == syntax) {
+                        return "";
+                    }
+                    break;
+                }
+            }
+            int lineNumber = syntax.getSourceLine().getLocation().getLineIndex() + 1;
+            String lineNumberString = Integer.toUnsignedString(lineNumber);
+            int leadingSpaces = TextSegmentWindow.this.maxSourceLineDigits - lineNumberString.length();
+            String linePrefix = " ".repeat(Math.max(0, leadingSpaces)) + lineNumberString + ": ";
+            String line = EditorFont.substituteSpacesForTabs(syntax.getSourceLine().getContent(), TextSegmentWindow.this.gui.getSettings().editorTabSize.get());
+            return linePrefix + line;
+        }
+
+        /**
+         * Discard the formatted contents of a row and repaint it.
+         */
+        public void refreshRow(int row) {
+            this.rowCache.remove(row);
+            this.fireTableRowsUpdated(row, row);
+        }
+
+        /**
+         * Discard the formatted contents of all rows and repaint them.
+         */
+        public void refreshAllRows() {
+            this.rowCache.clear();
+            if (this.getRowCount() > 0) {
+                this.fireTableRowsUpdated(0, this.getRowCount() - 1);
+            }
         }
 
         /**
@@ -704,7 +704,7 @@ public class TextSegmentWindow extends JInternalFrame implements SimulatorListen
          */
         @Override
         public Class<?> getColumnClass(int column) {
-            return this.getValueAt(0, column).getClass();
+            return (column == BREAKPOINT_COLUMN) ? Boolean.class : String.class;
         }
 
         /**
@@ -723,8 +723,13 @@ public class TextSegmentWindow extends JInternalFrame implements SimulatorListen
          */
         @Override
         public void setValueAt(Object value, int row, int column) {
+            if (column == BREAKPOINT_COLUMN) {
+                TextSegmentWindow.this.breakpoints.set(row, value == Boolean.TRUE);
+                this.fireTableCellUpdated(row, column);
+                return;
+            }
             if (column != CODE_COLUMN) {
-                this.setDisplayAndModelValueAt(value, row, column);
+                // Other columns are derived from memory and cannot be set directly
                 return;
             }
 
@@ -755,18 +760,8 @@ public class TextSegmentWindow extends JInternalFrame implements SimulatorListen
                 }
             });
         }
-
-        /**
-         * Update cell contents in table model.  Does not affect underlying memory.
-         */
-        public void setDisplayAndModelValueAt(Object value, int row, int column) {
-            this.data[row][column] = value;
-            this.fireTableCellUpdated(row, column);
-        }
     }
 
-    private record ModifiedCode(int row, Object code, Object basic, Object source) {}
-
     /**
      * A custom table cell renderer that we'll use to highlight the current line of
      * source code when executing using Step or breakpoint.
@@ -962,7 +957,7 @@ public class TextSegmentWindow extends JInternalFrame implements SimulatorListen
                     this.table.tableChanged(new TableModelEvent(
                         TextSegmentWindow.this.tableModel,
                         0,
-                        TextSegmentWindow.this.data.length - 1,
+                        TextSegmentWindow.this.tableModel.getRowCount() - 1,
                         BREAKPOINT_COLUMN
                     ));
                 }